@@ -0,0 +1,160 @@
+package org.yamcs.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.yamcs.ConfigurationException;
+import org.yamcs.Processor;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.ProcessorFactory;
+import org.yamcs.YConfiguration;
+import org.yamcs.simulator.ColumbusCcsdsPacket;
+import org.yamcs.simulator.DHSHandler;
+import org.yamcs.simulator.EpsLvpduHandler;
+import org.yamcs.simulator.FlightDataHandler;
+import org.yamcs.simulator.PowerHandler;
+import org.yamcs.simulator.RCSHandler;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.XtceDbFactory;
+
+/**
+ * Shared setup for the benchmarks requiring the simulator MDB or a processor.
+ * <p>
+ * The simulator MDB spreadsheets are looked up in the directory given by the {@value #MDB_DIR_PROPERTY} system
+ * property or, if not set, in {@code examples/simulation/src/main/yamcs/mdb} of the source tree containing the
+ * current directory.
+ */
+public class BenchmarkSetup {
+    public static final String MDB_DIR_PROPERTY = "yamcs.benchmarks.mdbDir";
+    public static final String INSTANCE = "benchmark";
+
+    static final String SIMULATOR_MDB_PATH = "examples/simulation/src/main/yamcs/mdb";
+    static final int MAIN_APID = 1;
+
+    private static XtceDb simulatorMdb;
+    private static boolean configured = false;
+
+    /**
+     * Registers in memory the configuration required to create processors for the {@value #INSTANCE} instance.
+     * <p>
+     * The instance uses the simulator MDB and stores its data in a temporary directory.
+     */
+    public static synchronized void setupConfiguration() throws IOException {
+        if (configured) {
+            return;
+        }
+        YConfiguration.setupTest(null);
+        File dataDir = Files.createTempDirectory("yamcs-benchmarks").toFile();
+        register("yamcs", "dataDir: " + quote(dataDir.getAbsolutePath()) + "\n");
+
+        File mdbDir = getMdbDir();
+        String instanceConf = "mdb:\n"
+                + "  - type: sheet\n"
+                + "    args:\n"
+                + "      file: " + quote(new File(mdbDir, "simulator-ccsds.xls").getAbsolutePath()) + "\n"
+                + "    subLoaders:\n"
+                + "      - type: sheet\n"
+                + "        args:\n"
+                + "          file: " + quote(new File(mdbDir, "landing.xls").getAbsolutePath()) + "\n";
+        register("yamcs." + INSTANCE, instanceConf);
+        configured = true;
+    }
+
+    /**
+     * @return the simulator MDB (without the TSE part) loaded from the spreadsheets
+     */
+    public static synchronized XtceDb getSimulatorMdb() throws IOException {
+        if (simulatorMdb == null) {
+            setupConfiguration();
+            simulatorMdb = XtceDbFactory.getInstance(INSTANCE);
+        }
+        return simulatorMdb;
+    }
+
+    /**
+     * Creates a processor without any service on the {@value #INSTANCE} instance.
+     * <p>
+     * The processor is not started; the parameter and container request managers can be used directly.
+     */
+    public static Processor createProcessor(String name) throws Exception {
+        getSimulatorMdb();
+        return ProcessorFactory.create(INSTANCE, name, "benchmark", Collections.emptyList(), "benchmark",
+                new ProcessorConfig(), null);
+    }
+
+    /**
+     * Generates packets in the same way as the simulator does for the flight data and housekeeping packets.
+     *
+     * @param count
+     *            number of packets to generate; the packet types are cycled.
+     * @return the binary packets
+     */
+    public static List<byte[]> generateSimulatorPackets(int count) {
+        FlightDataHandler flightDataHandler = new FlightDataHandler();
+        PowerHandler powerHandler = new PowerHandler();
+        DHSHandler dhsHandler = new DHSHandler();
+        RCSHandler rcsHandler = new RCSHandler();
+        EpsLvpduHandler epsLvpduHandler = new EpsLvpduHandler();
+
+        List<byte[]> packets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ColumbusCcsdsPacket packet;
+            switch (i % 5) {
+            case 0:
+                packet = new ColumbusCcsdsPacket(MAIN_APID, flightDataHandler.dataSize(), 33);
+                flightDataHandler.fillPacket(packet.getUserDataBuffer());
+                break;
+            case 1:
+                packet = new ColumbusCcsdsPacket(MAIN_APID, powerHandler.dataSize(), 1);
+                powerHandler.fillPacket(packet.getUserDataBuffer());
+                break;
+            case 2:
+                packet = new ColumbusCcsdsPacket(MAIN_APID, dhsHandler.dataSize(), 2);
+                dhsHandler.fillPacket(packet.getUserDataBuffer());
+                break;
+            case 3:
+                packet = new ColumbusCcsdsPacket(MAIN_APID, rcsHandler.dataSize(), 3);
+                rcsHandler.fillPacket(packet.getUserDataBuffer());
+                break;
+            default:
+                packet = new ColumbusCcsdsPacket(MAIN_APID, epsLvpduHandler.dataSize(), 4);
+                epsLvpduHandler.fillPacket(packet.getUserDataBuffer());
+            }
+            packet.fillChecksum();
+            packets.add(packet.getBytes());
+        }
+        return packets;
+    }
+
+    static File getMdbDir() {
+        String dir = System.getProperty(MDB_DIR_PROPERTY);
+        if (dir != null) {
+            return new File(dir);
+        }
+        File f = new File("").getAbsoluteFile();
+        while (f != null) {
+            File mdbDir = new File(f, SIMULATOR_MDB_PATH);
+            if (mdbDir.isDirectory()) {
+                return mdbDir;
+            }
+            f = f.getParentFile();
+        }
+        throw new ConfigurationException("Cannot find the simulator MDB directory " + SIMULATOR_MDB_PATH
+                + "; please specify its location with -D" + MDB_DIR_PROPERTY + "=<dir>");
+    }
+
+    private static void register(String subsystem, String yaml) {
+        new YConfiguration(subsystem, new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)),
+                subsystem + ".yaml");
+    }
+
+    private static String quote(String s) {
+        return "'" + s.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,71 @@
+package org.yamcs.benchmarks;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.utils.BitBuffer;
+
+/**
+ * Measures reading a buffer as a sequence of fields of the same size.
+ * <p>
+ * The aligned case starts at a byte boundary whereas the unaligned case starts at the third bit such that each field
+ * (except those of 8, 16, 32 or 64 bits) straddles byte boundaries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BitBufferBenchmark {
+    static final int BUFFER_SIZE = 4096;
+
+    @Param({ "1", "7", "12", "16", "32", "64" })
+    int numBits;
+
+    @Param({ "true", "false" })
+    boolean aligned;
+
+    @Param({ "BIG_ENDIAN", "LITTLE_ENDIAN" })
+    String byteOrder;
+
+    BitBuffer bitbuf;
+    int startPosition;
+    int numFields;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] b = new byte[BUFFER_SIZE];
+        new Random(0).nextBytes(b);
+        bitbuf = new BitBuffer(b);
+        bitbuf.setByteOrder("BIG_ENDIAN".equals(byteOrder) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        startPosition = aligned ? 0 : 3;
+        numFields = (8 * BUFFER_SIZE - startPosition) / numBits;
+    }
+
+    /**
+     * reads the full buffer; the result is the time for reading {@link #BUFFER_SIZE} bytes
+     */
+    @Benchmark
+    public long getBits() {
+        bitbuf.setPosition(startPosition);
+        long x = 0;
+        for (int i = 0; i < numFields; i++) {
+            x ^= bitbuf.getBits(numBits);
+        }
+        return x;
+    }
+}
@@ -0,0 +1,97 @@
+package org.yamcs.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.Row;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+
+/**
+ * Measures the serialization to and deserialization from the table format of tuples similar to the ones of the
+ * processed parameters and tm tables.
+ * <p>
+ * The tuples have a key made of a timestamp and a sequence count and as value a reception time, a binary packet and
+ * a number of parameter values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnSerializerBenchmark {
+    static final int NUM_PARAMS = 10;
+    static final int PACKET_SIZE = 256;
+
+    TableDefinition tableDefinition;
+    Tuple tuple;
+    byte[] key;
+    byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkSetup.setupConfiguration();
+
+        TupleDefinition tdef = new TupleDefinition();
+        tdef.addColumn("gentime", DataType.TIMESTAMP);
+        tdef.addColumn("seqNum", DataType.INT);
+        tdef.addColumn("rectime", DataType.TIMESTAMP);
+        tdef.addColumn("packet", DataType.BINARY);
+
+        Random random = new Random(0);
+        long now = TimeEncoding.getWallclockTime();
+        byte[] packet = new byte[PACKET_SIZE];
+        random.nextBytes(packet);
+        Object[] columns = new Object[4 + NUM_PARAMS];
+        columns[0] = now;
+        columns[1] = 1234;
+        columns[2] = now + 10;
+        columns[3] = packet;
+
+        for (int i = 0; i < NUM_PARAMS; i++) {
+            String name = "/benchmark/para" + i;
+            tdef.addColumn(name, DataType.PARAMETER_VALUE);
+            ParameterValue pv = new ParameterValue(name);
+            pv.setGenerationTime(now);
+            pv.setAcquisitionTime(now + 10);
+            pv.setRawValue(ValueUtility.getUint32Value(random.nextInt(4096)));
+            pv.setEngValue(ValueUtility.getDoubleValue(random.nextDouble()));
+            columns[4 + i] = pv;
+        }
+        tuple = new Tuple(tdef, columns);
+        tableDefinition = new TableDefinition("benchmark", tdef, Arrays.asList("gentime", "seqNum"));
+
+        Row row = tableDefinition.generateRow(tuple);
+        key = row.getKey();
+        value = tableDefinition.serializeValue(tuple, row);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        Row row = tableDefinition.generateRow(tuple);
+        return tableDefinition.serializeValue(tuple, row);
+    }
+
+    @Benchmark
+    public Tuple deserialize() {
+        return tableDefinition.deserialize(key, value);
+    }
+}
@@ -0,0 +1,100 @@
+package org.yamcs.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.Processor;
+import org.yamcs.parameter.ParameterConsumer;
+import org.yamcs.parameter.ParameterRequestManager;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.XtceTmExtractor;
+
+/**
+ * Measures the distribution of the parameters extracted from the simulator packets to a number of subscribers, each
+ * of them subscribed to a random half of the parameters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterRequestManagerBenchmark {
+    static final int NUM_PACKETS = 100;
+
+    @Param({ "1", "10", "100" })
+    int numSubscribers;
+
+    Processor processor;
+    ParameterRequestManager prm;
+    List<ParameterValueList> deliveries;
+    long count;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        XtceDb xtcedb = BenchmarkSetup.getSimulatorMdb();
+        processor = BenchmarkSetup.createProcessor("prm-benchmark-" + numSubscribers);
+        prm = processor.getParameterRequestManager();
+
+        XtceTmExtractor extractor = new XtceTmExtractor(xtcedb);
+        extractor.provideAll();
+        long now = TimeEncoding.getWallclockTime();
+        deliveries = new ArrayList<>(NUM_PACKETS);
+        List<Parameter> params = new ArrayList<>();
+        for (byte[] packet : BenchmarkSetup.generateSimulatorPackets(NUM_PACKETS)) {
+            ParameterValueList pvlist = extractor.processPacket(packet, now, now).getParameterResult();
+            deliveries.add(pvlist);
+            for (ParameterValue pv : pvlist) {
+                if (!params.contains(pv.getParameter())) {
+                    params.add(pv.getParameter());
+                }
+            }
+        }
+
+        Random random = new Random(0);
+        ParameterConsumer consumer = (subscriptionId, items) -> count += items.size();
+        for (int i = 0; i < numSubscribers; i++) {
+            List<Parameter> subscribed = new ArrayList<>();
+            for (Parameter p : params) {
+                if (random.nextBoolean()) {
+                    subscribed.add(p);
+                }
+            }
+            prm.addRequest(subscribed, consumer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processor.quit();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PACKETS)
+    public long update() {
+        for (ParameterValueList pvlist : deliveries) {
+            prm.update(pvlist);
+        }
+        return count;
+    }
+}
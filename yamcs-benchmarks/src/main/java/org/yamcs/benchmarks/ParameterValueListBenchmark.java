@@ -0,0 +1,118 @@
+package org.yamcs.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+/**
+ * Measures the {@link ParameterValueList} operations used when processing packets and algorithms: building the list,
+ * looking up the values of a parameter, iterating and removing.
+ * <p>
+ * Each parameter appears twice in the list, as it happens for the parameters extracted from packets containing
+ * arrays of records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterValueListBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int numParams;
+
+    List<Parameter> params;
+    List<ParameterValue> values;
+    ParameterValueList pvlist;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        params = new ArrayList<>(numParams);
+        for (int i = 0; i < numParams; i++) {
+            params.add(new Parameter("para" + i));
+        }
+        values = new ArrayList<>(2 * numParams);
+        for (int k = 0; k < 2; k++) {
+            for (Parameter p : params) {
+                ParameterValue pv = new ParameterValue(p);
+                pv.setEngValue(ValueUtility.getSint32Value(k));
+                values.add(pv);
+            }
+        }
+        pvlist = new ParameterValueList(values);
+    }
+
+    @Benchmark
+    public ParameterValueList add() {
+        ParameterValueList l = new ParameterValueList();
+        for (ParameterValue pv : values) {
+            l.add(pv);
+        }
+        return l;
+    }
+
+    @Benchmark
+    public ParameterValueList addPresized() {
+        ParameterValueList l = new ParameterValueList(values.size());
+        for (ParameterValue pv : values) {
+            l.add(pv);
+        }
+        return l;
+    }
+
+    @Benchmark
+    public int getLastInserted() {
+        int n = 0;
+        for (Parameter p : params) {
+            if (pvlist.getLastInserted(p) != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int count() {
+        int n = 0;
+        for (Parameter p : params) {
+            n += pvlist.count(p);
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int iterate() {
+        int n = 0;
+        for (ParameterValue pv : pvlist) {
+            n += pv.getEngValue().getSint32Value();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public ParameterValueList removeFirst() {
+        ParameterValueList l = new ParameterValueList(values);
+        for (Parameter p : params) {
+            l.removeFirst(p);
+        }
+        return l;
+    }
+}
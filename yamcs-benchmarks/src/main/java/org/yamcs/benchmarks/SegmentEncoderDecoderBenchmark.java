@@ -0,0 +1,127 @@
+package org.yamcs.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yamcs.parameter.BasicParameterValue;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.parameterarchive.BaseSegment;
+import org.yamcs.parameterarchive.PGSegment;
+import org.yamcs.parameterarchive.ParameterArchive;
+import org.yamcs.parameterarchive.SegmentEncoderDecoder;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+
+/**
+ * Measures the building, encoding and decoding of the parameter archive segments.
+ * <p>
+ * The data is one parameter group of 6 parameters (double, float, uint32, sint64, string and boolean) sampled at 10 Hz
+ * for the duration of a full segment; one operation means processing all the segments of the group.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SegmentEncoderDecoderBenchmark {
+    static final int NUM_PARAMS = 6;
+    static final int SEGMENT_SIZE = 5000;
+    static final String[] STATES = { "OFF", "STANDBY", "ON" };
+
+    long segmentStart;
+    long[] times;
+    List<List<BasicParameterValue>> records;
+    IntArray parameterIds;
+
+    SegmentEncoderDecoder encoder = new SegmentEncoderDecoder();
+    List<BaseSegment> segments;
+    List<byte[]> encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TimeEncoding.setUp();
+        segmentStart = ParameterArchive.getIntervalStart(TimeEncoding.getWallclockTime());
+        parameterIds = new IntArray();
+        for (int i = 0; i < NUM_PARAMS; i++) {
+            parameterIds.add(i + 1);
+        }
+
+        Random random = new Random(0);
+        times = new long[SEGMENT_SIZE];
+        records = new ArrayList<>(SEGMENT_SIZE);
+        for (int k = 0; k < SEGMENT_SIZE; k++) {
+            times[k] = segmentStart + 100 * k;
+            List<BasicParameterValue> record = new ArrayList<>(NUM_PARAMS);
+            record.add(pv("double", ValueUtility.getDoubleValue(Math.sin(k / 100.0) + random.nextGaussian() / 100)));
+            record.add(pv("float", ValueUtility.getFloatValue(20 + random.nextFloat())));
+            record.add(pv("uint32", ValueUtility.getUint32Value(1000 + k / 50)));
+            record.add(pv("sint64", ValueUtility.getSint64Value(k)));
+            record.add(pv("string", ValueUtility.getStringValue(STATES[(k / 1000) % STATES.length])));
+            record.add(pv("boolean", ValueUtility.getBooleanValue((k / 200) % 2 == 0)));
+            records.add(record);
+        }
+
+        PGSegment pgs = build();
+        segments = new ArrayList<>();
+        segments.add(pgs.getTimeSegment());
+        segments.addAll(pgs.getConsolidatedValueSegments());
+        segments.addAll(pgs.getConsolidatedParameterStatusSegments());
+
+        encoded = new ArrayList<>(segments.size());
+        for (BaseSegment bs : segments) {
+            encoded.add(encoder.encode(bs));
+        }
+    }
+
+    private static ParameterValue pv(String name, Value v) {
+        ParameterValue pv = new ParameterValue("/benchmark/" + name);
+        pv.setEngValue(v);
+        return pv;
+    }
+
+    private PGSegment build() {
+        PGSegment pgs = new PGSegment(1, segmentStart, parameterIds);
+        for (int k = 0; k < SEGMENT_SIZE; k++) {
+            pgs.addRecord(times[k], records.get(k));
+        }
+        pgs.consolidate();
+        return pgs;
+    }
+
+    @Benchmark
+    public PGSegment buildAndConsolidate() {
+        return build();
+    }
+
+    @Benchmark
+    public void encode(Blackhole bh) {
+        for (BaseSegment bs : segments) {
+            bh.consume(encoder.encode(bs));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws DecodingException {
+        for (byte[] b : encoded) {
+            bh.consume(encoder.decode(b, segmentStart));
+        }
+    }
+}
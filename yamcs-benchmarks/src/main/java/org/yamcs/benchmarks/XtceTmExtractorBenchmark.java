@@ -0,0 +1,65 @@
+package org.yamcs.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ContainerProcessingResult;
+import org.yamcs.xtceproc.ProcessorData;
+import org.yamcs.xtceproc.XtceTmExtractor;
+
+/**
+ * Measures the extraction of all the parameters from the simulator packets (flight data and housekeeping).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XtceTmExtractorBenchmark {
+    static final int NUM_PACKETS = 100;
+
+    @Param({ "true", "false" })
+    boolean compileMdb;
+
+    XtceTmExtractor extractor;
+    List<byte[]> packets;
+    long now;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        XtceDb xtcedb = BenchmarkSetup.getSimulatorMdb();
+        ProcessorConfig config = new ProcessorConfig();
+        config.getContainerProcessingOptions().setCompileMdb(compileMdb);
+        extractor = new XtceTmExtractor(xtcedb, new ProcessorData(null, "benchmark", xtcedb, config));
+        extractor.provideAll();
+        packets = BenchmarkSetup.generateSimulatorPackets(NUM_PACKETS);
+        now = TimeEncoding.getWallclockTime();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PACKETS)
+    public void processPacket(Blackhole bh) {
+        for (byte[] packet : packets) {
+            ContainerProcessingResult result = extractor.processPacket(packet, now, now);
+            bh.consume(result.getParameterResult());
+        }
+    }
+}
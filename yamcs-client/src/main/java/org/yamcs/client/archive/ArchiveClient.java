@@ -15,6 +15,9 @@ import org.yamcs.client.Helpers;
 import org.yamcs.client.Page;
 import org.yamcs.client.StreamReceiver;
 import org.yamcs.client.StreamSender;
+import org.yamcs.client.archive.ArchiveClient.ColumnOptions.ColumnOption;
+import org.yamcs.client.archive.ArchiveClient.ColumnOptions.NoStatusOption;
+import org.yamcs.client.archive.ArchiveClient.ColumnOptions.RawOption;
 import org.yamcs.client.archive.ArchiveClient.IndexOptions.FilterOption;
 import org.yamcs.client.archive.ArchiveClient.IndexOptions.IndexOption;
 import org.yamcs.client.archive.ArchiveClient.IndexOptions.PacketOption;
@@ -62,6 +65,7 @@ import org.yamcs.protobuf.ListTagsRequest;
 import org.yamcs.protobuf.ListTagsResponse;
 import org.yamcs.protobuf.PacketsApiClient;
 import org.yamcs.protobuf.ParameterArchiveApiClient;
+import org.yamcs.protobuf.ParameterColumnChunk;
 import org.yamcs.protobuf.Pvalue.ParameterData;
 import org.yamcs.protobuf.Pvalue.ParameterValue;
 import org.yamcs.protobuf.Pvalue.Ranges;
@@ -77,6 +81,7 @@ import org.yamcs.protobuf.StreamEventsRequest;
 import org.yamcs.protobuf.StreamIndexRequest;
 import org.yamcs.protobuf.StreamPacketIndexRequest;
 import org.yamcs.protobuf.StreamPacketsRequest;
+import org.yamcs.protobuf.StreamParameterColumnsRequest;
 import org.yamcs.protobuf.StreamParameterIndexRequest;
 import org.yamcs.protobuf.Table.GetTableDataRequest;
 import org.yamcs.protobuf.Table.ReadRowsRequest;
@@ -617,6 +622,56 @@ public class ArchiveClient {
         return f;
     }
 
+    /**
+     * Retrieves the values of the given parameters from the parameter archive in columnar format.
+     * <p>
+     * The values of each parameter are received in chunks, one call of the consumer for each chunk. The parameters are
+     * retrieved one after the other, in the order in which they are specified, and the chunks of each parameter are
+     * received in ascending time order.
+     */
+    public CompletableFuture<Void> streamColumns(List<String> parameters, StreamReceiver<ParameterColumn> consumer,
+            Instant start, Instant stop, ColumnOption... options) {
+        StreamParameterColumnsRequest.Builder requestb = StreamParameterColumnsRequest.newBuilder()
+                .setInstance(instance)
+                .addAllParameters(parameters);
+        if (start != null) {
+            requestb.setStart(Timestamp.newBuilder().setSeconds(start.getEpochSecond()).setNanos(start.getNano()));
+        }
+        if (stop != null) {
+            requestb.setStop(Timestamp.newBuilder().setSeconds(stop.getEpochSecond()).setNanos(stop.getNano()));
+        }
+        for (ColumnOption option : options) {
+            if (option instanceof RawOption) {
+                requestb.setRaw(((RawOption) option).raw);
+            } else if (option instanceof NoStatusOption) {
+                requestb.setNostatus(((NoStatusOption) option).noStatus);
+            } else if (option instanceof ColumnOptions.NoRealtimeOption) {
+                requestb.setNorealtime(((ColumnOptions.NoRealtimeOption) option).noRealtime);
+            } else {
+                throw new IllegalArgumentException("Usupported option " + option.getClass());
+            }
+        }
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        parameterArchiveService.streamParameterColumns(null, requestb.build(), new Observer<ParameterColumnChunk>() {
+
+            @Override
+            public void next(ParameterColumnChunk message) {
+                consumer.accept(new ParameterColumn(message));
+            }
+
+            @Override
+            public void completeExceptionally(Throwable t) {
+                f.completeExceptionally(t);
+            }
+
+            @Override
+            public void complete() {
+                f.complete(null);
+            }
+        });
+        return f;
+    }
+
     public CompletableFuture<ArchiveTag> createTag(CreateTagRequest request) {
         CreateTagRequest.Builder requestb = request.toBuilder()
                 .setInstance(instance);
@@ -1022,6 +1077,48 @@ public class ArchiveClient {
         }
     }
 
+    public static final class ColumnOptions {
+
+        public static interface ColumnOption {
+        }
+
+        public static ColumnOption raw(boolean raw) {
+            return new RawOption(raw);
+        }
+
+        public static ColumnOption noStatus(boolean noStatus) {
+            return new NoStatusOption(noStatus);
+        }
+
+        public static ColumnOption noRealtime(boolean noRealtime) {
+            return new NoRealtimeOption(noRealtime);
+        }
+
+        static final class RawOption implements ColumnOption {
+            final boolean raw;
+
+            public RawOption(boolean raw) {
+                this.raw = raw;
+            }
+        }
+
+        static final class NoStatusOption implements ColumnOption {
+            final boolean noStatus;
+
+            public NoStatusOption(boolean noStatus) {
+                this.noStatus = noStatus;
+            }
+        }
+
+        static final class NoRealtimeOption implements ColumnOption {
+            final boolean noRealtime;
+
+            public NoRealtimeOption(boolean noRealtime) {
+                this.noRealtime = noRealtime;
+            }
+        }
+    }
+
     public static final class IndexOptions {
 
         public static interface IndexOption {
@@ -0,0 +1,241 @@
+package org.yamcs.client.archive;
+
+import java.time.Instant;
+
+import org.yamcs.protobuf.ParameterColumnChunk;
+import org.yamcs.protobuf.Pvalue.ParameterStatus;
+import org.yamcs.protobuf.ValueColumn;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+
+/**
+ * Values of one parameter received from the columnar export of the parameter archive.
+ * <p>
+ * The generation times, the values and the statuses are all vectors of length {@link #size()}; the element with the
+ * same index in each vector belongs to the same sample.
+ */
+public class ParameterColumn {
+
+    private final ParameterColumnChunk chunk;
+    private final long[] times;
+    private final Values engValues;
+    private final Values rawValues;
+
+    public ParameterColumn(ParameterColumnChunk chunk) {
+        this.chunk = chunk;
+        times = new long[chunk.getTimesCount()];
+        long t = 0;
+        for (int i = 0; i < times.length; i++) {
+            t += chunk.getTimes(i);
+            times[i] = t;
+        }
+        engValues = chunk.hasEngValues() ? new Values(chunk.getEngValues()) : null;
+        rawValues = chunk.hasRawValues() ? new Values(chunk.getRawValues()) : null;
+    }
+
+    public String getParameter() {
+        return chunk.getParameter();
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * @return the generation times in milliseconds since 1970-01-01T00:00:00Z (UTC)
+     */
+    public long[] getTimes() {
+        return times;
+    }
+
+    public Instant getTime(int idx) {
+        return Instant.ofEpochMilli(times[idx]);
+    }
+
+    /**
+     * @return the engineering values or null if the parameter has no engineering values
+     */
+    public Values getEngValues() {
+        return engValues;
+    }
+
+    /**
+     * @return the raw values or null if they have not been requested or the parameter has no raw values
+     */
+    public Values getRawValues() {
+        return rawValues;
+    }
+
+    /**
+     * @return the status of the sample at the given index or null if the status has not been requested
+     */
+    public ParameterStatus getStatus(int idx) {
+        if (chunk.getStatusIndexesCount() == 0) {
+            return null;
+        }
+        return chunk.getStatuses(chunk.getStatusIndexes(idx));
+    }
+
+    /**
+     * Vector of values of the same type
+     */
+    public static class Values {
+        private final ValueColumn column;
+
+        Values(ValueColumn column) {
+            this.column = column;
+        }
+
+        public Type getType() {
+            return column.getType();
+        }
+
+        public int size() {
+            switch (column.getType()) {
+            case FLOAT:
+                return column.getFloatValuesCount();
+            case DOUBLE:
+                return column.getDoubleValuesCount();
+            case SINT32:
+            case SINT64:
+                return column.getSintValuesCount();
+            case UINT32:
+            case UINT64:
+                return column.getUintValuesCount();
+            case TIMESTAMP:
+                return column.getTimestampValuesCount();
+            case BOOLEAN:
+                return column.getBooleanValuesCount();
+            case BINARY:
+                return column.getBinaryValuesCount();
+            case STRING:
+            case ENUMERATED:
+                return column.getStringIndexesCount();
+            default:
+                throw new IllegalStateException("Unexpected type " + column.getType());
+            }
+        }
+
+        /**
+         * Converts the values of a numeric type to double.
+         * <p>
+         * The unsigned 64 bit values larger than {@link Long#MAX_VALUE} are converted as if they were signed.
+         *
+         * @throws IllegalStateException
+         *             if the values are not numeric
+         */
+        public double[] toDoubleArray() {
+            int n = size();
+            double[] r = new double[n];
+            switch (column.getType()) {
+            case FLOAT:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getFloatValues(i);
+                }
+                break;
+            case DOUBLE:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getDoubleValues(i);
+                }
+                break;
+            case SINT32:
+            case SINT64:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getSintValues(i);
+                }
+                break;
+            case UINT32:
+            case UINT64:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getUintValues(i);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Cannot convert values of type " + column.getType() + " to double");
+            }
+            return r;
+        }
+
+        /**
+         * Returns the values of an integer type. For the values of type {@link Type#TIMESTAMP} the result is in
+         * milliseconds since 1970-01-01T00:00:00Z (UTC).
+         *
+         * @throws IllegalStateException
+         *             if the values are not of an integer or timestamp type
+         */
+        public long[] toLongArray() {
+            int n = size();
+            long[] r = new long[n];
+            switch (column.getType()) {
+            case SINT32:
+            case SINT64:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getSintValues(i);
+                }
+                break;
+            case UINT32:
+            case UINT64:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getUintValues(i);
+                }
+                break;
+            case TIMESTAMP:
+                for (int i = 0; i < n; i++) {
+                    r[i] = column.getTimestampValues(i);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Cannot convert values of type " + column.getType() + " to long");
+            }
+            return r;
+        }
+
+        /**
+         * @throws IllegalStateException
+         *             if the values are not of type {@link Type#BOOLEAN}
+         */
+        public boolean[] toBooleanArray() {
+            if (column.getType() != Type.BOOLEAN) {
+                throw new IllegalStateException("Cannot convert values of type " + column.getType() + " to boolean");
+            }
+            boolean[] r = new boolean[column.getBooleanValuesCount()];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = column.getBooleanValues(i);
+            }
+            return r;
+        }
+
+        /**
+         * @throws IllegalStateException
+         *             if the values are not of type {@link Type#BINARY}
+         */
+        public byte[][] toBinaryArray() {
+            if (column.getType() != Type.BINARY) {
+                throw new IllegalStateException("Cannot convert values of type " + column.getType() + " to binary");
+            }
+            byte[][] r = new byte[column.getBinaryValuesCount()][];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = column.getBinaryValues(i).toByteArray();
+            }
+            return r;
+        }
+
+        /**
+         * Returns the values of type {@link Type#STRING} or {@link Type#ENUMERATED}. The same value appearing on
+         * multiple positions is represented by the same String object.
+         *
+         * @throws IllegalStateException
+         *             if the values are not of type string or enumerated
+         */
+        public String[] toStringArray() {
+            if (column.getType() != Type.STRING && column.getType() != Type.ENUMERATED) {
+                throw new IllegalStateException("Cannot convert values of type " + column.getType() + " to string");
+            }
+            String[] dictionary = column.getStringDictionaryList().toArray(new String[0]);
+            String[] r = new String[column.getStringIndexesCount()];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = dictionary[column.getStringIndexes(i)];
+            }
+            return r;
+        }
+    }
+}
@@ -55,6 +55,7 @@ import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpStatusClass;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
@@ -526,7 +527,7 @@ public class HttpClient {
 
         @Override
         public void channelRead0(ChannelHandlerContext ctx, FullHttpResponse fullHttpResp) {
-            if (fullHttpResp.status().code() != HttpResponseStatus.OK.code()) {
+            if (fullHttpResp.status().codeClass() != HttpStatusClass.SUCCESS) {
                 try {
                     exception = decodeException(fullHttpResp);
                 } catch (IOException e) {
@@ -566,7 +567,7 @@ public class HttpClient {
         public void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws IOException {
             if (msg instanceof HttpResponse) {
                 HttpResponse resp = (HttpResponse) msg;
-                if (resp.status().code() != HttpResponseStatus.OK.code()) {
+                if (resp.status().codeClass() != HttpStatusClass.SUCCESS) {
                     exception = decodeException(msg);
                     receiver.receiveException(exception);
                     ctx.close();
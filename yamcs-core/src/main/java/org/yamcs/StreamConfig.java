@@ -1,5 +1,6 @@
 package org.yamcs;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -12,6 +13,8 @@ import org.slf4j.LoggerFactory;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.XtceDb;
 import org.yamcs.xtceproc.XtceDbFactory;
+import org.yamcs.yarch.AsyncSubscriber;
+import org.yamcs.yarch.AsyncSubscriber.OverflowPolicy;
 
 /**
  * Stores the value of the streamConfiguration parameter from yamcs.instance.yaml Used to create the streams at Yamcs
@@ -132,6 +135,17 @@ public class StreamConfig {
         } else {
             entry = new StreamConfigEntry(type, streamName, processor);
         }
+        if (streamConf.containsKey("subscriberQueue")) {
+            YConfiguration queueConf = streamConf.getConfig("subscriberQueue");
+            String spillDir = queueConf.getString("spillDir", null);
+            try {
+                entry.subscriberQueue = new AsyncSubscriber.Config(queueConf.getInt("capacity", 1024),
+                        queueConf.getEnum("overflowPolicy", OverflowPolicy.class, OverflowPolicy.BLOCK),
+                        spillDir == null ? null : new File(spillDir));
+            } catch (IllegalArgumentException e) {
+                throw new ConfigurationException(queueConf, e.getMessage());
+            }
+        }
         entries.add(entry);
     }
 
@@ -192,6 +206,11 @@ public class StreamConfig {
          */
         String processor;
 
+        /**
+         * if not null, the subscribers of the stream receive the tuples through a queue, see {@link AsyncSubscriber}
+         */
+        AsyncSubscriber.Config subscriberQueue;
+
         public StreamConfigEntry(StandardStreamType type, String name, String processor) {
             super();
             this.type = type;
@@ -221,6 +240,14 @@ public class StreamConfig {
         public String getProcessor() {
             return processor;
         }
+
+        /**
+         * Return the configuration of the subscriber queues or null if the tuples are passed directly to the
+         * subscribers
+         */
+        public AsyncSubscriber.Config getSubscriberQueue() {
+            return subscriberQueue;
+        }
     }
 
     public TmStreamConfigEntry getTmEntry(String streamName) {
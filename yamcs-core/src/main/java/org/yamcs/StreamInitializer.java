@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.StreamConfig.StreamConfigEntry;
 import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabase;
@@ -74,6 +75,13 @@ public class StreamInitializer {
             } else {
                 throw new IllegalArgumentException("Unknown stream type " + sce.type);
             }
+            if (sce.getSubscriberQueue() != null) {
+                Stream s = ydb.getStream(sce.name);
+                if (s != null) {
+                    log.debug("Stream {} subscriber queue: {}", sce.name, sce.getSubscriberQueue());
+                    s.setSubscriberQueue(sce.getSubscriberQueue());
+                }
+            }
         }
     }
 
@@ -34,6 +34,8 @@ public class CommandHistoryRecorder extends AbstractYamcsService {
     public Spec getSpec() {
         Spec spec = new Spec();
         spec.addOption("streams", OptionType.LIST).withElementType(OptionType.STRING);
+        spec.addOption("storageEngine", OptionType.STRING)
+                .withChoices(YarchDatabase.RDB_ENGINE_NAME, YarchDatabase.COLUMNAR_ENGINE_NAME);
         return spec;
     }
 
@@ -45,7 +47,8 @@ public class CommandHistoryRecorder extends AbstractYamcsService {
         try {
             if (ydb.getTable(TABLE_NAME) == null) {
                 String q = "create table "+TABLE_NAME+" (" + keycols
-                        + ", PRIMARY KEY(gentime, origin, seqNum)) histogram(cmdName) table_format=compressed";
+                        + ", PRIMARY KEY(gentime, origin, seqNum)) histogram(cmdName) table_format=compressed"
+                        + Utils.engineClause(config);
                 ydb.execute(q);
             }
             if (config.containsKey("streams")) {
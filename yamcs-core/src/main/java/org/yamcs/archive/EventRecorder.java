@@ -1,20 +1,36 @@
 package org.yamcs.archive;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.rocksdb.RocksDBException;
 import org.yamcs.AbstractYamcsService;
 import org.yamcs.InitException;
+import org.yamcs.Spec;
+import org.yamcs.Spec.OptionType;
 import org.yamcs.StreamConfig;
 import org.yamcs.StreamConfig.StreamConfigEntry;
 import org.yamcs.YConfiguration;
 import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.StreamSubscriber;
+import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.protobuf.Db.Event;
 import org.yamcs.yarch.streamsql.StreamSqlException;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Sets up the archiving of the events coming on events_realtime and events_dump streams into the yarch table events.
+ * <p>
+ * If the {@code textIndex} option is enabled, the messages of the archived events are also indexed in an
+ * {@link EventTextIndex} which is used to speed up the text searches.
  * 
  * @author nm
  *
@@ -24,6 +40,31 @@ public class EventRecorder extends AbstractYamcsService {
     public static final String TABLE_NAME = "events";
     public static final String REALTIME_EVENT_STREAM_NAME = "events_realtime";
 
+    private EventTextIndex textIndex;
+    private long textIndexFlushInterval;
+    private ScheduledExecutorService timer;
+    private final List<Stream> indexedStreams = new ArrayList<>();
+    private final StreamSubscriber indexSubscriber = new StreamSubscriber() {
+        @Override
+        public void onTuple(Stream stream, Tuple tuple) {
+            textIndex.addEvent((Event) tuple.getColumn("body"));
+        }
+
+        @Override
+        public void streamClosed(Stream stream) {
+        }
+    };
+
+    @Override
+    public Spec getSpec() {
+        Spec spec = new Spec();
+        spec.addOption("textIndex", OptionType.BOOLEAN).withDefault(false);
+        spec.addOption("textIndexFlushInterval", OptionType.INTEGER).withDefault(5000);
+        spec.addOption("storageEngine", OptionType.STRING)
+                .withChoices(YarchDatabase.RDB_ENGINE_NAME, YarchDatabase.COLUMNAR_ENGINE_NAME);
+        return spec;
+    }
+
     @Override
     public void init(String yamcsInstance, String serviceName, YConfiguration config) throws InitException {
         super.init(yamcsInstance, serviceName, config);
@@ -34,31 +75,69 @@ public class EventRecorder extends AbstractYamcsService {
             if (ydb.getTable(TABLE_NAME) == null) {
                 ydb.execute("create table " + TABLE_NAME
                         + "(gentime timestamp, source enum, seqNum int, body PROTOBUF('"+Event.class.getName()+"'), primary key(gentime, source, seqNum)) histogram(source)"
-                        + " table_format=compressed");
+                        + " table_format=compressed" + Utils.engineClause(config));
             }
 
             StreamConfig sc = StreamConfig.getInstance(yamcsInstance);
             for (StreamConfigEntry sce : sc.getEntries()) {
                 if (sce.getType() == StreamConfig.StandardStreamType.EVENT) {
                     ydb.execute("insert into " + TABLE_NAME + " select * from " + sce.getName());
+                    if (config.getBoolean("textIndex")) {
+                        indexedStreams.add(ydb.getStream(sce.getName()));
+                    }
                 }
             }
         } catch (ParseException | StreamSqlException e) {
             throw new InitException(e);
         }
+        if (config.getBoolean("textIndex")) {
+            textIndex = new EventTextIndex(yamcsInstance);
+            textIndexFlushInterval = config.getLong("textIndexFlushInterval");
+        }
     }
 
     @Override
     protected void doStart() {
+        if (textIndex != null) {
+            for (Stream s : indexedStreams) {
+                s.addSubscriber(indexSubscriber);
+            }
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("EventTextIndex-flush-" + yamcsInstance).setDaemon(true).build());
+            timer.scheduleWithFixedDelay(this::flushTextIndex, textIndexFlushInterval, textIndexFlushInterval,
+                    TimeUnit.MILLISECONDS);
+        }
         notifyStarted();
     }
 
+    private void flushTextIndex() {
+        try {
+            textIndex.flush();
+        } catch (RocksDBException e) {
+            log.error("Error writing the event text index", e);
+        }
+    }
+
+    /**
+     * @return the text index of the events or null if the index is not enabled
+     */
+    public EventTextIndex getTextIndex() {
+        return textIndex;
+    }
+
     @Override
     protected void doStop() {
         YarchDatabaseInstance ydb = YarchDatabase.getInstance(yamcsInstance);
         StreamConfig sc = StreamConfig.getInstance(yamcsInstance);
 
         Utils.closeTableWriters(ydb, sc.getEntries().stream().map(sce -> sce.getName()).collect(Collectors.toList()));
+        if (textIndex != null) {
+            for (Stream s : indexedStreams) {
+                s.removeSubscriber(indexSubscriber);
+            }
+            timer.shutdown();
+            flushTextIndex();
+        }
 
         notifyStopped();
     }
@@ -0,0 +1,393 @@
+package org.yamcs.archive;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.yamcs.logging.Log;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.StreamSubscriber;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.protobuf.Db.Event;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.rocksdb.Tablespace;
+import org.yamcs.yarch.rocksdb.YRDB;
+import org.yamcs.yarch.streamsql.StreamSqlException;
+
+/**
+ * Index of the event messages used to speed up the text searches.
+ * <p>
+ * The text search performed on the events is a case insensitive substring search (implemented by the StreamSQL
+ * {@code like} operator). To be able to answer this kind of query, the index terms are the trigrams (sequences of three
+ * consecutive characters) of the lower case event messages: a message contains the searched text only if it contains
+ * all the trigrams of the text.
+ * <p>
+ * For each trigram and each hour in which it appears, a record is stored in a dedicated column family:
+ * <ul>
+ * <li>key: 3 characters (6 bytes) trigram + 4 bytes hour (since 1970, sign bit flipped)</li>
+ * <li>value: 8 bytes bitmap of the minutes (of the hour) in which the trigram appears in at least one message</li>
+ * </ul>
+ * The index does not give the exact events but the time intervals (with one minute resolution) that may contain events
+ * matching the search. The events in these intervals have still to be checked with the original condition.
+ * <p>
+ * The new events are accumulated in memory and written to the database by {@link #flush()}; the accumulated data is
+ * also considered when searching.
+ */
+public class EventTextIndex {
+    public static final String CF_NAME_PREFIX = "event_text_index.";
+
+    static final long HOUR = 3600_000L;
+    static final long MINUTE = 60_000L;
+    static final long MAX_TRIGRAM = 0xFFFF_FFFF_FFFFL;
+    // characters with special meaning in the regular expressions generated for the like operator
+    static final String REGEX_META_CHARS = "\\[](){}*+^$|";
+    private static AtomicInteger streamCounter = new AtomicInteger();
+
+    final Log log;
+    final String yamcsInstance;
+    final Tablespace tablespace;
+    final String cfName;
+
+    // hour -> (trigram -> minutes bitmap) not yet written to the database
+    private TreeMap<Integer, Map<Long, Long>> pending = new TreeMap<>();
+
+    public EventTextIndex(String yamcsInstance) {
+        this.yamcsInstance = yamcsInstance;
+        this.log = new Log(EventTextIndex.class, yamcsInstance);
+        YarchDatabaseInstance ydb = YarchDatabase.getInstance(yamcsInstance);
+        this.tablespace = RdbStorageEngine.getInstance().getTablespace(ydb);
+        this.cfName = CF_NAME_PREFIX + yamcsInstance;
+    }
+
+    /**
+     * Adds the event to the in-memory part of the index.
+     */
+    public synchronized void addEvent(Event event) {
+        if (!event.hasMessage()) {
+            return;
+        }
+        long gentime = event.getGenerationTime();
+        int hour = toHour(gentime);
+        long minuteBit = 1L << ((gentime - hour * HOUR) / MINUTE);
+        Map<Long, Long> m = pending.computeIfAbsent(hour, k -> new HashMap<>());
+        for (long trigram : getTrigrams(event.getMessage().toLowerCase())) {
+            m.merge(trigram, minuteBit, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * Writes the in-memory part of the index to the database.
+     */
+    public synchronized void flush() throws RocksDBException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        YRDB rdb = tablespace.getRdb();
+        ColumnFamilyHandle cfh = getOrCreateCfh(rdb);
+        try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions()) {
+            for (Map.Entry<Integer, Map<Long, Long>> e : pending.entrySet()) {
+                int hour = e.getKey();
+                for (Map.Entry<Long, Long> e1 : e.getValue().entrySet()) {
+                    byte[] key = encodeKey(e1.getKey(), hour);
+                    long mask = e1.getValue();
+                    byte[] v = rdb.get(cfh, key);
+                    if (v != null) {
+                        mask |= ByteArrayUtils.decodeLong(v, 0);
+                    }
+                    writeBatch.put(cfh, key, ByteArrayUtils.encodeLong(mask));
+                }
+            }
+            rdb.getDb().write(wo, writeBatch);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Finds the time intervals that may contain events whose message matches the pattern used by the like operator
+     * ({@code %} matches any sequence of characters, {@code ?} matches one character).
+     *
+     * @param pattern
+     *            the pattern to be matched
+     * @param start
+     *            start of the search interval (inclusive)
+     * @param stop
+     *            end of the search interval (exclusive)
+     * @return the sorted list of non overlapping intervals that may contain matching events, or null if the index
+     *         cannot be used for the given pattern (e.g. it is too short).
+     */
+    public synchronized List<TimeInterval> findIntervals(String pattern, long start, long stop)
+            throws RocksDBException {
+        Set<Long> trigrams = getPatternTrigrams(pattern);
+        if (trigrams == null) {
+            return null;
+        }
+        int startHour = toHour(start);
+        int stopHour = toHour(stop - 1);
+
+        YRDB rdb = tablespace.getRdb();
+        ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+        TreeMap<Integer, Long> result = null;
+        for (long trigram : trigrams) {
+            TreeMap<Integer, Long> masks = new TreeMap<>();
+            if (cfh != null) {
+                try (RocksIterator it = rdb.newIterator(cfh)) {
+                    byte[] stopKey = encodeKey(trigram, stopHour);
+                    for (it.seek(encodeKey(trigram, startHour)); it.isValid(); it.next()) {
+                        byte[] key = it.key();
+                        if (ByteArrayUtils.compare(key, stopKey) > 0) {
+                            break;
+                        }
+                        masks.put(decodeHour(key), ByteArrayUtils.decodeLong(it.value(), 0));
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Map<Long, Long>> e : pending.subMap(startHour, true, stopHour, true).entrySet()) {
+                Long mask = e.getValue().get(trigram);
+                if (mask != null) {
+                    masks.merge(e.getKey(), mask, (a, b) -> a | b);
+                }
+            }
+            if (result == null) {
+                result = masks;
+            } else {
+                result.entrySet().removeIf(e -> {
+                    Long mask = masks.get(e.getKey());
+                    if (mask == null || (mask & e.getValue()) == 0) {
+                        return true;
+                    }
+                    e.setValue(mask & e.getValue());
+                    return false;
+                });
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        List<TimeInterval> intervals = new ArrayList<>();
+        TimeInterval last = null;
+        for (Map.Entry<Integer, Long> e : result.entrySet()) {
+            long hourStart = (long) e.getKey() * HOUR;
+            long mask = e.getValue();
+            while (mask != 0) {
+                int minute = Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                long t0 = Math.max(start, hourStart + minute * MINUTE);
+                long t1 = Math.min(stop, hourStart + (minute + 1) * MINUTE);
+                if (t0 >= t1) {
+                    continue;
+                }
+                if (last != null && last.getEnd() == t0) {
+                    last.setEnd(t1);
+                } else {
+                    last = new TimeInterval(t0, t1);
+                    intervals.add(last);
+                }
+            }
+        }
+        return intervals;
+    }
+
+    /**
+     * Merges the intervals separated by gaps smaller or equal than maxGap.
+     *
+     * @param intervals
+     *            sorted list of non overlapping intervals, as returned by {@link #findIntervals(String, long, long)}
+     * @return the sorted list of merged intervals
+     */
+    public static List<TimeInterval> mergeIntervals(List<TimeInterval> intervals, long maxGap) {
+        List<TimeInterval> merged = new ArrayList<>();
+        TimeInterval last = null;
+        for (TimeInterval interval : intervals) {
+            if (last != null && interval.getStart() - last.getEnd() <= maxGap) {
+                last.setEnd(interval.getEnd());
+            } else {
+                last = new TimeInterval(interval.getStart(), interval.getEnd());
+                merged.add(last);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Rebuilds the index for the events in the given interval.
+     * <p>
+     * The interval is extended to full hours, the index records for these hours are removed and the events are read
+     * again from the events table.
+     */
+    public CompletableFuture<Void> rebuild(TimeInterval interval) throws YarchException {
+        CompletableFuture<Void> cf = new CompletableFuture<>();
+        TimeInterval hourInterval = new TimeInterval();
+        if (interval.hasStart()) {
+            hourInterval.setStart(Math.floorDiv(interval.getStart(), HOUR) * HOUR);
+        }
+        if (interval.hasEnd()) {
+            hourInterval.setEnd((Math.floorDiv(interval.getEnd() - 1, HOUR) + 1) * HOUR);
+        }
+        log.info("Rebuilding the event text index for {}", hourInterval.toStringEncoded());
+
+        try {
+            deleteRecords(hourInterval);
+        } catch (RocksDBException e) {
+            log.error("Error when removing the event text index records", e);
+            cf.completeExceptionally(e);
+            return cf;
+        }
+
+        StringBuilder sb = new StringBuilder("select * from ").append(EventRecorder.TABLE_NAME);
+        if (hourInterval.hasStart() || hourInterval.hasEnd()) {
+            sb.append(" where ");
+            if (hourInterval.hasStart()) {
+                sb.append("gentime >= ").append(hourInterval.getStart());
+                if (hourInterval.hasEnd()) {
+                    sb.append(" and ");
+                }
+            }
+            if (hourInterval.hasEnd()) {
+                sb.append("gentime < ").append(hourInterval.getEnd());
+            }
+        }
+        String streamName = "event_index_rebuild_" + streamCounter.incrementAndGet();
+        YarchDatabaseInstance ydb = YarchDatabase.getInstance(yamcsInstance);
+        try {
+            ydb.execute("create stream " + streamName + " as " + sb);
+        } catch (StreamSqlException | ParseException e) {
+            throw new YarchException(e);
+        }
+        Stream stream = ydb.getStream(streamName);
+        stream.addSubscriber(new StreamSubscriber() {
+            @Override
+            public void onTuple(Stream s, Tuple tuple) {
+                addEvent((Event) tuple.getColumn("body"));
+            }
+
+            @Override
+            public void streamClosed(Stream s) {
+                try {
+                    flush();
+                    log.info("Event text index rebuilt for {}", hourInterval.toStringEncoded());
+                    cf.complete(null);
+                } catch (RocksDBException e) {
+                    cf.completeExceptionally(e);
+                }
+            }
+        });
+        stream.start();
+        return cf;
+    }
+
+    private synchronized void deleteRecords(TimeInterval interval) throws RocksDBException {
+        int startHour = interval.hasStart() ? toHour(interval.getStart()) : Integer.MIN_VALUE;
+        int stopHour = interval.hasEnd() ? toHour(interval.getEnd()) : Integer.MAX_VALUE;
+        pending.subMap(startHour, true, stopHour, false).clear();
+
+        YRDB rdb = tablespace.getRdb();
+        ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+        if (cfh == null) {
+            return;
+        }
+
+        // the keys are sorted by trigram first; for each trigram seek directly to the start of the interval and skip
+        // to the next trigram at the end of the interval
+        try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions();
+                RocksIterator it = rdb.newIterator(cfh)) {
+            it.seekToFirst();
+            while (it.isValid()) {
+                byte[] key = it.key();
+                long trigram = decodeTrigram(key);
+                int hour = decodeHour(key);
+                if (hour < startHour) {
+                    it.seek(encodeKey(trigram, startHour));
+                } else if (hour >= stopHour) {
+                    if (trigram == MAX_TRIGRAM) {
+                        break;
+                    }
+                    it.seek(encodeKey(trigram + 1, startHour));
+                } else {
+                    writeBatch.delete(cfh, key);
+                    it.next();
+                }
+            }
+            rdb.getDb().write(wo, writeBatch);
+        }
+    }
+
+    private ColumnFamilyHandle getOrCreateCfh(YRDB rdb) throws RocksDBException {
+        synchronized (rdb) {
+            ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+            if (cfh == null) {
+                cfh = rdb.createColumnFamily(cfName);
+            }
+            return cfh;
+        }
+    }
+
+    /**
+     * Returns the trigrams that have to be found in the messages matching the pattern or null if the pattern does not
+     * contain any trigram or contains characters that are not taken literally by the like operator.
+     */
+    static Set<Long> getPatternTrigrams(String pattern) {
+        pattern = pattern.toLowerCase();
+        for (int i = 0; i < pattern.length(); i++) {
+            if (REGEX_META_CHARS.indexOf(pattern.charAt(i)) >= 0) {
+                return null;
+            }
+        }
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String s : pattern.split("[%?]")) {
+            trigrams.addAll(getTrigrams(s));
+        }
+        return trigrams.isEmpty() ? null : trigrams;
+    }
+
+    static Set<Long> getTrigrams(String s) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            trigrams.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    static int toHour(long t) {
+        long hour = Math.floorDiv(t, HOUR);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, hour));
+    }
+
+    static byte[] encodeKey(long trigram, int hour) {
+        byte[] key = new byte[10];
+        key[0] = (byte) (trigram >> 40);
+        key[1] = (byte) (trigram >> 32);
+        key[2] = (byte) (trigram >> 24);
+        key[3] = (byte) (trigram >> 16);
+        key[4] = (byte) (trigram >> 8);
+        key[5] = (byte) trigram;
+        ByteArrayUtils.encodeInt(hour ^ Integer.MIN_VALUE, key, 6);
+        return key;
+    }
+
+    static long decodeTrigram(byte[] key) {
+        return ((key[0] & 0xFFL) << 40) | ((key[1] & 0xFFL) << 32) | ((key[2] & 0xFFL) << 24)
+                | ((key[3] & 0xFFL) << 16) | ((key[4] & 0xFFL) << 8) | (key[5] & 0xFFL);
+    }
+
+    static int decodeHour(byte[] key) {
+        return ByteArrayUtils.decodeInt(key, 6) ^ Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,301 @@
+package org.yamcs.archive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.YamcsException;
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameterarchive.ConsumerAbortException;
+import org.yamcs.parameterarchive.MultiParameterRetrieval;
+import org.yamcs.parameterarchive.MultipleParameterRequest;
+import org.yamcs.parameterarchive.ParameterArchive;
+import org.yamcs.parameterarchive.ParameterId;
+import org.yamcs.parameterarchive.ParameterIdValueList;
+import org.yamcs.protobuf.Yamcs.EndAction;
+import org.yamcs.protobuf.Yamcs.ProtoDataType;
+import org.yamcs.protobuf.Yamcs.ReplayRequest;
+import org.yamcs.protobuf.Yamcs.ReplaySpeed;
+import org.yamcs.protobuf.Yamcs.ReplaySpeed.ReplaySpeedType;
+import org.yamcs.protobuf.Yamcs.ReplayStatus;
+import org.yamcs.protobuf.Yamcs.ReplayStatus.ReplayState;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.yarch.SpeedLimitStream;
+
+/**
+ * Replays parameter values retrieved from the {@link ParameterArchive}.
+ * <p>
+ * Contrary to the {@link YarchReplay} which replays the recorded packets (requiring them to be decoded again), the
+ * values are sent as they have been archived. The values are sent to the listener as {@link ProtoDataType#PP} lists
+ * of parameter values, one list for each parameter group and timestamp.
+ * <p>
+ * The retrieval runs in a dedicated thread; the pause, speed control and step by step operation are implemented by
+ * waiting in the consumer of the retrieved values whereas the seek and quit abort the current retrieval.
+ */
+public class ParameterArchiveReplay implements Replay, Runnable {
+    final Log log;
+    final ParameterArchive parchive;
+    final ReplayListener listener;
+    final ParameterId[] parameterIds;
+    // parameter fully qualified name -> parameter definition
+    final Map<String, Parameter> parameters;
+
+    final ReplayOptions currentRequest;
+
+    // guarded by this
+    private ReplayState state = ReplayState.INITIALIZATION;
+    private Thread thread;
+    private boolean restart;
+    private boolean quitting;
+
+    // used only by the replay thread
+    private int numSent;
+    private long lastSentTime = -1;
+    private long lastValueTime = TimeEncoding.INVALID_INSTANT;
+
+    /**
+     * @param parameterIds
+     *            the ids of the parameters to be retrieved from the parameter archive
+     * @param parameters
+     *            map from the parameter qualified names to the parameter definitions set into the values sent to the
+     *            listener
+     */
+    public ParameterArchiveReplay(ParameterArchive parchive, ReplayOptions request, ParameterId[] parameterIds,
+            Map<String, Parameter> parameters, ReplayListener listener) throws YamcsException {
+        if (request.hasStart() && request.hasStop() && request.getStart() > request.getStop()) {
+            throw new YamcsException("stop has to be greater than start");
+        }
+        this.log = new Log(ParameterArchiveReplay.class, parchive.getYamcsInstance());
+        this.parchive = parchive;
+        this.currentRequest = new ReplayOptions(request);
+        this.parameterIds = parameterIds;
+        this.parameters = parameters;
+        this.listener = listener;
+    }
+
+    @Override
+    public synchronized void start() {
+        switch (state) {
+        case INITIALIZATION:
+        case STOPPED:
+            if (quitting) {
+                return;
+            }
+            state = ReplayState.RUNNING;
+            if (thread == null) {
+                thread = new Thread(this, "ParameterArchiveReplay-" + parchive.getYamcsInstance());
+                thread.start();
+            } else {
+                restart = true;
+            }
+            break;
+        case PAUSED:
+            state = ReplayState.RUNNING;
+            notifyAll();
+            break;
+        default:
+            log.debug("start called in state {}, call ignored", state);
+        }
+    }
+
+    @Override
+    public synchronized void pause() {
+        if (state == ReplayState.RUNNING) {
+            state = ReplayState.PAUSED;
+        }
+    }
+
+    @Override
+    public synchronized void seek(long newReplayTime) throws YamcsException {
+        currentRequest.setStart(newReplayTime);
+        if (thread != null) {
+            restart = true;
+            if (state == ReplayState.PAUSED || state == ReplayState.STOPPED) {
+                state = ReplayState.RUNNING;
+            }
+            notifyAll();
+        } else {
+            start();
+        }
+    }
+
+    @Override
+    public synchronized void changeSpeed(ReplaySpeed newSpeed) {
+        log.debug("Changing speed to {}", newSpeed);
+        currentRequest.setSpeed(newSpeed);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void quit() {
+        if (quitting) {
+            return;
+        }
+        log.debug("Replay quitting");
+        quitting = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized ReplayState getState() {
+        return state;
+    }
+
+    @Override
+    public synchronized ReplayRequest getCurrentReplayRequest() {
+        return currentRequest.toProtobuf();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            MultipleParameterRequest mpr;
+            synchronized (this) {
+                while (state == ReplayState.STOPPED && !restart && !quitting) {
+                    waitUninterruptibly(0);
+                }
+                if (quitting) {
+                    return;
+                }
+                restart = false;
+                long start = currentRequest.hasStart() ? currentRequest.getStart() : TimeEncoding.MIN_INSTANT;
+                long stop = currentRequest.hasStop() ? currentRequest.getStop() : TimeEncoding.MAX_INSTANT;
+                mpr = new MultipleParameterRequest(start, stop, parameterIds, null, !currentRequest.isReverse(),
+                        true, true, true);
+            }
+            numSent = 0;
+            lastSentTime = -1;
+            lastValueTime = TimeEncoding.INVALID_INSTANT;
+            try {
+                new MultiParameterRetrieval(parchive, mpr).retrieve(this::sendValues);
+            } catch (Exception e) {
+                log.error("Error retrieving data from the parameter archive", e);
+                synchronized (this) {
+                    state = ReplayState.ERROR;
+                }
+                signalStateChange(ReplayState.ERROR, e.toString());
+                return;
+            }
+            if (!replayFinished()) {
+                return;
+            }
+        }
+    }
+
+    // called at the end of the retrieval, returns false if the thread should exit
+    private boolean replayFinished() {
+        ReplayState newState;
+        synchronized (this) {
+            if (quitting) {
+                return false;
+            }
+            if (restart) {
+                return true;
+            }
+            EndAction endAction = currentRequest.getEndAction();
+            if (endAction == EndAction.QUIT) {
+                state = ReplayState.CLOSED;
+            } else if (endAction == EndAction.LOOP && numSent > 0) {
+                return true;
+            } else {
+                state = ReplayState.STOPPED;
+            }
+            newState = state;
+        }
+        signalStateChange(newState, null);
+        if (newState == ReplayState.CLOSED) {
+            quit();
+            return false;
+        }
+        return true;
+    }
+
+    private void sendValues(ParameterIdValueList pvlist) {
+        long t = pvlist.getValues().get(0).getGenerationTime();
+        synchronized (this) {
+            long waitTime = getWaitTime(t);
+            long deadline = System.currentTimeMillis() + waitTime;
+            while (!quitting && !restart && (state == ReplayState.PAUSED || waitTime > 0)) {
+                waitUninterruptibly(state == ReplayState.PAUSED ? 0 : waitTime);
+                if (state != ReplayState.PAUSED) {
+                    waitTime = deadline - System.currentTimeMillis();
+                }
+            }
+            if (quitting || restart) {
+                throw new ConsumerAbortException();
+            }
+        }
+
+        List<ParameterValue> values = new ArrayList<>(pvlist.getValues().size());
+        for (ParameterValue pv : pvlist.getValues()) {
+            Parameter p = parameters.get(pv.getParameterQualifiedName());
+            if (p != null) {
+                pv.setParameter(p);
+                values.add(pv);
+            }
+        }
+        if (!values.isEmpty()) {
+            listener.newData(ProtoDataType.PP, values);
+        }
+        numSent++;
+        lastSentTime = System.currentTimeMillis();
+        lastValueTime = t;
+
+        boolean paused = false;
+        synchronized (this) {
+            if (currentRequest.getSpeed().getType() == ReplaySpeedType.STEP_BY_STEP && state == ReplayState.RUNNING) {
+                // Force user to trigger next step.
+                state = ReplayState.PAUSED;
+                paused = true;
+            }
+        }
+        if (paused) {
+            signalStateChange(ReplayState.PAUSED, null);
+        }
+    }
+
+    // same logic as in the SpeedLimitStream
+    private long getWaitTime(long t) {
+        ReplaySpeed speed = currentRequest.getSpeed();
+        long waitTime = 0;
+        switch (speed.getType()) {
+        case FIXED_DELAY:
+            if (lastSentTime != -1) {
+                waitTime = (long) speed.getParam() - (System.currentTimeMillis() - lastSentTime);
+            }
+            break;
+        case REALTIME:
+            if (lastValueTime != TimeEncoding.INVALID_INSTANT) {
+                waitTime = (long) (Math.abs(t - lastValueTime) / speed.getParam());
+            }
+            waitTime = Math.min(waitTime, SpeedLimitStream.MAX_WAIT_TIME);
+            break;
+        default:
+            break;
+        }
+        return waitTime;
+    }
+
+    private void waitUninterruptibly(long timeout) {
+        try {
+            wait(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            quitting = true;
+        }
+    }
+
+    private void signalStateChange(ReplayState newState, String errorMessage) {
+        try {
+            ReplayStatus.Builder rsb = ReplayStatus.newBuilder().setState(newState);
+            if (errorMessage != null) {
+                rsb.setErrorMessage(errorMessage);
+            }
+            listener.stateChanged(rsb.build());
+        } catch (Exception e) {
+            log.warn("got exception while signaling the state change: ", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.yamcs.archive;
+
+import org.yamcs.YamcsException;
+import org.yamcs.protobuf.Yamcs.ReplayRequest;
+import org.yamcs.protobuf.Yamcs.ReplaySpeed;
+import org.yamcs.protobuf.Yamcs.ReplayStatus.ReplayState;
+
+/**
+ * Replay of archived data with speed control, pause/resume and seek.
+ * <p>
+ * The data is sent to a {@link ReplayListener}.
+ */
+public interface Replay {
+
+    /**
+     * Starts the replay or resumes it if paused
+     */
+    void start();
+
+    void pause();
+
+    /**
+     * Restarts the replay from the given time
+     */
+    void seek(long newReplayTime) throws YamcsException;
+
+    void changeSpeed(ReplaySpeed newSpeed);
+
+    /**
+     * Stops the replay and releases its resources; the replay cannot be restarted afterwards.
+     */
+    void quit();
+
+    ReplayState getState();
+
+    ReplayRequest getCurrentReplayRequest();
+}
@@ -2,6 +2,7 @@ package org.yamcs.archive;
 
 import java.util.Collection;
 
+import org.yamcs.YConfiguration;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.TableWriter;
@@ -27,4 +28,14 @@ public class Utils {
             }
         }
     }
+
+    /**
+     * Returns the engine clause of the create table statement for the storage engine specified with the
+     * {@code storageEngine} option of the recorder configuration, or an empty string if the option is not set.
+     * <p>
+     * The storage engine is only used when the table is created.
+     */
+    static public String engineClause(YConfiguration config) {
+        return config.containsKey("storageEngine") ? " engine " + config.getString("storageEngine") : "";
+    }
 }
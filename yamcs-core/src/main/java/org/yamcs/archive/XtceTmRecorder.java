@@ -22,6 +22,7 @@ import org.yamcs.utils.parser.ParseException;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.XtceDb;
 import org.yamcs.xtceproc.ContainerProcessingResult;
+import org.yamcs.xtceproc.DecodedPacket;
 import org.yamcs.xtceproc.XtceDbFactory;
 import org.yamcs.xtceproc.XtceTmExtractor;
 import org.yamcs.yarch.DataType;
@@ -289,10 +290,11 @@ public class XtceTmRecorder extends AbstractYamcsService {
             byte[] packet = (byte[]) t.getColumn(4);
             totalNumPackets++;
 
-            ContainerProcessingResult cpr = tmExtractor.processPacket(packet, gentime, timeService.getMissionTime(),
+            // only the container results are needed, the parameter values are not created
+            DecodedPacket dp = tmExtractor.decodePacket(packet, gentime, timeService.getMissionTime(),
                     rootSequenceContainer);
 
-            String pname = deriveArchivePartition(cpr);
+            String pname = deriveArchivePartition(dp.getResult());
 
             try {
                 List<Object> c = t.getColumns();
@@ -68,7 +68,14 @@ public class XtceTmReplayHandler implements ReplayHandler {
     @Override
     public String getSelectCmd() {
         StringBuilder sb = new StringBuilder();
-        sb.append("SELECT ").append(ProtoDataType.TM_PACKET.getNumber()).append(",* from tm ");
+        // select only the columns used in transform, the others are not deserialized
+        sb.append("SELECT ").append(ProtoDataType.TM_PACKET.getNumber())
+                .append(", ").append(StandardTupleDefinitions.GENTIME_COLUMN)
+                .append(", ").append(StandardTupleDefinitions.SEQNUM_COLUMN)
+                .append(", ").append(StandardTupleDefinitions.TM_RECTIME_COLUMN)
+                .append(", ").append(StandardTupleDefinitions.TM_PACKET_COLUMN)
+                .append(", ").append(XtceTmRecorder.PNAME_COLUMN)
+                .append(" from tm ");
         if (partitions != null) {
             if (partitions.isEmpty()) {
                 return null;
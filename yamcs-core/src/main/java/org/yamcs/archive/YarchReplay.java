@@ -37,7 +37,7 @@ import org.yamcs.yarch.streamsql.StreamSqlException;
  * @author nm
  *
  */
-public class YarchReplay implements StreamSubscriber {
+public class YarchReplay implements Replay, StreamSubscriber {
     ReplayServer replayServer;
     volatile String streamName;
     volatile boolean quitting = false;
@@ -109,10 +109,12 @@ public class YarchReplay implements StreamSubscriber {
         }
     }
 
+    @Override
     public ReplayState getState() {
         return state;
     }
 
+    @Override
     public synchronized void start() {
         switch (state) {
         case RUNNING:
@@ -209,6 +211,7 @@ public class YarchReplay implements StreamSubscriber {
         s.start();
     }
 
+    @Override
     public void seek(long newReplayTime) throws YamcsException {
         if (state != ReplayState.INITIALIZATION) {
             boolean wasPaused = (state == ReplayState.PAUSED);
@@ -244,6 +247,7 @@ public class YarchReplay implements StreamSubscriber {
         start();
     }
 
+    @Override
     public void changeSpeed(ReplaySpeed newSpeed) {
         log.debug("Changing speed to {}", newSpeed);
 
@@ -276,10 +280,12 @@ public class YarchReplay implements StreamSubscriber {
         return ss;
     }
 
+    @Override
     public void pause() {
         state = ReplayState.PAUSED;
     }
 
+    @Override
     public synchronized void quit() {
         if (quitting) {
             return;
@@ -374,6 +380,7 @@ public class YarchReplay implements StreamSubscriber {
         }
     }
 
+    @Override
     public ReplayRequest getCurrentReplayRequest() {
         return currentRequest.toProtobuf();
     }
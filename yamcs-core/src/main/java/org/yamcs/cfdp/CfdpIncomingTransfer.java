@@ -3,6 +3,11 @@ package org.yamcs.cfdp;
 import static org.yamcs.cfdp.CfdpService.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -150,7 +155,33 @@ public class CfdpIncomingTransfer extends OngoingCfdpTransfer {
                 hdr.getSequenceNumber());
 
         needsFinish = acknowledged;
-        incomingDataFile = new DataFile(-1);
+        incomingDataFile = createDataFile(yamcsInstance, config.getString("incomingTempDir", null));
+    }
+
+    /**
+     * If a temporary directory is configured, the incoming data is written to a file in that directory instead of
+     * being kept in memory.
+     */
+    private DataFile createDataFile(String yamcsInstance, String tempDir) {
+        if (tempDir != null) {
+            Path file = Paths.get(tempDir).resolve(yamcsInstance + "-" + id + "-" + creationTime + ".part");
+            try {
+                Files.createDirectories(file.getParent());
+                return new DataFile(-1, file);
+            } catch (IOException e) {
+                log.warn("TXID{} cannot create temporary file {}, keeping the data in memory: {}",
+                        cfdpTransactionId, file, e.toString());
+            }
+        }
+        return new DataFile(-1);
+    }
+
+    private void releaseDataFile() {
+        try {
+            incomingDataFile.close();
+        } catch (IOException e) {
+            log.warn("TXID{} error when removing the temporary file: {}", cfdpTransactionId, e.toString());
+        }
     }
 
     @Override
@@ -339,16 +370,24 @@ public class CfdpIncomingTransfer extends OngoingCfdpTransfer {
                 log.warn("TXID{} received data file whose end offset {} is larger than the file size {}",
                         cfdpTransactionId, dfs.getEndOffset(), fileSize);
                 handleFault(ConditionCode.FILE_SIZE_ERROR);
+                return;
             }
         } else {
             if (dfs.getEndOffset() > maxFileSize) {
                 log.warn("TXID{} received data file whose end offset {} is larger than the maximum file size {}",
                         cfdpTransactionId, dfs.getEndOffset(), maxFileSize);
                 handleFault(ConditionCode.FILESTORE_REJECTION);
+                return;
             }
         }
 
-        incomingDataFile.addSegment(dfs);
+        try {
+            incomingDataFile.addSegment(dfs);
+        } catch (UncheckedIOException e) {
+            log.warn("TXID{} cannot store the received data: {}", cfdpTransactionId, e.getCause().toString());
+            handleFault(ConditionCode.FILESTORE_REJECTION);
+            return;
+        }
         monitor.stateChanged(this);
         checkFileComplete();
     }
@@ -358,12 +397,13 @@ public class CfdpIncomingTransfer extends OngoingCfdpTransfer {
         long expectedChecksum = eofPacket.getFileChecksum();
         if (expectedChecksum == incomingDataFile.getChecksum()) {
             log.info("TXID{} file completed, checksum OK", cfdpTransactionId);
+            // save the file first, the data is released when the transfer completes
+            saveFileInBucket(false, Collections.emptyList());
             if (needsFinish) {
                 finish(ConditionCode.NO_ERROR);
             } else {
                 complete(ConditionCode.NO_ERROR);
             }
-            saveFileInBucket(false, Collections.emptyList());
             sendInfoEvent(ETYPE_TRANSFER_FINISHED,
                     " downlink finished and saved in " + incomingBucket.getName() + "/" + getObjectName());
         } else {
@@ -416,6 +456,7 @@ public class CfdpIncomingTransfer extends OngoingCfdpTransfer {
 
     private void complete(ConditionCode conditionCode, String failureReason) {
         inTxState = InTxState.COMPLETED;
+        releaseDataFile();
         if (!acknowledged) {
             checkTimer.cancel();
         }
@@ -534,7 +575,9 @@ public class CfdpIncomingTransfer extends OngoingCfdpTransfer {
                 metadata.put("checksumError", "true");
             }
             objectName = getFileName(objectName);
-            incomingBucket.putObject(objectName, null, metadata, incomingDataFile.getData());
+            try (InputStream in = incomingDataFile.getInputStream()) {
+                incomingBucket.putObject(objectName, null, metadata, in);
+            }
         } catch (IOException e) {
             throw new RuntimeException("cannot save incoming file in bucket " + incomingBucket.getName(), e);
         }
@@ -3,6 +3,10 @@ package org.yamcs.cfdp;
 import static org.yamcs.cfdp.CompletedTransfer.TDEF;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -168,6 +172,7 @@ public class CfdpService extends AbstractYamcsService
         spec.addOption("maxNumPendingDownloads", OptionType.INTEGER).withDefault(100);
         spec.addOption("maxNumPendingUploads", OptionType.INTEGER).withDefault(10);
         spec.addOption("inactivityTimeout", OptionType.INTEGER).withDefault(10000);
+        spec.addOption("incomingTempDir", OptionType.STRING);
 
         return spec;
     }
@@ -214,9 +219,27 @@ public class CfdpService extends AbstractYamcsService
         } else {
             receiverFaultHandlers = Collections.emptyMap();
         }
+        if (config.containsKey("incomingTempDir")) {
+            removeStaleTempFiles(Paths.get(config.getString("incomingTempDir")));
+        }
         setupRecording(ydb);
     }
 
+    // the temporary files of the downloads interrupted by a previous shutdown cannot be resumed
+    private void removeStaleTempFiles(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, yamcsInstance + "-*.part")) {
+            for (Path file : ds) {
+                log.info("Removing stale temporary file {}", file);
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot remove the stale temporary files from {}: {}", dir, e.toString());
+        }
+    }
+
     private Map<ConditionCode, FaultHandlingAction> readFaultHandlers(Map<String, String> map) {
         Map<ConditionCode, FaultHandlingAction> m = new HashMap<>();
         for (Map.Entry<String, String> me : map.entrySet()) {
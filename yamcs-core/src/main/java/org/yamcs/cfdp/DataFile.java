@@ -1,5 +1,16 @@
 package org.yamcs.cfdp;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -8,19 +19,64 @@ import java.util.List;
 import org.yamcs.cfdp.pdu.SegmentRequest;
 import org.yamcs.utils.ByteArray;
 
-public class DataFile {
+import com.google.common.io.ByteStreams;
+
+/**
+ * Assembles a file from the data segments received in a CFDP transfer.
+ * <p>
+ * The segments are kept sorted by offset; overlapping data received more than once is stored only once. The list of
+ * segments is used to find the missing parts of the file which are requested in the NAK PDUs.
+ * <p>
+ * By default the data is kept in memory. If a temporary file is given in the constructor, the data is instead written
+ * in that file as it arrives (gaps are left as holes in the file) and only the position of the data is kept in memory;
+ * in this case adjacent segments are merged such that the list contains one element for each contiguous part of the
+ * file received.
+ * <p>
+ * The checksum is updated with each new piece of data as it arrives; the CFDP modular checksum does not depend on the
+ * order in which the data is added.
+ */
+public class DataFile implements Closeable {
     private List<DataFileSegment> dataFileSegments = new ArrayList<DataFileSegment>();
     // -1 means size unknown or unbounded
     private long size = -1;
+    private long receivedSize = 0;
+    private long checksum = 0;
+
+    // if not null, the data is stored in this file
+    private final Path tempFile;
+    private FileChannel channel;
 
     public DataFile() {
-        this.size = -1;
+        this(-1);
     }
 
     public DataFile(long size) {
         this.size = size;
+        this.tempFile = null;
+    }
+
+    /**
+     * Creates a data file storing its data into the given temporary file. The file is created and it is deleted when
+     * the data file is closed.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be created
+     */
+    public DataFile(long size, Path tempFile) throws IOException {
+        this.size = size;
+        this.tempFile = tempFile;
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.SPARSE);
     }
 
+    /**
+     * Adds a new segment to the file; the parts of the segment already received are ignored.
+     *
+     * @throws IllegalArgumentException
+     *             if the segment falls beyond the end of the file
+     * @throws UncheckedIOException
+     *             if the data cannot be written to the temporary file
+     */
     public void addSegment(DataFileSegment newseg) {
         if (size != -1 && newseg.getLength() + newseg.getOffset() > size) {
             throw new IllegalArgumentException("Segment falls beyond the end of the file");
@@ -28,77 +84,83 @@ public class DataFile {
 
         int idx = Collections.binarySearch(dataFileSegments, newseg,
                 (s1, s2) -> Long.compare(s1.getOffset(), s2.getOffset()));
-
-        if (idx >= 0) {// newseg offset coincides with an existing segment offset
-            DataFileSegment seg1 = dataFileSegments.get(idx);
-            assert (seg1.getOffset() == newseg.getOffset());
-            if (newseg.getLength() > seg1.getLength()) {
-                // newseg is longer than seg1 and starts at the same offset
-                // add one small segment with the delta
-                byte[] data = Arrays.copyOfRange(newseg.getData(), seg1.getLength(), newseg.getLength());
-                DataFileSegment seg3 = new DataFileSegment(seg1.getOffset() + seg1.getLength(), data);
-                dataFileSegments.add(idx + 1, seg3);
-            }
-        } else { // the segment does not start at the same offset with an existing segment
-                 // but it might still overlap with one
+        if (idx < 0) {
             idx = -(idx + 1);
-            if (idx == dataFileSegments.size()) {
-                if (dataFileSegments.size() == 0) {
-                    dataFileSegments.add(newseg);
-                } else {
-                    DataFileSegment prevseg = dataFileSegments.get(idx - 1);
-                    if (prevseg.getOffset() + prevseg.getLength() > newseg.getOffset()) {
-                        // overlaps with the last segment
-                        int from = prevseg.getLength() - (int) (newseg.getOffset() - prevseg.getOffset());
-
-                        byte[] data = Arrays.copyOfRange(newseg.getData(), from, newseg.getLength());
-                        DataFileSegment seg2 = new DataFileSegment(prevseg.getOffset() + prevseg.getLength(), data);
-                        dataFileSegments.add(seg2);
-                    } else {
-                        dataFileSegments.add(newseg);
-                    }
-                }
-            } else {
-                if (idx == 0) {
-                    DataFileSegment nextseg = dataFileSegments.get(0);
-                    if (newseg.getOffset() + newseg.getLength() > nextseg.getOffset()) {
-                        int nl = (int) (nextseg.getOffset() - newseg.getOffset());
-                        byte[] data = Arrays.copyOfRange(newseg.getData(), 0, nl);
-                        DataFileSegment seg1 = new DataFileSegment(newseg.getOffset(), data);
-                        dataFileSegments.add(0, seg1);
-                    } else {
-                        dataFileSegments.add(0, newseg);
-                    }
-                } else {
-                    DataFileSegment prevseg = dataFileSegments.get(idx - 1);
-                    DataFileSegment nextseg = dataFileSegments.get(idx);
-                    int from, to;
-                    long offset;
-                    if (prevseg.getOffset() + prevseg.getLength() <= newseg.getOffset()) {
-                        from = 0;
-                        offset = newseg.getOffset();
-                    } else {
-                        from = prevseg.getLength() - (int) (newseg.getOffset() - prevseg.getOffset());
-                        offset = prevseg.getOffset() + prevseg.getLength();
-                    }
-
-                    if (newseg.getOffset() + newseg.getLength() <= nextseg.getOffset()) {
-                        to = newseg.getLength();
-                    } else {
-                        to = (int) (nextseg.getOffset() - newseg.getOffset());
-                    }
-
-                    if (from == 0 && to == newseg.getLength()) {
-                        dataFileSegments.add(idx, newseg);
-                    } else {
-                        byte[] data = Arrays.copyOfRange(newseg.getData(), from, to);
-                        dataFileSegments.add(idx, new DataFileSegment(offset, data));
-                    }
+            // the previous segment might overlap with the new one
+            if (idx > 0 && dataFileSegments.get(idx - 1).getEndOffset() > newseg.getOffset()) {
+                idx--;
+            }
+        }
+
+        // walk through the existing segments overlapping with the new one and fill the gaps between them
+        long offset = newseg.getOffset();
+        long end = newseg.getEndOffset();
+        while (offset < end) {
+            long gapEnd = end;
+            if (idx < dataFileSegments.size()) {
+                DataFileSegment seg = dataFileSegments.get(idx);
+                if (seg.getOffset() <= offset) {
+                    offset = Math.max(offset, seg.getEndOffset());
+                    idx++;
+                    continue;
                 }
+                gapEnd = Math.min(end, seg.getOffset());
             }
+            idx = insert(idx, newseg, offset, gapEnd);
         }
     }
 
+    /**
+     * inserts the part [from, to) of the segment at the position idx in the list
+     *
+     * @return the index of the segment containing the inserted data
+     */
+    private int insert(int idx, DataFileSegment newseg, long from, long to) {
+        byte[] data = newseg.getData();
+        if (from != newseg.getOffset() || to != newseg.getEndOffset()) {
+            data = Arrays.copyOfRange(data, (int) (from - newseg.getOffset()), (int) (to - newseg.getOffset()));
+        }
+        DataFileSegment seg = new DataFileSegment(from, data);
+        checksum += ChecksumCalculator.calculateChecksum(seg);
+        receivedSize += data.length;
+
+        if (tempFile == null) {
+            dataFileSegments.add(idx, seg);
+            return idx;
+        }
+
+        checkOpen();
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            long pos = from;
+            while (buf.hasRemaining()) {
+                pos += channel.write(buf, pos);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // merge with the neighbours if they are adjacent
+        long start = from;
+        long stop = to;
+        if (idx > 0) {
+            DataFileSegment prev = dataFileSegments.get(idx - 1);
+            if (prev.getEndOffset() == from && stop - prev.getOffset() <= Integer.MAX_VALUE) {
+                start = prev.getOffset();
+                dataFileSegments.remove(--idx);
+            }
+        }
+        if (idx < dataFileSegments.size()) {
+            DataFileSegment next = dataFileSegments.get(idx);
+            if (next.getOffset() == to && next.getEndOffset() - start <= Integer.MAX_VALUE) {
+                stop = next.getEndOffset();
+                dataFileSegments.remove(idx);
+            }
+        }
+        dataFileSegments.add(idx, new DataFileSegment(start, (int) (stop - start)));
+        return idx;
+    }
+
     public List<SegmentRequest> getMissingChunks() {
         return getMissingChunks(true);
     }
@@ -135,15 +197,43 @@ public class DataFile {
     // returns the amount of bytes received of this Data Files.
     // Missing intermediate chunks are not yet received and are therefore not counted
     public long getReceivedSize() {
-        return this.dataFileSegments.stream().mapToLong(DataFileSegment::getLength).sum();
+        return receivedSize;
     }
 
+    /**
+     * Returns the data received.
+     * <p>
+     * If the data is kept in memory, the segments are concatenated, disregarding the gaps between them. If the data is
+     * stored in a temporary file, the gaps are filled with zeros.
+     */
     public byte[] getData() {
-        ByteArray baos = new ByteArray();
-        dataFileSegments.stream().forEach(e -> {
-            baos.add(e.getData());
-        });
-        return baos.toArray();
+        if (tempFile == null) {
+            ByteArray baos = new ByteArray();
+            dataFileSegments.stream().forEach(e -> {
+                baos.add(e.getData());
+            });
+            return baos.toArray();
+        }
+        try (InputStream in = getInputStream()) {
+            return ByteStreams.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a stream for reading the data received, with the same content as {@link #getData()}.
+     * <p>
+     * If the data is stored in a temporary file, it is read from the file without being loaded in memory. The stream
+     * has to be closed before closing the data file.
+     */
+    public InputStream getInputStream() throws IOException {
+        if (tempFile == null) {
+            return new ByteArrayInputStream(getData());
+        }
+        checkOpen();
+        long eof = Math.max(0, endOfFileOffset());
+        return ByteStreams.limit(Channels.newInputStream(Files.newByteChannel(tempFile)), eof);
     }
 
     List<DataFileSegment> getSegments() {
@@ -155,27 +245,11 @@ public class DataFile {
      * @return true if all the data has been received. If size is not known return false.
      */
     public boolean isComplete() {
-        if (size < 0) {
-            return false;
-        }
-        long startOffset = 0;
-        for (DataFileSegment segment : this.dataFileSegments) {
-            if (segment.getOffset() != startOffset) {
-                return false;
-            }
-            startOffset = segment.getOffset() + segment.getLength();
-        }
-        if (startOffset != size) {
-            return false;
-        }
-        return true;
+        // the segments do not overlap and do not extend beyond the end of the file
+        return size >= 0 && receivedSize == size;
     }
 
     public long getChecksum() {
-        long checksum = 0;
-        for (DataFileSegment segment : this.dataFileSegments) {
-            checksum += ChecksumCalculator.calculateChecksum(segment);
-        }
         return checksum & 0xFFFFFFFFl;
     }
 
@@ -205,4 +279,28 @@ public class DataFile {
         return size;
     }
 
+    /**
+     * @return true if the data is stored in a temporary file rather than in memory
+     */
+    public boolean isFileBacked() {
+        return tempFile != null;
+    }
+
+    private void checkOpen() {
+        if (channel == null) {
+            throw new IllegalStateException("The data file has been closed");
+        }
+    }
+
+    /**
+     * Releases the temporary file, if any. The data cannot be accessed anymore after this call.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            Files.deleteIfExists(tempFile);
+        }
+    }
 }
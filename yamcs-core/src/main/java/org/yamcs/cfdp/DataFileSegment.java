@@ -4,10 +4,21 @@ public class DataFileSegment {
 
     private long offset;
     private byte[] data;
+    private int length;
 
     public DataFileSegment(long offset, byte[] data) {
         this.offset = offset;
         this.data = data;
+        this.length = data.length;
+    }
+
+    /**
+     * Creates a segment which only records the position of some data stored elsewhere; {@link #getData()} returns
+     * null.
+     */
+    DataFileSegment(long offset, int length) {
+        this.offset = offset;
+        this.length = length;
     }
 
     public long getOffset() {
@@ -15,7 +26,7 @@ public class DataFileSegment {
     }
 
     public int getLength() {
-        return data.length;
+        return length;
     }
 
     public byte[] getData() {
@@ -23,6 +34,6 @@ public class DataFileSegment {
     }
 
     public long getEndOffset() {
-        return offset + data.length;
+        return offset + length;
     }
 }
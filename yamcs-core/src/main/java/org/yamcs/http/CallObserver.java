@@ -54,7 +54,8 @@ public class CallObserver implements Observer<Message> {
         } else if (message instanceof HttpBody) {
             HttpBody responseBody = (HttpBody) message;
             ByteBuf buf = Unpooled.wrappedBuffer(responseBody.getData().toByteArray());
-            HttpResponse httpResponse = new DefaultFullHttpResponse(HTTP_1_1, OK, buf);
+            HttpResponse httpResponse = new DefaultFullHttpResponse(HTTP_1_1, ctx.getResponseStatus(), buf);
+            httpResponse.headers().add(ctx.getResponseHeaders());
             httpResponse.headers().set(HttpHeaderNames.CONTENT_TYPE, responseBody.getContentType());
             httpResponse.headers().set(HttpHeaderNames.CONTENT_LENGTH, buf.readableBytes());
             if (responseBody.hasFilename()) {
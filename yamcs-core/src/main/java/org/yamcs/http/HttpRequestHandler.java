@@ -61,6 +61,7 @@ import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.codec.protobuf.ProtobufDecoder;
 import io.netty.handler.codec.protobuf.ProtobufVarint32FrameDecoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.NotSslRecordException;
 import io.netty.util.AttributeKey;
 import io.netty.util.CharsetUtil;
@@ -388,6 +389,9 @@ public class HttpRequestHandler extends ChannelInboundHandlerAdapter {
         String webSocketPath = req.uri();
         String subprotocols = "json, protobuf";
         pipeline.addLast(new WebSocketServerProtocolHandler(webSocketPath, subprotocols, true, maxFrameLength));
+        // the frames written in a burst are flushed together
+        pipeline.addLast(new FlushConsolidationHandler(FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES,
+                true));
 
         pipeline.addLast(new WebSocketFrameHandler(httpServer, req, user, waterMark));
 
@@ -0,0 +1,65 @@
+package org.yamcs.http;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.protobuf.Pvalue.ParameterValue;
+import org.yamcs.protobuf.SubscribeParametersData;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+
+/**
+ * Merges the parameter updates accumulated while a WebSocket client cannot keep up, keeping only the newest value of
+ * each parameter.
+ * <p>
+ * The mapping and invalid identifiers are all kept (they are sent only once per subscription change).
+ * <p>
+ * Not thread safe.
+ */
+class ParameterDataConflater {
+    private final Map<Integer, NamedObjectId> mapping = new LinkedHashMap<>();
+    private final List<NamedObjectId> invalid = new ArrayList<>();
+    private final Map<Integer, ParameterValue> values = new LinkedHashMap<>();
+    private int conflatedCount;
+
+    void add(SubscribeParametersData data) {
+        mapping.putAll(data.getMappingMap());
+        invalid.addAll(data.getInvalidList());
+        for (ParameterValue pval : data.getValuesList()) {
+            // remove first such that the order reflects the time of the last update
+            if (values.remove(pval.getNumericId()) != null) {
+                conflatedCount++;
+            }
+            values.put(pval.getNumericId(), pval);
+        }
+    }
+
+    boolean isEmpty() {
+        return mapping.isEmpty() && invalid.isEmpty() && values.isEmpty();
+    }
+
+    /**
+     * 
+     * @return the number of values discarded because a newer value of the same parameter has been received
+     */
+    int getConflatedCount() {
+        return conflatedCount;
+    }
+
+    /**
+     * Returns the merged data and clears this conflater
+     */
+    SubscribeParametersData drain() {
+        SubscribeParametersData data = SubscribeParametersData.newBuilder()
+                .putAllMapping(mapping)
+                .addAllInvalid(invalid)
+                .addAllValues(values.values())
+                .build();
+        mapping.clear();
+        invalid.clear();
+        values.clear();
+        conflatedCount = 0;
+        return data;
+    }
+}
@@ -20,9 +20,12 @@ import com.google.protobuf.util.JsonFormat;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.QueryStringDecoder;
 
@@ -42,6 +45,9 @@ public class RouteContext extends Context {
     private int maxBodySize;
     private String fieldMaskRoot;
 
+    private HttpResponseStatus responseStatus = HttpResponseStatus.OK;
+    private final HttpHeaders responseHeaders = new DefaultHttpHeaders();
+
     RouteContext(HttpServer httpServer, ChannelHandlerContext nettyContext, User user, HttpRequest nettyRequest,
             Route route, Matcher regexMatch) {
         super(httpServer, nettyContext, user, route.getApi());
@@ -154,6 +160,26 @@ public class RouteContext extends Context {
         return route.isOffloaded();
     }
 
+    /**
+     * Sets the status of the response sent for an {@link org.yamcs.api.HttpBody} message or of a streaming response
+     * (for example {@code 206 Partial Content}). By default the status is {@code 200 OK}.
+     */
+    public void setResponseStatus(HttpResponseStatus responseStatus) {
+        this.responseStatus = responseStatus;
+    }
+
+    public HttpResponseStatus getResponseStatus() {
+        return responseStatus;
+    }
+
+    /**
+     * Additional headers to be added to the response sent for an {@link org.yamcs.api.HttpBody} message or to a
+     * streaming response.
+     */
+    public HttpHeaders getResponseHeaders() {
+        return responseHeaders;
+    }
+
     /**
      * Deserializes the incoming message extracted from the body. This does not care about what the HTTP method is. Any
      * required checks should be done elsewhere.
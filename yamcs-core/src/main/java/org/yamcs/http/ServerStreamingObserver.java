@@ -121,7 +121,7 @@ public class ServerStreamingObserver implements Observer<Message> {
         }
 
         startChunkedTransfer(mediaType, filename);
-        ctx.reportStatusCode(200);
+        ctx.reportStatusCode(ctx.getResponseStatus().code());
     }
 
     private void resetBuffer() {
@@ -191,8 +191,11 @@ public class ServerStreamingObserver implements Observer<Message> {
     }
 
     private void startChunkedTransfer(MediaType contentType, String filename) {
-        log.info("{}: {} {} 200 starting chunked transfer", ctx, ctx.nettyRequest.method(), ctx.nettyRequest.uri());
-        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+        HttpResponseStatus status = ctx.getResponseStatus();
+        log.info("{}: {} {} {} starting chunked transfer", ctx, ctx.nettyRequest.method(), ctx.nettyRequest.uri(),
+                status.code());
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
+        response.headers().add(ctx.getResponseHeaders());
         response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
 
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.yamcs.api.Observer;
 import org.yamcs.logging.Log;
@@ -52,6 +53,7 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     private WriteBufferWaterMark writeBufferWaterMark;
 
     private List<TopicContext> contexts = new ArrayList<>();
+    private List<WebSocketObserver> observers = new CopyOnWriteArrayList<>();
     private Map<Integer, Observer<Message>> clientObserversByCall = new HashMap<>();
 
     public WebSocketFrameHandler(HttpServer httpServer, HttpRequest req, User user,
@@ -221,6 +223,8 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         });
 
         contexts.add(ctx);
+        observers.add(observer);
+        ctx.addListener(cancellationCause -> observers.remove(observer));
 
         if (ctx.isClientStreaming()) {
             Observer<Message> clientObserver = topic.callMethod(ctx, observer);
@@ -250,16 +254,32 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     }
 
     void writeMessage(ChannelHandlerContext nettyContext, ServerMessage serverMessage) throws IOException {
+        WebSocketFrame frame;
         if (protobuf) {
             ByteBuf buf = nettyContext.alloc().buffer();
             try (ByteBufOutputStream bufOut = new ByteBufOutputStream(buf)) {
                 serverMessage.writeTo(bufOut);
             }
-            nettyContext.channel().writeAndFlush(new BinaryWebSocketFrame(buf));
+            frame = new BinaryWebSocketFrame(buf);
         } else {
             String json = httpServer.getJsonPrinter().print(serverMessage);
-            nettyContext.channel().writeAndFlush(new TextWebSocketFrame(json));
+            frame = new TextWebSocketFrame(json);
         }
+        // the flush is consolidated by the FlushConsolidationHandler preceding this handler in the pipeline
+        nettyContext.channel().writeAndFlush(frame);
+    }
+
+    /**
+     * Called when the outbound buffer passes below the low or above the high water mark.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext nettyContext) throws Exception {
+        if (nettyContext.channel().isWritable()) {
+            for (WebSocketObserver observer : new ArrayList<>(observers)) {
+                observer.sendPending();
+            }
+        }
+        super.channelWritabilityChanged(nettyContext);
     }
 
     /**
@@ -276,6 +296,7 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         log.info("Channel {} closed", remoteAddress);
         contexts.forEach(TopicContext::close);
         contexts.clear();
+        observers.clear();
     }
 
     private Topic matchTopic(String topicName) {
@@ -9,6 +9,7 @@ import org.yamcs.api.Observer;
 import org.yamcs.logging.Log;
 import org.yamcs.protobuf.Reply;
 import org.yamcs.protobuf.ServerMessage;
+import org.yamcs.protobuf.SubscribeParametersData;
 
 import com.google.protobuf.Any;
 import com.google.protobuf.Message;
@@ -30,6 +31,9 @@ public class WebSocketObserver implements Observer<Message> {
     private boolean replied;
     private List<Message> pendingMessages = new ArrayList<>(); // Messages received while not yet replied
 
+    // used for the parameter subscriptions to merge the updates when the client falls behind
+    private ParameterDataConflater conflater;
+
     public WebSocketObserver(TopicContext ctx, WebSocketFrameHandler frameHandler) {
         this.ctx = ctx;
         this.frameHandler = frameHandler;
@@ -38,6 +42,9 @@ public class WebSocketObserver implements Observer<Message> {
         log.setContext(ctx.toString());
 
         log.debug("Subscribe {}", ctx.getTopic().getName());
+        if (ctx.getTopic().getResponsePrototype() instanceof SubscribeParametersData) {
+            conflater = new ParameterDataConflater();
+        }
     }
 
     void sendReply(Reply reply) {
@@ -71,6 +78,18 @@ public class WebSocketObserver implements Observer<Message> {
 
         boolean isOpen = ctx.nettyContext.channel().isOpen();
         boolean isWritable = ctx.nettyContext.channel().isWritable();
+        if (conflater != null && isOpen) {
+            // parameter updates are never dropped, they are merged until the client catches up
+            synchronized (this) {
+                if (isWritable && conflater.isEmpty()) {
+                    sendMessage(ctx.getTopic().getName(), message);
+                    return;
+                }
+                conflater.add((SubscribeParametersData) message);
+            }
+            sendPending();
+            return;
+        }
         if (!isOpen || !isWritable) {
             dropCount++;
             if (!isOpen) {
@@ -90,6 +109,28 @@ public class WebSocketObserver implements Observer<Message> {
         dropCount = 0;
     }
 
+    /**
+     * Sends the updates merged while the channel was not writable (if any).
+     */
+    void sendPending() {
+        if (conflater == null) {
+            return;
+        }
+        SubscribeParametersData data;
+        synchronized (this) {
+            if (!replied || conflater.isEmpty() || !ctx.nettyContext.channel().isWritable()) {
+                return;
+            }
+            if (conflater.getConflatedCount() > 0) {
+                log.debug("Client could not keep up, {} parameter values replaced by newer ones",
+                        conflater.getConflatedCount());
+            }
+            data = conflater.drain();
+            // send inside the lock to preserve the order of the messages
+            sendMessage(ctx.getTopic().getName(), data);
+        }
+    }
+
     private void sendMessage(String type, Message data) {
         ServerMessage message = ServerMessage.newBuilder()
                 .setType(type)
@@ -1,9 +1,11 @@
 package org.yamcs.http.api;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.yamcs.api.HttpBody;
@@ -14,6 +16,8 @@ import org.yamcs.http.ForbiddenException;
 import org.yamcs.http.HttpException;
 import org.yamcs.http.InternalServerErrorException;
 import org.yamcs.http.NotFoundException;
+import org.yamcs.http.RangeNotSatisfiableException;
+import org.yamcs.http.RouteContext;
 import org.yamcs.logging.Log;
 import org.yamcs.protobuf.AbstractBucketsApi;
 import org.yamcs.protobuf.BucketInfo;
@@ -40,15 +44,21 @@ import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectProperties;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
 
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
 public class BucketsApi extends AbstractBucketsApi<Context> {
 
     private static final Log log = new Log(BucketsApi.class);
 
     // max body size used for upload object (this includes both data and metadata).
     static final int MAX_BODY_SIZE = 5 * 1024 * 1024;
+    // size of the data messages when streaming an object
+    static final int STREAM_CHUNK_SIZE = 64 * 1024;
 
     static final Pattern BUCKET_NAME_REGEXP = Pattern.compile("\\w+");
     static final Pattern OBJ_NAME_REGEXP = Pattern.compile("[ \\w\\s\\-\\./]+");
+    static final Pattern RANGE_REGEXP = Pattern.compile("bytes=(\\d*)-(\\d*)");
 
     @Override
     public void listBuckets(Context ctx, ListBucketsRequest request, Observer<ListBucketsResponse> observer) {
@@ -117,23 +127,51 @@ public class BucketsApi extends AbstractBucketsApi<Context> {
 
         String objName = request.getObjectName();
         Bucket bucket = verifyAndGetBucket(instance, bucketName, ctx.user);
+        String contentType;
+        InputStream in;
         try {
             ObjectProperties props = bucket.findObject(objName);
             if (props == null) {
                 throw new NotFoundException();
             }
-            byte[] objData = bucket.getObject(objName);
-            String contentType = props.hasContentType() ? props.getContentType() : "application/octet-stream";
-
-            HttpBody body = HttpBody.newBuilder()
-                    .setContentType(contentType)
-                    .setData(ByteString.copyFrom(objData))
-                    .build();
+            contentType = props.hasContentType() ? props.getContentType() : "application/octet-stream";
+            long size = props.getSize();
+            long offset = 0;
+            long length = size;
+
+            if (ctx instanceof RouteContext) {
+                RouteContext routeCtx = (RouteContext) ctx;
+                routeCtx.getResponseHeaders().set(HttpHeaderNames.ACCEPT_RANGES, "bytes");
+                String rangeHeader = routeCtx.nettyRequest.headers().get(HttpHeaderNames.RANGE);
+                long[] range = parseRange(rangeHeader, size);
+                if (range != null) {
+                    offset = range[0];
+                    length = range[1] - range[0] + 1;
+                    routeCtx.setResponseStatus(HttpResponseStatus.PARTIAL_CONTENT);
+                    routeCtx.getResponseHeaders().set(HttpHeaderNames.CONTENT_RANGE,
+                            "bytes " + range[0] + "-" + range[1] + "/" + size);
+                }
+            }
 
-            observer.complete(body);
+            // opened before starting the response such that the errors can still be sent with their status
+            in = bucket.getObjectStream(objName, offset, length);
         } catch (IOException e) {
             throw new InternalServerErrorException("Error when retrieving object: " + e.getMessage(), e);
         }
+
+        observer.next(HttpBody.newBuilder().setContentType(contentType).build());
+        try (InputStream in1 = in) {
+            byte[] buf = new byte[STREAM_CHUNK_SIZE];
+            int n;
+            while (!observer.isCancelled() && (n = in1.read(buf)) > 0) {
+                observer.next(HttpBody.newBuilder().setData(ByteString.copyFrom(buf, 0, n)).build());
+            }
+        } catch (IOException e) {
+            log.error("Error when streaming object {} from bucket {}", objName, bucketName, e);
+            observer.completeExceptionally(e);
+            return;
+        }
+        observer.complete();
     }
 
     @Override
@@ -156,9 +194,8 @@ public class BucketsApi extends AbstractBucketsApi<Context> {
         verifyObjectName(objectName);
 
         String contentType = body.hasContentType() ? body.getContentType() : null;
-        byte[] objectData = body.getData().toByteArray();
         try {
-            bucket.putObject(objectName, contentType, body.getMetadataMap(), objectData);
+            bucket.putObject(objectName, contentType, body.getMetadataMap(), body.getData().newInput());
         } catch (IOException e) {
             throw new InternalServerErrorException("Error when uploading object to bucket: " + e.getMessage(), e);
         }
@@ -295,6 +332,53 @@ public class BucketsApi extends AbstractBucketsApi<Context> {
         return YarchDatabase.getInstance(yamcsInstance);
     }
 
+    /**
+     * Parses the value of a {@code Range} header.
+     * <p>
+     * Only a single byte range is supported ({@code bytes=first-last}, {@code bytes=first-} or {@code bytes=-suffix});
+     * for any other form (including multiple ranges) the header is ignored and the full object is returned, as
+     * allowed by RFC 7233.
+     *
+     * @return the first and last byte position (inclusive) or null if the full object is to be returned
+     * @throws RangeNotSatisfiableException
+     *             if the range does not overlap the object
+     */
+    static long[] parseRange(String rangeHeader, long size) throws RangeNotSatisfiableException {
+        if (rangeHeader == null) {
+            return null;
+        }
+        Matcher m = RANGE_REGEXP.matcher(rangeHeader.trim());
+        if (!m.matches()) {
+            return null;
+        }
+        long first, last;
+        try {
+            if (m.group(1).isEmpty()) {
+                if (m.group(2).isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(m.group(2));
+                if (suffix == 0) {
+                    throw new RangeNotSatisfiableException("Range not satisfiable; object size: " + size);
+                }
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(m.group(1));
+                last = m.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(m.group(2)), size - 1);
+                if (last < first && first < size) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (first >= size) {
+            throw new RangeNotSatisfiableException("Range not satisfiable; object size: " + size);
+        }
+        return new long[] { first, last };
+    }
+
     static void verifyObjectName(String objName) throws BadRequestException {
         if (objName == null) {
             throw new BadRequestException("No object name specified");
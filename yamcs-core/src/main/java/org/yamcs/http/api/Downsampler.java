@@ -11,6 +11,7 @@ import org.yamcs.logging.Log;
 import org.yamcs.parameter.Value;
 import org.yamcs.parameter.ValueArray;
 import org.yamcs.parameterarchive.ParameterValueArray;
+import org.yamcs.parameterarchive.RollupSegment;
 import org.yamcs.protobuf.Pvalue.ParameterStatus;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.UnsignedLong;
@@ -155,6 +156,35 @@ public class Downsampler implements Consumer<ParameterValueArray> {
         }
     }
 
+    /**
+     * Processes the pre-aggregated bins of a rollup segment. Each bin is accounted to the sample containing the bin
+     * start; the bins starting before the start of the interval are clipped to the interval start since they may
+     * contain values within the interval.
+     */
+    public void process(RollupSegment rs) {
+        for (int i = 0; i < rs.size(); i++) {
+            long time = rs.getTime(i);
+            if (time > stop || time + rs.getResolution() <= start) {
+                continue;
+            }
+            if (time < start) {
+                time = start;
+            }
+            Entry<Long, Sample> entry = samplesByTime.floorEntry(time);
+            if (entry == null) {
+                continue;
+            }
+            lastSampleTime = entry.getKey();
+            Sample sample = entry.getValue();
+            if (sample == null) {
+                samplesByTime.put(entry.getKey(), new Sample(entry.getKey(), rs.getMin(i), rs.getMax(i),
+                        rs.getAvg(i), rs.getCount(i)));
+            } else {
+                sample.process(rs.getMin(i), rs.getMax(i), rs.getAvg(i), rs.getCount(i));
+            }
+        }
+    }
+
     public void process(long time, double value, long expireMillis) {
         if (time > stop || time < start) {
             return;
@@ -231,6 +261,28 @@ public class Downsampler implements Consumer<ParameterValueArray> {
             n = 1;
         }
 
+        // sample with pre-aggregated values
+        Sample(long t, double min, double max, double avg, int n) {
+            this.t = t;
+            this.expireMillis = -1;
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+            this.n = n;
+        }
+
+        void process(double min, double max, double avg, int n) {
+            if (min < this.min) {
+                this.min = min;
+            }
+            if (max > this.max) {
+                this.max = max;
+            }
+            int n1 = this.n + n;
+            this.avg += (avg - this.avg) * n / n1;
+            this.n = n1;
+        }
+
         public void process(double value, long expireMillis) {
             this.expireMillis = expireMillis;
             if (value < min) {
@@ -18,10 +18,12 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.rocksdb.RocksDBException;
 import org.yamcs.YamcsServer;
 import org.yamcs.api.HttpBody;
 import org.yamcs.api.Observer;
 import org.yamcs.archive.EventRecorder;
+import org.yamcs.archive.EventTextIndex;
 import org.yamcs.events.EventProducer;
 import org.yamcs.events.EventProducerFactory;
 import org.yamcs.http.BadRequestException;
@@ -37,31 +39,41 @@ import org.yamcs.protobuf.ListEventSourcesRequest;
 import org.yamcs.protobuf.ListEventSourcesResponse;
 import org.yamcs.protobuf.ListEventsRequest;
 import org.yamcs.protobuf.ListEventsResponse;
+import org.yamcs.protobuf.RebuildEventIndexRequest;
 import org.yamcs.protobuf.StreamEventsRequest;
 import org.yamcs.protobuf.SubscribeEventsRequest;
 import org.yamcs.protobuf.Yamcs.Event;
 import org.yamcs.protobuf.Yamcs.Event.EventSeverity;
 import org.yamcs.security.SystemPrivilege;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.TimeInterval;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.TableDefinition;
 import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.protobuf.Db;
 
 import com.csvreader.CsvWriter;
 import com.google.common.collect.BiMap;
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
 import com.google.protobuf.ExtensionRegistry.ExtensionInfo;
+import com.google.protobuf.Timestamp;
 import com.google.protobuf.util.Timestamps;
 
 public class EventsApi extends AbstractEventsApi<Context> {
 
     private static final Log log = new Log(EventsApi.class);
 
+    // the intervals found in the event text index separated by less than this are queried together
+    static final long MAX_INDEXED_INTERVAL_GAP = 3600_000L;
+    // above this number of intervals, the events are searched without using the index
+    static final int MAX_INDEXED_INTERVALS = 100;
+
     private ProtobufRegistry protobufRegistry;
     private ConcurrentMap<String, EventProducer> eventProducerMap = new ConcurrentHashMap<>();
     private AtomicInteger eventSequenceNumber = new AtomicInteger();
@@ -132,10 +144,9 @@ public class EventsApi extends AbstractEventsApi<Context> {
         }
 
         sqlb.descend(desc);
-        sqlb.limit(pos, limit + 1l); // one more to detect hasMore
 
         ListEventsResponse.Builder responseb = ListEventsResponse.newBuilder();
-        StreamFactory.stream(instance, sqlb.toString(), sqlb.getQueryArguments(), new StreamSubscriber() {
+        StreamSubscriber subscriber = new StreamSubscriber() {
 
             Db.Event last;
             int count;
@@ -158,7 +169,19 @@ public class EventsApi extends AbstractEventsApi<Context> {
                 }
                 observer.complete(responseb.build());
             }
-        });
+        };
+
+        List<TimeInterval> intervals = null;
+        if (request.hasQ()) {
+            intervals = findIndexedIntervals(instance, request.getQ(), request.hasStart() ? request.getStart() : null,
+                    request.hasStop() ? request.getStop() : null);
+        }
+        if (intervals != null) {
+            StreamFactory.stream(instance, sqlb, GENTIME_COLUMN, intervals, desc, pos, limit + 1, subscriber);
+        } else {
+            sqlb.limit(pos, limit + 1l); // one more to detect hasMore
+            StreamFactory.stream(instance, sqlb.toString(), sqlb.getQueryArguments(), subscriber);
+        }
     }
 
     @Override
@@ -318,7 +341,7 @@ public class EventsApi extends AbstractEventsApi<Context> {
             sqlb.where("body.message like ?", "%" + request.getQ() + "%");
         }
 
-        StreamFactory.stream(instance, sqlb.toString(), sqlb.getQueryArguments(), new StreamSubscriber() {
+        StreamSubscriber subscriber = new StreamSubscriber() {
 
             @Override
             public void onTuple(Stream stream, Tuple tuple) {
@@ -331,7 +354,78 @@ public class EventsApi extends AbstractEventsApi<Context> {
             public void streamClosed(Stream stream) {
                 observer.complete();
             }
-        });
+        };
+
+        List<TimeInterval> intervals = null;
+        if (request.hasQ()) {
+            intervals = findIndexedIntervals(instance, request.getQ(), request.hasStart() ? request.getStart() : null,
+                    request.hasStop() ? request.getStop() : null);
+        }
+        if (intervals != null) {
+            StreamFactory.stream(instance, sqlb, GENTIME_COLUMN, intervals, false, 0, -1, subscriber);
+        } else {
+            StreamFactory.stream(instance, sqlb.toString(), sqlb.getQueryArguments(), subscriber);
+        }
+    }
+
+    @Override
+    public void rebuildEventIndex(Context ctx, RebuildEventIndexRequest request, Observer<Empty> observer) {
+        ctx.checkSystemPrivilege(SystemPrivilege.ControlArchiving);
+
+        String instance = ManagementApi.verifyInstance(request.getInstance());
+        List<EventRecorder> recorders = YamcsServer.getServer().getServices(instance, EventRecorder.class);
+        if (recorders.isEmpty() || recorders.get(0).getTextIndex() == null) {
+            throw new BadRequestException("The event text index is not enabled for this instance");
+        }
+        TimeInterval interval = new TimeInterval();
+        if (request.hasStart()) {
+            interval.setStart(TimeEncoding.fromProtobufTimestamp(request.getStart()));
+        }
+        if (request.hasStop()) {
+            interval.setEnd(TimeEncoding.fromProtobufTimestamp(request.getStop()));
+        }
+
+        try {
+            recorders.get(0).getTextIndex().rebuild(interval).whenComplete((r, t) -> {
+                if (t != null) {
+                    observer.completeExceptionally(t);
+                } else {
+                    observer.complete(Empty.getDefaultInstance());
+                }
+            });
+        } catch (YarchException e) {
+            observer.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Uses the text index of the events (if enabled) to find the time intervals which may contain events whose message
+     * contains the searched text.
+     *
+     * @return the sorted list of intervals or null if the index is not available or cannot be used for this search
+     */
+    private static List<TimeInterval> findIndexedIntervals(String instance, String q, Timestamp start,
+            Timestamp stop) {
+        List<EventRecorder> recorders = YamcsServer.getServer().getServices(instance, EventRecorder.class);
+        if (recorders.isEmpty() || recorders.get(0).getTextIndex() == null) {
+            return null;
+        }
+        EventTextIndex textIndex = recorders.get(0).getTextIndex();
+        long t0 = start == null ? TimeEncoding.MIN_INSTANT : TimeEncoding.fromProtobufTimestamp(start);
+        long t1 = stop == null ? TimeEncoding.MAX_INSTANT : TimeEncoding.fromProtobufTimestamp(stop);
+        try {
+            List<TimeInterval> intervals = textIndex.findIntervals("%" + q + "%", t0, t1);
+            if (intervals == null) {
+                return null;
+            }
+            // each interval results in one query; if there are still too many after merging the nearby ones, a scan
+            // of the whole range is cheaper
+            intervals = EventTextIndex.mergeIntervals(intervals, MAX_INDEXED_INTERVAL_GAP);
+            return intervals.size() > MAX_INDEXED_INTERVALS ? null : intervals;
+        } catch (RocksDBException e) {
+            log.warn("Cannot use the event text index, falling back to scanning the events", e);
+            return null;
+        }
     }
 
     @Override
@@ -1,6 +1,7 @@
 package org.yamcs.http.api;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
@@ -45,9 +46,11 @@ import org.yamcs.protobuf.GetArchivedParameterGroupRequest;
 import org.yamcs.protobuf.GetArchivedParameterSegmentsRequest;
 import org.yamcs.protobuf.GetArchivedParametersInfoRequest;
 import org.yamcs.protobuf.GetParameterRangesRequest;
+import org.yamcs.protobuf.ParameterColumnChunk;
 import org.yamcs.protobuf.Pvalue.Ranges;
 import org.yamcs.protobuf.Pvalue.TimeSeries;
 import org.yamcs.protobuf.RebuildRangeRequest;
+import org.yamcs.protobuf.StreamParameterColumnsRequest;
 import org.yamcs.protobuf.Yamcs.StringMessage;
 import org.yamcs.security.SystemPrivilege;
 import org.yamcs.utils.AggregateUtil;
@@ -57,6 +60,9 @@ import org.yamcs.utils.MutableLong;
 import org.yamcs.utils.SortedIntArray;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.AggregateParameterType;
+import org.yamcs.xtce.ArrayParameterType;
+import org.yamcs.xtce.ParameterType;
 import org.yamcs.xtce.XtceDb;
 import org.yamcs.xtceproc.XtceDbFactory;
 
@@ -183,8 +189,14 @@ public class ParameterArchiveApi extends AbstractParameterArchiveApi<Context> {
 
         ParameterRequest pr = new ParameterRequest(start, stop, true, !useRawValue, useRawValue, true);
         SingleParameterRetriever spdr = new SingleParameterRetriever(parchive, pcache, pid, pr);
+        // the rollups are available only for the engineering values
+        int rollupLevel = useRawValue ? -1 : parchive.getRollupLevel((stop - start) / sampleCount);
         try {
-            spdr.retrieve(sampler);
+            if (rollupLevel >= 0) {
+                spdr.retrieveRollups(rollupLevel, sampler);
+            } else {
+                spdr.retrieve(sampler);
+            }
         } catch (IOException e) {
             log.warn("Received exception during parameter retrieval", e);
             throw new InternalServerErrorException(e.toString());
@@ -349,6 +361,69 @@ public class ParameterArchiveApi extends AbstractParameterArchiveApi<Context> {
         observer.complete(resultb.build());
     }
 
+    @Override
+    public void streamParameterColumns(Context ctx, StreamParameterColumnsRequest request,
+            Observer<ParameterColumnChunk> observer) {
+        YamcsServerInstance ysi = ManagementApi.verifyInstanceObj(request.getInstance());
+
+        XtceDb mdb = XtceDbFactory.getInstance(ysi.getName());
+        if (request.getParametersCount() == 0) {
+            throw new BadRequestException("No parameter specified");
+        }
+        List<ParameterWithId> pids = new ArrayList<>();
+        for (String name : request.getParametersList()) {
+            ParameterWithId pid = MdbApi.verifyParameterWithId(ctx, mdb, name);
+            ParameterType ptype = pid.getParameter().getParameterType();
+            if (pid.getPath() != null) {
+                ptype = AggregateUtil.getMemberType(ptype, pid.getPath());
+            }
+            if (ptype instanceof AggregateParameterType || ptype instanceof ArrayParameterType) {
+                throw new BadRequestException(
+                        "Cannot export the aggregate or array parameter " + name + " in columnar format");
+            }
+            pids.add(pid);
+        }
+
+        long start = 0;
+        if (request.hasStart()) {
+            start = TimeEncoding.fromProtobufTimestamp(request.getStart());
+        }
+        long stop = TimeEncoding.getWallclockTime();
+        if (request.hasStop()) {
+            stop = TimeEncoding.fromProtobufTimestamp(request.getStop());
+        }
+
+        ParameterArchive parchive = getParameterArchive(ysi);
+
+        ParameterCache pcache = null;
+        if (!request.getNorealtime()) {
+            String processorName = request.hasProcessor() ? request.getProcessor() : DEFAULT_PROCESSOR;
+            Processor processor = ysi.getProcessor(processorName);
+            if (processor != null) {
+                pcache = processor.getParameterCache();
+            }
+        }
+
+        boolean sendRaw = request.getRaw();
+        boolean sendStatus = !request.getNostatus();
+        ParameterRequest pr = new ParameterRequest(start, stop, true, true, sendRaw, sendStatus);
+        try {
+            for (int i = 0; i < pids.size(); i++) {
+                ParameterColumnStreamer streamer = new ParameterColumnStreamer(observer,
+                        request.getParameters(i), sendRaw, sendStatus);
+                SingleParameterRetriever spdr = new SingleParameterRetriever(parchive, pcache, pids.get(i), pr);
+                spdr.retrieve(streamer);
+            }
+        } catch (ConsumerAbortException e) {
+            log.debug("Column streaming aborted");
+        } catch (IOException e) {
+            log.warn("Received exception during parameter retrieval", e);
+            observer.completeExceptionally(e);
+            return;
+        }
+        observer.complete();
+    }
+
     private ParameterArchive getParameterArchive(YamcsServerInstance ysi) throws BadRequestException {
         List<ParameterArchive> l = ysi.getServices(ParameterArchive.class);
 
@@ -0,0 +1,166 @@
+package org.yamcs.http.api;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.yamcs.api.Observer;
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.parameterarchive.ConsumerAbortException;
+import org.yamcs.parameterarchive.ParameterValueArray;
+import org.yamcs.protobuf.ParameterColumnChunk;
+import org.yamcs.protobuf.Pvalue.ParameterStatus;
+import org.yamcs.protobuf.ValueColumn;
+import org.yamcs.utils.TimeEncoding;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Sends the values of one parameter retrieved from the parameter archive as {@link ParameterColumnChunk}s.
+ * <p>
+ * The chunks are built directly from the arrays of the {@link ParameterValueArray}, without creating intermediate
+ * parameter values. The arrays larger than {@link #MAX_CHUNK_SIZE} are split into multiple chunks.
+ *
+ */
+public class ParameterColumnStreamer implements Consumer<ParameterValueArray> {
+    static final int MAX_CHUNK_SIZE = 65536;
+
+    final Observer<ParameterColumnChunk> observer;
+    final String parameter;
+    final boolean sendRaw;
+    final boolean sendStatus;
+
+    public ParameterColumnStreamer(Observer<ParameterColumnChunk> observer, String parameter, boolean sendRaw,
+            boolean sendStatus) {
+        this.observer = observer;
+        this.parameter = parameter;
+        this.sendRaw = sendRaw;
+        this.sendStatus = sendStatus;
+    }
+
+    @Override
+    public void accept(ParameterValueArray pva) {
+        if (observer.isCancelled()) {
+            throw new ConsumerAbortException();
+        }
+        int n = pva.size();
+        for (int from = 0; from < n; from += MAX_CHUNK_SIZE) {
+            observer.next(toChunk(pva, from, Math.min(n, from + MAX_CHUNK_SIZE)));
+        }
+    }
+
+    ParameterColumnChunk toChunk(ParameterValueArray pva, int from, int to) {
+        ParameterColumnChunk.Builder chunkb = ParameterColumnChunk.newBuilder()
+                .setParameter(parameter)
+                .setCount(to - from);
+
+        long[] timestamps = pva.getTimestamps();
+        long prev = 0;
+        for (int i = from; i < to; i++) {
+            long t = TimeEncoding.toUnixMillisec(timestamps[i]);
+            chunkb.addTimes(t - prev);
+            prev = t;
+        }
+
+        if (pva.getEngValues() != null) {
+            chunkb.setEngValues(toValueColumn(pva.getEngValues(), from, to));
+        }
+        if (sendRaw && pva.getRawValues() != null) {
+            chunkb.setRawValues(toValueColumn(pva.getRawValues(), from, to));
+        }
+
+        ParameterStatus[] statuses = pva.getStatuses();
+        if (sendStatus && statuses != null) {
+            Map<ParameterStatus, Integer> dictionary = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                ParameterStatus status = statuses[i] == null ? ParameterStatus.getDefaultInstance() : statuses[i];
+                Integer idx = dictionary.get(status);
+                if (idx == null) {
+                    idx = dictionary.size();
+                    dictionary.put(status, idx);
+                    chunkb.addStatuses(status);
+                }
+                chunkb.addStatusIndexes(idx);
+            }
+        }
+        return chunkb.build();
+    }
+
+    static ValueColumn toValueColumn(ValueArray va, int from, int to) {
+        ValueColumn.Builder columnb = ValueColumn.newBuilder().setType(va.getType());
+        switch (va.getType()) {
+        case FLOAT:
+            float[] floats = va.getFloatArray();
+            for (int i = from; i < to; i++) {
+                columnb.addFloatValues(floats[i]);
+            }
+            break;
+        case DOUBLE:
+            double[] doubles = va.getDoubleArray();
+            for (int i = from; i < to; i++) {
+                columnb.addDoubleValues(doubles[i]);
+            }
+            break;
+        case SINT32:
+            int[] sints = va.getIntArray();
+            for (int i = from; i < to; i++) {
+                columnb.addSintValues(sints[i]);
+            }
+            break;
+        case UINT32:
+            int[] uints = va.getIntArray();
+            for (int i = from; i < to; i++) {
+                columnb.addUintValues(uints[i] & 0xFFFFFFFFL);
+            }
+            break;
+        case SINT64:
+            long[] slongs = va.getLongArray();
+            for (int i = from; i < to; i++) {
+                columnb.addSintValues(slongs[i]);
+            }
+            break;
+        case UINT64:
+            long[] ulongs = va.getLongArray();
+            for (int i = from; i < to; i++) {
+                columnb.addUintValues(ulongs[i]);
+            }
+            break;
+        case TIMESTAMP:
+            long[] instants = va.getLongArray();
+            for (int i = from; i < to; i++) {
+                columnb.addTimestampValues(TimeEncoding.toUnixMillisec(instants[i]));
+            }
+            break;
+        case BOOLEAN:
+            BitSet bits = va.getBitSet();
+            for (int i = from; i < to; i++) {
+                columnb.addBooleanValues(bits.get(i));
+            }
+            break;
+        case BINARY:
+            Object[] binaries = va.getObjectArray();
+            for (int i = from; i < to; i++) {
+                columnb.addBinaryValues(ByteString.copyFrom((byte[]) binaries[i]));
+            }
+            break;
+        case STRING:
+        case ENUMERATED:
+            Object[] strings = va.getObjectArray();
+            Map<Object, Integer> dictionary = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                Integer idx = dictionary.get(strings[i]);
+                if (idx == null) {
+                    idx = dictionary.size();
+                    dictionary.put(strings[i], idx);
+                    columnb.addStringDictionary((String) strings[i]);
+                }
+                columnb.addStringIndexes(idx);
+            }
+            break;
+        default:
+            throw new IllegalStateException("Unexpected type " + va.getType());
+        }
+        return columnb.build();
+    }
+}
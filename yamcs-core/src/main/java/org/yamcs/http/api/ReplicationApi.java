@@ -94,6 +94,8 @@ public class ReplicationApi extends AbstractReplicationApi<Context> {
                     MasterChannelHandler handler = ch.pipeline().get(MasterChannelHandler.class);
                     if (handler != null) {
                         masterb.setNextTx(handler.getNextTxId());
+                        masterb.setCompression(handler.getCompression().name());
+                        masterb.setCompressionRatio(handler.getCompressionRatio());
                     }
                 }
 
@@ -119,6 +121,8 @@ public class ReplicationApi extends AbstractReplicationApi<Context> {
                     MasterChannelHandler handler = ch.pipeline().get(MasterChannelHandler.class);
                     if (handler != null) {
                         masterb.setNextTx(handler.getNextTxId());
+                        masterb.setCompression(handler.getCompression().name());
+                        masterb.setCompressionRatio(handler.getCompressionRatio());
                     }
 
                     result.add(masterb.build());
@@ -143,7 +147,16 @@ public class ReplicationApi extends AbstractReplicationApi<Context> {
                     .addAllStreams(streamNames)
                     .setPush(false)
                     .setPullFrom(slave.getMasterInstance())
-                    .setTx(txid);
+                    .setTx(txid)
+                    .setCompression(slave.getCompression().name())
+                    .setCompressionRatio(slave.getCompressionRatio())
+                    .setAppliedTx(slave.getAppliedTxId())
+                    .setPendingTx(slave.getPendingTxCount())
+                    .setApplyTxRate(slave.getApplyTxRate())
+                    .setApplyDataRate(slave.getApplyDataRate());
+            if (slave.getTxLag() >= 0) {
+                slaveb.setTxLag(slave.getTxLag());
+            }
 
             ReplicationClient tcpClient = slave.getTcpClient();
             if (tcpClient != null) {
@@ -164,7 +177,16 @@ public class ReplicationApi extends AbstractReplicationApi<Context> {
                             .setInstance(slave.getYamcsInstance())
                             .addAllStreams(streamNames)
                             .setPush(true)
-                            .setTx(txid);
+                            .setTx(txid)
+                            .setCompression(slave.getCompression().name())
+                            .setCompressionRatio(slave.getCompressionRatio())
+                            .setAppliedTx(slave.getAppliedTxId())
+                            .setPendingTx(slave.getPendingTxCount())
+                            .setApplyTxRate(slave.getApplyTxRate())
+                            .setApplyDataRate(slave.getApplyDataRate());
+                    if (slave.getTxLag() >= 0) {
+                        slaveb.setTxLag(slave.getTxLag());
+                    }
 
                     InetSocketAddress address = (InetSocketAddress) ch.localAddress();
                     slaveb.setLocalAddress(address.getAddress().getHostAddress() + ":" + address.getPort());
@@ -93,6 +93,38 @@ public class SingleParameterRetriever {
         }
     }
 
+    /**
+     * Retrieves the pre-aggregated values of the given rollup level from the parameter archive, followed by the values
+     * from the cache newer than the last archived value.
+     */
+    public void retrieveRollups(int level, Downsampler sampler) throws IOException {
+        SingleParameterRetrieval spar = new SingleParameterRetrieval(parchive, pid.getQualifiedName(), spvr);
+        MutableLong lastTime = new MutableLong(Long.MIN_VALUE);
+        try {
+            spar.retrieveRollups(level, rs -> {
+                lastTime.setLong(Math.max(lastTime.getLong(), rs.getLastTime()));
+                sampler.process(rs);
+            });
+        } catch (RocksDBException e) {
+            throw new IOException(e);
+        }
+
+        if (cache != null) {
+            long start = Math.max(spvr.getStart(), lastTime.getLong());
+            List<ParameterValue> pvlist = cache.getAllValues(pid.getParameter(), start, spvr.getStop());
+            if (pvlist != null) {
+                if (pid.getPath() != null) {
+                    pvlist = extractMembers(pvlist, pid.getPath());
+                }
+                for (ParameterValue pv : pvlist) {
+                    if (pv.getGenerationTime() > lastTime.getLong()) {
+                        sampler.process(pv);
+                    }
+                }
+            }
+        }
+    }
+
     private List<ParameterValue> extractMembers(List<ParameterValue> pvlist, PathElement[] path) {
         List<ParameterValue> l = new ArrayList<ParameterValue>(pvlist.size());
         for(ParameterValue pv: pvlist) {
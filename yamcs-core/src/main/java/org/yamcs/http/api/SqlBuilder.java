@@ -23,6 +23,20 @@ public class SqlBuilder {
         this.table = table;
     }
 
+    /**
+     * Returns an independent copy of this builder, which can be further specified without affecting this one.
+     */
+    public SqlBuilder copy() {
+        SqlBuilder copy = new SqlBuilder(table);
+        copy.selectExpressions.addAll(selectExpressions);
+        copy.conditions.addAll(conditions);
+        copy.descend = descend;
+        copy.offset = offset;
+        copy.limit = limit;
+        copy.queryArgs.addAll(queryArgs);
+        return copy;
+    }
+
     /**
      * Additive! Calling multiple times will add extra select expressions to the already specified list.
      */
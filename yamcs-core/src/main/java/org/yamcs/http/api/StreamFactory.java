@@ -6,10 +6,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.yamcs.http.InternalServerErrorException;
 import org.yamcs.logging.Log;
+import org.yamcs.utils.TimeInterval;
 import org.yamcs.utils.parser.ParseException;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.streamsql.StreamSqlException;
@@ -47,6 +49,76 @@ public class StreamFactory {
         return;
     }
 
+    /**
+     * Executes the query once for each of the time intervals, one after the other, restricting each time the
+     * timeColumn to the interval. The intervals are traversed in reverse order if descending is true.
+     * <p>
+     * The subscriber receives the tuples from all the queries as if they were coming from one stream: the
+     * {@link StreamSubscriber#streamClosed(Stream)} is called only once, at the end.
+     *
+     * @param offset
+     *            the number of tuples to skip from the beginning of the combined result
+     * @param limit
+     *            the maximum number of tuples to send to the subscriber, or -1 for no limit
+     */
+    public static void stream(String instance, SqlBuilder sqlb, String timeColumn, List<TimeInterval> intervals,
+            boolean descending, long offset, long limit, StreamSubscriber subscriber) {
+        new IntervalStreamer(instance, sqlb, timeColumn, intervals, descending, offset, limit, subscriber).next(null);
+    }
+
+    private static class IntervalStreamer implements StreamSubscriber {
+        final String instance;
+        final SqlBuilder sqlb;
+        final String timeColumn;
+        final List<TimeInterval> intervals;
+        final boolean descending;
+        final long offset;
+        final long limit;
+        final StreamSubscriber subscriber;
+        int idx = 0;
+        long count = 0;
+
+        IntervalStreamer(String instance, SqlBuilder sqlb, String timeColumn, List<TimeInterval> intervals,
+                boolean descending, long offset, long limit, StreamSubscriber subscriber) {
+            this.instance = instance;
+            this.sqlb = sqlb;
+            this.timeColumn = timeColumn;
+            this.intervals = intervals;
+            this.descending = descending;
+            this.offset = offset;
+            this.limit = limit;
+            this.subscriber = subscriber;
+        }
+
+        void next(Stream lastStream) {
+            if (idx == intervals.size() || (limit >= 0 && count >= offset + limit)) {
+                subscriber.streamClosed(lastStream);
+                return;
+            }
+            TimeInterval interval = intervals.get(descending ? intervals.size() - 1 - idx : idx);
+            idx++;
+            SqlBuilder isqlb = sqlb.copy()
+                    .where(timeColumn + " >= ?", interval.getStart())
+                    .where(timeColumn + " < ?", interval.getEnd());
+            if (limit >= 0) {
+                isqlb.limit(offset + limit - count);
+            }
+            stream(instance, isqlb.toString(), isqlb.getQueryArguments(), this);
+        }
+
+        @Override
+        public void onTuple(Stream stream, Tuple tuple) {
+            if (count++ >= offset) {
+                subscriber.onTuple(stream, tuple);
+            }
+        }
+
+        @Override
+        public void streamClosed(Stream stream) {
+            next(stream);
+        }
+    }
+
     public static Stream insertStream(String instance, TableDefinition table) {
         YarchDatabaseInstance ydb = YarchDatabase.getInstance(instance);
 
@@ -26,9 +26,11 @@ import org.yamcs.protobuf.Table.ColumnData;
 import org.yamcs.protobuf.Table.ColumnInfo;
 import org.yamcs.protobuf.Table.EnumValue;
 import org.yamcs.protobuf.Table.ExecuteSqlRequest;
+import org.yamcs.protobuf.Table.GetHistogramRebuildStatusRequest;
 import org.yamcs.protobuf.Table.GetStreamRequest;
 import org.yamcs.protobuf.Table.GetTableDataRequest;
 import org.yamcs.protobuf.Table.GetTableRequest;
+import org.yamcs.protobuf.Table.HistogramRebuildStatus;
 import org.yamcs.protobuf.Table.ListStreamsRequest;
 import org.yamcs.protobuf.Table.ListStreamsResponse;
 import org.yamcs.protobuf.Table.ListTablesRequest;
@@ -46,6 +48,7 @@ import org.yamcs.protobuf.Table.StreamData;
 import org.yamcs.protobuf.Table.StreamInfo;
 import org.yamcs.protobuf.Table.SubscribeStreamRequest;
 import org.yamcs.protobuf.Table.SubscribeStreamStatisticsRequest;
+import org.yamcs.protobuf.Table.SubscriberQueueInfo;
 import org.yamcs.protobuf.Table.TableData;
 import org.yamcs.protobuf.Table.TableData.TableRecord;
 import org.yamcs.protobuf.Table.TableInfo;
@@ -62,6 +65,7 @@ import org.yamcs.utils.TimeInterval;
 import org.yamcs.utils.ValueUtility;
 import org.yamcs.utils.parser.ParseException;
 import org.yamcs.yarch.ArrayDataType;
+import org.yamcs.yarch.AsyncSubscriber;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.ColumnSerializer;
 import org.yamcs.yarch.ColumnSerializerFactory;
@@ -77,6 +81,7 @@ import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.rocksdb.HistogramRebuilder;
 import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.rocksdb.RdbTable;
 import org.yamcs.yarch.rocksdb.Tablespace;
 import org.yamcs.yarch.streamsql.ResultListener;
 import org.yamcs.yarch.streamsql.StreamSqlException;
@@ -85,6 +90,7 @@ import org.yamcs.yarch.streamsql.StreamSqlStatement;
 import com.google.common.collect.BiMap;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.MessageLite;
+import com.google.protobuf.Timestamp;
 
 public class TableApi extends AbstractTableApi<Context> {
     private static final long MAX_NUM_ROWS = 2000;
@@ -666,6 +672,17 @@ public class TableApi extends AbstractTableApi<Context> {
         for (ColumnDefinition cdef : stream.getDefinition().getColumnDefinitions()) {
             infob.addColumn(toColumnInfo(cdef, null));
         }
+        for (AsyncSubscriber as : stream.getAsyncSubscribers()) {
+            infob.addSubscriberQueue(SubscriberQueueInfo.newBuilder()
+                    .setSubscriber(as.getSubscriber().toString())
+                    .setCapacity(as.getConfig().getCapacity())
+                    .setOverflowPolicy(as.getConfig().getOverflowPolicy().name())
+                    .setQueueSize(as.getQueueSize())
+                    .setLag(as.getLag())
+                    .setDeliveredCount(as.getDeliveredCount())
+                    .setDroppedCount(as.getDroppedCount())
+                    .setSpilledCount(as.getSpilledCount()));
+        }
         return infob.build();
     }
 
@@ -821,4 +838,47 @@ public class TableApi extends AbstractTableApi<Context> {
         }
 
     }
+
+    @Override
+    public void getHistogramRebuildStatus(Context ctx, GetHistogramRebuildStatusRequest request,
+            Observer<HistogramRebuildStatus> observer) {
+        ctx.checkSystemPrivilege(SystemPrivilege.ControlArchiving);
+
+        YarchDatabaseInstance ydb = DatabaseApi.verifyDatabase(request.getInstance());
+        TableDefinition table = verifyTable(ydb, request.getTable());
+        RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(table);
+
+        RdbTable rdbTable = rse.getTablespace(ydb.getName()).getTable(table);
+        HistogramRebuilder rebuilder = rdbTable.getHistogramRebuilder();
+        if (rebuilder == null) {
+            throw new NotFoundException("No histogram rebuild has been performed for table " + table.getName());
+        }
+
+        HistogramRebuildStatus.Builder b = HistogramRebuildStatus.newBuilder()
+                .setState(HistogramRebuildStatus.State.valueOf(rebuilder.getState().name()))
+                .setStartTime(toWallclockTimestamp(rebuilder.getStartTime()))
+                .setTotalIntervals(rebuilder.getTotalIntervals())
+                .setCompletedIntervals(rebuilder.getCompletedIntervals())
+                .setTotalChunks(rebuilder.getTotalChunks())
+                .setCompletedChunks(rebuilder.getCompletedChunks())
+                .setNumRecords(rebuilder.getNumRecords());
+        TimeInterval interval = rebuilder.getTimeInterval();
+        if (interval.hasStart()) {
+            b.setStart(TimeEncoding.toProtobufTimestamp(interval.getStart()));
+        }
+        if (interval.hasEnd()) {
+            b.setStop(TimeEncoding.toProtobufTimestamp(interval.getEnd()));
+        }
+        if (rebuilder.getEndTime() != 0) {
+            b.setEndTime(toWallclockTimestamp(rebuilder.getEndTime()));
+        }
+        if (rebuilder.getError() != null) {
+            b.setErrorMessage(rebuilder.getError().toString());
+        }
+        observer.complete(b.build());
+    }
+
+    private static Timestamp toWallclockTimestamp(long javaTime) {
+        return TimeEncoding.toProtobufTimestamp(TimeEncoding.fromUnixMillisec(javaTime));
+    }
 }
@@ -1,10 +1,9 @@
 package org.yamcs.parameter;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.yamcs.xtce.DataSource;
 import org.yamcs.xtce.Parameter;
@@ -14,15 +13,17 @@ import org.yamcs.xtce.Parameter;
  * <p>
  * Can also stored a number of n values for certain parameters (required by algorithms and match criterias)
  * <p>
- * it uses a readwrite lock to synchronize access from multiple threads.
+ * The cache is lock-free: the values are kept in concurrent maps and the buffers are circular arrays published through
+ * a volatile index. The readers (algorithms, subscribers) never block the thread delivering the telemetry.
+ * <p>
+ * The cache is meant to be updated by one thread at a time (the processor thread); concurrent updates of the same
+ * buffered parameter are serialized on the buffer.
  *
  */
 public class LastValueCache {
-    HashMap<Parameter, ParameterValue> constants = new HashMap<>();
-    HashMap<Parameter, ParameterValue> params = new HashMap<>();
-    HashMap<Parameter, ParamBuffer> bufferedParams = new HashMap<>();
-
-    ReadWriteLock lock = new ReentrantReadWriteLock();
+    final HashMap<Parameter, ParameterValue> constants = new HashMap<>();
+    final ConcurrentHashMap<Parameter, ParameterValue> params = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Parameter, ParamBuffer> bufferedParams = new ConcurrentHashMap<>();
 
     public LastValueCache() {
     }
@@ -42,16 +43,12 @@ public class LastValueCache {
             return constants.get(param);
         }
 
-        lock.readLock().lock();
-        try {
-            ParamBuffer pb = bufferedParams.get(param);
-            if (pb != null) {
-                return pb.end();
-            } else {
-                return params.get(param);
-            }
-        } finally {
-            lock.readLock().unlock();
+        // the buffer has to be checked first because enableBuffering moves the value from params to the buffer
+        ParamBuffer pb = bufferedParams.get(param);
+        if (pb != null) {
+            return pb.end();
+        } else {
+            return params.get(param);
         }
     }
 
@@ -80,24 +77,19 @@ public class LastValueCache {
             }
         }
 
-        lock.readLock().lock();
-        try {
-            if (n == 0) {
-                return getValue(param);
-            }
+        if (n == 0) {
+            return getValue(param);
+        }
 
-            ParamBuffer pb = bufferedParams.get(param);
-            if (pb == null) {
-                throw new IllegalStateException("Buffering not enabled for " + param.getQualifiedName());
-            }
-            if (pb.capacity() < -n + 1) {
-                throw new IllegalStateException("Buffering enabled for " + param.getQualifiedName()
-                        + " but it's capacity " + pb.capacity() + " is smaller than " + (n + 1));
-            }
-            return pb.nth(n);
-        } finally {
-            lock.readLock().unlock();
+        ParamBuffer pb = bufferedParams.get(param);
+        if (pb == null) {
+            throw new IllegalStateException("Buffering not enabled for " + param.getQualifiedName());
         }
+        if (pb.capacity() < -n + 1) {
+            throw new IllegalStateException("Buffering enabled for " + param.getQualifiedName()
+                    + " but it's capacity " + pb.capacity() + " is smaller than " + (n + 1));
+        }
+        return pb.nth(n);
     }
 
     /**
@@ -116,29 +108,21 @@ public class LastValueCache {
         if (param.getDataSource() == DataSource.CONSTANT) {
             throw new IllegalArgumentException("Cannot enable buffering for constant parameters");
         }
-        lock.writeLock().lock();
-        try {
-
-            ParamBuffer pb = bufferedParams.get(param);
+        bufferedParams.compute(param, (p, pb) -> {
             if (pb == null) {
                 pb = new ParamBuffer(capacity);
-                ParameterValue pv = params.remove(param);
+                ParameterValue pv = params.get(param);
                 if (pv != null) {
                     pb.add(pv);
                 }
-                bufferedParams.put(param, pb);
+                return pb;
+            } else if (capacity <= pb.capacity()) {
+                return pb;
             } else {
-                if (capacity <= pb.capacity()) {
-                    return;
-                } else {
-                    ParamBuffer pb1 = new ParamBuffer(pb, capacity);
-
-                    bufferedParams.put(param, pb1);
-                }
+                return new ParamBuffer(pb, capacity);
             }
-        } finally {
-            lock.writeLock().unlock();
-        }
+        });
+        params.remove(param);
     }
 
     /**
@@ -148,15 +132,6 @@ public class LastValueCache {
      * @param pv
      */
     public void add(ParameterValue pv) {
-        lock.writeLock().lock();
-        try {
-            doAdd(pv);
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-
-    private void doAdd(ParameterValue pv) {
         Parameter param = pv.getParameter();
         if (param.getDataSource() == DataSource.CONSTANT) {
             throw new IllegalArgumentException("Cannot add constants (they can only be added in the constructor)");
@@ -175,21 +150,11 @@ public class LastValueCache {
      * @param newValues
      */
     public void addAll(Collection<ParameterValue> newValues) {
-        lock.writeLock().lock();
-        try {
-            newValues.forEach(pv -> doAdd(pv));
-        } finally {
-            lock.writeLock().unlock();
-        }
+        newValues.forEach(pv -> add(pv));
     }
 
     public int size() {
-        lock.readLock().lock();
-        try {
-            return constants.size() + params.size() + bufferedParams.size();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return constants.size() + params.size() + bufferedParams.size();
     }
 
     /**
@@ -198,34 +163,46 @@ public class LastValueCache {
      * @return
      */
     public Collection<ParameterValue> getValues() {
-        lock.readLock().lock();
-        try {
-            return params.values();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return params.values();
     }
 
-    // fixed size circular buffer
+    /**
+     * Fixed size circular buffer.
+     * <p>
+     * The readers do not lock; the newest element is published by the volatile write of the sequence number after
+     * the element has been stored. One extra slot is allocated such that the element being overwritten by the writer
+     * is never one of the capacity elements that can be read. A reader which has been delayed long enough for the
+     * writer to reuse the slot it was reading checks the sequence number again and retries.
+     */
     static class ParamBuffer {
-        final ParameterValue[] data;
-        int end = -1;
+        final AtomicReferenceArray<ParameterValue> data;
+        // number of elements added minus one
+        volatile long seq = -1;
 
         ParamBuffer(int capacity) {
-            this.data = new ParameterValue[capacity];
+            this.data = new AtomicReferenceArray<>(capacity + 1);
         }
 
+        /**
+         * creates a buffer with a new capacity containing the elements of pb1 in the same order
+         */
         ParamBuffer(ParamBuffer pb1, int capacity) {
-            this.data = Arrays.copyOf(pb1.data, capacity);
-            this.end = pb1.end;
+            this(capacity);
+            int n = Math.min(capacity, pb1.capacity());
+            for (int i = -n + 1; i <= 0; i++) {
+                ParameterValue pv = pb1.nth(i);
+                if (pv != null) {
+                    add(pv);
+                }
+            }
         }
 
         public int capacity() {
-            return data.length;
+            return data.length() - 1;
         }
 
         public ParameterValue end() {
-            return end == -1 ? null : data[end];
+            return nth(0);
         }
 
         /**
@@ -234,38 +211,50 @@ public class LastValueCache {
          */
         public ParameterValue nth(int n) {
             assert (n <= 0);
-
-            int k = end + n;
-            if (k < 0) {
-                k += data.length;
+            while (true) {
+                long s = seq;
+                if (s + n < 0) {
+                    return null;
+                }
+                ParameterValue pv = data.get(index(s + n));
+                // the slot is overwritten when adding the element s+n+data.length()
+                if (seq - s < data.length() - 1 + n) {
+                    return pv;
+                }
             }
-            return data[k];
         }
 
-        public void add(ParameterValue pv) {
-            end = incr(end);
-            data[end] = pv;
+        public synchronized void add(ParameterValue pv) {
+            long s = seq + 1;
+            data.set(index(s), pv);
+            seq = s;
+        }
+
+        private int index(long s) {
+            return (int) (s % data.length());
         }
 
         private int incr(int k) {
             int k1 = k + 1;
-            return k1 < data.length ? k1 : k1 - data.length;
+            return k1 < data.length() ? k1 : k1 - data.length();
         }
 
         public boolean isEmpty() {
-            return end == -1;
+            return seq == -1;
         }
 
         public String toString() {
 
-            if (end == -1) {
+            long s = seq;
+            if (s == -1) {
                 return "[]";
             }
+            int end = index(s);
             StringBuilder sb = new StringBuilder();
             sb.append("[");
             int k = end;
             while (true) {
-                ParameterValue pv = data[k];
+                ParameterValue pv = data.get(k);
                 if (pv == null) {
                     sb.append("null");
                 } else {
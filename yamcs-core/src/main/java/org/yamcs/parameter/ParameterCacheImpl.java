@@ -5,8 +5,6 @@ import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
@@ -67,8 +65,7 @@ public class ParameterCacheImpl implements ParameterCache {
             CacheEntry ce = cache.get(p);
             if (ce == null) {
                 if (cacheAll || parametersToCache.containsKey(p)) {
-                    ce = new CacheEntry(p, timeToCache, maxNumEntries);
-                    cache.put(p, ce);
+                    ce = cache.computeIfAbsent(p, p1 -> new CacheEntry(p1, timeToCache, maxNumEntries));
                     ce.add(pvlist);
                 }
             } else {
@@ -169,20 +166,22 @@ public class ParameterCacheImpl implements ParameterCache {
 
     /**
      * Stores a cache for one parameter as an array of the ParameterValueList in which it is part of.
-     * 
-     * It ensure minimum
+     * <p>
+     * The writers are serialized on the entry whereas the readers do not lock. The new element is published by the
+     * volatile write of the tail after it has been stored in the array. When the capacity is doubled, the new array is
+     * published before the tail such that a reader that has read the tail finds the elements up to the tail at the same
+     * positions in the new array.
      * 
      * @author nm
      *
      */
     static final class CacheEntry {
         final Parameter parameter;
-        private ParameterValueList[] elements;
-        int tail = 0;
+        private volatile ParameterValueList[] elements;
+        volatile int tail = 0;
         static final int INITIAL_CAPACITY = 128;
         final long timeToCache;
         final int maxNumEntries;
-        ReadWriteLock lock = new ReentrantReadWriteLock();
 
         public CacheEntry(Parameter p, long timeToCache, int maxNumEntries) {
             this.parameter = p;
@@ -195,70 +194,71 @@ public class ParameterCacheImpl implements ParameterCache {
             elements = new ParameterValueList[initialCapacity];
         }
 
+        /**
+         * Returns the values in the range in descending order of generation time.
+         * <p>
+         * Because the writer may overwrite the oldest elements while this method iterates, the iteration stops at the
+         * first element newer than the one previously visited.
+         */
         public List<ParameterValue> getAll(long start, long stop) {
-            lock.readLock().lock();
-            try {
-                List<ParameterValue> plist = new ArrayList<>();
-                int _tail = tail;
-                int n = elements.length;
-                int t = _tail;
-                do {
-                    t = (t - 1) & (n - 1);
-                    ParameterValueList pvl = elements[t];
-                    if (pvl == null) {
-                        break;
+            int _tail = tail;
+            ParameterValueList[] _elements = elements;
+            List<ParameterValue> plist = new ArrayList<>();
+            int n = _elements.length;
+            int t = _tail;
+            long prevTime = Long.MAX_VALUE;
+            do {
+                t = (t - 1) & (n - 1);
+                ParameterValueList pvl = _elements[t];
+                if (pvl == null) {
+                    break;
+                }
+                ParameterValue first = pvl.getFirstInserted(parameter);
+                if (first == null || first.getGenerationTime() > prevTime) {
+                    break;
+                }
+                prevTime = first.getGenerationTime();
+                pvl.forEach(parameter, (ParameterValue pv) -> {
+                    long time = pv.getGenerationTime();
+                    if (time > start && time <= stop) {
+                        plist.add(pv);
                     }
-                    pvl.forEach(parameter, (ParameterValue pv) -> {
-                        long time = pv.getGenerationTime();
-                        if (time > start && time <= stop) {
-                            plist.add(pv);
-                        }
 
-                    });
+                });
 
-                } while (t != _tail);
-                if(plist.isEmpty()) {
-                    return null;
-                }
-                return plist;
-            } finally {
-                lock.readLock().unlock();
+            } while (t != _tail);
+            if (plist.isEmpty()) {
+                return null;
             }
+            return plist;
         }
 
         ParameterValueList getLast() {
-            lock.readLock().lock();
-            try {
-                return elements[(tail - 1) & (elements.length - 1)];
-            } finally {
-                lock.readLock().unlock();
-            }
+            int _tail = tail;
+            ParameterValueList[] _elements = elements;
+            return _elements[(_tail - 1) & (_elements.length - 1)];
         }
 
-        public void add(ParameterValueList pvlist) {
-            lock.writeLock().lock();
-            try {
-                ParameterValueList pv1 = elements[tail];
-                if (pv1 != null) {
-                    ParameterValue oldpv = pv1.getFirstInserted(parameter);
-                    ParameterValue newpv = pvlist.getFirstInserted(parameter);
-                    if ((oldpv == null) || (newpv == null)) {
-                        return; // shouldn't happen
-                    }
-                    if (newpv.getGenerationTime() < oldpv.getGenerationTime()) {
-                        // parameter older than the last one in the queue -> ignore
-                        return;
-                    }
+        public synchronized void add(ParameterValueList pvlist) {
+            ParameterValueList pv1 = elements[tail];
+            if (pv1 != null) {
+                ParameterValue oldpv = pv1.getFirstInserted(parameter);
+                ParameterValue newpv = pvlist.getFirstInserted(parameter);
+                if ((oldpv == null) || (newpv == null)) {
+                    return; // shouldn't happen
+                }
+                if (newpv.getGenerationTime() < oldpv.getGenerationTime()) {
+                    // parameter older than the last one in the queue -> ignore
+                    return;
+                }
 
-                    if (newpv.getGenerationTime() - oldpv.getGenerationTime() < timeToCache) {
-                        doubleCapacity();
-                    }
+                if (newpv.getGenerationTime() - oldpv.getGenerationTime() < timeToCache) {
+                    doubleCapacity();
                 }
-                elements[tail] = pvlist;
-                tail = (tail + 1) & (elements.length - 1);
-            } finally {
-                lock.writeLock().unlock();
             }
+            ParameterValueList[] _elements = elements;
+            _elements[tail] = pvlist;
+            tail = (tail + 1) & (_elements.length - 1);
         }
 
         private void doubleCapacity() {
@@ -1,5 +1,6 @@
 package org.yamcs.parameter;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -39,6 +40,19 @@ public class ParameterValueList implements Collection<ParameterValue> {
         initHead();
     }
 
+    /**
+     * Creates an empty list able to hold the expected number of values without being resized
+     * 
+     * @param expectedSize
+     */
+    public ParameterValueList(int expectedSize) {
+        int len = roundUpToPowerOfTwo(Math.max(16, (int) (expectedSize / loadFactor) + 1));
+        table = new Entry[len];
+        threshold = (int) (len * loadFactor);
+        size = 0;
+        initHead();
+    }
+
     /**
      * @param pvs
      */
@@ -394,11 +408,14 @@ public class ParameterValueList implements Collection<ParameterValue> {
     }
 
     /**
-     * Throws UnsupportedOperationException
+     * Removes all the values from the list, keeping the allocated table
      */
     @Override
     public void clear() {
-        throw new UnsupportedOperationException();
+        Arrays.fill(table, null);
+        head.before = head.after = head;
+        size = 0;
+        rmCount++;
     }
 
     /**
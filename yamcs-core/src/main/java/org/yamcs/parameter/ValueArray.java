@@ -219,6 +219,24 @@ public class ValueArray {
         return (double[])obj;
     }
     
+    /**
+     * get the array as an Object[].
+     * Throws a {@link ClassCastException} if the array's type is not one of {@link Type#STRING}, {@link Type#ENUMERATED} (the elements are String) or {@link Type#BINARY} (the elements are byte[])
+     * @return
+     */
+    public Object[] getObjectArray() {
+        return (Object[])obj;
+    }
+
+    /**
+     * get the array as a BitSet.
+     * Throws a {@link ClassCastException} if the array is not of {@link Type#BOOLEAN} type
+     * @return
+     */
+    public BitSet getBitSet() {
+        return (BitSet)obj;
+    }
+
     public int size() {
         return size;
     }
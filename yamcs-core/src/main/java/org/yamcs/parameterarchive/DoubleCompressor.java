@@ -0,0 +1,126 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.ByteBuffer;
+
+import org.yamcs.utils.BitReader;
+import org.yamcs.utils.BitWriter;
+
+/**
+ * Implements the floating point compression scheme described here:
+ * http://www.vldb.org/pvldb/vol8/p1816-teller.pdf
+ * <p>
+ * This is the 64 bits version of the {@link FloatCompressor}; the number of leading zeros and the number of meaningful
+ * bits are each stored on 6 bits.
+ *
+ */
+public class DoubleCompressor {
+    /**
+     * compress the first n elements from the array of doubles into the ByteBuffer
+     */
+    static public void compress(double[] da, int n, ByteBuffer bb) {
+        BitWriter bw = new BitWriter(bb);
+
+        long xor;
+        long prevV = Double.doubleToRawLongBits(da[0]);
+        writeLong(bw, prevV, 64);
+
+        int prevLz = 100; // such that the first comparison lz>=prevLz will fail
+        int prevTz = 0;
+
+        for (int i = 1; i < n; i++) {
+            long v = Double.doubleToRawLongBits(da[i]);
+            xor = v ^ prevV;
+            // If XOR with the previous is zero (same value), store single ‘0’ bit
+            if (xor == 0) {
+                bw.write(0, 1);
+            } else {
+                // When XOR is non-zero, calculate the number of leading and trailing zeros in the XOR, store bit ‘1’
+                // followed by either a) or b):
+                bw.write(1, 1);
+                int lz = Long.numberOfLeadingZeros(xor);
+                int tz = Long.numberOfTrailingZeros(xor);
+                if ((lz >= prevLz) && (tz >= prevTz) && (lz < prevLz + 7)) {
+                    // (a) (Control bit ‘0’) If the block of meaningful bits falls within the block of previous
+                    // meaningful bits, just store the meaningful XORed value.
+                    bw.write(0, 1);
+                    writeLong(bw, xor >>> prevTz, 64 - prevLz - prevTz);
+                } else {
+                    // (b) (Control bit ‘1’) Store the number of leading zeros in the next 6 bits, then store the
+                    // length of the meaningful XORed value in the next 6 bits. Finally store the meaningful bits of the
+                    // XORed value.
+                    int mb = 64 - lz - tz; // meaningful bits
+
+                    bw.write(1, 1);
+                    bw.write(lz, 6);
+                    bw.write(mb, 6);
+                    writeLong(bw, xor >>> tz, mb);
+                    prevLz = lz;
+                    prevTz = tz;
+                }
+            }
+            prevV = v;
+        }
+        bw.flush();
+    }
+
+    public static double[] decompress(ByteBuffer bb, int n) {
+        BitReader br = new BitReader(bb);
+        double[] da = new double[n];
+        long xor;
+        long v = readLong(br, 64);
+        da[0] = Double.longBitsToDouble(v);
+
+        int lz = 0; // leading zeros
+        int tz = 0; // trailing zeros
+        int mb = 0; // meaningful bits
+        for (int i = 1; i < n; i++) {
+            int bit = br.read(1);
+            if (bit == 0) {
+                // same with the previous value
+                da[i] = da[i - 1];
+            } else {
+                bit = br.read(1);
+                if (bit == 0) {// the block of meaningful bits falls within the block of previous meaningful bits,
+                    xor = readLong(br, mb) << tz;
+                    v = xor ^ v;
+                } else {
+                    lz = br.read(6);
+                    mb = br.read(6);
+                    // this happens when mb is 64 and overflows the 6 bits
+                    if (mb == 0) {
+                        mb = 64;
+                    }
+                    tz = 64 - lz - mb;
+                    xor = readLong(br, mb) << tz;
+                    v = xor ^ v;
+                }
+                da[i] = Double.longBitsToDouble(v);
+            }
+        }
+
+        return da;
+    }
+
+    public static void compress(double[] da, ByteBuffer bb) {
+        compress(da, da.length, bb);
+    }
+
+    // the BitWriter and BitReader work with at most 32 bits at a time
+    private static void writeLong(BitWriter bw, long x, int numBits) {
+        if (numBits > 32) {
+            bw.write((int) (x >>> 32), numBits - 32);
+            bw.write((int) x, 32);
+        } else {
+            bw.write((int) x, numBits);
+        }
+    }
+
+    private static long readLong(BitReader br, int numBits) {
+        if (numBits > 32) {
+            long x = br.readLong(numBits - 32) << 32;
+            return x | br.readLong(32);
+        } else {
+            return br.readLong(numBits);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.yamcs.parameterarchive;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -13,7 +14,8 @@ import org.yamcs.utils.VarIntUtil;
 
 public class DoubleValueSegment extends BaseSegment implements ValueSegment {
     final static byte SUBFORMAT_ID_RAW = 0;
-    
+    final static byte SUBFORMAT_ID_COMPRESSED = 1;
+
     DoubleArray values;
     
     DoubleValueSegment() {
@@ -24,6 +26,30 @@ public class DoubleValueSegment extends BaseSegment implements ValueSegment {
             
     @Override
     public void writeTo(ByteBuffer bb) {
+        int n = values.size();
+        if (n == 0) {
+            writeRaw(bb);
+            return;
+        }
+        int position = bb.position();
+
+        // try to write it compressed, if we get an buffer overflow or the result is bigger than the raw encoding,
+        // revert to raw encoding
+        bb.put(SUBFORMAT_ID_COMPRESSED);
+        VarIntUtil.writeVarInt32(bb, n);
+        try {
+            DoubleCompressor.compress(values.array(), n, bb);
+            if (bb.position() - position > rawSize()) {
+                bb.position(position);
+                writeRaw(bb);
+            }
+        } catch (BufferOverflowException e) {
+            bb.position(position);
+            writeRaw(bb);
+        }
+    }
+
+    private void writeRaw(ByteBuffer bb) {
         bb.put(SUBFORMAT_ID_RAW);
         int n = values.size();
         VarIntUtil.writeVarInt32(bb, n);
@@ -32,16 +58,23 @@ public class DoubleValueSegment extends BaseSegment implements ValueSegment {
         }
     }
 
+    private int rawSize() {
+        int n = values.size();
+        return 1 + VarIntUtil.getEncodedSize(n) + 8 * n;
+    }
+
     private void parse(ByteBuffer bb) throws DecodingException {
         byte fid = bb.get();
-        if(fid!=SUBFORMAT_ID_RAW) {
-            throw new DecodingException("Uknown sub format id: "+fid);
-        }
         int n = VarIntUtil.readVarInt32(bb);
-        values = new DoubleArray(n);
-        
-        for(int i=0;i<n;i++) {
-            values.add(bb.getDouble());
+        if (fid == SUBFORMAT_ID_RAW) {
+            values = new DoubleArray(n);
+            for (int i = 0; i < n; i++) {
+                values.add(bb.getDouble());
+            }
+        } else if (fid == SUBFORMAT_ID_COMPRESSED) {
+            values = DoubleArray.wrap(DoubleCompressor.decompress(bb, n));
+        } else {
+            throw new DecodingException("Uknown sub format id: "+fid);
         }
     }
     public static DoubleValueSegment parseFrom(ByteBuffer bb) throws DecodingException {
@@ -53,11 +53,15 @@ public class ObjectSegment<E> extends BaseSegment {
 
 
     //temporary fields used during the construction before serialisation - could be probably refactored into some builder which returns another object in the consolidate method    
-    List<HashableByteArray> serializedObjectList;
+    // the elements are stored as ids in the enumValues array, each id pointing to the unique and uniqueObjects lists
     Map<HashableByteArray, Integer> valuemap;
     IntArray rleValues;
     IntArray enumValues;
     List<HashableByteArray> unique;
+    List<E> uniqueObjects;
+    // the last added object and its id; used to avoid serializing again the same object
+    E lastObject;
+    int lastValueId;
 
     int rawSize;
     int enumRawSize;
@@ -74,9 +78,8 @@ public class ObjectSegment<E> extends BaseSegment {
         this.objSerializer = objSerializer;
 
         if(buildForSerialisation) {
-            objectList = new ArrayList<E>();
-            serializedObjectList = new ArrayList<HashableByteArray>();
             unique = new ArrayList<HashableByteArray>();
+            uniqueObjects = new ArrayList<E>();
             valuemap = new HashMap<>();
             enumValues = new IntArray();
         } //else in the parseFrom will construct the necessary fields 
@@ -89,22 +92,7 @@ public class ObjectSegment<E> extends BaseSegment {
      * @param e
      */
     public void add(E e) {
-       
-        byte[] b = objSerializer.serialize(e);
-        HashableByteArray se = new HashableByteArray(b);
-        int valueId; 
-        if(valuemap.containsKey(se)) {
-            valueId = valuemap.get(se);
-            se = unique.get(valueId); //release the old se object to garbage
-            e = objectList.get(enumValues.indexOf(valueId));//release the old e object to garbage
-        } else {
-            valueId = unique.size();
-            valuemap.put(se, valueId);
-            unique.add(se);
-        }
-        enumValues.add(valueId);
-        serializedObjectList.add(se);
-        objectList.add(e);
+        enumValues.add(getValueId(e));
         size++;
     }
 
@@ -114,22 +102,33 @@ public class ObjectSegment<E> extends BaseSegment {
             add(e);
             return;
         }
-        byte[] b = objSerializer.serialize(e);
-        HashableByteArray se = new HashableByteArray(b);
-        int valueId; 
-        if(valuemap.containsKey(se)) {
-            valueId = valuemap.get(se);
-            se = unique.get(valueId); //release the old se object to garbage
-            e = objectList.get(enumValues.indexOf(valueId));//release the old e object to garbage
-        } else {
+        enumValues.add(pos, getValueId(e));
+        size++;
+    }
+
+    /**
+     * returns the id of the element in the list of unique elements, adding it to the list if not already there
+     */
+    private int getValueId(E e) {
+        if (e == lastObject) {
+            return lastValueId;
+        }
+        HashableByteArray se = new HashableByteArray(objSerializer.serialize(e));
+        Integer valueId = valuemap.get(se);
+        if (valueId == null) {
             valueId = unique.size();
             valuemap.put(se, valueId);
             unique.add(se);
+            uniqueObjects.add(e);
         }
-        enumValues.add(pos, valueId);
-        serializedObjectList.add(pos, se);
-        objectList.add(pos, e);
-        size++;
+        lastObject = e;
+        lastValueId = valueId;
+        return valueId;
+    }
+
+    // true if the segment is being built (i.e. not deserialized)
+    private boolean isBuilding() {
+        return enumValues != null;
     }
 
     @Override
@@ -162,10 +161,10 @@ public class ObjectSegment<E> extends BaseSegment {
         bb.put(SUBFORMAT_ID_RAW);
 
         //write the size
-        VarIntUtil.writeVarInt32(bb, objectList.size());
+        VarIntUtil.writeVarInt32(bb, size);
         //then write the values
         for(int i=0; i<size; i++) {
-            byte[] b = serializedObjectList.get(i).b;
+            byte[] b = unique.get(enumValues.get(i)).b;
             VarIntUtil.writeVarInt32(bb, b.length);
             bb.put(b);
         }
@@ -350,14 +349,14 @@ public class ObjectSegment<E> extends BaseSegment {
     }
     E[] getNonRleRange(int posStart, int posStop, boolean ascending) {
         @SuppressWarnings("unchecked")
-        E[] r = (E[]) Array.newInstance(objectList.get(0).getClass(), posStop-posStart);
+        E[] r = (E[]) Array.newInstance(get(0).getClass(), posStop-posStart);
         if(ascending) {
             for(int i = posStart; i<posStop; i++) {
-                r[i-posStart] = objectList.get(i);
+                r[i-posStart] = get(i);
             }
         } else {
             for(int i = posStop; i>posStart; i--) {
-                r[posStop-i] = objectList.get(i);
+                r[posStop-i] = get(i);
             }
         }
 
@@ -430,6 +429,8 @@ public class ObjectSegment<E> extends BaseSegment {
                 i++;
             }
             return rleObjectList.get(i-1);
+        } else if (isBuilding()) {
+            return uniqueObjects.get(enumValues.get(index));
         } else {
             return objectList.get(index);
         }
@@ -456,9 +457,8 @@ public class ObjectSegment<E> extends BaseSegment {
         enumRleSize += VarIntUtil.getEncodedSize(unique.size());
         
         for(int i=0; i<size; i++) {
-            HashableByteArray se = serializedObjectList.get(i);
-            byte[] b = se.b;
             int valueId = enumValues.get(i);
+            byte[] b = unique.get(valueId).b;
             rawSize+= VarIntUtil.getEncodedSize(b.length)+b.length;
             enumRawSize+=VarIntUtil.getEncodedSize(valueId);
             
@@ -505,11 +505,17 @@ public class ObjectSegment<E> extends BaseSegment {
         if (getClass() != obj.getClass())
             return false;
         ObjectSegment other = (ObjectSegment) obj;
-        if (serializedObjectList == null) {
-            if (other.serializedObjectList != null)
-                return false;
-        } else if (!serializedObjectList.equals(other.serializedObjectList))
+        if (!isBuilding()) {
+            return !other.isBuilding();
+        }
+        if (!other.isBuilding() || size != other.size) {
             return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!unique.get(enumValues.get(i)).equals(other.unique.get(other.enumValues.get(i)))) {
+                return false;
+            }
+        }
         return true;
     }
 
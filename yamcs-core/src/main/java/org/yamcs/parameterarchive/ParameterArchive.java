@@ -10,6 +10,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Future;
 
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.WriteBatch;
@@ -49,6 +50,9 @@ import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TimeBasedPartition;
  * An interval covers 2^23 millisec =~ 139 minutes
  * <p>
  * An segment covers at most maxSegmentSize samples for one parameter
+ * <p>
+ * For the numeric parameters, rollup segments (min, max, avg, count) are computed at the resolutions defined by
+ * {@link #ROLLUP_RESOLUTIONS} and stored in the {@value #CF_ROLLUP} column family of the partition.
  * 
  * 
  * 
@@ -63,6 +67,12 @@ public class ParameterArchive extends AbstractYamcsService {
     public static final int TIMESTAMP_MASK = (0xFFFFFFFF >>> (32 - NUMBITS_MASK));
     public static final long INTERVAL_MASK = ~TIMESTAMP_MASK;
 
+    /**
+     * the resolutions in milliseconds of the rollup levels: 1 minute, 10 minutes and one interval
+     */
+    public static final long[] ROLLUP_RESOLUTIONS = { 60_000L, 600_000L, TIMESTAMP_MASK + 1L };
+    public static final String CF_ROLLUP = "parchive_rollup";
+
     private ParameterIdDb parameterIdDb;
 
     private Tablespace tablespace;
@@ -83,6 +93,7 @@ public class ParameterArchive extends AbstractYamcsService {
     boolean realtimeFillerEnabled;
     boolean backFillerEnabled;
     int maxSegmentSize;
+    boolean rollupsEnabled;
 
     @Override
     public Spec getSpec() {
@@ -92,6 +103,7 @@ public class ParameterArchive extends AbstractYamcsService {
         spec.addOption("partitioningSchema", OptionType.STRING).withDefault("YYYY")
                 .withChoices("YYYY/DOY", "YYYY/MM", "YYYY", "none");
         spec.addOption("maxSegmentSize", OptionType.INTEGER).withDefault(5000);
+        spec.addOption("rollups", OptionType.BOOLEAN).withDefault(true);
 
         return spec;
     }
@@ -104,6 +116,7 @@ public class ParameterArchive extends AbstractYamcsService {
         YarchDatabaseInstance ydb = YarchDatabase.getInstance(yamcsInstance);
         tablespace = RdbStorageEngine.getInstance().getTablespace(ydb);
         this.maxSegmentSize = config.getInt("maxSegmentSize");
+        this.rollupsEnabled = config.getBoolean("rollups");
 
         if (config.containsKey("backFiller")) {
             backFillerConfig = config.getConfig("backFiller");
@@ -206,26 +219,41 @@ public class ParameterArchive extends AbstractYamcsService {
     public void writeToArchive(PGSegment pgs) throws RocksDBException, IOException {
         pgs.consolidate();
         Partition p = createAndGetPartition(getIntervalStart(pgs.getSegmentStart()));
+        YRDB rdb = tablespace.getRdb(p.partitionDir, false);
+        ColumnFamilyHandle cfRollup = rollupsEnabled ? getOrCreateRollupCfh(rdb) : null;
         try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions()) {
-            writeToBatch(writeBatch, p, pgs);
-            tablespace.getRdb(p.partitionDir, false).getDb().write(wo, writeBatch);
+            writeToBatch(writeBatch, cfRollup, pgs);
+            rdb.getDb().write(wo, writeBatch);
         }
     }
 
     public void writeToArchive(long segStart, Collection<PGSegment> pgList) throws RocksDBException, IOException {
         Partition p = createAndGetPartition(segStart);
+        YRDB rdb = tablespace.getRdb(p.partitionDir, false);
+        ColumnFamilyHandle cfRollup = rollupsEnabled ? getOrCreateRollupCfh(rdb) : null;
         try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions()) {
 
             for (PGSegment pgs : pgList) {
                 pgs.consolidate();
                 assert (segStart == pgs.getSegmentStart());
-                writeToBatch(writeBatch, p, pgs);
+                writeToBatch(writeBatch, cfRollup, pgs);
+            }
+            rdb.getDb().write(wo, writeBatch);
+        }
+    }
+
+    private ColumnFamilyHandle getOrCreateRollupCfh(YRDB rdb) throws RocksDBException {
+        synchronized (rdb) {
+            ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(CF_ROLLUP);
+            if (cfh == null) {
+                cfh = rdb.createColumnFamily(CF_ROLLUP);
             }
-            tablespace.getRdb(p.partitionDir, false).getDb().write(wo, writeBatch);
+            return cfh;
         }
     }
 
-    private void writeToBatch(WriteBatch writeBatch, Partition p, PGSegment pgs) throws RocksDBException {
+    private void writeToBatch(WriteBatch writeBatch, ColumnFamilyHandle cfRollup, PGSegment pgs)
+            throws RocksDBException {
         // write the time segment
         SortedTimeSegment timeSegment = pgs.getTimeSegment();
         byte[] timeKey = new SegmentKey(parameterIdDb.timeParameterId, pgs.getParameterGroupId(),
@@ -255,6 +283,9 @@ public class ParameterArchive extends AbstractYamcsService {
                     SegmentKey.TYPE_ENG_VALUE).encode();
             byte[] engValue = vsEncoder.encode(vs);
             writeBatch.put(engKey, engValue);
+            if (cfRollup != null) {
+                writeRollups(writeBatch, cfRollup, pgs, parameterId, (ValueSegment) vs);
+            }
             if (STORE_RAW_VALUES && consolidatedRawValues != null) {
                 BaseSegment rvs = consolidatedRawValues.get(i);
                 if (rvs != null) {
@@ -290,6 +321,19 @@ public class ParameterArchive extends AbstractYamcsService {
         }
     }
 
+    private void writeRollups(WriteBatch writeBatch, ColumnFamilyHandle cfRollup, PGSegment pgs, int parameterId,
+            ValueSegment vs) throws RocksDBException {
+        for (int level = 0; level < ROLLUP_RESOLUTIONS.length; level++) {
+            RollupSegment rs = RollupSegment.build(pgs.getTimeSegment(), vs, ROLLUP_RESOLUTIONS[level]);
+            if (rs == null) {// not numeric
+                return;
+            }
+            byte[] key = new SegmentKey(parameterId, pgs.getParameterGroupId(), pgs.getSegmentStart(),
+                    (byte) (SegmentKey.TYPE_ROLLUP + level)).encode();
+            writeBatch.put(cfRollup, key, vsEncoder.encode(rs));
+        }
+    }
+
     /**
      * get partition for segment, creating it if it doesn't exist
      * 
@@ -414,6 +458,44 @@ public class ParameterArchive extends AbstractYamcsService {
         return tablespace.getRdb(p.partitionDir, false).newIterator();
     }
 
+    /**
+     * 
+     * @return an iterator over the rollup column family of the partition or null if the partition does not contain
+     *         rollup segments
+     */
+    public RocksIterator getRollupIterator(Partition p) throws RocksDBException, IOException {
+        YRDB rdb = tablespace.getRdb(p.partitionDir, false);
+        ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(CF_ROLLUP);
+        if (cfh == null) {
+            return null;
+        }
+        return rdb.newIterator(cfh);
+    }
+
+    public boolean isRollupsEnabled() {
+        return rollupsEnabled;
+    }
+
+    /**
+     * Returns the coarsest rollup level whose resolution is smaller or equal than the requested step.
+     * 
+     * @param step
+     *            - the duration in milliseconds between two consecutive samples requested by the user
+     * @return the rollup level or -1 if the rollups are disabled or the step is smaller than the finest resolution
+     */
+    public int getRollupLevel(long step) {
+        if (!rollupsEnabled) {
+            return -1;
+        }
+        int level = -1;
+        for (int i = 0; i < ROLLUP_RESOLUTIONS.length; i++) {
+            if (ROLLUP_RESOLUTIONS[i] <= step) {
+                level = i;
+            }
+        }
+        return level;
+    }
+
     public SortedTimeSegment getTimeSegment(Partition p, long segmentStart, int parameterGroupId)
             throws RocksDBException, IOException {
         byte[] timeKey = new SegmentKey(parameterIdDb.timeParameterId, parameterGroupId, segmentStart,
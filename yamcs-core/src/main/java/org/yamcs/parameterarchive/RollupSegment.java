@@ -0,0 +1,217 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.ByteBuffer;
+
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.DoubleArray;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.LongArray;
+import org.yamcs.utils.UnsignedLong;
+import org.yamcs.utils.VarIntUtil;
+
+/**
+ * Pre-aggregated (min, max, avg, count) values of one numeric parameter for one segment.
+ * <p>
+ * The values of the segment are split into bins of fixed duration (the resolution), the bins are aligned to multiples
+ * of the resolution. Only the non-empty bins are stored.
+ * <p>
+ * The rollup segments are stored in a separate column family such that they can be retrieved without reading the
+ * value segments. See {@link ParameterArchive#ROLLUP_RESOLUTIONS}
+ *
+ */
+public class RollupSegment extends BaseSegment {
+    static final byte SUBFORMAT_ID_RAW = 0;
+
+    long resolution;
+    // the time of the last value in the segment
+    long lastTime;
+    LongArray binIndex;
+    DoubleArray min;
+    DoubleArray max;
+    DoubleArray avg;
+    IntArray count;
+
+    RollupSegment(long resolution) {
+        super(FORMAT_ID_RollupSegment);
+        this.resolution = resolution;
+        binIndex = new LongArray();
+        min = new DoubleArray();
+        max = new DoubleArray();
+        avg = new DoubleArray();
+        count = new IntArray();
+    }
+
+    /**
+     * Computes the rollup from the time and value segments.
+     *
+     * @return the computed rollup or null if the values are not numeric
+     */
+    public static RollupSegment build(SortedTimeSegment timeSegment, ValueSegment valueSegment, long resolution) {
+        int n = timeSegment.size();
+        if (n == 0 || valueSegment.size() != n) {
+            return null;
+        }
+        ValueArray va = valueSegment.getRange(0, n, true);
+        RollupSegment rs = new RollupSegment(resolution);
+        switch (va.getType()) {
+        case FLOAT:
+            float[] fv = va.getFloatArray();
+            for (int i = 0; i < n; i++) {
+                rs.add(timeSegment.getTime(i), fv[i]);
+            }
+            break;
+        case DOUBLE:
+            double[] dv = va.getDoubleArray();
+            for (int i = 0; i < n; i++) {
+                rs.add(timeSegment.getTime(i), dv[i]);
+            }
+            break;
+        case UINT32:
+            int[] iv = va.getIntArray();
+            for (int i = 0; i < n; i++) {
+                rs.add(timeSegment.getTime(i), iv[i] & 0xFFFFFFFFL);
+            }
+            break;
+        case SINT32:
+            iv = va.getIntArray();
+            for (int i = 0; i < n; i++) {
+                rs.add(timeSegment.getTime(i), iv[i]);
+            }
+            break;
+        case UINT64:
+            long[] lv = va.getLongArray();
+            for (int i = 0; i < n; i++) {
+                rs.add(timeSegment.getTime(i), UnsignedLong.toDouble(lv[i]));
+            }
+            break;
+        case SINT64:
+            lv = va.getLongArray();
+            for (int i = 0; i < n; i++) {
+                rs.add(timeSegment.getTime(i), lv[i]);
+            }
+            break;
+        default:
+            return null;
+        }
+        rs.lastTime = timeSegment.getTime(n - 1);
+        return rs;
+    }
+
+    // the instants have to be added in ascending order
+    private void add(long instant, double value) {
+        long idx = Math.floorDiv(instant, resolution);
+        int k = binIndex.size() - 1;
+        if (k < 0 || binIndex.get(k) != idx) {
+            binIndex.add(idx);
+            min.add(value);
+            max.add(value);
+            avg.add(value);
+            count.add(1);
+        } else {
+            if (value < min.get(k)) {
+                min.set(k, value);
+            }
+            if (value > max.get(k)) {
+                max.set(k, value);
+            }
+            int c = count.get(k) + 1;
+            count.set(k, c);
+            double a = avg.get(k);
+            avg.set(k, a + (value - a) / c);
+        }
+    }
+
+    @Override
+    public void writeTo(ByteBuffer bb) {
+        bb.put(SUBFORMAT_ID_RAW);
+        int n = binIndex.size();
+        VarIntUtil.writeVarInt64(bb, resolution);
+        bb.putLong(lastTime);
+        VarIntUtil.writeVarInt32(bb, n);
+        long prev = 0;
+        for (int i = 0; i < n; i++) {
+            long idx = binIndex.get(i);
+            VarIntUtil.writeVarInt64(bb, idx - prev);
+            prev = idx;
+            bb.putDouble(min.get(i));
+            bb.putDouble(max.get(i));
+            bb.putDouble(avg.get(i));
+            VarIntUtil.writeVarInt32(bb, count.get(i));
+        }
+    }
+
+    public static RollupSegment parseFrom(ByteBuffer bb) throws DecodingException {
+        byte fid = bb.get();
+        if (fid != SUBFORMAT_ID_RAW) {
+            throw new DecodingException("Unknown sub format id: " + fid);
+        }
+        RollupSegment rs = new RollupSegment(VarIntUtil.readVarInt64(bb));
+        rs.lastTime = bb.getLong();
+        int n = VarIntUtil.readVarInt32(bb);
+        long idx = 0;
+        for (int i = 0; i < n; i++) {
+            idx += VarIntUtil.readVarInt64(bb);
+            rs.binIndex.add(idx);
+            rs.min.add(bb.getDouble());
+            rs.max.add(bb.getDouble());
+            rs.avg.add(bb.getDouble());
+            rs.count.add(VarIntUtil.readVarInt32(bb));
+        }
+        return rs;
+    }
+
+    @Override
+    public int getMaxSerializedSize() {
+        return 1 + 10 + 8 + 5 + binIndex.size() * (10 + 3 * 8 + 5);
+    }
+
+    /**
+     *
+     * @return the number of bins
+     */
+    @Override
+    public int size() {
+        return binIndex.size();
+    }
+
+    public long getResolution() {
+        return resolution;
+    }
+
+    /**
+     *
+     * @return the time of the last value aggregated in this segment
+     */
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * @return the start time of the bin i
+     */
+    public long getTime(int i) {
+        return binIndex.get(i) * resolution;
+    }
+
+    public double getMin(int i) {
+        return min.get(i);
+    }
+
+    public double getMax(int i) {
+        return max.get(i);
+    }
+
+    public double getAvg(int i) {
+        return avg.get(i);
+    }
+
+    public int getCount(int i) {
+        return count.get(i);
+    }
+
+    @Override
+    public String toString() {
+        return "RollupSegment[resolution: " + resolution + ", size: " + size() + "]";
+    }
+}
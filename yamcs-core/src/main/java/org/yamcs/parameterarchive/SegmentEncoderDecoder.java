@@ -5,19 +5,39 @@ import java.nio.ByteBuffer;
 import org.yamcs.utils.DecodingException;
 
 public class SegmentEncoderDecoder {
+    /**
+     * the segments whose max serialized size is smaller than this are encoded in a buffer reused by each thread,
+     * otherwise a new buffer is allocated
+     */
+    static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private final ThreadLocal<ByteBuffer> encodeBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(8192));
 
     public byte[] encode(BaseSegment valueSegment) {
-        ByteBuffer bb = ByteBuffer.allocate(2 + valueSegment.getMaxSerializedSize());
+        int maxSize = 2 + valueSegment.getMaxSerializedSize();
+        ByteBuffer bb;
+        boolean reused = maxSize <= MAX_REUSED_BUFFER_SIZE;
+        if (!reused) {
+            bb = ByteBuffer.allocate(maxSize);
+        } else {
+            bb = encodeBuffer.get();
+            if (bb.capacity() < maxSize) {
+                bb = ByteBuffer.allocate(Math.max(maxSize, 2 * bb.capacity()));
+                encodeBuffer.set(bb);
+            }
+            // the segments fall back to a different encoding if the max size is exceeded
+            bb.clear().limit(maxSize);
+        }
         bb.put(valueSegment.getFormatId());
         valueSegment.writeTo(bb);
-        if (bb.position() < bb.capacity()) {
-            int length = bb.position();
+        int length = bb.position();
+        if (!reused && length == bb.capacity()) {
+            return bb.array();
+        } else {
             byte[] v = new byte[length];
             bb.rewind();
             bb.get(v, 0, length);
             return v;
-        } else {
-            return bb.array();
         }
     }
 
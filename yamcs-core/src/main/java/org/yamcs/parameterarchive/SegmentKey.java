@@ -18,6 +18,10 @@ public class SegmentKey {
     public static final byte TYPE_ENG_VALUE = 0;
     public static final byte TYPE_RAW_VALUE = 1;
     public static final byte TYPE_PARAMETER_STATUS = 2;
+    /**
+     * the rollup segments are stored with the type TYPE_ROLLUP + level, see {@link ParameterArchive#ROLLUP_RESOLUTIONS}
+     */
+    public static final byte TYPE_ROLLUP = 16;
     
     public SegmentKey(int parameterId, int parameterGroupId, long segmentStart, byte type) {
         this.parameterId = parameterId;
@@ -1,16 +1,26 @@
 package org.yamcs.parameterarchive;
 
+import static org.yamcs.parameterarchive.ParameterArchive.getIntervalEnd;
+import static org.yamcs.parameterarchive.ParameterArchive.getIntervalStart;
+
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.parameter.ValueArray;
+import org.yamcs.parameterarchive.ParameterArchive.Partition;
 import org.yamcs.protobuf.Pvalue.ParameterStatus;
+import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.yarch.rocksdb.AscendingRangeIterator;
 
 /**
  * Retrieves values for a single parameter from the parameter archive. The result is arrays of samples (see
@@ -79,6 +89,107 @@ public class SingleParameterRetrieval {
         }
     }
 
+    /**
+     * Retrieves the rollup segments of the given level (see {@link ParameterArchive#ROLLUP_RESOLUTIONS}).
+     * <p>
+     * The rollups of the segments not yet written to the archive (kept in memory by the realtime filler) and of the
+     * segments without a rollup segment (e.g. written before the rollups have been enabled) are computed on the fly.
+     * <p>
+     * The segments are not merged between parameter groups and they are not sent in any particular order. Only the
+     * engineering values are aggregated; the request options regarding the raw values and the status are ignored.
+     */
+    public void retrieveRollups(int level, Consumer<RollupSegment> consumer) throws RocksDBException, IOException {
+        if (pids == null) {
+            return;
+        }
+
+        for (ParameterId pid : pids) {
+            int[] pgids = parameterGroupIds;
+            if (pgids == null) {
+                pgids = parchive.getParameterGroupIdDb().getAllGroups(pid.getPid());
+            }
+            for (int pgid : pgids) {
+                retrieveRollupsSingleGroup(pid.getPid(), pgid, level, consumer);
+            }
+        }
+    }
+
+    private void retrieveRollupsSingleGroup(int pid, int parameterGroupId, int level,
+            Consumer<RollupSegment> consumer) throws RocksDBException, IOException {
+        byte type = (byte) (SegmentKey.TYPE_ROLLUP + level);
+        byte[] rangeStart = new SegmentKey(pid, parameterGroupId, getIntervalStart(req.start), (byte) 0).encode();
+        byte[] rangeStop = new SegmentKey(pid, parameterGroupId, req.stop, Byte.MAX_VALUE).encode();
+        SegmentEncoderDecoder decoder = new SegmentEncoderDecoder();
+
+        long resolution = ParameterArchive.ROLLUP_RESOLUTIONS[level];
+
+        for (Partition p : parchive.getPartitions(getIntervalStart(req.start), getIntervalEnd(req.stop), true)) {
+            // the start of the segments for which a rollup segment has been found
+            Set<Long> rolledUp = new HashSet<>();
+            RocksIterator rocksIt = parchive.getRollupIterator(p);
+            if (rocksIt != null) {
+                try (AscendingRangeIterator it = new AscendingRangeIterator(rocksIt, rangeStart, rangeStop)) {
+                    while (it.isValid()) {
+                        SegmentKey key = SegmentKey.decode(it.key());
+                        if (key.type == type) {
+                            rolledUp.add(key.segmentStart);
+                            RollupSegment rs = (RollupSegment) decoder.decode(it.value(), key.segmentStart);
+                            if (rs.getLastTime() >= req.start) {
+                                consumer.accept(rs);
+                            }
+                        }
+                        it.next();
+                    }
+                } catch (DecodingException e) {
+                    throw new DatabaseCorruptionException(e);
+                }
+            }
+            // the segments written before the rollups have been enabled do not have rollup segments
+            computeRollups(p, pid, parameterGroupId, resolution, rangeStart, rangeStop, rolledUp, consumer);
+        }
+
+        RealtimeArchiveFiller rtfiller = parchive.getRealtimeFiller();
+        if (rtfiller != null) {
+            for (ParameterValueSegment pvs : rtfiller.getSegments(pid, parameterGroupId, true)) {
+                if (pvs.engValueSegment == null) {
+                    continue;
+                }
+                RollupSegment rs = RollupSegment.build(pvs.timeSegment, pvs.engValueSegment, resolution);
+                if (rs != null) {
+                    consumer.accept(rs);
+                }
+            }
+        }
+    }
+
+    // computes the rollups from the value segments of the partition, skipping the segments already rolled up
+    private void computeRollups(Partition p, int pid, int parameterGroupId, long resolution, byte[] rangeStart,
+            byte[] rangeStop, Set<Long> rolledUp, Consumer<RollupSegment> consumer)
+            throws RocksDBException, IOException {
+        SegmentEncoderDecoder decoder = new SegmentEncoderDecoder();
+        try (AscendingRangeIterator it = new AscendingRangeIterator(parchive.getIterator(p), rangeStart, rangeStop)) {
+            while (it.isValid()) {
+                SegmentKey key = SegmentKey.decode(it.key());
+                if (key.type == SegmentKey.TYPE_ENG_VALUE && !rolledUp.contains(key.segmentStart)) {
+                    SortedTimeSegment timeSegment = parchive.getTimeSegment(p, key.segmentStart, parameterGroupId);
+                    if (timeSegment == null) {
+                        throw new DatabaseCorruptionException("Cannot find a time segment for parameterGroupId="
+                                + parameterGroupId + " segmentStart = " + key.segmentStart
+                                + " despite having a value segment for parameterId: " + pid);
+                    }
+                    ValueSegment vs = (ValueSegment) decoder.decode(it.value(), key.segmentStart);
+                    RollupSegment rs = RollupSegment.build(timeSegment, vs, resolution);
+                    if (rs != null && rs.getLastTime() >= req.start) {
+                        consumer.accept(rs);
+                    }
+                }
+                it.next();
+            }
+        } catch (DecodingException e) {
+            throw new DatabaseCorruptionException(e);
+        }
+    }
+
     // this is the easy case, one single parameter group -> no merging of segments necessary
     private void retrieveValueSingleGroup(ParameterId pid, int parameterGroupId,
             Consumer<ParameterValueArray> consumer) throws RocksDBException, IOException {
@@ -0,0 +1,218 @@
+package org.yamcs.replication;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.yamcs.logging.Log;
+import org.yamcs.utils.DataRateMeter;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Applies the transactions received by the {@link ReplicationSlave}.
+ * <p>
+ * The transactions are submitted by the connection thread together with a key (the stream they are destined to). The
+ * transactions with different keys are applied in parallel on a pool of worker threads whereas the transactions with
+ * the same key are applied one after the other, in the order in which they have been submitted.
+ * <p>
+ * If the pool has no threads, the transactions are applied directly in the submitting thread.
+ * <p>
+ * The stage keeps track of the applied watermark: the highest transaction id such that all the transactions up to and
+ * including it have been applied. This is the value that can be safely saved to resume the replication after a restart.
+ */
+class ApplyStage {
+    final Log log;
+    final ThreadPoolExecutor pool;
+    final int maxPending;
+
+    // executors used to keep the order within each key; accessed only from the submitting thread
+    final Map<Object, Executor> executors = new HashMap<>();
+
+    // the transactions submitted and not yet applied
+    final TreeSet<Long> pending = new TreeSet<>();
+    // the last transaction submitted or skipped
+    long handledTxId;
+    Runnable drainListener;
+
+    final DataRateMeter txRateMeter = new DataRateMeter();
+    final DataRateMeter dataRateMeter = new DataRateMeter();
+
+    /**
+     *
+     * @param log
+     * @param name
+     *            used to name the worker threads
+     * @param numThreads
+     *            number of worker threads; 0 means that the transactions are applied in the submitting thread
+     * @param maxPending
+     *            number of pending transactions above which {@link #submit} reports that the stage is saturated
+     * @param lastTxId
+     *            the id of the last transaction applied before the stage has been created
+     */
+    ApplyStage(Log log, String name, int numThreads, int maxPending, long lastTxId) {
+        this.log = log;
+        this.maxPending = maxPending;
+        this.handledTxId = lastTxId;
+        if (numThreads > 0) {
+            pool = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat(name + "-apply-%d").setDaemon(true).build());
+        } else {
+            pool = null;
+        }
+    }
+
+    /**
+     * Submit a transaction to be applied.
+     *
+     * @param key
+     *            the transactions with the same key are applied in order
+     * @param txId
+     *            the transaction id
+     * @param size
+     *            the size in bytes of the transaction, used for statistics
+     * @param task
+     *            applies the transaction
+     * @return true if the number of pending transactions exceeds the limit; the caller should stop submitting until
+     *         the listener registered with {@link #onDrain(Runnable)} is called
+     */
+    boolean submit(Object key, long txId, int size, Runnable task) {
+        if (pool == null) {
+            apply(task, size);
+            synchronized (this) {
+                handledTxId = Math.max(handledTxId, txId);
+            }
+            return false;
+        }
+
+        boolean tracked;
+        int n;
+        synchronized (this) {
+            // transactions from the past are not tracked, they do not influence the watermark
+            tracked = txId > handledTxId;
+            if (tracked) {
+                pending.add(txId);
+                handledTxId = txId;
+            }
+            n = pending.size();
+        }
+        Executor executor = executors.computeIfAbsent(key, k -> MoreExecutors.newSequentialExecutor(pool));
+        try {
+            executor.execute(() -> {
+                try {
+                    apply(task, size);
+                } finally {
+                    if (tracked) {
+                        applied(txId);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the stage has been shut down; the transaction stays pending such that the watermark does not pass it
+            log.debug("TX{} not applied because the apply stage is shut down", txId);
+        }
+        return n > maxPending;
+    }
+
+    /**
+     * 
+     * @return true if the transactions are applied by worker threads, false if they are applied in the submitting
+     *         thread
+     */
+    boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Mark a transaction which does not have to be applied (e.g. data for an unknown stream or metadata) as handled.
+     */
+    synchronized void skip(long txId) {
+        handledTxId = Math.max(handledTxId, txId);
+    }
+
+    /**
+     * Register a listener to be called once, when the number of pending transactions drops below half of the limit.
+     * <p>
+     * If that is already the case, the listener is called immediately.
+     */
+    void onDrain(Runnable listener) {
+        synchronized (this) {
+            if (pending.size() > maxPending / 2) {
+                drainListener = listener;
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private void apply(Runnable task, int size) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.warn("Failed to apply transaction", e);
+        }
+        txRateMeter.mark(1);
+        dataRateMeter.mark(size);
+    }
+
+    private void applied(long txId) {
+        Runnable listener = null;
+        synchronized (this) {
+            pending.remove(txId);
+            if (drainListener != null && pending.size() <= maxPending / 2) {
+                listener = drainListener;
+                drainListener = null;
+            }
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     *
+     * @return the highest transaction id such that all the transactions up to and including it have been applied
+     */
+    synchronized long getAppliedTxId() {
+        return pending.isEmpty() ? handledTxId : pending.first() - 1;
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     *
+     * @return the number of transactions applied per second (five seconds average)
+     */
+    double getTxRate() {
+        return txRateMeter.getFiveSecondsRate();
+    }
+
+    /**
+     *
+     * @return the number of bytes applied per second (five seconds average)
+     */
+    double getDataRate() {
+        return dataRateMeter.getFiveSecondsRate();
+    }
+
+    /**
+     * Stop accepting new transactions and wait for the pending ones to be applied.
+     *
+     * @return true if all the pending transactions have been applied within the timeout
+     */
+    boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        if (pool == null) {
+            return true;
+        }
+        pool.shutdown();
+        return pool.awaitTermination(timeout, unit);
+    }
+}
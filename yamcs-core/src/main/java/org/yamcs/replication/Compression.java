@@ -0,0 +1,5 @@
+package org.yamcs.replication;
+
+public enum Compression {
+    NONE, DEFLATE;
+}
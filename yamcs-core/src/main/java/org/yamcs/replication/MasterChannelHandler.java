@@ -5,6 +5,7 @@ import static org.yamcs.replication.ReplicationServer.workerGroup;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
 import org.yamcs.logging.Log;
 import org.yamcs.replication.ReplicationMaster.SlaveServer;
@@ -36,6 +37,17 @@ public class MasterChannelHandler extends ChannelInboundHandlerAdapter {
     final Log log;
     SlaveServer slaveServer;
 
+    // set if the slave has requested compression and the master allows it
+    Deflater deflater;
+    int maxMessageSize;
+    // the compressed batches are encoded into this buffer; it is reused once the previous batch has been sent
+    byte[] batchBuffer;
+    // the maximum uncompressed size of the next batch; it is decreased if the compressed batches do not fit into the
+    // maxMessageSize
+    int batchLimit;
+    volatile long uncompressedBytes;
+    volatile long compressedBytes;
+
     // called when we are TCP client, we first send a wakeup message and then we receive the request
     public MasterChannelHandler(ReplicationMaster master, SlaveServer slaveServer) {
         this.replMaster = master;
@@ -113,6 +125,20 @@ public class MasterChannelHandler extends ChannelInboundHandlerAdapter {
             log.info("The slave did not provide a startTxId, starting from 0");
             nextTxToSend = 0;
         }
+        if (replMaster.allowCompression && Compression.DEFLATE.name().equals(req.getCompression())) {
+            maxMessageSize = req.hasMaxMessageSize() ? req.getMaxMessageSize() : ReplicationServer.MAX_FRAME_SIZE;
+            synchronized (this) {
+                if (deflater == null) {
+                    deflater = new Deflater();
+                }
+                // a batch from the previous request may still be in flight, do not overwrite it
+                batchBuffer = new byte[maxMessageSize];
+            }
+            batchLimit = replMaster.compressionBatchSize;
+            log.debug("Sending transactions in compressed batches of maximum {} bytes", batchLimit);
+        } else {
+            endDeflater();
+        }
         goToNextFile();
 
     }
@@ -165,6 +191,8 @@ public class MasterChannelHandler extends ChannelInboundHandlerAdapter {
             } else { // check back in 200 millisec
                 workerGroup.schedule(() -> sendMoreData(), 200, TimeUnit.MILLISECONDS);
             }
+        } else if (deflater != null) {
+            sendBatch();
         } else {// got some data, send it and check back for more once the data has been sent
             ByteBuf buf = Unpooled.wrappedBuffer(fileTail.buf);
             dataHandlingFuture = channelHandlerContext.writeAndFlush(buf).addListener(a -> {
@@ -175,6 +203,101 @@ public class MasterChannelHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Sends the transactions from the file tail compressed together, up to the batch limit.
+     * <p>
+     * If the compressed batch does not fit in the maximum message size accepted by the slave, the batch limit is
+     * halved; it is increased again slowly, by one eighth, only after a batch compressed to less than three quarters
+     * of the maximum message size, such that the batches are not repeatedly compressed twice. If the data does not
+     * compress, the transactions are sent as they are.
+     */
+    private void sendBatch() {
+        ByteBuffer tail = fileTail.buf;
+        int start = tail.position();
+        int end;
+        long lastTxId;
+        ByteBuffer batch;
+        while (true) {
+            end = start;
+            lastTxId = -1;
+            while (end < tail.limit()) {
+                int msgSize = (tail.getInt(end) & 0xFFFFFF) + 4;
+                if (end > start && end + msgSize - start > batchLimit) {
+                    break;
+                }
+                lastTxId = tail.getLong(end + 8);
+                end += msgSize;
+            }
+            ByteBuffer data = tail.duplicate();
+            data.limit(end);
+            batch = compress(data);
+            int firstMsgSize = (tail.getInt(start) & 0xFFFFFF) + 4;
+            if (batch == null && end - start > firstMsgSize) {
+                batchLimit = Math.max((end - start) / 2, firstMsgSize);
+                continue;
+            }
+            break;
+        }
+        int rawSize = end - start;
+        ByteBuf buf;
+        if (batch == null || batch.remaining() >= rawSize) {
+            ByteBuffer data = tail.duplicate();
+            data.limit(end);
+            buf = Unpooled.wrappedBuffer(data);
+        } else {
+            uncompressedBytes += rawSize;
+            compressedBytes += batch.remaining();
+            if (batch.remaining() < maxMessageSize / 4 * 3) {
+                batchLimit = Math.min(batchLimit + batchLimit / 8, replMaster.compressionBatchSize);
+            }
+            buf = Unpooled.wrappedBuffer(batch);
+        }
+        int batchEnd = end;
+        long nextTx = batchEnd == tail.limit() ? fileTail.nextTxId : lastTxId + 1;
+        dataHandlingFuture = channelHandlerContext.writeAndFlush(buf).addListener(a -> {
+            tail.position(batchEnd);
+            nextTxToSend = nextTx;
+            sendMoreData();
+        });
+    }
+
+    private synchronized ByteBuffer compress(ByteBuffer data) {
+        if (deflater == null) {// the connection has been closed in the meanwhile
+            return null;
+        }
+        return Message.encodeCompressedBatch(data, replMaster.getTxId(), deflater, batchBuffer);
+    }
+
+    /**
+     * releases the native memory used by the deflater; it is called from the channel thread while the batches may be
+     * compressed on another thread from the worker group.
+     */
+    private synchronized void endDeflater() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+            batchBuffer = null;
+        }
+    }
+
+    /**
+     * 
+     * @return the negotiated compression
+     */
+    public Compression getCompression() {
+        return deflater == null ? Compression.NONE : Compression.DEFLATE;
+    }
+
+    /**
+     * 
+     * @return the ratio between the uncompressed and compressed size of the data sent in compressed batches or 0 if
+     *         no such data has been sent
+     */
+    public double getCompressionRatio() {
+        long cb = compressedBytes;
+        return cb == 0 ? 0 : (double) uncompressedBytes / cb;
+    }
+
     public long getNextTxId() {
         return nextTxToSend;
     }
@@ -207,5 +330,6 @@ public class MasterChannelHandler extends ChannelInboundHandlerAdapter {
         if (dataHandlingFuture != null) {
             dataHandlingFuture.cancel(true);
         }
+        endDeflater();
     }
 }
@@ -3,6 +3,9 @@ package org.yamcs.replication;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import org.yamcs.replication.protobuf.Request;
 import org.yamcs.replication.protobuf.Response;
@@ -28,6 +31,16 @@ import com.google.protobuf.MessageLite;
  * This is the same structure used in the replication file to be able to play it directly over the network.
  * <p>
  * The replication file contains only STREAM_INFO and DATA messages (and we call them transactions)
+ * <p>
+ * The COMPRESSED_BATCH messages are not stored in the file; they are used on the network to send a number of
+ * consecutive transactions compressed together. The data is:
+ * 
+ * <pre>
+ * 1 byte compression (currently only DEFLATE)
+ * 8 bytes the next transaction id on the master at the moment of sending (used to compute the slave lag)
+ * 4 bytes uncompressed size
+ * m bytes compressed transactions, each in the message format above
+ * </pre>
  */
 public class Message {
     public final static byte WAKEUP = 1;
@@ -35,6 +48,12 @@ public class Message {
     public final static byte RESPONSE = 3;
     public final static byte STREAM_INFO = 4;
     public final static byte DATA = 5;
+    public final static byte COMPRESSED_BATCH = 6;
+
+    public final static byte COMPRESSION_DEFLATE = 1;
+    // header, compression, master tx id, uncompressed size and CRC
+    public final static int BATCH_OVERHEAD = 4 + 1 + 8 + 4 + 4;
+    public final static int MAX_BATCH_SIZE = 16 * 1024 * 1024;
 
     final byte type;
     MessageLite protoMsg;
@@ -74,6 +93,10 @@ public class Message {
                 msg = new Message(type);
                 msg.protoMsg = decodeProto(buf, Response.newBuilder()).build();
                 break;
+            case COMPRESSED_BATCH:
+                msg = new BatchMessage(buf.get(), buf.getLong(), buf.getInt());
+                ((BatchMessage) msg).buf = buf;
+                break;
             case STREAM_INFO:
                 msg = new TransactionMessage(type, buf.getInt(), buf.getLong());
                 buf.getInt();//pointer to next metadata
@@ -140,6 +163,54 @@ public class Message {
         return msg;
     }
 
+    /**
+     * Compresses the transactions between the position and the limit of the buffer into a COMPRESSED_BATCH message.
+     * <p>
+     * The buffer position is not changed.
+     * 
+     * @param data
+     *            the transactions to compress
+     * @param masterTxId
+     *            the next transaction id on the master
+     * @param deflater
+     *            used for compressing the data; it is reset before use
+     * @param out
+     *            the array into which the message is encoded; its length is the maximum size of the message. The
+     *            returned buffer is backed by this array so it can only be reused after the message has been sent.
+     * @return the encoded message or null if the compressed data would not fit in the out array
+     */
+    static ByteBuffer encodeCompressedBatch(ByteBuffer data, long masterTxId, Deflater deflater, byte[] out) {
+        int maxSize = out.length;
+        ByteBuffer buf = ByteBuffer.wrap(out);
+        buf.position(4);
+        buf.put(COMPRESSION_DEFLATE);
+        buf.putLong(masterTxId);
+        buf.putInt(data.remaining());
+
+        deflater.reset();
+        if (data.hasArray()) {
+            deflater.setInput(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            byte[] b = new byte[data.remaining()];
+            data.duplicate().get(b);
+            deflater.setInput(b);
+        }
+        deflater.finish();
+        int n = deflater.deflate(out, buf.position(), maxSize - buf.position() - 4);
+        if (!deflater.finished()) {
+            return null;
+        }
+        int length = buf.position() + n;
+        buf.putInt(0, (COMPRESSED_BATCH << 24) | length);
+
+        CRC32 crc = new CRC32();
+        crc.update(out, 0, length);
+        buf.limit(length + 4);
+        buf.putInt(length, (int) crc.getValue());
+        buf.position(0);
+        return buf;
+    }
+
     public ByteBuffer encode() {
         byte[] b = protoMsg.toByteArray();
         ByteBuffer buf = ByteBuffer.allocate(b.length + 8);
@@ -175,3 +246,49 @@ class TransactionMessage extends Message {
         throw new UnsupportedOperationException();
     }
 }
+
+// a number of transactions compressed together
+class BatchMessage extends Message {
+    final byte compression;
+    final long masterTxId;
+    final int uncompressedSize;
+    ByteBuffer buf;
+
+    BatchMessage(byte compression, long masterTxId, int uncompressedSize) {
+        super(COMPRESSED_BATCH);
+        this.compression = compression;
+        this.masterTxId = masterTxId;
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    /**
+     * Decompresses the data and returns a buffer containing the transactions.
+     */
+    ByteBuffer decompress(Inflater inflater) throws DecodingException {
+        if (compression != COMPRESSION_DEFLATE) {
+            throw new DecodingException("unknown compression " + compression);
+        }
+        if (uncompressedSize < 0 || uncompressedSize > MAX_BATCH_SIZE) {
+            throw new DecodingException("invalid uncompressed size " + uncompressedSize);
+        }
+        byte[] in = new byte[buf.remaining()];
+        buf.get(in);
+        byte[] out = new byte[uncompressedSize];
+        inflater.reset();
+        inflater.setInput(in);
+        try {
+            int n = inflater.inflate(out);
+            if (n != uncompressedSize || !inflater.finished()) {
+                throw new DecodingException(
+                        "decompressed size " + n + " does not match the expected size " + uncompressedSize);
+            }
+        } catch (DataFormatException e) {
+            throw new DecodingException(e.getMessage());
+        }
+        return ByteBuffer.wrap(out);
+    }
+
+    public ByteBuffer encode() {
+        throw new UnsupportedOperationException();
+    }
+}
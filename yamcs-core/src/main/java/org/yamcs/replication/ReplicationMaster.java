@@ -83,6 +83,8 @@ public class ReplicationMaster extends AbstractYamcsService {
     private long fileCloseTime;
     Pattern filePattern;
     int maxTupleSize;
+    boolean allowCompression;
+    int compressionBatchSize;
 
     @Override
     public void init(String yamcsInstance, String serviceName, YConfiguration config) throws InitException {
@@ -96,6 +98,11 @@ public class ReplicationMaster extends AbstractYamcsService {
         maxPages = config.getInt("maxPages", 500);
         maxFileSize = 1024 * config.getInt("maxFileSizeKB", 100 * 1024);
         this.maxTupleSize = config.getInt("maxTupleSize");
+        this.allowCompression = config.getBoolean("allowCompression");
+        this.compressionBatchSize = config.getInt("compressionBatchSize");
+        if (compressionBatchSize > Message.MAX_BATCH_SIZE) {
+            throw new InitException("compressionBatchSize cannot be higher than " + Message.MAX_BATCH_SIZE);
+        }
         int hdrSize = ReplicationFile.headerSize(pageSize, maxPages);
         if (maxFileSize < hdrSize) {
             throw new InitException(
@@ -180,6 +187,10 @@ public class ReplicationMaster extends AbstractYamcsService {
         spec.addOption("slaves", OptionType.LIST).withElementType(OptionType.MAP).withSpec(slaveSpec);
         spec.addOption("maxTupleSize", OptionType.INTEGER).withDefault(65536)
                 .withDescription("Maximum size of the serialized tuple");
+        spec.addOption("allowCompression", OptionType.BOOLEAN).withDefault(true)
+                .withDescription("Send the transactions in compressed batches to the slaves requesting it");
+        spec.addOption("compressionBatchSize", OptionType.INTEGER).withDefault(256 * 1024)
+                .withDescription("Maximum uncompressed size of a batch of transactions");
 
         return spec;
     }
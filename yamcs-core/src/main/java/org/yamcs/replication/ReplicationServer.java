@@ -59,6 +59,8 @@ import io.netty.handler.ssl.SslContextBuilder;
  * 
  */
 public class ReplicationServer extends AbstractYamcsService {
+    // maximum size of the messages received on the server connections
+    static final int MAX_FRAME_SIZE = 8192;
     int port;
     static final EventLoopGroup workerGroup = new NioEventLoopGroup();
     ServerBootstrap serverBootstrap;
@@ -111,7 +113,7 @@ public class ReplicationServer extends AbstractYamcsService {
                         if (sslCtx != null) {
                             ch.pipeline().addLast(sslCtx.newHandler(ch.alloc()));
                         }
-                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(8192, 1, 3));
+                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_SIZE, 1, 3));
                         ch.pipeline().addLast(new MyChannelHandler());
                     }
                 })
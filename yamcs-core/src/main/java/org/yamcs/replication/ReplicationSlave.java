@@ -9,6 +9,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
 
 import javax.net.ssl.SSLException;
 
@@ -39,6 +42,7 @@ import com.google.protobuf.TextFormat;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -46,6 +50,7 @@ import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 
 public class ReplicationSlave extends AbstractYamcsService {
+    static final long LAST_TX_FILE_UPDATE_MILLIS = 1000;
     private TcpRole tcpRole;
     int port;
     String host;
@@ -56,11 +61,20 @@ public class ReplicationSlave extends AbstractYamcsService {
     SlaveChannelHandler slaveChannelHandler;
     List<String> streamNames;
     RandomAccessFile lastTxFile;
+    long lastTxFileValue;
+    ApplyStage applyStage;
+    ScheduledFuture<?> lastTxFileFuture;
 
     Path txtfilePath;
     int localInstanceId;
     SslContext sslCtx = null;
     int maxTupleSize;
+    Compression compression;
+
+    // statistics about the compressed batches
+    volatile long uncompressedBytes;
+    volatile long compressedBytes;
+    volatile long masterTxId = -1;
 
     @Override
     public void init(String yamcsInstance, String serviceName, YConfiguration config) throws InitException {
@@ -92,6 +106,7 @@ public class ReplicationSlave extends AbstractYamcsService {
         replicationDir.toFile().mkdirs();
         String lastTxFilename = config.getString("lastTxFile", serviceName + "-lastid.txt");
         this.maxTupleSize = config.getInt("maxTupleSize");
+        this.compression = config.getEnum("compression", Compression.class);
 
         txtfilePath = replicationDir.resolve(lastTxFilename);
         try {
@@ -107,6 +122,12 @@ public class ReplicationSlave extends AbstractYamcsService {
         } catch (NumberFormatException e) {
             throw new InitException("Cannot parse number from " + txtfilePath + ": " + e);
         }
+        lastTxFileValue = lastTxId;
+
+        int applyThreads = config.getInt("applyThreads",
+                Math.min(streamNames.size(), Runtime.getRuntime().availableProcessors()));
+        int maxPendingTx = config.getInt("maxPendingTx");
+        applyStage = new ApplyStage(log, "ReplicationSlave-" + yamcsInstance, applyThreads, maxPendingTx, lastTxId);
 
     }
 
@@ -123,6 +144,16 @@ public class ReplicationSlave extends AbstractYamcsService {
         spec.addOption("lastTxFile", OptionType.STRING);
         spec.addOption("maxTupleSize", OptionType.INTEGER).withDefault(65536)
                 .withDescription("Maximum size of the serialized tuple");
+        spec.addOption("compression", OptionType.STRING).withDefault(Compression.NONE.name())
+                .withChoices(Compression.class)
+                .withDescription("Request the master to send the transactions in compressed batches");
+        spec.addOption("applyThreads", OptionType.INTEGER)
+                .withDescription("Number of threads applying the transactions to the streams in parallel. "
+                        + "0 means that the transactions are applied by the thread receiving them from the master. "
+                        + "By default the minimum between the number of streams and the number of processors.");
+        spec.addOption("maxPendingTx", OptionType.INTEGER).withDefault(10000)
+                .withDescription("Maximum number of transactions received and not yet applied. "
+                        + "When exceeded, the reading from the master is suspended.");
         return spec;
     }
 
@@ -133,11 +164,20 @@ public class ReplicationSlave extends AbstractYamcsService {
                     () -> new SlaveChannelHandler(this));
             tcpClient.start();
         }
+        if (applyStage.isParallel()) {
+            // the transactions are applied by the worker threads; save the watermark periodically
+            lastTxFileFuture = YamcsServer.getServer().getThreadPoolExecutor().scheduleWithFixedDelay(
+                    () -> updateLastTxFile(), LAST_TX_FILE_UPDATE_MILLIS, LAST_TX_FILE_UPDATE_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
         notifyStarted();
     }
 
     @Override
     protected void doStop() {
+        if (lastTxFileFuture != null) {
+            lastTxFileFuture.cancel(false);
+        }
         if (tcpClient != null) {
             tcpClient.stop();
         }
@@ -154,6 +194,14 @@ public class ReplicationSlave extends AbstractYamcsService {
             slaveChannelHandler = null;
         }
 
+        try {
+            if (!applyStage.shutdown(10, TimeUnit.SECONDS)) {
+                log.warn("Timeout waiting for the pending transactions to be applied");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        updateLastTxFile();
         try {
             lastTxFile.close();
         } catch (IOException e) {
@@ -172,10 +220,19 @@ public class ReplicationSlave extends AbstractYamcsService {
         notifyFailed(new Exception(errMsg));
     }
 
-    private void updateLastTxFile() {
+    /**
+     * Saves the id of the last transaction applied; the transactions received but still pending in the apply stage
+     * are not considered, they will be requested again from the master if the slave is restarted.
+     */
+    private synchronized void updateLastTxFile() {
+        long txId = applyStage.getAppliedTxId();
+        if (txId == lastTxFileValue) {
+            return;
+        }
         try {
             lastTxFile.seek(0);
-            lastTxFile.writeBytes(Long.toString(lastTxId) + "\n");
+            lastTxFile.writeBytes(Long.toString(txId) + "\n");
+            lastTxFileValue = txId;
         } catch (IOException e) {
             log.warn("Failed to update the last tx file " + txtfilePath, e);
         }
@@ -221,6 +278,62 @@ public class ReplicationSlave extends AbstractYamcsService {
         return lastTxId;
     }
 
+    /**
+     * 
+     * @return the id of the last transaction such that all the transactions up to and including it have been applied
+     */
+    public long getAppliedTxId() {
+        return applyStage.getAppliedTxId();
+    }
+
+    /**
+     * 
+     * @return the number of transactions received from the master and not yet applied
+     */
+    public int getPendingTxCount() {
+        return applyStage.getPendingCount();
+    }
+
+    /**
+     * 
+     * @return the number of transactions applied per second
+     */
+    public double getApplyTxRate() {
+        return applyStage.getTxRate();
+    }
+
+    /**
+     * 
+     * @return the number of bytes applied per second
+     */
+    public double getApplyDataRate() {
+        return applyStage.getDataRate();
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * 
+     * @return the ratio between the uncompressed and compressed size of the data received in compressed batches or 0
+     *         if no such data has been received
+     */
+    public double getCompressionRatio() {
+        long cb = compressedBytes;
+        return cb == 0 ? 0 : (double) uncompressedBytes / cb;
+    }
+
+    /**
+     * 
+     * @return the number of transactions the slave is behind the master according to the last compressed batch
+     *         received, or -1 if not known
+     */
+    public long getTxLag() {
+        long mtx = masterTxId;
+        return mtx < 0 ? -1 : Math.max(0, mtx - 1 - lastTxId);
+    }
+
     /**
      * Called when the tcpRole = Server and a new client connects to {@link ReplicationServer}
      * 
@@ -239,6 +352,10 @@ public class ReplicationSlave extends AbstractYamcsService {
         ReplicationSlave replSlave;
         private ChannelHandlerContext channelHandlerContext;
         Map<Integer, ByteBufToStream> streamWriters = new HashMap<>();
+        final Inflater inflater = new Inflater();
+        // while processing a batch the messages are backed by the decompressed buffer (no copy is necessary before
+        // passing them to the apply stage) and the last tx file is updated only at the end
+        boolean inBatch = false;
 
         public SlaveChannelHandler(ReplicationSlave slave) {
             this.replSlave = slave;
@@ -270,7 +387,59 @@ public class ReplicationSlave extends AbstractYamcsService {
                 ctx.close();
                 return;
             }
+            if (msg.type == Message.COMPRESSED_BATCH) {
+                processBatch(ctx, (BatchMessage) msg);
+            } else {
+                processMessage(msg);
+            }
+        }
+
+        private void processBatch(ChannelHandlerContext ctx, BatchMessage bmsg) {
+            int compressedSize = bmsg.buf.remaining();
+            ByteBuffer data;
+            try {
+                data = bmsg.decompress(inflater);
+            } catch (DecodingException e) {
+                log.warn("TX{} Failed to decompress batch; closing connection", lastTxId, e);
+                ctx.close();
+                return;
+            }
+            compressedBytes += compressedSize;
+            uncompressedBytes += data.remaining();
+            masterTxId = bmsg.masterTxId;
+
+            inBatch = true;
+            try {
+                while (data.hasRemaining()) {
+                    int msgSize = (data.getInt(data.position()) & 0xFFFFFF) + 4;
+                    if (msgSize > data.remaining()) {
+                        throw new DecodingException("truncated message in batch");
+                    }
+                    ByteBuffer mbuf = data.slice();
+                    mbuf.limit(msgSize);
+                    data.position(data.position() + msgSize);
+                    Message msg = Message.decode(mbuf);
+                    if (msg.type != Message.DATA && msg.type != Message.STREAM_INFO) {
+                        failService("Unexpected message type " + msg.type + " received in a batch");
+                        return;
+                    }
+                    processMessage(msg);
+                    if (state() != State.RUNNING) {
+                        return;
+                    }
+                }
+            } catch (DecodingException e) {
+                log.warn("TX{} Failed to decode message from batch; closing connection", lastTxId, e);
+                ctx.close();
+            } finally {
+                inBatch = false;
+                if (!applyStage.isParallel()) {
+                    updateLastTxFile();
+                }
+            }
+        }
 
+        private void processMessage(Message msg) {
             if (msg.type == Message.DATA) {
                 TransactionMessage tmsg = (TransactionMessage) msg;
 
@@ -284,11 +453,13 @@ public class ReplicationSlave extends AbstractYamcsService {
 
                 if (tmsg.instanceId == localInstanceId) {
                     log.trace("Skipping data originating from myself (serverId: {})", tmsg.instanceId);
+                    applyStage.skip(tmsg.txId);
                     return;
                 }
                 ByteBufToStream bbs = streamWriters.get(streamId);
                 if (bbs == null) {
                     log.trace("Skipping data for unknown stream {}", streamId);
+                    applyStage.skip(tmsg.txId);
                     return;
                 }
                 if (log.isTraceEnabled()) {
@@ -296,12 +467,27 @@ public class ReplicationSlave extends AbstractYamcsService {
                             tmsg.buf.remaining());
                 }
 
-                bbs.processData(tmsg.txId, tmsg.buf);
+                ByteBuffer data = tmsg.buf;
+                if (applyStage.isParallel() && !inBatch) {
+                    // the message is backed by the netty buffer which is released after this method returns
+                    data = ByteBuffer.allocate(tmsg.buf.remaining());
+                    data.put(tmsg.buf);
+                    data.flip();
+                }
+                long txId = tmsg.txId;
+                ByteBuffer data1 = data;
+                if (applyStage.submit(bbs.stream, txId, data.remaining(), () -> bbs.processData(txId, data1))) {
+                    pauseReading();
+                }
+                if (!applyStage.isParallel() && !inBatch) {
+                    updateLastTxFile();
+                }
             } else if (msg.type == Message.STREAM_INFO) {
                 TransactionMessage tmsg = (TransactionMessage) msg;
                 if (tmsg.txId > lastTxId) { // we expect to receive previous stream info transactions
                     checkMissing(tmsg);
                 }
+                applyStage.skip(tmsg.txId);
 
                 StreamInfo streamInfo = (StreamInfo) msg.protoMsg;
                 if (!streamInfo.hasName() || !streamInfo.hasId()) {
@@ -336,6 +522,23 @@ public class ReplicationSlave extends AbstractYamcsService {
             }
         }
 
+        /**
+         * Stops reading from the master until the apply stage has worked off half of its pending transactions
+         */
+        private void pauseReading() {
+            ChannelConfig channelConfig = channelHandlerContext.channel().config();
+            if (!channelConfig.isAutoRead()) {
+                return;
+            }
+            log.debug("{} transactions pending to be applied, suspending the reading from the master",
+                    applyStage.getPendingCount());
+            channelConfig.setAutoRead(false);
+            applyStage.onDrain(() -> {
+                log.debug("Resuming the reading from the master");
+                channelConfig.setAutoRead(true);
+            });
+        }
+
         private void checkMissing(TransactionMessage tmsg) {
             if (tmsg.txId != lastTxId + 1) {
                 log.warn("Transactions {} to {} are missing", lastTxId + 1, tmsg.txId - 1);
@@ -366,6 +569,10 @@ public class ReplicationSlave extends AbstractYamcsService {
             if (lastTxId >= 0) {
                 reqb.setStartTxId(lastTxId + 1);
             }
+            if (compression != Compression.NONE) {
+                reqb.setCompression(compression.name());
+                reqb.setMaxMessageSize(tcpRole == TcpRole.CLIENT ? maxTupleSize : ReplicationServer.MAX_FRAME_SIZE);
+            }
             Request req = reqb.build();
             log.debug("Connection {} opened, sending request {}", channelHandlerContext.channel().remoteAddress(),
                     TextFormat.shortDebugString(req));
@@ -391,6 +598,7 @@ public class ReplicationSlave extends AbstractYamcsService {
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             log.debug("Connection {} closed", ctx.channel().remoteAddress());
             super.channelInactive(ctx);
+            inflater.end();
             slaveChannelHandler = null;
         }
 
@@ -454,7 +662,6 @@ public class ReplicationSlave extends AbstractYamcsService {
                     }
                     Tuple t = new Tuple(tdef, cols);
                     stream.emitTuple(t);
-                    updateLastTxFile();
 
                 } catch (Exception e) {
                     log.warn("Cannot deserialize data for stream {}", stream.getName(), e);
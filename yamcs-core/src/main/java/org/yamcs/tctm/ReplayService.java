@@ -1,9 +1,13 @@
 package org.yamcs.tctm;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.yamcs.AbstractProcessorService;
@@ -17,11 +21,12 @@ import org.yamcs.TmProcessor;
 import org.yamcs.YConfiguration;
 import org.yamcs.YamcsException;
 import org.yamcs.YamcsServer;
+import org.yamcs.archive.ParameterArchiveReplay;
+import org.yamcs.archive.Replay;
 import org.yamcs.archive.ReplayListener;
 import org.yamcs.archive.ReplayOptions;
 import org.yamcs.archive.ReplayServer;
 import org.yamcs.archive.XtceTmReplayHandler.ReplayPacket;
-import org.yamcs.archive.YarchReplay;
 import org.yamcs.cmdhistory.CommandHistoryProvider;
 import org.yamcs.cmdhistory.CommandHistoryRequestManager;
 import org.yamcs.commanding.PreparedCommand;
@@ -30,6 +35,9 @@ import org.yamcs.parameter.ParameterProvider;
 import org.yamcs.parameter.ParameterProcessorManager;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameter.ParameterWithIdRequestHelper;
+import org.yamcs.parameterarchive.ParameterArchive;
+import org.yamcs.parameterarchive.ParameterId;
+import org.yamcs.parameterarchive.ParameterIdDb;
 import org.yamcs.protobuf.Commanding.CommandHistoryEntry;
 import org.yamcs.protobuf.Yamcs.CommandHistoryReplayRequest;
 import org.yamcs.protobuf.Yamcs.EndAction;
@@ -76,7 +84,7 @@ public class ReplayService extends AbstractProcessorService
     XtceDb xtceDb;
     volatile long replayTime;
 
-    YarchReplay yarchReplay;
+    Replay replay;
     // the originalReplayRequest contains possibly only parameters.
     // the modified one sent to the ReplayServer contains the raw data required for extracting/processing those
     // parameters
@@ -88,6 +96,9 @@ public class ReplayService extends AbstractProcessorService
     // this can be set in the config (in processor.yaml) to exclude certain parameter groups from replay
     List<String> excludeParameterGroups = null;
 
+    // if true, the parameter only replays are served from the parameter archive if possible
+    boolean useParameterArchive;
+
     @Override
     public void init(Processor proc, YConfiguration args, Object spec) {
         super.init(proc, args, spec);
@@ -99,6 +110,7 @@ public class ReplayService extends AbstractProcessorService
         if (args.containsKey("excludeParameterGroups")) {
             excludeParameterGroups = args.getList("excludeParameterGroups");
         }
+        useParameterArchive = args.getBoolean("useParameterArchive", false);
         this.tmProcessor = proc.getTmProcessor();
         parameterProcessorManager = proc.getParameterProcessorManager();
         proc.setPacketProvider(this);
@@ -195,8 +207,8 @@ public class ReplayService extends AbstractProcessorService
 
     @Override
     public void doStop() {
-        if (yarchReplay != null) {
-            yarchReplay.quit();
+        if (replay != null) {
+            replay.quit();
         }
         notifyStopped();
     }
@@ -303,41 +315,82 @@ public class ReplayService extends AbstractProcessorService
         }
         try {
             ReplayServer replayServer = services.get(0);
-            yarchReplay = replayServer.createReplay(rawDataRequest, this);
+            replay = replayServer.createReplay(rawDataRequest, this);
         } catch (YamcsException e) {
             log.error("Exception creating the replay", e);
             throw new ProcessorException("Exception creating the replay: " + e.getMessage(), e);
         }
     }
 
+    // Creates a replay of the parameter archive data if the original request contains only parameters and all of them
+    // can be found in the parameter archive. Returns null otherwise.
+    private Replay createParameterArchiveReplay() throws YamcsException {
+        ReplayOptions req = originalReplayRequest;
+        if (!req.hasParameterRequest() || req.isReplayAllParameters() || req.hasPacketRequest()
+                || req.hasPpRequest() || req.hasEventRequest() || req.hasCommandHistoryRequest()) {
+            return null;
+        }
+        List<ParameterArchive> l = YamcsServer.getServer().getServices(getYamcsInstance(), ParameterArchive.class);
+        if (l.isEmpty()) {
+            log.debug("ParameterArchive not configured for this instance, replaying the raw data");
+            return null;
+        }
+        ParameterArchive parchive = l.get(0);
+        ParameterIdDb piddb = parchive.getParameterIdDb();
+
+        List<ParameterId> pids = new ArrayList<>();
+        Map<String, Parameter> parameters = new HashMap<>();
+        for (NamedObjectId id : req.getParameterRequest().getNameFilterList()) {
+            Parameter p = xtceDb.getParameter(id);
+            if (p == null) {
+                return null;
+            }
+            ParameterId[] a = piddb.get(p.getQualifiedName());
+            if (a == null) {
+                log.debug("Parameter {} not found in the parameter archive, replaying the raw data",
+                        p.getQualifiedName());
+                return null;
+            }
+            pids.addAll(Arrays.asList(a));
+            parameters.put(p.getQualifiedName(), p);
+        }
+        log.debug("Replaying {} parameters from the parameter archive", parameters.size());
+        return new ParameterArchiveReplay(parchive, req, pids.toArray(new ParameterId[0]), parameters, this);
+    }
+
     @Override
     public void doStart() {
         try {
-            createRawSubscription();
-            createReplay();
+            if (useParameterArchive) {
+                replay = createParameterArchiveReplay();
+            }
+            if (replay == null) {
+                createRawSubscription();
+                createReplay();
+            }
         } catch (YamcsException e) {
             notifyFailed(e);
             return;
         }
 
-        yarchReplay.start();
+        replay.start();
         notifyStarted();
     }
 
     @Override
     public void pause() {
-        yarchReplay.pause();
+        replay.pause();
     }
 
     @Override
     public void resume() {
-        yarchReplay.start();
+        replay.start();
     }
 
     @Override
     public void seek(long time) {
         try {
-            yarchReplay.seek(time);
+            replay.seek(time);
         } catch (YamcsException e) {
             throw new RuntimeException(e);
         }
@@ -420,7 +473,7 @@ public class ReplayService extends AbstractProcessorService
         } else if (state() == State.FAILED) {
             return ReplayState.ERROR;
         } else {
-            return yarchReplay.getState();
+            return replay.getState();
         }
     }
 
@@ -431,7 +484,7 @@ public class ReplayService extends AbstractProcessorService
 
     @Override
     public void changeSpeed(ReplaySpeed speed) {
-        yarchReplay.changeSpeed(speed);
+        replay.changeSpeed(speed);
         // need to change the replay request to get the proper value when getReplayRequest() is called
         originalReplayRequest.setSpeed(speed);
     }
@@ -1,18 +1,22 @@
 package org.yamcs.timeline;
 
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.rocksdb.RocksDBException;
 import org.yamcs.InitException;
 import org.yamcs.http.api.SqlBuilder;
 import org.yamcs.logging.Log;
 import org.yamcs.protobuf.TimelineSourceCapabilities;
+import org.yamcs.timeline.TimelineItemIndex.ItemKey;
 import org.yamcs.utils.DatabaseCorruptionException;
 import org.yamcs.utils.InvalidRequestException;
 import org.yamcs.utils.TimeInterval;
@@ -24,10 +28,11 @@ import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
-import org.yamcs.yarch.streamsql.ResultListener;
+import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.rocksdb.RdbTable;
 import org.yamcs.yarch.streamsql.StreamSqlException;
 import org.yamcs.yarch.streamsql.StreamSqlResult;
-import org.yamcs.yarch.streamsql.StreamSqlStatement;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -37,6 +42,7 @@ import com.google.common.util.concurrent.UncheckedExecutionException;
 public class TimelineItemDb implements ItemProvider {
     static final Random random = new Random();
     public static final TupleDefinition TIMELINE_DEF = new TupleDefinition();
+    static final TupleDefinition KEY_DEF = new TupleDefinition();
     public static final String CNAME_START = "start";
     public static final String CNAME_DURATION = "duration";
     public static final String CNAME_ID = "uuid";
@@ -57,6 +63,9 @@ public class TimelineItemDb implements ItemProvider {
         TIMELINE_DEF.addColumn(CNAME_GROUP_ID, DataType.UUID);
         TIMELINE_DEF.addColumn(CNAME_RELTIME_ID, DataType.UUID);
         TIMELINE_DEF.addColumn(CNAME_RELTIME_START, DataType.LONG);
+
+        KEY_DEF.addColumn(CNAME_START, DataType.TIMESTAMP);
+        KEY_DEF.addColumn(CNAME_ID, DataType.UUID);
     }
     final Log log;
     final private ReadWriteLock rwlock = new ReentrantReadWriteLock();
@@ -64,6 +73,10 @@ public class TimelineItemDb implements ItemProvider {
 
     final YarchDatabaseInstance ydb;
     final Stream timelineStream;
+    final TimelineItemIndex index;
+    final RdbTable table;
+    // true if the index has been modified since it has been marked as built
+    private boolean indexModified = false;
 
     LoadingCache<UUID, TimelineItem> itemCache = CacheBuilder.newBuilder()
             .maximumSize(1000)
@@ -82,7 +95,10 @@ public class TimelineItemDb implements ItemProvider {
         ydb = YarchDatabase.getInstance(yamcsInstance);
         try {
             timelineStream = setupTimelineRecording();
-        } catch (ParseException | StreamSqlException e) {
+            table = RdbStorageEngine.getInstance().getTablespace(ydb).getTable(ydb.getTable(TABLE_NAME));
+            index = new TimelineItemIndex(ydb);
+            buildIndex();
+        } catch (ParseException | StreamSqlException | RocksDBException e) {
             throw new InitException(e);
         }
 
@@ -102,6 +118,58 @@ public class TimelineItemDb implements ItemProvider {
         return ydb.getStream(streamName);
     }
 
+    // builds the index from the table if it has not been built before (e.g. created with an old version of Yamcs) or
+    // if it has not been closed properly
+    private void buildIndex() throws RocksDBException {
+        if (index.isBuilt()) {
+            return;
+        }
+        log.info("Building the timeline item index");
+        index.clear();
+        StreamSqlResult r = ydb.executeUnchecked("select * from " + TABLE_NAME);
+        int count = 0;
+        try {
+            while (r.hasNext()) {
+                index.add(TimelineItem.fromTuple(r.next()));
+                count++;
+            }
+        } finally {
+            r.close();
+        }
+        index.setBuilt();
+        log.info("Indexed {} timeline items", count);
+    }
+
+    /**
+     * Marks the index as consistent with the table such that it is not rebuilt at the next start.
+     */
+    public void close() {
+        rwlock.writeLock().lock();
+        try {
+            if (indexModified) {
+                index.setBuilt();
+                indexModified = false;
+            }
+        } catch (RocksDBException e) {
+            log.error("Failed to mark the timeline item index as built", e);
+        } finally {
+            rwlock.writeLock().unlock();
+        }
+    }
+
+    // called under the write lock before modifying the table and the index
+    private void beforeModification() {
+        if (indexModified) {
+            return;
+        }
+        try {
+            index.setModifying();
+        } catch (RocksDBException e) {
+            throw new YarchException(e);
+        }
+        indexModified = true;
+    }
+
     @Override
     public TimelineItem addItem(TimelineItem item) {
         rwlock.writeLock().lock();
@@ -132,7 +200,9 @@ public class TimelineItemDb implements ItemProvider {
             }
             Tuple tuple = item.toTuple();
             log.debug("Adding timeline item to RDB: {}", tuple);
+            beforeModification();
             timelineStream.emitTuple(tuple);
+            index.add(item);
             return item;
         } finally {
             rwlock.writeLock().unlock();
@@ -171,11 +241,13 @@ public class TimelineItemDb implements ItemProvider {
                 }
                 verifyGroupCircularity(itemId, groupItem);
             }
+            beforeModification();
             doDeleteItem(itemId);
 
             Tuple tuple = item.toTuple();
             log.debug("Updating timeline item in RDB: {}", tuple);
             timelineStream.emitTuple(tuple);
+            index.add(item);
 
             updateDependentStart(item);
             return item;
@@ -186,10 +258,26 @@ public class TimelineItemDb implements ItemProvider {
 
     // update the start time of all items having their time specified as relative to this
     private void updateDependentStart(TimelineItem item) {
+        List<Tuple> dependents = new ArrayList<>();
+        StreamSqlResult r0 = ydb.executeUnchecked("select * from " + TABLE_NAME + " where " + CNAME_RELTIME_ID
+                + " = ?", item.getId());
+        while (r0.hasNext()) {
+            dependents.add(r0.next());
+        }
+        r0.close();
+
         String query = "update " + TABLE_NAME + " set start = " + CNAME_RELTIME_START + " + ? where "
                 + CNAME_RELTIME_ID + " = ?";
         StreamSqlResult r = ydb.executeUnchecked(query, item.getStart(), item.getId());
         r.close();
+
+        for (Tuple tuple : dependents) {
+            TimelineItem dep = TimelineItem.fromTuple(tuple);
+            itemCache.invalidate(UUID.fromString(dep.getId()));
+            index.remove(dep);
+            dep.setStart(item.getStart() + tuple.getLongColumn(CNAME_RELTIME_START));
+            index.add(dep);
+        }
     }
 
     private void verifyRelTimeCircularity(UUID uuid, TimelineItem relItem) {
@@ -314,64 +402,114 @@ public class TimelineItemDb implements ItemProvider {
     }
 
     private void doDeleteItem(UUID uuid) {
+        // the index entries are removed based on the stored row; the cached item may have been modified by the caller
+        TimelineItem item;
+        try {
+            item = doGetItem(uuid);
+        } catch (NoSuchItemException e) {
+            item = null;
+        }
         itemCache.invalidate(uuid);
+        beforeModification();
         StreamSqlResult r = ydb.executeUnchecked("delete from " + TABLE_NAME + " where uuid = ?", uuid);
         r.close();
+        if (item != null) {
+            index.remove(item);
+        }
     }
 
+    /**
+     * The items overlapping the requested interval are retrieved in two parts: the items starting before the interval
+     * are found with the help of the index, the items starting inside the interval are read with a range scan of the
+     * table (or found in the tag index if the tags are specified).
+     */
     @Override
     public void getItems(int limit, String token, ItemFilter filter, ItemListener consumer) {
         rwlock.readLock().lock();
         try {
-            SqlBuilder sqlBuilder = new SqlBuilder(TABLE_NAME);
-            sqlBuilder.select("*");
-
             TimeInterval interval = filter.getTimeInterval();
-            if (interval.hasEnd()) {
-                sqlBuilder.where("start < ?", interval.getEnd());
-            }
-            if (interval.hasStart()) {
-                sqlBuilder.where("start+duration > ?", interval.getStart());
-            }
-            if (filter.getTags() != null && !filter.getTags().isEmpty()) {
-                sqlBuilder.where(" tags && ?", filter.getTags());
-            }
-            sqlBuilder.limit(limit + 1);
-
-            StreamSqlStatement stmt = ydb.createStatement(sqlBuilder.toString(),
-                    sqlBuilder.getQueryArguments().toArray());
-            ydb.execute(stmt, new ResultListener() {
-                int count = 0;
+            List<String> tags = filter.getTags();
+            boolean hasTags = tags != null && !tags.isEmpty();
+            List<TimelineItem> items = new ArrayList<>();
 
-                @Override
-                public void next(Tuple tuple) {
-                    if (count < limit) {
-                        consumer.next(TimelineItem.fromTuple(tuple));
+            if (interval.hasStart()) {
+                List<ItemKey> keys = new ArrayList<>();
+                for (ItemKey key : index.getOverlapping(interval.getStart())) {
+                    if (interval.hasEnd() && key.getStart() >= interval.getEnd()) {
+                        break;
                     }
-                    count++;
+                    keys.add(key);
                 }
-
-                @Override
-                public void completeExceptionally(Throwable t) {
-                    consumer.completeExceptionally(t);
+                // the items are filtered by tags after being read so they are read one page at a time
+                for (int i = 0; i < keys.size() && items.size() <= limit; i += limit + 1) {
+                    for (TimelineItem item : getItems(keys.subList(i, Math.min(keys.size(), i + limit + 1)))) {
+                        if (items.size() <= limit && (!hasTags || hasAnyTag(item, tags))) {
+                            items.add(item);
+                        }
+                    }
                 }
+            }
 
-                @Override
-                public void complete() {
-                    if (count == limit) {
-                        consumer.complete(getRandomToken());
-                    } else {
-                        consumer.complete(null);
+            int n = limit + 1 - items.size();
+            if (n > 0 && hasTags) {
+                long start = interval.hasStart() ? interval.getStart() : Long.MIN_VALUE;
+                long stop = interval.hasEnd() ? interval.getEnd() : Long.MAX_VALUE;
+                items.addAll(getItems(index.getByTags(tags, start, stop, n)));
+            } else if (n > 0) {
+                SqlBuilder sqlBuilder = new SqlBuilder(TABLE_NAME);
+                sqlBuilder.select("*");
+                if (interval.hasEnd()) {
+                    sqlBuilder.where("start < ?", interval.getEnd());
+                }
+                if (interval.hasStart()) {
+                    sqlBuilder.where("start >= ?", interval.getStart());
+                    sqlBuilder.where("start+duration > ?", interval.getStart());
+                }
+                sqlBuilder.limit(n);
+                StreamSqlResult r = ydb.executeUnchecked(sqlBuilder.toString(),
+                        sqlBuilder.getQueryArguments().toArray());
+                try {
+                    while (r.hasNext()) {
+                        items.add(TimelineItem.fromTuple(r.next()));
                     }
+                } finally {
+                    r.close();
                 }
-            });
+            }
 
-        } catch (StreamSqlException | ParseException e) {
-            log.error("Exception when executing query", e);
+            for (int i = 0; i < items.size() && i < limit; i++) {
+                consumer.next(items.get(i));
+            }
+            if (items.size() == limit) {
+                consumer.complete(getRandomToken());
+            } else {
+                consumer.complete(null);
+            }
+        } catch (Exception e) {
+            log.error("Exception when retrieving timeline items", e);
+            consumer.completeExceptionally(e);
         } finally {
             rwlock.readLock().unlock();
         }
+    }
+
+    private static boolean hasAnyTag(TimelineItem item, List<String> tags) {
+        return item.getTags() != null && !Collections.disjoint(item.getTags(), tags);
+    }
 
+    // reads the items by primary key directly from the table; the items removed meanwhile are skipped
+    private List<TimelineItem> getItems(List<ItemKey> keys) throws RocksDBException {
+        List<Tuple> keyTuples = new ArrayList<>(keys.size());
+        for (ItemKey key : keys) {
+            keyTuples.add(new Tuple(KEY_DEF, new Object[] { key.getStart(), key.getUuid() }));
+        }
+        List<TimelineItem> items = new ArrayList<>(keys.size());
+        for (Tuple tuple : table.getRows(keyTuples)) {
+            if (tuple != null) {
+                items.add(TimelineItem.fromTuple(tuple));
+            }
+        }
+        return items;
     }
 
     private static String getRandomToken() {
@@ -0,0 +1,330 @@
+package org.yamcs.timeline;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.rocksdb.Tablespace;
+import org.yamcs.yarch.rocksdb.YRDB;
+
+/**
+ * Secondary indexes of the timeline items, used to answer the overlap queries without scanning the timeline table.
+ * <p>
+ * The timeline table is sorted by start; the items starting inside a time window can be retrieved by a range scan
+ * but the items starting before the window and overlapping it cannot. To find them, the index keeps for each time
+ * bucket (of {@link #BUCKET_SIZE} milliseconds) the items overlapping the bucket:
+ * <ul>
+ * <li>key: 0x01 + 8 bytes bucket + 8 bytes start + 16 bytes uuid</li>
+ * <li>value: 8 bytes end (start+duration)</li>
+ * </ul>
+ * The items matching a tag are indexed by:
+ * <ul>
+ * <li>key: 0x02 + tag (UTF-8) + 0x00 + 8 bytes start + 16 bytes uuid</li>
+ * <li>value: 8 bytes end (start+duration)</li>
+ * </ul>
+ * The longs are stored big endian with the sign bit flipped such that the keys are sorted by time.
+ * <p>
+ * The records are stored in a dedicated column family of the instance tablespace. A version record (key 0x00)
+ * indicates that the index is consistent with the timeline table; if it is missing, the index is rebuilt from the
+ * table.
+ * <p>
+ * The index records are not written in the same batch as the table rows, so a crash in between the two writes would
+ * leave them out of sync. To detect that, the version record is removed before the first modification and written
+ * back when the index is closed; after an unclean shutdown the index is thus rebuilt at the next start.
+ */
+public class TimelineItemIndex {
+    public static final String CF_NAME_PREFIX = "timeline_index.";
+    static final long BUCKET_SIZE = 24 * 3600_000L;
+    static final int VERSION = 1;
+
+    static final byte TYPE_VERSION = 0;
+    static final byte TYPE_BUCKET = 1;
+    static final byte TYPE_TAG = 2;
+
+    static final byte[] VERSION_KEY = new byte[] { TYPE_VERSION };
+
+    final Tablespace tablespace;
+    final String cfName;
+
+    public TimelineItemIndex(YarchDatabaseInstance ydb) {
+        this.tablespace = RdbStorageEngine.getInstance().getTablespace(ydb);
+        this.cfName = CF_NAME_PREFIX + ydb.getYamcsInstance();
+    }
+
+    /**
+     * @return true if the index has been built (i.e. all the items in the table are supposed to be indexed)
+     */
+    public boolean isBuilt() throws RocksDBException {
+        YRDB rdb = tablespace.getRdb();
+        ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+        return cfh != null && rdb.get(cfh, VERSION_KEY) != null;
+    }
+
+    /**
+     * Marks the index as built
+     */
+    public void setBuilt() throws RocksDBException {
+        YRDB rdb = tablespace.getRdb();
+        rdb.put(getOrCreateCfh(rdb), VERSION_KEY, ByteArrayUtils.encodeInt(VERSION));
+    }
+
+    /**
+     * Removes the built mark; to be called before the index is modified.
+     */
+    public void setModifying() throws RocksDBException {
+        YRDB rdb = tablespace.getRdb();
+        rdb.getDb().delete(getOrCreateCfh(rdb), VERSION_KEY);
+    }
+
+    /**
+     * Removes all the records from the index
+     */
+    public void clear() throws RocksDBException {
+        YRDB rdb = tablespace.getRdb();
+        synchronized (rdb) {
+            ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+            if (cfh != null) {
+                rdb.dropColumnFamily(cfh);
+            }
+        }
+    }
+
+    public void add(TimelineItem item) {
+        write(item, true);
+    }
+
+    public void remove(TimelineItem item) {
+        write(item, false);
+    }
+
+    private void write(TimelineItem item, boolean add) {
+        UUID uuid = UUID.fromString(item.getId());
+        long start = item.getStart();
+        long end = getEnd(item);
+        byte[] value = ByteArrayUtils.encodeLong(end);
+        try {
+            YRDB rdb = tablespace.getRdb();
+            ColumnFamilyHandle cfh = getOrCreateCfh(rdb);
+            try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions()) {
+                long lastBucket = toBucket(end > start ? end - 1 : start);
+                for (long bucket = toBucket(start); bucket <= lastBucket; bucket++) {
+                    byte[] key = bucketKey(bucket, start, uuid);
+                    if (add) {
+                        writeBatch.put(cfh, key, value);
+                    } else {
+                        writeBatch.delete(cfh, key);
+                    }
+                }
+                if (item.getTags() != null) {
+                    for (String tag : item.getTags()) {
+                        byte[] key = tagKey(tag, start, uuid);
+                        if (add) {
+                            writeBatch.put(cfh, key, value);
+                        } else {
+                            writeBatch.delete(cfh, key);
+                        }
+                    }
+                }
+                rdb.getDb().write(wo, writeBatch);
+            }
+        } catch (RocksDBException e) {
+            throw new YarchException(e);
+        }
+    }
+
+    /**
+     * Returns the items overlapping the instant t (i.e. start &lt; t &lt; start+duration) sorted by start.
+     */
+    public List<ItemKey> getOverlapping(long t) throws RocksDBException {
+        List<ItemKey> result = new ArrayList<>();
+        YRDB rdb = tablespace.getRdb();
+        ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+        if (cfh == null) {
+            return result;
+        }
+        byte[] prefix = ByteBuffer.allocate(9).put(TYPE_BUCKET).putLong(toBucket(t) ^ Long.MIN_VALUE).array();
+        try (RocksIterator it = rdb.newIterator(cfh)) {
+            for (it.seek(prefix); it.isValid(); it.next()) {
+                byte[] key = it.key();
+                if (!ByteArrayUtils.startsWith(key, prefix)) {
+                    break;
+                }
+                ItemKey ik = decodeItemKey(key, 9, it.value());
+                if (ik.start >= t) {
+                    break;
+                }
+                if (ik.end > t) {
+                    result.add(ik);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the items having at least one of the given tags, the start in the interval [start, stop) and the end
+     * after start, sorted by start.
+     *
+     * @param limit
+     *            maximum number of items returned
+     */
+    public List<ItemKey> getByTags(Collection<String> tags, long start, long stop, int limit)
+            throws RocksDBException {
+        TreeSet<ItemKey> result = new TreeSet<>();
+        YRDB rdb = tablespace.getRdb();
+        ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+        if (cfh == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        for (String tag : tags) {
+            byte[] prefix = tagPrefix(tag);
+            int count = 0;
+            try (RocksIterator it = rdb.newIterator(cfh)) {
+                for (it.seek(tagKey(prefix, start)); it.isValid() && count < limit; it.next()) {
+                    byte[] key = it.key();
+                    if (!ByteArrayUtils.startsWith(key, prefix)) {
+                        break;
+                    }
+                    ItemKey ik = decodeItemKey(key, prefix.length, it.value());
+                    if (ik.start >= stop) {
+                        break;
+                    }
+                    if (ik.end <= start) {
+                        continue;
+                    }
+                    // the result contains the first limit items of each tag, so it contains the first limit items
+                    // of their union
+                    result.add(ik);
+                    count++;
+                }
+            }
+        }
+        List<ItemKey> l = new ArrayList<>(Math.min(limit, result.size()));
+        Iterator<ItemKey> it = result.iterator();
+        while (it.hasNext() && l.size() < limit) {
+            l.add(it.next());
+        }
+        return l;
+    }
+
+    private ColumnFamilyHandle getOrCreateCfh(YRDB rdb) throws RocksDBException {
+        synchronized (rdb) {
+            ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+            if (cfh == null) {
+                cfh = rdb.createColumnFamily(cfName);
+            }
+            return cfh;
+        }
+    }
+
+    static long getEnd(TimelineItem item) {
+        long end = item.getStart() + item.getDuration();
+        // overflow
+        return end < item.getStart() ? Long.MAX_VALUE : end;
+    }
+
+    static long toBucket(long t) {
+        return Math.floorDiv(t, BUCKET_SIZE);
+    }
+
+    static byte[] bucketKey(long bucket, long start, UUID uuid) {
+        return ByteBuffer.allocate(41).put(TYPE_BUCKET).putLong(bucket ^ Long.MIN_VALUE)
+                .putLong(start ^ Long.MIN_VALUE)
+                .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    static byte[] tagPrefix(String tag) {
+        byte[] t = tag.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(t.length + 2).put(TYPE_TAG).put(t).put((byte) 0).array();
+    }
+
+    static byte[] tagKey(String tag, long start, UUID uuid) {
+        byte[] prefix = tagPrefix(tag);
+        return ByteBuffer.allocate(prefix.length + 24).put(prefix).putLong(start ^ Long.MIN_VALUE)
+                .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    private static byte[] tagKey(byte[] prefix, long start) {
+        return ByteBuffer.allocate(prefix.length + 8).put(prefix).putLong(start ^ Long.MIN_VALUE).array();
+    }
+
+    static ItemKey decodeItemKey(byte[] key, int offset, byte[] value) {
+        ByteBuffer bb = ByteBuffer.wrap(key, offset, 24);
+        long start = bb.getLong() ^ Long.MIN_VALUE;
+        UUID uuid = new UUID(bb.getLong(), bb.getLong());
+        return new ItemKey(start, uuid, ByteArrayUtils.decodeLong(value, 0));
+    }
+
+    /**
+     * Primary key (start, uuid) of an item together with its end time
+     */
+    public static class ItemKey implements Comparable<ItemKey> {
+        final long start;
+        final UUID uuid;
+        final long end;
+
+        ItemKey(long start, UUID uuid, long end) {
+            this.start = start;
+            this.uuid = uuid;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        @Override
+        public int compareTo(ItemKey o) {
+            // same order as the keys in the database
+            int c = Long.compare(start, o.start);
+            if (c == 0) {
+                c = Long.compareUnsigned(uuid.getMostSignificantBits(), o.uuid.getMostSignificantBits());
+            }
+            if (c == 0) {
+                c = Long.compareUnsigned(uuid.getLeastSignificantBits(), o.uuid.getLeastSignificantBits());
+            }
+            return c;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ItemKey)) {
+                return false;
+            }
+            ItemKey other = (ItemKey) obj;
+            return start == other.start && uuid.equals(other.uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return uuid.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + start + ", " + uuid + ")";
+        }
+    }
+}
@@ -69,6 +69,7 @@ public class TimelineService extends AbstractYamcsService {
 
     @Override
     protected void doStop() {
+        ((TimelineItemDb) timelineSources.get(RDB_TIMELINE_SOURCE)).close();
         notifyStopped();
     }
 }
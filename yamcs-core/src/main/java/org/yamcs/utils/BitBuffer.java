@@ -55,10 +55,10 @@ import java.nio.ByteOrder;
  *
  */
 public class BitBuffer {
-    final byte[] b;
+    byte[] b;
     int position;
     ByteOrder byteOrder;
-    final int offset;
+    int offset;
 
     /**
      * Creates a new bit buffer that wraps array b starting at offset 0
@@ -77,6 +77,18 @@ public class BitBuffer {
         this.offset = offset;
     }
 
+    /**
+     * Makes this buffer wrap the array b starting at offset 0, as if it was newly created.
+     * <p>
+     * Allows reusing the same object for decoding multiple packets.
+     */
+    public void wrap(byte[] b) {
+        this.b = b;
+        this.position = 0;
+        this.byteOrder = ByteOrder.BIG_ENDIAN;
+        this.offset = 0;
+    }
+
     /**
      * reads numBits from the buffer and returns them into a long on the rightmost position.
      * 
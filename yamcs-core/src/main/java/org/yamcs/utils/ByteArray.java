@@ -225,6 +225,39 @@ public class ByteArray {
         return Double.longBitsToDouble(getLong());
     }
 
+    /**
+     * Advances the read position with n bytes
+     * 
+     * @param n
+     *            number of bytes to skip
+     */
+    public void skip(int n) {
+        rangeCheck(position + n);
+        position += n;
+    }
+
+    /**
+     * Advances the read position after the first 0 byte found starting from the current position.
+     * <p>
+     * Can be used to skip the strings written with {@link #addNullTerminatedUTF(String)}
+     */
+    public void skipNullTerminated() {
+        int i = position;
+        while (i < length && a[i] != 0) {
+            i++;
+        }
+        rangeCheck(i + 1);
+        position = i + 1;
+    }
+
+    /**
+     * Advances the read position after a size prefixed protobuf message written with
+     * {@link #addSizePrefixedProto(MessageLite)}
+     */
+    public void skipSizePrefixedProto() {
+        skip(getInt());
+    }
+
     public String getSizePrefixedUTF() throws DecodingException {
         int len = getShort() & 0xFFFF;
         return getUTF(position + len, false);
@@ -30,19 +30,50 @@ import org.yamcs.yarch.DataType;
 import com.google.protobuf.ByteString;
 
 public class ValueUtility {
+    // the integer values are immutable; the small ones (most of the flags, counters and statuses found in the
+    // telemetry) are cached to avoid allocating a new object for each extracted value
+    static final int CACHE_LOW = -128;
+    static final int CACHE_HIGH = 1023;
+    static final Value[] UINT32_CACHE = new Value[CACHE_HIGH + 1];
+    static final Value[] SINT32_CACHE = new Value[CACHE_HIGH - CACHE_LOW + 1];
+    static final Value[] UINT64_CACHE = new Value[CACHE_HIGH + 1];
+    static final Value[] SINT64_CACHE = new Value[CACHE_HIGH - CACHE_LOW + 1];
+    static {
+        for (int i = 0; i <= CACHE_HIGH; i++) {
+            UINT32_CACHE[i] = new UInt32Value(i);
+            UINT64_CACHE[i] = new UInt64Value(i);
+        }
+        for (int i = CACHE_LOW; i <= CACHE_HIGH; i++) {
+            SINT32_CACHE[i - CACHE_LOW] = new SInt32Value(i);
+            SINT64_CACHE[i - CACHE_LOW] = new SInt64Value(i);
+        }
+    }
+
     public static Value getUint32Value(int x) {
+        if (x >= 0 && x <= CACHE_HIGH) {
+            return UINT32_CACHE[x];
+        }
         return new UInt32Value(x);
     }
 
     public static Value getSint32Value(int x) {
+        if (x >= CACHE_LOW && x <= CACHE_HIGH) {
+            return SINT32_CACHE[x - CACHE_LOW];
+        }
         return new SInt32Value(x);
     }
 
     public static Value getUint64Value(long x) {
+        if (x >= 0 && x <= CACHE_HIGH) {
+            return UINT64_CACHE[(int) x];
+        }
         return new UInt64Value(x);
     }
 
     public static Value getSint64Value(long x) {
+        if (x >= CACHE_LOW && x <= CACHE_HIGH) {
+            return SINT64_CACHE[(int) x - CACHE_LOW];
+        }
         return new SInt64Value(x);
     }
 
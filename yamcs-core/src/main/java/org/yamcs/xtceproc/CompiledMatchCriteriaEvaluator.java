@@ -0,0 +1,141 @@
+package org.yamcs.xtceproc;
+
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.Value;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.xtce.ArgumentInstanceRef;
+import org.yamcs.xtce.ParameterInstanceRef;
+
+/**
+ * Base class for the match criteria evaluators generated by the {@link MdbCompiler}.
+ * <p>
+ * The generated code does not resolve the values to objects like the interpreted evaluators do; instead it checks the
+ * type of the value with {@link #checkType(Value, int)} and compares the primitive value directly with the constant.
+ * <p>
+ * The results are the same as the ones of the interpreted evaluators produced by the
+ * {@link MatchCriteriaEvaluatorFactory}.
+ */
+public abstract class CompiledMatchCriteriaEvaluator implements MatchCriteriaEvaluator {
+    private static final Log log = new Log(CompiledMatchCriteriaEvaluator.class);
+
+    public static final int INTEGER = 1;
+    public static final int FLOAT = 2;
+    public static final int STRING = 3;
+    public static final int BINARY = 4;
+    public static final int BOOLEAN = 5;
+
+    /**
+     * returned by {@link #checkType(Value, int)} if the value is not available
+     */
+    public static final int UNDEF = -1;
+    /**
+     * returned by {@link #checkType(Value, int)} if the value cannot be compared with the expected type
+     */
+    public static final int INCOMPATIBLE = -2;
+
+    final MatchCriteriaEvaluator interpreted;
+
+    protected CompiledMatchCriteriaEvaluator(MatchCriteriaEvaluator interpreted) {
+        this.interpreted = interpreted;
+    }
+
+    @Override
+    public String toExpressionString() {
+        return interpreted.toExpressionString();
+    }
+
+    public static Value value(ParameterInstanceRef ref, ProcessingData input) {
+        return MatchCriteriaEvaluatorFactory.getParameterValue(ref, input);
+    }
+
+    public static Value value(ArgumentInstanceRef ref, ProcessingData input) {
+        return MatchCriteriaEvaluatorFactory.getArgumentValue(ref, input.cmdArgs);
+    }
+
+    /**
+     * Checks if the value can be compared with a constant of the given type.
+     *
+     * @return 0 if the value can be compared, {@link #UNDEF} or {@link #INCOMPATIBLE} otherwise
+     */
+    public static int checkType(Value v, int expectedType) {
+        if (v == null) {
+            return UNDEF;
+        }
+        int type;
+        switch (v.getType()) {
+        case SINT32:
+        case SINT64:
+        case UINT32:
+        case UINT64:
+            type = INTEGER;
+            break;
+        case FLOAT:
+        case DOUBLE:
+            type = FLOAT;
+            break;
+        case STRING:
+        case ENUMERATED:
+            type = STRING;
+            break;
+        case BINARY:
+            type = BINARY;
+            break;
+        case BOOLEAN:
+            type = BOOLEAN;
+            break;
+        default:
+            log.error("Unknown value type '" + v.getType() + "' while evaluating condition");
+            return UNDEF;
+        }
+        if (type != expectedType) {
+            log.error("Comparing values of incompatible types: " + typeName(type) + " vs. " + typeName(expectedType));
+            return INCOMPATIBLE;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the value of an integer value as a long; the unsigned 32 bit values are zero extended whereas the
+     *         unsigned 64 bit values have to be compared with {@link Long#compareUnsigned(long, long)}.
+     */
+    public static long longValue(Value v) {
+        switch (v.getType()) {
+        case SINT32:
+            return v.getSint32Value();
+        case UINT32:
+            return v.getUint32Value() & 0xFFFFFFFFL;
+        case SINT64:
+            return v.getSint64Value();
+        default:
+            return v.getUint64Value();
+        }
+    }
+
+    public static boolean isUnsigned(Value v) {
+        return v.getType() == Type.UINT32 || v.getType() == Type.UINT64;
+    }
+
+    public static double doubleValue(Value v) {
+        switch (v.getType()) {
+        case FLOAT:
+            return v.getFloatValue();
+        default:
+            return v.getDoubleValue();
+        }
+    }
+
+    private static String typeName(int type) {
+        switch (type) {
+        case INTEGER:
+            return "Integer";
+        case FLOAT:
+            return "Float";
+        case STRING:
+            return "String";
+        case BINARY:
+            return "Binary";
+        default:
+            return "Boolean";
+        }
+    }
+}
@@ -29,11 +29,49 @@ public class ContainerProcessingOptions {
 
     int maxArraySize = 10000;
 
+    /**
+     * If greater than 0, the packets are decoded in parallel by this number of worker threads and the results are
+     * delivered in the order in which the packets have been received.
+     */
+    int pipelineWorkers = 0;
+
+    /**
+     * Packets having the same key are decoded sequentially by the same worker.
+     */
+    OrderingKey pipelineOrderingKey = OrderingKey.APID;
+
+    /**
+     * Maximum number of packets being decoded or waiting for delivery; when reached, the thread delivering the packets
+     * is blocked.
+     */
+    int pipelineQueueSize = 1024;
+
+    /**
+     * If true, the match criteria and the polynomial and spline calibrators of the MDB are compiled into Java classes
+     * when the processor is created. See {@link MdbCompiler}
+     */
+    boolean compileMdb = true;
+
+    public enum OrderingKey {
+        /**
+         * the 11 bits application id from the CCSDS primary header
+         */
+        APID,
+        /**
+         * the packets are distributed to the workers in a round-robin fashion
+         */
+        NONE
+    }
+
     public ContainerProcessingOptions(YConfiguration config) {
         if (config != null) {
             ignoreOutOfContainerEntries = config.getBoolean("ignoreOutOfContainerEntries", false);
             expirationTolerance = config.getDouble("expirationTolerance", expirationTolerance);
             maxArraySize = config.getInt("maxArraySize", maxArraySize);
+            pipelineWorkers = config.getInt("pipelineWorkers", pipelineWorkers);
+            pipelineOrderingKey = config.getEnum("pipelineOrderingKey", OrderingKey.class, pipelineOrderingKey);
+            pipelineQueueSize = config.getInt("pipelineQueueSize", pipelineQueueSize);
+            compileMdb = config.getBoolean("compileMdb", compileMdb);
         }
     }
 
@@ -42,6 +80,11 @@ public class ContainerProcessingOptions {
         spec.addOption("ignoreOutOfContainerEntries", OptionType.BOOLEAN).withDefault(false);
         spec.addOption("expirationTolerance", OptionType.FLOAT).withDefault(1.9);
         spec.addOption("maxArraySize", OptionType.INTEGER).withDefault(10000);
+        spec.addOption("pipelineWorkers", OptionType.INTEGER).withDefault(0);
+        spec.addOption("pipelineOrderingKey", OptionType.STRING).withDefault("APID")
+                .withChoices(OrderingKey.class);
+        spec.addOption("pipelineQueueSize", OptionType.INTEGER).withDefault(1024);
+        spec.addOption("compileMdb", OptionType.BOOLEAN).withDefault(true);
 
         return spec;
     }
@@ -80,4 +123,32 @@ public class ContainerProcessingOptions {
     public int getMaxArraySize() {
         return maxArraySize;
     }
+
+    public int getPipelineWorkers() {
+        return pipelineWorkers;
+    }
+
+    public void setPipelineWorkers(int pipelineWorkers) {
+        this.pipelineWorkers = pipelineWorkers;
+    }
+
+    public OrderingKey getPipelineOrderingKey() {
+        return pipelineOrderingKey;
+    }
+
+    public void setPipelineOrderingKey(OrderingKey pipelineOrderingKey) {
+        this.pipelineOrderingKey = pipelineOrderingKey;
+    }
+
+    public int getPipelineQueueSize() {
+        return pipelineQueueSize;
+    }
+
+    public boolean compileMdb() {
+        return compileMdb;
+    }
+
+    public void setCompileMdb(boolean compileMdb) {
+        this.compileMdb = compileMdb;
+    }
 }
@@ -5,7 +5,9 @@ import java.util.List;
 
 import org.yamcs.ContainerExtractionResult;
 import org.yamcs.parameter.LastValueCache;
+import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.xtce.Parameter;
 
 /**
  * the container result is built during a container processing
@@ -20,6 +22,8 @@ public class ContainerProcessingResult extends ProcessingData {
     long generationTime;
     long expireMillis = -1; // -1 means not defined
     XtceProcessingException exception;
+    // not null if the result is used by XtceTmExtractor#decodePacket
+    DecodedPacket decodedPacket;
 
     public ContainerProcessingResult(long aquisitionTime, long generationTime, LastValueCache procLastValueCache) {
         super(procLastValueCache, new ParameterValueList(), null, null, null);
@@ -27,6 +31,18 @@ public class ContainerProcessingResult extends ProcessingData {
         this.generationTime = generationTime;
     }
 
+    /**
+     * 
+     * @param expectedSize
+     *            - the expected number of parameters, used to size the result list
+     */
+    public ContainerProcessingResult(long aquisitionTime, long generationTime, LastValueCache procLastValueCache,
+            int expectedSize) {
+        super(procLastValueCache, new ParameterValueList(expectedSize), null, null, null);
+        this.acquisitionTime = aquisitionTime;
+        this.generationTime = generationTime;
+    }
+
     public ParameterValueList getParameterResult() {
         return getTmParams();
     }
@@ -35,4 +51,35 @@ public class ContainerProcessingResult extends ProcessingData {
         return containers;
     }
 
+    @Override
+    public void addTmParam(ParameterValue pv) {
+        super.addTmParam(pv);
+        if (decodedPacket != null) {
+            decodedPacket.addParameterValue(pv);
+        }
+    }
+
+    @Override
+    void prepareTmLookup(Parameter param) {
+        if (decodedPacket != null) {
+            decodedPacket.reference(param);
+        }
+    }
+
+    /**
+     * clears the result such that it can be reused for extracting a new packet
+     */
+    void reset(long acquisitionTime, long generationTime) {
+        containers.clear();
+        tmParams.clear();
+        tmCacheUsed = false;
+        this.acquisitionTime = acquisitionTime;
+        this.generationTime = generationTime;
+        expireMillis = -1;
+        exception = null;
+        if (decodedPacket != null) {
+            decodedPacket.reset();
+        }
+    }
+
 }
@@ -97,7 +97,10 @@ public class DataEncodingDecoder {
         if (ide.getEncoding() == Encoding.STRING) {
             return extractRaw(ide.getStringEncoding());
         }
+        return getRawValue(ide, decodeInteger(ide));
+    }
 
+    private long decodeInteger(IntegerDataEncoding ide) {
         buffer.setByteOrder(ide.getByteOrder());
         int numBits = ide.getSizeInBits();
 
@@ -132,7 +135,7 @@ public class DataEncodingDecoder {
         default: // shouldn't happen
             throw new IllegalStateException();
         }
-        return getRawValue(ide, rv);
+        return rv;
     }
 
     private static Value getRawValue(IntegerDataEncoding ide, long longValue) {
@@ -273,6 +276,64 @@ public class DataEncodingDecoder {
         return ValueUtility.getBooleanValue(buffer.getBits(1) != 0);
     }
 
+    /**
+     * Returns true if the values of the encoding can be extracted with {@link #extractRawPrimitive(DataEncoding)}:
+     * fixed size integer, float and boolean encodings without custom decoding algorithm.
+     */
+    static boolean isPrimitive(DataEncoding de) {
+        if (de.getFromBinaryTransformAlgorithm() != null) {
+            return false;
+        }
+        if (de instanceof IntegerDataEncoding) {
+            return ((IntegerDataEncoding) de).getEncoding() != Encoding.STRING;
+        } else if (de instanceof FloatDataEncoding) {
+            FloatDataEncoding fde = (FloatDataEncoding) de;
+            return fde.getEncoding() != FloatDataEncoding.Encoding.STRING && fde.getSizeInBits() >= 32;
+        } else {
+            return de instanceof BooleanDataEncoding;
+        }
+    }
+
+    /**
+     * Extracts a raw value without creating a {@link Value} object. The encoding has to be one for which
+     * {@link #isPrimitive(DataEncoding)} returns true and the type of the value is given by
+     * {@link #getRawType(DataEncoding)}.
+     * 
+     * @return the integer value (the 32 bit unsigned values are positive), the bits of the floating point value (as
+     *         given by {@link Double#doubleToRawLongBits(double)}) or 0/1 for the boolean values.
+     */
+    long extractRawPrimitive(DataEncoding de) {
+        if (de instanceof IntegerDataEncoding) {
+            IntegerDataEncoding ide = (IntegerDataEncoding) de;
+            long rv = decodeInteger(ide);
+            if (ide.getSizeInBits() <= 32) {
+                // same truncation as for the Value objects
+                rv = (ide.getEncoding() == Encoding.UNSIGNED) ? rv & 0xFFFFFFFFL : (int) rv;
+            }
+            return rv;
+        } else if (de instanceof FloatDataEncoding) {
+            FloatDataEncoding fde = (FloatDataEncoding) de;
+            buffer.setByteOrder(fde.getByteOrder());
+            double d;
+            if (fde.getEncoding() == FloatDataEncoding.Encoding.IEEE754_1985) {
+                if (fde.getSizeInBits() == 32) {
+                    d = Float.intBitsToFloat((int) buffer.getBits(32));
+                } else {
+                    d = Double.longBitsToDouble(buffer.getBits(64));
+                }
+            } else {
+                if (fde.getSizeInBits() == 32) {
+                    d = (float) MilStd1750A.decode32((int) buffer.getBits(32));
+                } else {
+                    d = MilStd1750A.decode48(buffer.getBits(64));
+                }
+            }
+            return Double.doubleToRawLongBits(d);
+        } else {
+            return buffer.getBits(1);
+        }
+    }
+
     private Value extractRawBinary(BinaryDataEncoding bde,
             ContainerProcessingContext pcontext) {
 
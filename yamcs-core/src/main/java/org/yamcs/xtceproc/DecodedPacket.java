@@ -0,0 +1,432 @@
+package org.yamcs.xtceproc;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.yamcs.ContainerExtractionResult;
+import org.yamcs.parameter.ContainerParameterValue;
+import org.yamcs.parameter.EnumeratedValue;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.parameter.Value;
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.UnsignedLong;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.SequenceEntry;
+
+/**
+ * The result of {@link XtceTmExtractor#decodePacket(byte[], long, long, org.yamcs.xtce.SequenceContainer)}.
+ * <p>
+ * The parameters are stored in slots, in the order in which they have been extracted. The values of the simple
+ * parameters (integer, float, boolean or enumerated with a fixed size binary encoding) are kept in primitive arrays;
+ * the {@link ParameterValue} objects are only created when requested with {@link #getParameterValue(int)} or
+ * {@link #toParameterValueList()}. The other parameters (strings, binaries, aggregates, arrays, ...) and the
+ * parameters which are needed during the extraction itself (for example in inheritance conditions or dynamic sizes)
+ * are stored as {@link ParameterValue}.
+ * <p>
+ * The object belongs to the thread which decoded the packet and is overwritten by the next packet decoded by the same
+ * thread; it cannot be kept or passed to another thread.
+ * <p>
+ * The integer values are returned as longs: the unsigned 32 bit values are positive while the unsigned 64 bit values
+ * may be negative (see {@link UnsignedLong}). The boolean values are returned as 0 or 1 and the enumerated values as
+ * their numeric value.
+ */
+public class DecodedPacket {
+    static final int INITIAL_CAPACITY = 64;
+
+    final ContainerProcessingResult result;
+    // parameters which are needed during the extraction; they are always stored as ParameterValue
+    final Set<Parameter> referenced = new HashSet<>();
+
+    int size;
+    Parameter[] params;
+    SequenceEntry[] entries;
+    int[] startOffsets;
+    int[] bitOffsets;
+    int[] bitSizes;
+    long[] expireMillis;
+
+    // for the floating point types, the long contains the bits of the double value
+    Type[] rawTypes;
+    long[] rawValues;
+    Type[] engTypes;
+    long[] engValues;
+    Value[] engObjects;
+
+    // the ParameterValue of the slot if it has been created
+    ParameterValue[] pvs;
+
+    DecodedPacket(ContainerProcessingResult result) {
+        this.result = result;
+        result.decodedPacket = this;
+        params = new Parameter[INITIAL_CAPACITY];
+        entries = new SequenceEntry[INITIAL_CAPACITY];
+        startOffsets = new int[INITIAL_CAPACITY];
+        bitOffsets = new int[INITIAL_CAPACITY];
+        bitSizes = new int[INITIAL_CAPACITY];
+        expireMillis = new long[INITIAL_CAPACITY];
+        rawTypes = new Type[INITIAL_CAPACITY];
+        rawValues = new long[INITIAL_CAPACITY];
+        engTypes = new Type[INITIAL_CAPACITY];
+        engValues = new long[INITIAL_CAPACITY];
+        engObjects = new Value[INITIAL_CAPACITY];
+        pvs = new ParameterValue[INITIAL_CAPACITY];
+    }
+
+    /**
+     * clears the slots before decoding a new packet; the object references are cleared such that they can be garbage
+     * collected
+     */
+    void reset() {
+        Arrays.fill(params, 0, size, null);
+        Arrays.fill(entries, 0, size, null);
+        Arrays.fill(engObjects, 0, size, null);
+        Arrays.fill(pvs, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns true if the parameter can be stored in a primitive slot; the parameters referenced during the extraction
+     * cannot.
+     */
+    boolean usePrimitiveSlot(Parameter p) {
+        return !referenced.contains(p);
+    }
+
+    /**
+     * Allocates a new slot for a parameter whose value is stored in the primitive arrays.
+     */
+    int addPrimitive(Parameter p, SequenceEntry entry, int startOffset, int bitOffset, int bitSize, Type rawType,
+            long rawValue, long expire) {
+        int i = newSlot();
+        params[i] = p;
+        entries[i] = entry;
+        startOffsets[i] = startOffset;
+        bitOffsets[i] = bitOffset;
+        bitSizes[i] = bitSize;
+        rawTypes[i] = rawType;
+        rawValues[i] = rawValue;
+        expireMillis[i] = expire;
+        engTypes[i] = null;
+        return i;
+    }
+
+    void setEng(int i, Type type, long value) {
+        engTypes[i] = type;
+        engValues[i] = value;
+    }
+
+    void setEng(int i, EnumeratedValue value) {
+        engTypes[i] = Type.ENUMERATED;
+        engValues[i] = value.getSint64Value();
+        engObjects[i] = value;
+    }
+
+    /**
+     * Stores a parameter value extracted the normal way
+     */
+    void addParameterValue(ParameterValue pv) {
+        int i = newSlot();
+        params[i] = pv.getParameter();
+        pvs[i] = pv;
+    }
+
+    private int newSlot() {
+        if (size == params.length) {
+            int n = 2 * size;
+            params = Arrays.copyOf(params, n);
+            entries = Arrays.copyOf(entries, n);
+            startOffsets = Arrays.copyOf(startOffsets, n);
+            bitOffsets = Arrays.copyOf(bitOffsets, n);
+            bitSizes = Arrays.copyOf(bitSizes, n);
+            expireMillis = Arrays.copyOf(expireMillis, n);
+            rawTypes = Arrays.copyOf(rawTypes, n);
+            rawValues = Arrays.copyOf(rawValues, n);
+            engTypes = Arrays.copyOf(engTypes, n);
+            engValues = Arrays.copyOf(engValues, n);
+            engObjects = Arrays.copyOf(engObjects, n);
+            pvs = Arrays.copyOf(pvs, n);
+        }
+        return size++;
+    }
+
+    /**
+     * Called the first time when the value of the parameter is needed during the extraction. The parameter is marked
+     * such that its next values are not stored in primitive slots and the values already extracted are added to the
+     * processing result.
+     */
+    void reference(Parameter p) {
+        if (!referenced.add(p)) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (params[i] == p && pvs[i] == null) {
+                result.tmParams.add(getParameterValue(i));
+            }
+        }
+    }
+
+    /**
+     * @return the number of parameters extracted from the packet
+     */
+    public int size() {
+        return size;
+    }
+
+    public Parameter getParameter(int i) {
+        checkIndex(i);
+        return params[i];
+    }
+
+    /**
+     * @return the type of the raw value or null if the parameter has no raw value
+     */
+    public Type getRawType(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            return rawTypes[i];
+        } else {
+            Value v = pv.getRawValue();
+            return v == null ? null : v.getType();
+        }
+    }
+
+    /**
+     * @return the raw value as long
+     * @throws UnsupportedOperationException
+     *             if the raw value is not numeric or boolean
+     */
+    public long getRawLong(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            return toLong(rawTypes[i], rawValues[i]);
+        } else {
+            return toLong(pv.getRawValue());
+        }
+    }
+
+    /**
+     * @return the raw value as double
+     * @throws UnsupportedOperationException
+     *             if the raw value is not numeric or boolean
+     */
+    public double getRawDouble(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            return toDouble(rawTypes[i], rawValues[i]);
+        } else {
+            return toDouble(pv.getRawValue());
+        }
+    }
+
+    /**
+     * @return the type of the engineering value or null if the parameter has no engineering value
+     */
+    public Type getEngType(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            return engTypes[i];
+        } else {
+            Value v = pv.getEngValue();
+            return v == null ? null : v.getType();
+        }
+    }
+
+    /**
+     * @return the engineering value as long
+     * @throws UnsupportedOperationException
+     *             if the engineering value is not numeric, boolean or enumerated
+     */
+    public long getEngLong(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            return toLong(engTypes[i], engValues[i]);
+        } else {
+            return toLong(pv.getEngValue());
+        }
+    }
+
+    /**
+     * @return the engineering value as double
+     * @throws UnsupportedOperationException
+     *             if the engineering value is not numeric, boolean or enumerated
+     */
+    public double getEngDouble(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            return toDouble(engTypes[i], engValues[i]);
+        } else {
+            return toDouble(pv.getEngValue());
+        }
+    }
+
+    /**
+     * Returns the parameter value of the slot i, creating it if it has not been created before.
+     */
+    public ParameterValue getParameterValue(int i) {
+        checkIndex(i);
+        ParameterValue pv = pvs[i];
+        if (pv == null) {
+            ContainerParameterValue cpv = new ContainerParameterValue(params[i], startOffsets[i], bitOffsets[i]);
+            cpv.setSequenceEntry(entries[i]);
+            cpv.setBitSize(bitSizes[i]);
+            cpv.setRawValue(toValue(rawTypes[i], rawValues[i]));
+            if (engTypes[i] == null) {
+                cpv.setAcquisitionStatus(AcquisitionStatus.INVALID);
+            } else if (engTypes[i] == Type.ENUMERATED) {
+                cpv.setEngValue(engObjects[i]);
+            } else {
+                cpv.setEngValue(toValue(engTypes[i], engValues[i]));
+            }
+            cpv.setAcquisitionTime(result.acquisitionTime);
+            cpv.setGenerationTime(result.generationTime);
+            cpv.setExpireMillis(expireMillis[i]);
+            pvs[i] = cpv;
+            pv = cpv;
+        }
+        return pv;
+    }
+
+    /**
+     * Creates a list with all the parameter values extracted from the packet
+     */
+    public ParameterValueList toParameterValueList() {
+        ParameterValueList pvlist = new ParameterValueList(size);
+        for (int i = 0; i < size; i++) {
+            pvlist.add(getParameterValue(i));
+        }
+        return pvlist;
+    }
+
+    public List<ContainerExtractionResult> getContainerResult() {
+        return result.getContainerResult();
+    }
+
+    /**
+     * Returns the processing result used during the extraction. It contains the container results but only the
+     * parameter values which have been needed during the extraction.
+     */
+    public ContainerProcessingResult getResult() {
+        return result;
+    }
+
+    public long getAcquisitionTime() {
+        return result.acquisitionTime;
+    }
+
+    public long getGenerationTime() {
+        return result.generationTime;
+    }
+
+    /**
+     * @return the exception encountered during the extraction or null if the packet has been successfully extracted
+     */
+    public XtceProcessingException getException() {
+        return result.exception;
+    }
+
+    private void checkIndex(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + " size: " + size);
+        }
+    }
+
+    static Value toValue(Type type, long v) {
+        switch (type) {
+        case UINT32:
+            return ValueUtility.getUint32Value((int) v);
+        case SINT32:
+            return ValueUtility.getSint32Value((int) v);
+        case UINT64:
+            return ValueUtility.getUint64Value(v);
+        case SINT64:
+            return ValueUtility.getSint64Value(v);
+        case FLOAT:
+            return ValueUtility.getFloatValue((float) Double.longBitsToDouble(v));
+        case DOUBLE:
+            return ValueUtility.getDoubleValue(Double.longBitsToDouble(v));
+        case BOOLEAN:
+            return ValueUtility.getBooleanValue(v != 0);
+        default:
+            throw new IllegalStateException("Unexpected type " + type + " in a primitive slot");
+        }
+    }
+
+    private static long toLong(Type type, long v) {
+        if (type == null) {
+            throw new UnsupportedOperationException("No value");
+        }
+        switch (type) {
+        case FLOAT:
+        case DOUBLE:
+            return (long) Double.longBitsToDouble(v);
+        default:
+            return v;
+        }
+    }
+
+    private static double toDouble(Type type, long v) {
+        if (type == null) {
+            throw new UnsupportedOperationException("No value");
+        }
+        switch (type) {
+        case FLOAT:
+        case DOUBLE:
+            return Double.longBitsToDouble(v);
+        case UINT64:
+            return UnsignedLong.toDouble(v);
+        default:
+            return v;
+        }
+    }
+
+    private static long toLong(Value v) {
+        if (v == null) {
+            throw new UnsupportedOperationException("No value");
+        }
+        switch (v.getType()) {
+        case UINT32:
+            return v.getUint32Value() & 0xFFFFFFFFL;
+        case UINT64:
+            return v.getUint64Value();
+        case FLOAT:
+            return (long) v.getFloatValue();
+        case DOUBLE:
+            return (long) v.getDoubleValue();
+        case BOOLEAN:
+            return v.getBooleanValue() ? 1 : 0;
+        case ENUMERATED:
+            return v.getSint64Value();
+        default:
+            return v.toLong();
+        }
+    }
+
+    private static double toDouble(Value v) {
+        if (v == null) {
+            throw new UnsupportedOperationException("No value");
+        }
+        switch (v.getType()) {
+        case UINT32:
+            return v.getUint32Value() & 0xFFFFFFFFL;
+        case UINT64:
+            return UnsignedLong.toDouble(v.getUint64Value());
+        case BOOLEAN:
+            return v.getBooleanValue() ? 1 : 0;
+        case ENUMERATED:
+            return v.getSint64Value();
+        default:
+            return v.toDouble();
+        }
+    }
+}
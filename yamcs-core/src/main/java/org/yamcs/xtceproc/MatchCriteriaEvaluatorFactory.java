@@ -23,6 +23,7 @@ import org.yamcs.xtce.ComparisonList;
 import org.yamcs.xtce.Condition;
 import org.yamcs.xtce.DataSource;
 import org.yamcs.xtce.DataType;
+import org.yamcs.xtce.IntegerDataType;
 import org.yamcs.xtce.MatchCriteria;
 import org.yamcs.xtce.ORedConditions;
 import org.yamcs.xtce.OperatorType;
@@ -136,6 +137,12 @@ public class MatchCriteriaEvaluatorFactory {
                 } else {
                     rValue = resolveValue(dtype.parseStringForRawValue(stringValue));
                 }
+                if (rValue != null && rValue.evaluator == intEvaluator) {
+                    // the constant is compared unsigned with the unsigned values if it is not negative or if it has
+                    // been parsed for an unsigned type (the values above Long.MAX_VALUE are negative)
+                    rValue.unsigned = (Long) rValue.value >= 0 || (ref.useCalibratedValue()
+                            && dtype instanceof IntegerDataType && !((IntegerDataType) dtype).isSigned());
+                }
             } catch (IllegalArgumentException e) {
                 throw new IllegalArgumentException("Cannot parse value required for comparing with "
                         + ref.getName() + ": " + e.getMessage(), e);
@@ -305,6 +312,16 @@ public class MatchCriteriaEvaluatorFactory {
     }
 
     static ResolvedValue resolveParameter(ParameterInstanceRef paramRef, ProcessingData input) {
+        return getResolvedValue(getParameterValue(paramRef, input));
+    }
+
+    /**
+     * Retrieves the value (raw or engineering, depending on the reference) of the referenced parameter, first from the
+     * parameters being processed and then from the cache.
+     * 
+     * @return the value or null if the parameter (or the referenced aggregate/array member) is not available
+     */
+    static Value getParameterValue(ParameterInstanceRef paramRef, ProcessingData input) {
         ParameterValue pv = null;
         Parameter p = paramRef.getParameter();
         if (p.getDataSource() == DataSource.COMMAND || p.getDataSource() == DataSource.COMMAND_HISTORY) {
@@ -316,10 +333,11 @@ public class MatchCriteriaEvaluatorFactory {
             }
         } else {
             if (input.tmParams != null) {
+                input.prepareTmLookup(p);
                 pv = input.tmParams.getLastInserted(p);
             }
             if (pv == null) {
-                pv = input.tmParamsCache.getValue(p);
+                pv = input.getFromCache(input.tmParamsCache, p, 0);
             }
         }
         if (pv == null) {
@@ -339,10 +357,14 @@ public class MatchCriteriaEvaluatorFactory {
             }
             v = AggregateUtil.getMemberValue(v, path);
         }
-        return getResolvedValue(v);
+        return v;
     }
 
     static ResolvedValue resolveArgument(ArgumentInstanceRef argRef, Map<Argument, ArgumentValue> cmdArgs) {
+        return getResolvedValue(getArgumentValue(argRef, cmdArgs));
+    }
+
+    static Value getArgumentValue(ArgumentInstanceRef argRef, Map<Argument, ArgumentValue> cmdArgs) {
         Argument arg = argRef.getArgument();
         ArgumentValue argv = cmdArgs.get(arg);
 
@@ -363,7 +385,7 @@ public class MatchCriteriaEvaluatorFactory {
             }
             v = AggregateUtil.getMemberValue(v, path);
         }
-        return getResolvedValue(v);
+        return v;
     }
 
     static ResolvedValue getResolvedValue(Value v) {
@@ -376,7 +398,7 @@ public class MatchCriteriaEvaluatorFactory {
         case SINT64:
             return new ResolvedValue(v.getSint64Value(), false, intEvaluator);
         case UINT32:
-            return new ResolvedValue((long) v.getUint32Value() & 0xFFFFFFFFFFFFFFFFL, true, intEvaluator);
+            return new ResolvedValue(v.getUint32Value() & 0xFFFFFFFFL, true, intEvaluator);
         case UINT64:
             return new ResolvedValue(v.getUint64Value(), true, intEvaluator);
         case FLOAT:
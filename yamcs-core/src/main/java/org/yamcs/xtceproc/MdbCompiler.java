@@ -0,0 +1,438 @@
+package org.yamcs.xtceproc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.yamcs.logging.Log;
+import org.yamcs.xtce.ArgumentInstanceRef;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.Calibrator;
+import org.yamcs.xtce.ContextCalibrator;
+import org.yamcs.xtce.DataEncoding;
+import org.yamcs.xtce.MatchCriteria;
+import org.yamcs.xtce.NumericDataEncoding;
+import org.yamcs.xtce.OperatorType;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.PolynomialCalibrator;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.SequenceEntry;
+import org.yamcs.xtce.SplineCalibrator;
+import org.yamcs.xtce.SplinePoint;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.MatchCriteriaEvaluatorFactory.ANDedConditionsEvaluator;
+import org.yamcs.xtceproc.MatchCriteriaEvaluatorFactory.ORedConditionsEvaluator;
+import org.yamcs.xtceproc.MatchCriteriaEvaluatorFactory.RefValueEvaluator;
+
+/**
+ * Compiles with Janino the match criteria and the calibrators of a MDB into Java classes.
+ * <p>
+ * The following are compiled:
+ * <ul>
+ * <li>the restriction criteria of the sequence containers</li>
+ * <li>the include conditions of the sequence entries</li>
+ * <li>the default and context calibrators (polynomial and spline) of the numeric parameter types and their context
+ * match criteria.</li>
+ * </ul>
+ * The compilation is performed once for each MDB, the resulting evaluators and calibrators are stateless and shared by
+ * all processors using the MDB.
+ * <p>
+ * Anything that cannot be compiled (for example the comparisons between two references or with binary values) is
+ * delegated to the interpreted evaluators from the {@link MatchCriteriaEvaluatorFactory}. The criteria and calibrators
+ * which are not known at compile time (e.g. added later to the MDB) are not found in this compiler and the caller has
+ * to fallback to the interpreted versions.
+ */
+public class MdbCompiler {
+    private static final Log log = new Log(MdbCompiler.class);
+    static final String PACKAGE_NAME = "org.yamcs.xtceproc.compiled";
+
+    /**
+     * how many classes are compiled in one Janino compilation unit
+     */
+    static final int BATCH_SIZE = 256;
+
+    private static final Map<XtceDb, MdbCompiler> instances = new WeakHashMap<>();
+
+    private final Map<MatchCriteria, MatchCriteriaEvaluator> evaluators = new HashMap<>();
+    private final Map<Calibrator, CalibratorProc> calibrators = new HashMap<>();
+
+    /**
+     * Returns the compiler for the given MDB, compiling it the first time.
+     */
+    public static synchronized MdbCompiler getInstance(XtceDb xtcedb) {
+        return instances.computeIfAbsent(xtcedb, MdbCompiler::new);
+    }
+
+    MdbCompiler(XtceDb xtcedb) {
+        Set<MatchCriteria> criteria = new LinkedHashSet<>();
+        Set<Calibrator> cals = new LinkedHashSet<>();
+
+        for (SequenceContainer sc : xtcedb.getSequenceContainers()) {
+            addCriteria(criteria, sc.getRestrictionCriteria());
+            for (SequenceEntry se : sc.getEntryList()) {
+                addCriteria(criteria, se.getIncludeCondition());
+            }
+        }
+        for (ParameterType ptype : xtcedb.getParameterTypes()) {
+            if (!(ptype instanceof BaseDataType)) {
+                continue;
+            }
+            DataEncoding de = ((BaseDataType) ptype).getEncoding();
+            if (de instanceof NumericDataEncoding) {
+                NumericDataEncoding nde = (NumericDataEncoding) de;
+                addCalibrator(cals, nde.getDefaultCalibrator());
+                List<ContextCalibrator> clist = nde.getContextCalibratorList();
+                if (clist != null) {
+                    for (ContextCalibrator cc : clist) {
+                        addCriteria(criteria, cc.getContextMatch());
+                        addCalibrator(cals, cc.getCalibrator());
+                    }
+                }
+            }
+        }
+        long t0 = System.nanoTime();
+        compile(new ArrayList<>(criteria), new ArrayList<>(cals));
+        log.debug("Compiled {} match criteria and {} calibrators in {} ms", evaluators.size(), calibrators.size(),
+                (System.nanoTime() - t0) / 1000_000);
+    }
+
+    MdbCompiler(List<MatchCriteria> criteria, List<Calibrator> calibrators) {
+        compile(criteria, calibrators);
+    }
+
+    private static void addCriteria(Set<MatchCriteria> criteria, MatchCriteria mc) {
+        if (mc != null) {
+            criteria.add(mc);
+        }
+    }
+
+    private static void addCalibrator(Set<Calibrator> cals, Calibrator c) {
+        if (c instanceof PolynomialCalibrator
+                || (c instanceof SplineCalibrator && ((SplineCalibrator) c).getPoints().length >= 2)) {
+            cals.add(c);
+        }
+    }
+
+    /**
+     * @return the compiled evaluator or null if the match criteria has not been compiled
+     */
+    public MatchCriteriaEvaluator getEvaluator(MatchCriteria mc) {
+        return evaluators.get(mc);
+    }
+
+    /**
+     * @return the compiled calibrator or null if the calibrator has not been compiled
+     */
+    public CalibratorProc getCalibrator(Calibrator c) {
+        return calibrators.get(c);
+    }
+
+    private void compile(List<MatchCriteria> criteria, List<Calibrator> cals) {
+        List<Object> items = new ArrayList<>(criteria.size() + cals.size());
+        for (MatchCriteria mc : criteria) {
+            try {
+                items.add(new CompiledClass(MatchCriteriaEvaluatorFactory.getEvaluator(mc), mc));
+            } catch (IllegalArgumentException e) {
+                // the interpreter will throw the same exception when the evaluator is requested
+                log.debug("Not compiling {}: {}", mc, e.getMessage());
+            }
+        }
+        items.addAll(cals);
+
+        for (int i = 0; i < items.size(); i += BATCH_SIZE) {
+            List<Object> batch = items.subList(i, Math.min(items.size(), i + BATCH_SIZE));
+            try {
+                compileBatch(batch);
+            } catch (Exception e) {
+                log.warn("Failed to compile a batch of {} expressions, compiling them individually", batch.size(), e);
+                for (Object o : batch) {
+                    try {
+                        compileBatch(Collections.singletonList(o));
+                    } catch (Exception e1) {
+                        log.warn("Failed to compile {}, the interpreter will be used instead", o, e1);
+                    }
+                }
+            }
+        }
+    }
+
+    private void compileBatch(List<Object> batch) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE_NAME).append(";\n")
+                .append("import org.yamcs.parameter.Value;\n")
+                .append("import org.yamcs.xtce.ArgumentInstanceRef;\n")
+                .append("import org.yamcs.xtce.ParameterInstanceRef;\n")
+                .append("import org.yamcs.xtceproc.MatchCriteriaEvaluator;\n")
+                .append("import org.yamcs.xtceproc.MatchCriteriaEvaluator.MatchResult;\n")
+                .append("import org.yamcs.xtceproc.ProcessingData;\n")
+                .append("public class Batch {\n");
+
+        for (int i = 0; i < batch.size(); i++) {
+            Object o = batch.get(i);
+            if (o instanceof CompiledClass) {
+                ((CompiledClass) o).generate(sb, "E" + i);
+            } else if (o instanceof PolynomialCalibrator) {
+                generatePolynomial(sb, "C" + i, (PolynomialCalibrator) o);
+            } else {
+                generateSpline(sb, "C" + i, (SplineCalibrator) o);
+            }
+        }
+        sb.append("}\n");
+
+        SimpleCompiler compiler = new SimpleCompiler();
+        compiler.setParentClassLoader(MdbCompiler.class.getClassLoader());
+        compiler.cook(sb.toString());
+        ClassLoader loader = compiler.getClassLoader();
+
+        for (int i = 0; i < batch.size(); i++) {
+            Object o = batch.get(i);
+            if (o instanceof CompiledClass) {
+                CompiledClass cc = (CompiledClass) o;
+                Class<?> clazz = loader.loadClass(PACKAGE_NAME + ".Batch$E" + i);
+                MatchCriteriaEvaluator evaluator = (MatchCriteriaEvaluator) clazz
+                        .getConstructor(MatchCriteriaEvaluator.class, Object[].class)
+                        .newInstance(cc.interpreted, cc.args.toArray());
+                evaluators.put(cc.mc, evaluator);
+            } else {
+                Class<?> clazz = loader.loadClass(PACKAGE_NAME + ".Batch$C" + i);
+                calibrators.put((Calibrator) o, (CalibratorProc) clazz.getConstructor().newInstance());
+            }
+        }
+    }
+
+    // evaluates the polynomial using the Horner scheme, like the PolynomialCalibratorProc
+    static void generatePolynomial(StringBuilder sb, String className, PolynomialCalibrator c) {
+        double[] coef = c.getCoefficients();
+        sb.append("  public static class ").append(className)
+                .append(" implements org.yamcs.xtceproc.CalibratorProc {\n")
+                .append("    public double calibrate(double v) {\n")
+                .append("      return ");
+        if (coef.length == 0) {
+            sb.append("0.0");
+        } else {
+            StringBuilder expr = new StringBuilder(literal(coef[coef.length - 1]));
+            for (int i = coef.length - 2; i >= 0; i--) {
+                expr.insert(0, "v * (").append(") + ").append(literal(coef[i]));
+            }
+            sb.append(expr);
+        }
+        sb.append(";\n    }\n  }\n");
+    }
+
+    // selects the segment in the same way as the SplineCalibratorProc
+    static void generateSpline(StringBuilder sb, String className, SplineCalibrator c) {
+        SplinePoint[] points = c.getPoints();
+        int n = points.length;
+        sb.append("  public static class ").append(className)
+                .append(" implements org.yamcs.xtceproc.CalibratorProc {\n")
+                .append("    public double calibrate(double v) {\n");
+        for (int i = 0; i < n; i++) {
+            int k = Math.max(1, i);
+            sb.append("      if (v <= ").append(literal(points[i].getRaw())).append(") {\n")
+                    .append("        return ").append(splineSegment(points[k], points[k - 1])).append(";\n")
+                    .append("      }\n");
+        }
+        sb.append("      return ").append(splineSegment(points[n - 1], points[n - 2])).append(";\n")
+                .append("    }\n  }\n");
+    }
+
+    private static String splineSegment(SplinePoint p1, SplinePoint p2) {
+        double a1 = p1.getRaw();
+        double b1 = p1.getCalibrated();
+        double a2 = p2.getRaw();
+        double b2 = p2.getCalibrated();
+        return "(" + literal(b1 - b2) + " * v + " + literal(a1 * b2 - b1 * a2) + ") / " + literal(a1 - a2);
+    }
+
+    static String literal(double d) {
+        if (Double.isNaN(d)) {
+            return "Double.NaN";
+        } else if (d == Double.POSITIVE_INFINITY) {
+            return "Double.POSITIVE_INFINITY";
+        } else if (d == Double.NEGATIVE_INFINITY) {
+            return "Double.NEGATIVE_INFINITY";
+        } else {
+            return "(" + Double.toString(d) + ")";
+        }
+    }
+
+    static String literal(long x) {
+        if (x == Long.MIN_VALUE) {
+            return "Long.MIN_VALUE";
+        } else {
+            return "(" + Long.toString(x) + "L)";
+        }
+    }
+
+    /**
+     * Generates the source of an evaluator class for one match criteria.
+     * <p>
+     * Each node of the interpreted evaluator tree becomes a method; the references, the string constants and the nodes
+     * which are not compiled are passed as constructor arguments.
+     */
+    static class CompiledClass {
+        final MatchCriteria mc;
+        final MatchCriteriaEvaluator interpreted;
+        final List<Object> args = new ArrayList<>();
+        final StringBuilder fields = new StringBuilder();
+        final StringBuilder ctor = new StringBuilder();
+        final StringBuilder methods = new StringBuilder();
+        final String root;
+        int methodCount = 0;
+
+        CompiledClass(MatchCriteriaEvaluator interpreted, MatchCriteria mc) {
+            this.interpreted = interpreted;
+            this.mc = mc;
+            this.root = generateNode(interpreted);
+        }
+
+        void generate(StringBuilder sb, String className) {
+            sb.append("  public static class ").append(className)
+                    .append(" extends org.yamcs.xtceproc.CompiledMatchCriteriaEvaluator {\n")
+                    .append(fields)
+                    .append("    public ").append(className)
+                    .append("(MatchCriteriaEvaluator interpreted, Object[] args) {\n")
+                    .append("      super(interpreted);\n")
+                    .append(ctor)
+                    .append("    }\n")
+                    .append("    public MatchResult evaluate(ProcessingData input) {\n")
+                    .append("      return ").append(root).append("(input);\n")
+                    .append("    }\n")
+                    .append(methods)
+                    .append("  }\n");
+        }
+
+        private String addArg(String type, Object value) {
+            String name = "a" + args.size();
+            fields.append("    private final ").append(type).append(" ").append(name).append(";\n");
+            ctor.append("      ").append(name).append(" = (").append(type).append(") args[").append(args.size())
+                    .append("];\n");
+            args.add(value);
+            return name;
+        }
+
+        // returns the name of the method evaluating the node
+        private String generateNode(MatchCriteriaEvaluator node) {
+            String method = "e" + (methodCount++);
+            StringBuilder body = new StringBuilder();
+            if (node instanceof ANDedConditionsEvaluator) {
+                generateList(body, ((ANDedConditionsEvaluator) node).evaluatorList, "OK", "NOK");
+            } else if (node instanceof ORedConditionsEvaluator) {
+                generateList(body, ((ORedConditionsEvaluator) node).evaluatorList, "NOK", "OK");
+            } else if (node instanceof RefValueEvaluator && generateComparison(body, (RefValueEvaluator) node)) {
+                // generated
+            } else {
+                String delegate = addArg("MatchCriteriaEvaluator", node);
+                body.append("      return ").append(delegate).append(".evaluate(input);\n");
+            }
+            methods.append("    private MatchResult ").append(method).append("(ProcessingData input) {\n")
+                    .append(body)
+                    .append("    }\n");
+            return method;
+        }
+
+        /*
+         * same logic as the ANDedConditionsEvaluator (initial=OK, stop=NOK) and ORedConditionsEvaluator (initial=NOK,
+         * stop=OK): return as soon as the stop result is found, otherwise UNDEF has priority over the initial value
+         */
+        private void generateList(StringBuilder body, List<MatchCriteriaEvaluator> list, String initial,
+                String stop) {
+            List<String> children = new ArrayList<>(list.size());
+            for (MatchCriteriaEvaluator e : list) {
+                children.add(generateNode(e));
+            }
+            body.append("      MatchResult result = MatchResult.").append(initial).append(";\n")
+                    .append("      MatchResult r;\n");
+            for (String child : children) {
+                body.append("      r = ").append(child).append("(input);\n")
+                        .append("      if (r == MatchResult.").append(stop).append(") {\n")
+                        .append("        return r;\n")
+                        .append("      } else if (r == MatchResult.UNDEF) {\n")
+                        .append("        result = r;\n")
+                        .append("      }\n");
+            }
+            body.append("      return result;\n");
+        }
+
+        /**
+         * generates the comparison of a reference with a constant
+         *
+         * @return false if the comparison cannot be compiled
+         */
+        private boolean generateComparison(StringBuilder body, RefValueEvaluator node) {
+            Object value = node.rValue == null ? null : node.rValue.value;
+            if (!(value instanceof Long || value instanceof Double || value instanceof String
+                    || value instanceof Boolean)) {
+                return false;
+            }
+            String ref;
+            if (node.ref instanceof ParameterInstanceRef) {
+                ref = addArg("ParameterInstanceRef", node.ref);
+            } else if (node.ref instanceof ArgumentInstanceRef) {
+                ref = addArg("ArgumentInstanceRef", node.ref);
+            } else {
+                return false;
+            }
+            String type;
+            String cmp;
+            OperatorType op = node.comparisonOperator;
+            if (value instanceof Long) {
+                type = "INTEGER";
+                String lit = literal((Long) value);
+                cmp = "longValue(v) " + operator(op) + " " + lit;
+                if (node.rValue.unsigned && op != OperatorType.EQUALITY && op != OperatorType.INEQUALITY) {
+                    // same as the interpreted evaluator: unsigned values are compared unsigned with the constant
+                    cmp = "isUnsigned(v) ? Long.compareUnsigned(longValue(v), " + lit + ") " + operator(op)
+                            + " 0 : " + cmp;
+                }
+            } else if (value instanceof Double) {
+                type = "FLOAT";
+                cmp = "doubleValue(v) " + operator(op) + " " + literal((Double) value);
+            } else if (value instanceof String) {
+                type = "STRING";
+                cmp = "v.getStringValue().compareTo(" + addArg("String", value) + ") " + operator(op) + " 0";
+            } else {
+                type = "BOOLEAN";
+                cmp = "Boolean.compare(v.getBooleanValue(), " + value + ") " + operator(op) + " 0";
+            }
+            body.append("      Value v = value(").append(ref).append(", input);\n")
+                    .append("      int t = checkType(v, ").append(type).append(");\n")
+                    .append("      if (t != 0) {\n")
+                    .append("        return t == UNDEF ? MatchResult.UNDEF : MatchResult.NOK;\n")
+                    .append("      }\n")
+                    .append("      return (").append(cmp).append(") ? MatchResult.OK : MatchResult.NOK;\n");
+            return true;
+        }
+
+        private static String operator(OperatorType op) {
+            switch (op) {
+            case EQUALITY:
+                return "==";
+            case INEQUALITY:
+                return "!=";
+            case LARGERTHAN:
+                return ">";
+            case LARGEROREQUALTHAN:
+                return ">=";
+            case SMALLERTHAN:
+                return "<";
+            case SMALLEROREQUALTHAN:
+                return "<=";
+            default:
+                throw new IllegalStateException("Unknown operator " + op);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return interpreted.toExpressionString();
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package org.yamcs.xtceproc;
 
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.parameter.AggregateValue;
 import org.yamcs.parameter.ArrayValue;
 import org.yamcs.parameter.BooleanValue;
+import org.yamcs.parameter.EnumeratedValue;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
@@ -18,7 +21,9 @@ import org.yamcs.utils.ValueUtility;
 import org.yamcs.xtce.AbsoluteTimeParameterType;
 import org.yamcs.xtce.AggregateParameterType;
 import org.yamcs.xtce.ArrayParameterType;
+import org.yamcs.xtce.BaseDataType;
 import org.yamcs.xtce.BinaryParameterType;
+import org.yamcs.xtce.BooleanDataEncoding;
 import org.yamcs.xtce.BooleanDataType;
 import org.yamcs.xtce.BooleanParameterType;
 import org.yamcs.xtce.DataEncoding;
@@ -30,6 +35,7 @@ import org.yamcs.xtce.IntegerValidRange;
 import org.yamcs.xtce.Member;
 import org.yamcs.xtce.NumericDataEncoding;
 import org.yamcs.xtce.NumericParameterType;
+import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.ParameterInstanceRef;
 import org.yamcs.xtce.ParameterType;
 import org.yamcs.xtce.ReferenceTime;
@@ -50,6 +56,10 @@ public class ParameterTypeProcessor {
 
     boolean checkValidityRanges;
 
+    // the enumerated values for the raw values between 0 and ENUM_CACHE_SIZE-1 are cached per type
+    static final int ENUM_CACHE_SIZE = 256;
+    final Map<EnumeratedParameterType, EnumeratedValue[]> enumCache = new ConcurrentHashMap<>();
+
     public ParameterTypeProcessor(ProcessorData pdata) {
         this.pdata = pdata;
         checkValidityRanges = pdata.getProcessorConfig().checkParameterValidityRanges();
@@ -114,16 +124,108 @@ public class ParameterTypeProcessor {
 
     }
 
-    private static Value calibrateEnumerated(EnumeratedParameterType ept, Value rawValue) {
+    /**
+     * Returns true if the parameter can be extracted and calibrated without creating {@link Value} objects, see
+     * {@link #calibrate(ProcessingData, DecodedPacket, int)}.
+     */
+    boolean isPrimitive(Parameter param) {
+        ParameterType ptype = param.getParameterType();
+        if (!(ptype instanceof BaseDataType)) {
+            return false;
+        }
+        DataEncoding encoding = ((BaseDataType) ptype).getEncoding();
+        if (encoding == null || !DataEncodingDecoder.isPrimitive(encoding)) {
+            return false;
+        }
+        boolean booleanEncoding = encoding instanceof BooleanDataEncoding;
+        ParameterType ctype = pdata.getParameterType(param);
+        if (ctype instanceof EnumeratedParameterType) {
+            return !booleanEncoding;
+        } else if (ctype instanceof IntegerParameterType) {
+            return !booleanEncoding
+                    && !(checkValidityRanges && ((IntegerParameterType) ctype).getValidRange() != null);
+        } else if (ctype instanceof FloatParameterType) {
+            return !booleanEncoding
+                    && !(checkValidityRanges && ((FloatParameterType) ctype).getValidRange() != null);
+        } else {
+            return ctype instanceof BooleanParameterType;
+        }
+    }
+
+    /**
+     * Computes the engineering value of the primitive slot i of the decoded packet.
+     * <p>
+     * It gives the same result as {@link #calibrate(ProcessingData, ParameterValue)} for the parameters for which
+     * {@link #isPrimitive(Parameter)} returns true.
+     */
+    void calibrate(ProcessingData processingData, DecodedPacket dp, int i) {
+        ParameterType ptype = pdata.getParameterType(dp.params[i]);
+        Type rawType = dp.rawTypes[i];
+        long rv = dp.rawValues[i];
+        boolean floatRaw = rawType == Type.FLOAT || rawType == Type.DOUBLE;
+
+        if (ptype instanceof EnumeratedParameterType) {
+            long l;
+            if (floatRaw) {
+                l = (long) Double.longBitsToDouble(rv);
+            } else if (rawType == Type.UINT32) {
+                l = (int) rv; // same as for the Value objects
+            } else {
+                l = rv;
+            }
+            dp.setEng(i, getEnumeratedValue((EnumeratedParameterType) ptype, l));
+        } else if (ptype instanceof IntegerParameterType) {
+            IntegerParameterType ipt = (IntegerParameterType) ptype;
+            long l = floatRaw ? (long) Double.longBitsToDouble(rv) : rv;
+            if (hasCalibrator(ipt)) {
+                CalibratorProc calibrator = pdata.getCalibrator(processingData, ipt.getEncoding());
+                if (calibrator != null) {
+                    l = (long) calibrator.calibrate(l);
+                }
+            }
+            if (ipt.getSizeInBits() <= 32) {
+                l = ipt.isSigned() ? (int) l : l & 0xFFFFFFFFL;
+            }
+            dp.setEng(i, ipt.getValueType(), l);
+        } else if (ptype instanceof FloatParameterType) {
+            FloatParameterType fpt = (FloatParameterType) ptype;
+            if (!hasCalibrator(fpt) && fpt.getValueType() == rawType) {
+                dp.setEng(i, rawType, rv);
+                return;
+            }
+            double d;
+            if (floatRaw) {
+                d = Double.longBitsToDouble(rv);
+            } else if (rawType == Type.UINT64) {
+                d = UnsignedLong.toDouble(rv);
+            } else {
+                d = rv;
+            }
+            CalibratorProc calibrator = pdata.getCalibrator(processingData, fpt.getEncoding());
+            if (calibrator != null) {
+                d = calibrator.calibrate(d);
+            }
+            if (fpt.getSizeInBits() == 32) {
+                dp.setEng(i, Type.FLOAT, Double.doubleToRawLongBits((float) d));
+            } else {
+                dp.setEng(i, Type.DOUBLE, Double.doubleToRawLongBits(d));
+            }
+        } else {
+            boolean b = floatRaw ? Double.longBitsToDouble(rv) != 0 : rv != 0;
+            dp.setEng(i, Type.BOOLEAN, b ? 1 : 0);
+        }
+    }
+
+    private Value calibrateEnumerated(EnumeratedParameterType ept, Value rawValue) {
         switch (rawValue.getType()) {
         case UINT32:
-            return ValueUtility.getEnumeratedValue(rawValue.getUint32Value(), ept.calibrate(rawValue.getUint32Value()));
+            return getEnumeratedValue(ept, rawValue.getUint32Value());
         case UINT64:
             return ValueUtility.getEnumeratedValue(rawValue.getUint64Value(), ept.calibrate(rawValue.getUint64Value()));
         case SINT32:
-            return ValueUtility.getEnumeratedValue(rawValue.getSint32Value(), ept.calibrate(rawValue.getSint32Value()));
+            return getEnumeratedValue(ept, rawValue.getSint32Value());
         case SINT64:
-            return ValueUtility.getEnumeratedValue(rawValue.getSint64Value(), ept.calibrate(rawValue.getSint64Value()));
+            return getEnumeratedValue(ept, rawValue.getSint64Value());
         case FLOAT:
             return ValueUtility.getEnumeratedValue((long) rawValue.getFloatValue(),
                     ept.calibrate((long) rawValue.getFloatValue()));
@@ -148,6 +250,24 @@ public class ParameterTypeProcessor {
         }
     }
 
+    /**
+     * returns the enumerated value from the cache if the raw value is small, otherwise creates a new one
+     */
+    private EnumeratedValue getEnumeratedValue(EnumeratedParameterType ept, long l) {
+        if (l < 0 || l >= ENUM_CACHE_SIZE) {
+            return ValueUtility.getEnumeratedValue(l, ept.calibrate(l));
+        }
+        EnumeratedValue[] cache = enumCache.computeIfAbsent(ept, k -> new EnumeratedValue[ENUM_CACHE_SIZE]);
+        int k = (int) l;
+        EnumeratedValue ev = cache[k];
+        if (ev == null) {
+            // the EnumeratedValue is immutable so it is safe to publish it without synchronization
+            ev = ValueUtility.getEnumeratedValue(l, ept.calibrate(l));
+            cache[k] = ev;
+        }
+        return ev;
+    }
+
     /*
      * encode the most significant 8 bytes of b to a long
      */
@@ -68,6 +68,8 @@ public class ProcessingData {
     final protected Map<Argument, ArgumentValue> cmdArgs;
     final protected LastValueCache cmdParamsCache;
     final protected ParameterValueList cmdParams;
+    // true if a value of a non constant TM parameter has been read from the tmParamsCache
+    boolean tmCacheUsed;
 
     /**
      * Used in a TM processing pipeline - for example when a TM packet is received
@@ -183,26 +185,52 @@ public class ProcessingData {
         if (param.isCommandParameter()) {
             return get(cmdParams, cmdParamsCache, param, pref.getInstance(), allowOld);
         } else {
+            prepareTmLookup(param);
             return get(tmParams, tmParamsCache, param, pref.getInstance(), allowOld);
         }
     }
 
-    private static ParameterValue get(ParameterValueList tmParams, LastValueCache tmParamsCache, Parameter param,
+    /**
+     * Called before looking up the values of a TM parameter in the {@code tmParams}. It allows the subclasses to add
+     * to the list the values which have not been added yet.
+     */
+    void prepareTmLookup(Parameter param) {
+    }
+
+    private ParameterValue get(ParameterValueList params, LastValueCache paramsCache, Parameter param,
             int instance, boolean allowOld) {
-        if (tmParams == null || tmParams.getFirstInserted(param) == null) {
-            if (!allowOld || tmParamsCache == null || instance > 0) {
+        if (params == null || params.getFirstInserted(param) == null) {
+            if (!allowOld || paramsCache == null || instance > 0) {
                 return null;
             }
-            return tmParamsCache.getValue(param, instance);
+            return getFromCache(paramsCache, param, instance);
         } else {
             if (instance >= 0) {
-                return tmParams.get(param, instance);
+                return params.get(param, instance);
             } else {
-                return tmParamsCache.getValue(param, instance + 1);
+                return getFromCache(paramsCache, param, instance + 1);
             }
         }
     }
 
+    ParameterValue getFromCache(LastValueCache cache, Parameter param, int instance) {
+        if (cache == tmParamsCache && param.getDataSource() != DataSource.CONSTANT) {
+            tmCacheUsed = true;
+        }
+        return cache.getValue(param, instance);
+    }
+
+    /**
+     * Returns true if during the processing a value of a (non constant) TM parameter has been retrieved from the
+     * tmParamsCache.
+     * <p>
+     * The result of such processing depends on the values released before it; it is used by the pipelined packet
+     * processing to detect the packets which cannot be decoded in parallel with the previous packets.
+     */
+    public boolean isTmCacheUsed() {
+        return tmCacheUsed;
+    }
+
     public ArgumentValue getCmdArgument(Argument arg) {
         return (cmdArgs == null) ? null : cmdArgs.get(arg);
     }
@@ -218,6 +246,7 @@ public class ProcessingData {
         if (param.isCommandParameter()) {
             return cmdParams != null && cmdParams.getFirstInserted(param) != null;
         } else {
+            prepareTmLookup(param);
             return tmParams != null && tmParams.getFirstInserted(param) != null;
         }
     }
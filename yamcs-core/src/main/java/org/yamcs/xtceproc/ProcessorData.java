@@ -5,6 +5,7 @@ import static org.yamcs.xtce.XtceDb.YAMCS_SPACESYSTEM_NAME;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -56,10 +57,10 @@ public class ProcessorData {
      */
     final ParameterTypeProcessor parameterTypeProcessor;
 
-    private Map<Calibrator, CalibratorProc> calibrators = new HashMap<>();
+    private Map<Calibrator, CalibratorProc> calibrators = new ConcurrentHashMap<>();
     private Map<DataEncoding, DataDecoder> decoders = new HashMap<>();
     private Map<DataEncoding, DataEncoder> encoders = new HashMap<>();
-    private Map<MatchCriteria, MatchCriteriaEvaluator> evaluators = new HashMap<>();
+    private Map<MatchCriteria, MatchCriteriaEvaluator> evaluators = new ConcurrentHashMap<>();
 
     final XtceDb xtcedb;
     final Log log;
@@ -72,11 +73,16 @@ public class ProcessorData {
     /**
      * used to store parameter types which are changed dynamically (so they don't correspond anymore to MDB)
      */
-    Map<Parameter, ParameterType> typeOverrides = new HashMap<>();
+    Map<Parameter, ParameterType> typeOverrides = new ConcurrentHashMap<>();
     String yamcsInstance;
 
     private ProcessorConfig processorConfig;
 
+    /**
+     * provides the compiled versions of the MDB match criteria and calibrators; null if the compilation is disabled
+     */
+    private final MdbCompiler mdbCompiler;
+
     public ProcessorData(Processor proc, ProcessorConfig config) {
         this(proc.getInstance(), proc.getName(), proc.getXtceDb(), config);
 
@@ -107,6 +113,12 @@ public class ProcessorData {
         log = new Log(this.getClass(), instance);
         log.setContext(procName);
 
+        if (config.getContainerProcessingOptions().compileMdb()) {
+            mdbCompiler = MdbCompiler.getInstance(xtcedb);
+        } else {
+            mdbCompiler = null;
+        }
+
         if ((instance != null) && config.generateEvents()) {
             eventProducer = EventProducerFactory.getEventProducer(instance);
         } else {// instance can be null when running in test or as a library - in this case we don't generate events
@@ -236,7 +248,10 @@ public class ProcessorData {
         }
         CalibratorProc calibrator = calibrators.get(c);
         if (calibrator == null) {
-            if (c instanceof PolynomialCalibrator) {
+            CalibratorProc compiled = mdbCompiler == null ? null : mdbCompiler.getCalibrator(c);
+            if (compiled != null) {
+                calibrator = compiled;
+            } else if (c instanceof PolynomialCalibrator) {
                 calibrator = new PolynomialCalibratorProc((PolynomialCalibrator) c);
             } else if (c instanceof SplineCalibrator) {
                 calibrator = new SplineCalibratorProc((SplineCalibrator) c);
@@ -253,8 +268,10 @@ public class ProcessorData {
     }
 
     public MatchCriteriaEvaluator getEvaluator(MatchCriteria mc) {
-        return evaluators.computeIfAbsent(mc,
-                k -> MatchCriteriaEvaluatorFactory.getEvaluator(k));
+        return evaluators.computeIfAbsent(mc, k -> {
+            MatchCriteriaEvaluator evaluator = mdbCompiler == null ? null : mdbCompiler.getEvaluator(k);
+            return evaluator == null ? MatchCriteriaEvaluatorFactory.getEvaluator(k) : evaluator;
+        });
     }
 
     public DataDecoder getDataDecoder(DataEncoding de) {
@@ -118,11 +118,34 @@ public class SequenceEntryProcessor {
     }
 
     private void extractParameterEntry(ParameterEntry pe) {
+        DecodedPacket dp = pcontext.result.decodedPacket;
+        if (dp != null && dp.usePrimitiveSlot(pe.getParameter())
+                && pcontext.proccessorData.parameterTypeProcessor.isPrimitive(pe.getParameter())) {
+            extractPrimitiveParameterEntry(pe, dp);
+            return;
+        }
         ContainerParameterValue pv = extractParameter(pe.getParameter());
         pv.setSequenceEntry(pe);
         pcontext.result.addTmParam(pv);
     }
 
+    /**
+     * extracts and calibrates the value into a primitive slot of the decoded packet, without creating a
+     * ParameterValue
+     */
+    private void extractPrimitiveParameterEntry(ParameterEntry pe, DecodedPacket dp) {
+        Parameter param = pe.getParameter();
+        DataEncoding encoding = ((BaseDataType) param.getParameterType()).getEncoding();
+        BitBuffer buf = pcontext.buffer;
+        int startPosition = buf.getPosition();
+
+        long rv = pcontext.dataEncodingProcessor.extractRawPrimitive(encoding);
+        int i = dp.addPrimitive(param, pe, buf.offset(), startPosition, buf.getPosition() - startPosition,
+                DataEncodingDecoder.getRawType(encoding), rv, pcontext.result.expireMillis);
+
+        pcontext.proccessorData.parameterTypeProcessor.calibrate(pcontext.result, dp, i);
+    }
+
     private void extractArrayParameterEntry(ArrayParameterEntry pe) {
         List<IntegerValue> size = pe.getSize();
         if (size == null) {
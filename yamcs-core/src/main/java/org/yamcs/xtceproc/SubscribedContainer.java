@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import org.yamcs.xtce.MatchCriteria;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.SequenceEntry;
 import org.yamcs.xtceproc.MatchCriteriaEvaluator.MatchResult;
@@ -15,6 +14,8 @@ public class SubscribedContainer {
 
     List<InheritingContainer> inheritingContainers = new ArrayList<>();
     boolean allEntriesAdded = false;
+    // number of parameters extracted last time starting from this container, used to size the result
+    int lastResultSize = 0;
 
     public SubscribedContainer(SequenceContainer sc) {
         this.conainerDef = sc;
@@ -38,9 +39,9 @@ public class SubscribedContainer {
         entries = conainerDef.getEntryList();
     }
 
-    public void addIneriting(SubscribedContainer child) {
+    public void addIneriting(SubscribedContainer child, MatchCriteriaEvaluator criteriaEvaluator) {
         if (!inheritingContainers.stream().anyMatch(ic -> ic.container == child)) {
-            inheritingContainers.add(new InheritingContainer(child, child.conainerDef.getRestrictionCriteria()));
+            inheritingContainers.add(new InheritingContainer(child, criteriaEvaluator));
         }
     }
 
@@ -58,10 +59,9 @@ public class SubscribedContainer {
         final SubscribedContainer container;
         final MatchCriteriaEvaluator criteriaEvaluator;
 
-        public InheritingContainer(SubscribedContainer container, MatchCriteria matchCriteria) {
+        public InheritingContainer(SubscribedContainer container, MatchCriteriaEvaluator criteriaEvaluator) {
             this.container = container;
-            criteriaEvaluator = matchCriteria == null ? MatchCriteriaEvaluatorFactory.ALWAYS_MATCH
-                    : MatchCriteriaEvaluatorFactory.getEvaluator(matchCriteria);
+            this.criteriaEvaluator = criteriaEvaluator;
         }
 
         public MatchResult matches(ProcessingData data) {
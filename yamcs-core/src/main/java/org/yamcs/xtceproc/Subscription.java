@@ -33,9 +33,11 @@ public class Subscription {
     final static Logger log = LoggerFactory.getLogger(Subscription.class);
 
     XtceDb xtcedb;
+    final ProcessorData pdata;
 
-    Subscription(XtceDb xtcedb) {
+    Subscription(XtceDb xtcedb, ProcessorData pdata) {
         this.xtcedb = xtcedb;
+        this.pdata = pdata;
     }
 
     public SubscribedContainer addSequenceContainer(SequenceContainer containerDef) {
@@ -54,7 +56,7 @@ public class Subscription {
             SubscribedContainer bases = addSequenceContainer(base);
 
             MatchCriteria mc = containerDef.getRestrictionCriteria();
-            bases.addIneriting(subscribedContainer);
+            bases.addIneriting(subscribedContainer, getEvaluator(mc));
 
             if (mc != null) {
                 for (Parameter p : mc.getDependentParameters()) {
@@ -97,7 +99,7 @@ public class Subscription {
         if (inheriting != null) {
             for (SequenceContainer sc : inheriting) {
                 addAll(sc);
-                subscr.addIneriting(containers.get(sc));
+                subscr.addIneriting(containers.get(sc), getEvaluator(sc.getRestrictionCriteria()));
             }
         }
     }
@@ -185,6 +187,10 @@ public class Subscription {
         return sb.toString();
     }
 
+    private MatchCriteriaEvaluator getEvaluator(MatchCriteria mc) {
+        return mc == null ? MatchCriteriaEvaluatorFactory.ALWAYS_MATCH : pdata.getEvaluator(mc);
+    }
+
     public SubscribedContainer getSubscribedContainer(SequenceContainer containerDef) {
         return containers.get(containerDef);
     }
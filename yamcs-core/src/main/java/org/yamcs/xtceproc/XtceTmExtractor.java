@@ -1,11 +1,14 @@
 package org.yamcs.xtceproc;
 
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.ProcessorConfig;
 import org.yamcs.archive.XtceTmRecorder;
+import org.yamcs.parameter.ParameterValue;
 import org.yamcs.utils.BitBuffer;
 import org.yamcs.xtce.IndirectParameterRefEntry;
 import org.yamcs.xtce.Parameter;
@@ -16,17 +19,23 @@ import org.yamcs.xtce.XtceDb;
 /**
  *
  * Extracts parameters out of packets based on the XTCE description
+ * <p>
+ * Multiple packets can be extracted in parallel; the subscription is protected by a read/write lock such that it is
+ * only modified when no extraction is in progress.
  *
  */
 public class XtceTmExtractor {
     private static final Logger log = LoggerFactory.getLogger(XtceTmExtractor.class);
     protected final Subscription subscription;
+    private final ReadWriteLock subscriptionLock = new ReentrantReadWriteLock();
     private ProcessingStatistics stats = new ProcessingStatistics();
 
     public final XtceDb xtcedb;
     final SequenceContainer rootContainer;
     ContainerProcessingOptions options = new ContainerProcessingOptions(null);
     final ProcessorData pdata;
+    // reusable objects for decodePacket, one set per thread
+    private final ThreadLocal<DecodingContext> decodingContext = new ThreadLocal<>();
 
     /**
      * Create a standalone TM extractor
@@ -45,9 +54,9 @@ public class XtceTmExtractor {
      */
     public XtceTmExtractor(XtceDb xtcedb, ProcessorData pdata) {
         this.xtcedb = xtcedb;
-        this.subscription = new Subscription(xtcedb);
-        rootContainer = xtcedb.getRootSequenceContainer();
         this.pdata = pdata;
+        this.subscription = new Subscription(xtcedb, pdata);
+        rootContainer = xtcedb.getRootSequenceContainer();
         if (pdata.getProcessorConfig().subscribeContainerArchivePartitions()) {
             for (SequenceContainer sc : xtcedb.getSequenceContainers()) {
                 if (sc.useAsArchivePartition()) {
@@ -70,13 +79,16 @@ public class XtceTmExtractor {
      *            parameter to be added to the current subscription list
      */
     public void startProviding(Parameter param) {
-        synchronized (subscription) {
+        subscriptionLock.writeLock().lock();
+        try {
             ParameterType ptype = param.getParameterType();
             if (ptype != null) {
                 Set<Parameter> dependencies = ptype.getDependentParameters();
                 dependencies.forEach(p -> subscription.addParameter(p));
             }
             subscription.addParameter(param);
+        } finally {
+            subscriptionLock.writeLock().unlock();
         }
     }
 
@@ -84,10 +96,15 @@ public class XtceTmExtractor {
      * Adds all containers and parameters to the subscription
      */
     public void provideAll() {
-        for (SequenceContainer c : xtcedb.getSequenceContainers()) {
-            if (c.getBaseContainer() == null) {
-                subscription.addAll(c);
+        subscriptionLock.writeLock().lock();
+        try {
+            for (SequenceContainer c : xtcedb.getSequenceContainers()) {
+                if (c.getBaseContainer() == null) {
+                    subscription.addAll(c);
+                }
             }
+        } finally {
+            subscriptionLock.writeLock().unlock();
         }
     }
 
@@ -122,29 +139,122 @@ public class XtceTmExtractor {
      */
     public ContainerProcessingResult processPacket(BitBuffer buf, long generationTime, long acquisitionTime,
             SequenceContainer startContainer) {
+        ContainerProcessingResult result = extract(buf, generationTime, acquisitionTime, startContainer);
+        report(result, buf.sizeInBits());
+        return result;
+    }
 
+    /**
+     * Extract one packet without updating the statistics and without reporting the errors; the result has to be
+     * passed to {@link #report(ContainerProcessingResult, int)} unless it is discarded.
+     */
+    ContainerProcessingResult extract(BitBuffer buf, long generationTime, long acquisitionTime,
+            SequenceContainer startContainer) {
+        SubscribedContainer subscribedContainer = getSubscribedContainer(startContainer);
         ContainerProcessingResult result = new ContainerProcessingResult(acquisitionTime, generationTime,
-                pdata.getLastValueCache());
+                pdata.getLastValueCache(), subscribedContainer.lastResultSize);
+        subscriptionLock.readLock().lock();
         try {
-            synchronized (subscription) {
-                SubscribedContainer subscribedContainer = subscription.addSequenceContainer(startContainer);
-                ContainerProcessingContext cpc = new ContainerProcessingContext(pdata, buf, result, subscription,
-                        options, true);
-                cpc.sequenceContainerProcessor.extract(subscribedContainer);
-                String pname = XtceTmRecorder.deriveArchivePartition(result);
-                stats.newPacket(pname, result.getParameterResult().size(), acquisitionTime, generationTime,
-                        buf.sizeInBits());
-            }
+            ContainerProcessingContext cpc = new ContainerProcessingContext(pdata, buf, result, subscription,
+                    options, true);
+            extract(cpc, subscribedContainer);
+        } finally {
+            subscriptionLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Extract one packet, starting at the specified container, without creating the {@link ParameterValue} objects
+     * for the simple parameters.
+     * <p>
+     * The decoding uses a context (bit buffer, processing result and decoded packet) which is allocated once per
+     * thread and reused for all the packets decoded by the thread. The values of the integer, float, boolean and
+     * enumerated parameters are stored in primitive slots and the parameter values are only created when requested
+     * from the decoded packet.
+     * <p>
+     * The statistics are updated as for {@link #processPacket(byte[], long, long, SequenceContainer)}.
+     * 
+     * @return the decoded packet; it is overwritten by the next call of this method from the same thread.
+     */
+    public DecodedPacket decodePacket(byte[] b, long generationTime, long acquisitionTime,
+            SequenceContainer startContainer) {
+        SubscribedContainer subscribedContainer = getSubscribedContainer(startContainer);
+        DecodingContext ctx = getDecodingContext();
+        ctx.buffer.wrap(b);
+        ctx.result.reset(acquisitionTime, generationTime);
+        subscriptionLock.readLock().lock();
+        try {
+            extract(ctx.cpc, subscribedContainer);
+        } finally {
+            subscriptionLock.readLock().unlock();
+        }
+        report(ctx.result, ctx.buffer.sizeInBits());
+        return ctx.decodedPacket;
+    }
+
+    private void extract(ContainerProcessingContext cpc, SubscribedContainer subscribedContainer) {
+        ContainerProcessingResult result = cpc.result;
+        try {
+            cpc.sequenceContainerProcessor.extract(subscribedContainer);
+            subscribedContainer.lastResultSize = size(result);
         } catch (XtceProcessingException e) {
-            pdata.eventProducer.sendWarning(e.toString());
-            log.info("Exception processing packet ", e);
             result.exception = e;
         } catch (Exception e) {
-            // send warning as events and in the log file.
+            // unexpected, reported as error by the report method
+            result.exception = new XtceProcessingException(e.toString(), e);
+        }
+    }
+
+    private DecodingContext getDecodingContext() {
+        DecodingContext ctx = decodingContext.get();
+        if (ctx == null || ctx.cpc.options != options) {
+            ctx = new DecodingContext();
+            decodingContext.set(ctx);
+        }
+        return ctx;
+    }
+
+    // number of parameters extracted
+    private static int size(ContainerProcessingResult result) {
+        return result.decodedPacket == null ? result.getParameterResult().size() : result.decodedPacket.size();
+    }
+
+    /**
+     * Updates the statistics with the extracted packet or sends a warning if the extraction failed.
+     */
+    void report(ContainerProcessingResult result, int sizeInBits) {
+        XtceProcessingException e = result.exception;
+        if (e == null) {
+            String pname = XtceTmRecorder.deriveArchivePartition(result);
+            stats.newPacket(pname, size(result), result.acquisitionTime,
+                    result.generationTime, sizeInBits);
+        } else if (e.getCause() != null) {
+            // unexpected exception wrapped by extract; send warning as events and in the log file.
+            pdata.eventProducer.sendWarning(e.getMessage());
+            log.error("got exception in tmextractor ", e.getCause());
+        } else {
             pdata.eventProducer.sendWarning(e.toString());
-            log.error("got exception in tmextractor ", e);
+            log.info("Exception processing packet ", e);
+        }
+    }
+
+    private SubscribedContainer getSubscribedContainer(SequenceContainer container) {
+        subscriptionLock.readLock().lock();
+        try {
+            SubscribedContainer subscribedContainer = subscription.getSubscribedContainer(container);
+            if (subscribedContainer != null) {
+                return subscribedContainer;
+            }
+        } finally {
+            subscriptionLock.readLock().unlock();
+        }
+        subscriptionLock.writeLock().lock();
+        try {
+            return subscription.addSequenceContainer(container);
+        } finally {
+            subscriptionLock.writeLock().unlock();
         }
-        return result;
     }
 
     public void resetStatistics() {
@@ -156,8 +266,11 @@ public class XtceTmExtractor {
     }
 
     public void startProviding(SequenceContainer sequenceContainer) {
-        synchronized (subscription) {
+        subscriptionLock.writeLock().lock();
+        try {
             subscription.addSequenceContainer(sequenceContainer);
+        } finally {
+            subscriptionLock.writeLock().unlock();
         }
     }
 
@@ -181,4 +294,15 @@ public class XtceTmExtractor {
     public ContainerProcessingOptions getOptions() {
         return options;
     }
+
+    /**
+     * the objects reused by one thread for decoding packets
+     */
+    class DecodingContext {
+        final BitBuffer buffer = new BitBuffer(new byte[0]);
+        final ContainerProcessingResult result = new ContainerProcessingResult(0, 0, pdata.getLastValueCache());
+        final DecodedPacket decodedPacket = new DecodedPacket(result);
+        final ContainerProcessingContext cpc = new ContainerProcessingContext(pdata, buffer, result, subscription,
+                options, true);
+    }
 }
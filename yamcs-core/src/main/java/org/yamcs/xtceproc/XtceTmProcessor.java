@@ -1,6 +1,12 @@
 package org.yamcs.xtceproc;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.yamcs.AbstractProcessorService;
 import org.yamcs.ConfigurationException;
@@ -17,18 +23,29 @@ import org.yamcs.parameter.ParameterProcessor;
 import org.yamcs.parameter.ParameterProvider;
 import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.utils.BitBuffer;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtceproc.ContainerProcessingOptions.OrderingKey;
 import org.yamcs.xtce.Container;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.XtceDb;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * 
  * Does the job of getting containers and transforming them into parameters which are then sent to the parameter request
  * manager for the distribution to the requesters.
  * 
  * Relies on {@link XtceTmExtractor} for extracting the parameters out of containers
+ * <p>
+ * By default the packets are processed entirely on the thread delivering them. If the
+ * {@link ContainerProcessingOptions#getPipelineWorkers()} is greater than 0, the processing is pipelined: the packets
+ * are decoded on a pool of workers (packets with the same ordering key always on the same worker) and the results are
+ * passed to the parameter and container listeners by a separate delivery thread in the order in which the packets have
+ * been received. The packets whose decoding depends on the values of the previous packets are decoded again on the
+ * delivery thread.
  * 
  * @author nm
  * 
@@ -42,12 +59,24 @@ public class XtceTmProcessor extends AbstractProcessorService
     public final XtceDb xtcedb;
     final XtceTmExtractor tmExtractor;
 
+    // used in the pipelined mode
+    private ExecutorService[] workers;
+    private ExecutorService deliveryExecutor;
+    private OrderingKey orderingKey;
+    private Semaphore pipelineSlots;
+    private CompletableFuture<Void> lastDelivery = CompletableFuture.completedFuture(null);
+    private int roundRobin;
+
     public XtceTmProcessor(Processor processor) {
         this.processor = processor;
         this.xtcedb = processor.getXtceDb();
         log = new Log(getClass(), processor.getInstance());
         log.setContext(processor.getName());
         tmExtractor = new XtceTmExtractor(xtcedb, processor.getProcessorData());
+        ContainerProcessingOptions opts = processor.getConfig().getContainerProcessingOptions();
+        if (opts.getPipelineWorkers() > 0) {
+            createPipeline(opts);
+        }
     }
 
     /**
@@ -134,27 +163,117 @@ public class XtceTmProcessor extends AbstractProcessorService
 
     @Override
     public void processPacket(TmPacket pwrt, SequenceContainer sc) {
+        if (workers != null) {
+            processPipelined(pwrt, sc);
+            return;
+        }
         try {
-            long rectime = pwrt.getReceptionTime();
-            if (rectime == TimeEncoding.INVALID_INSTANT) {
-                rectime = TimeEncoding.getWallclockTime();
-            }
-            ContainerProcessingResult result = tmExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(),
-                    rectime, sc);
+            deliver(extract(pwrt, sc));
+        } catch (Exception e) {
+            log.error("got exception in tmprocessor ", e);
+        }
+    }
 
-            ParameterValueList paramResult = result.getTmParams();
-            List<ContainerExtractionResult> containerResult = result.containers;
+    private ContainerProcessingResult extract(TmPacket pwrt, SequenceContainer sc) {
+        return tmExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), getRectime(pwrt), sc);
+    }
 
-            if ((parameterProcessorManager != null) && (paramResult.size() > 0)) {
-                parameterProcessorManager.process(result);
-            }
+    /**
+     * extracts the packet without updating the statistics, used on the pipeline workers
+     */
+    private ContainerProcessingResult extractUnreported(TmPacket pwrt, SequenceContainer sc) {
+        return tmExtractor.extract(new BitBuffer(pwrt.getPacket()), pwrt.getGenerationTime(), getRectime(pwrt), sc);
+    }
+
+    private static long getRectime(TmPacket pwrt) {
+        long rectime = pwrt.getReceptionTime();
+        if (rectime == TimeEncoding.INVALID_INSTANT) {
+            rectime = TimeEncoding.getWallclockTime();
+        }
+        return rectime;
+    }
+
+    private void deliver(ContainerProcessingResult result) {
+        ParameterValueList paramResult = result.getTmParams();
+        List<ContainerExtractionResult> containerResult = result.containers;
 
-            if ((containerRequestManager != null) && (containerResult.size() > 0)) {
-                containerRequestManager.update(containerResult);
+        if ((parameterProcessorManager != null) && (paramResult.size() > 0)) {
+            parameterProcessorManager.process(result);
+        }
+
+        if ((containerRequestManager != null) && (containerResult.size() > 0)) {
+            containerRequestManager.update(containerResult);
+        }
+    }
+
+    private void createPipeline(ContainerProcessingOptions opts) {
+        int n = opts.getPipelineWorkers();
+        String prefix = "XtceTmProcessor-" + processor.getInstance() + "." + processor.getName();
+        workers = new ExecutorService[n];
+        for (int i = 0; i < n; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat(prefix + "-worker-" + i).setDaemon(true).build());
+        }
+        deliveryExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat(prefix + "-delivery").setDaemon(true).build());
+        orderingKey = opts.getPipelineOrderingKey();
+        pipelineSlots = new Semaphore(opts.getPipelineQueueSize());
+        log.debug("Using pipelined processing with {} workers, ordering key {}", n, orderingKey);
+    }
+
+    /**
+     * Submits the packet for decoding to the worker corresponding to its ordering key and chains its delivery after
+     * the delivery of the previous packet. Blocks if too many packets are in the pipeline.
+     * <p>
+     * The workers see the last value cache as it was when they decoded the packet, possibly before the values of the
+     * previous packets have been delivered. If the decoding has used values from the cache (e.g. in a container
+     * restriction criteria or a dynamic size), the result is discarded and the packet is decoded again on the
+     * delivery thread, after the previous packets have been delivered. The statistics are only updated on the
+     * delivery thread.
+     */
+    private void processPipelined(TmPacket pwrt, SequenceContainer sc) {
+        try {
+            pipelineSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (this) {
+            ExecutorService worker = workers[workerIndex(pwrt.getPacket())];
+            CompletableFuture<ContainerProcessingResult> decoded;
+            try {
+                decoded = CompletableFuture.supplyAsync(() -> extractUnreported(pwrt, sc), worker);
+            } catch (RejectedExecutionException e) {
+                pipelineSlots.release();
+                log.warn("Packet received after the processor has been stopped; ignoring");
+                return;
             }
+            lastDelivery = lastDelivery.thenCombineAsync(decoded, (v, result) -> {
+                if (result.isTmCacheUsed()) {
+                    result = extract(pwrt, sc);
+                } else {
+                    tmExtractor.report(result, pwrt.getPacket().length * 8);
+                }
+                deliver(result);
+                return (Void) null;
+            }, deliveryExecutor).handle((v, e) -> {
+                pipelineSlots.release();
+                if (e != null) {
+                    log.error("got exception in tmprocessor ", e);
+                }
+                return null;
+            });
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("got exception in tmprocessor ", e);
+    private int workerIndex(byte[] packet) {
+        int n = workers.length;
+        if (orderingKey == OrderingKey.APID && packet.length >= 2) {
+            int apid = ((packet[0] & 0x07) << 8) | (packet[1] & 0xFF);
+            return apid % n;
+        } else {
+            int k = roundRobin++;
+            return Math.floorMod(k, n);
         }
     }
 
@@ -211,6 +330,22 @@ public class XtceTmProcessor extends AbstractProcessorService
 
     @Override
     protected void doStop() {
+        if (workers != null) {
+            try {
+                CompletableFuture<Void> last;
+                synchronized (this) {
+                    last = lastDelivery;
+                }
+                last.join();
+                for (ExecutorService w : workers) {
+                    w.shutdown();
+                }
+                deliveryExecutor.shutdown();
+                deliveryExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         notifyStopped();
     }
 
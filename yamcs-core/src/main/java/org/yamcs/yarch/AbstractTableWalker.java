@@ -1,5 +1,7 @@
 package org.yamcs.yarch;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -34,6 +36,9 @@ public abstract class AbstractTableWalker implements TableWalker {
     final protected boolean follow;
    
     protected long numRecordsRead = 0;
+
+    // number of intervals read in advance of the one being walked
+    protected int readAheadDepth = 0;
   
     volatile protected boolean running = false;
 
@@ -57,9 +62,21 @@ public abstract class AbstractTableWalker implements TableWalker {
 
         running = true;
         Iterator<PartitionManager.Interval> partitionIterator = getIntervalIterator();
+        int depth = follow ? 0 : readAheadDepth;
+        Deque<PartitionManager.Interval> intervals = new ArrayDeque<>(depth + 1);
         try {
-            while (isRunning() && partitionIterator.hasNext()) {
-                PartitionManager.Interval interval = partitionIterator.next();
+            while (isRunning()) {
+                while (intervals.size() <= depth && partitionIterator.hasNext()) {
+                    PartitionManager.Interval interval = partitionIterator.next();
+                    if (depth > 0) {
+                        readAhead(interval, range);
+                    }
+                    intervals.add(interval);
+                }
+                PartitionManager.Interval interval = intervals.poll();
+                if (interval == null) {
+                    break;
+                }
                 boolean endReached = walkInterval(interval, range, visitor);
                 if (endReached) {
                     break;
@@ -140,6 +157,32 @@ public abstract class AbstractTableWalker implements TableWalker {
         this.range = range;
     }
     
+    /**
+     * Sets the number of intervals to be read in advance of the one being walked. The walker has to be used only for
+     * reading: the visitor is not allowed to update or delete rows.
+     * <p>
+     * The read-ahead is not used when following the table.
+     * 
+     * @param depth
+     *            0 disables the read-ahead.
+     */
+    public void setReadAheadDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth cannot be negative");
+        }
+        this.readAheadDepth = depth;
+    }
+
+    /**
+     * Called for each interval before being passed to {@link #walkInterval(PartitionManager.Interval, DbRange,
+     * TableVisitor)} if the read-ahead is enabled. The intervals are passed in the walking order, up to
+     * {@link #readAheadDepth} intervals in advance of the one being walked.
+     * <p>
+     * This implementation does nothing.
+     */
+    protected void readAhead(PartitionManager.Interval interval, DbRange range) {
+    }
+
     /**
      * Runs the data in a time interval (corresponding to a time partition) sending data only that conform with the
      * start and end filters. Returns true if the stop condition is met
@@ -0,0 +1,421 @@
+package org.yamcs.yarch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yamcs.logging.Log;
+import org.yamcs.utils.ByteArray;
+
+/**
+ * Decouples a {@link StreamSubscriber} from the thread emitting the tuples on a stream.
+ * <p>
+ * The tuples are put in a bounded queue and passed to the subscriber from a dedicated thread. When the queue is full,
+ * the {@link OverflowPolicy} decides what happens with the new tuples.
+ * <p>
+ * The wrappers are created by the {@link Stream} for each subscriber when the stream has a subscriber queue configured
+ * (see {@link Stream#setSubscriberQueue(Config)}).
+ */
+public class AsyncSubscriber implements StreamSubscriber {
+    public enum OverflowPolicy {
+        /**
+         * the emitting thread waits until there is space in the queue
+         */
+        BLOCK,
+        /**
+         * the oldest tuple is removed from the queue to make space for the new one
+         */
+        DROP_OLDEST,
+        /**
+         * the tuples which do not fit in the queue are written to a file and passed to the subscriber after the ones
+         * from the queue
+         */
+        SPILL
+    }
+
+    /**
+     * Configuration of the subscriber queues of one stream.
+     */
+    public static class Config {
+        final int capacity;
+        final OverflowPolicy overflowPolicy;
+        final File spillDir;
+
+        /**
+         *
+         * @param capacity
+         *            maximum number of tuples in the queue
+         * @param overflowPolicy
+         *            what to do when the queue is full
+         * @param spillDir
+         *            directory where the spill files are created; if null, the default temporary directory is used
+         */
+        public Config(int capacity, OverflowPolicy overflowPolicy, File spillDir) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("The queue capacity has to be positive");
+            }
+            this.capacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+            this.spillDir = spillDir;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        @Override
+        public String toString() {
+            return "capacity: " + capacity + ", overflowPolicy: " + overflowPolicy;
+        }
+    }
+
+    // pushed after the streamClosed signal, to stop the thread
+    static final Entry END_SIGNAL = new Entry(null, 0);
+
+    final Stream stream;
+    final StreamSubscriber subscriber;
+    final Config config;
+    final ArrayBlockingQueue<Entry> queue;
+    final Log log;
+    final Thread thread;
+
+    // the spill file is created when the first tuple does not fit in the queue
+    private SpillFile spill;
+    private final Object spillLock = new Object();
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private volatile long lagNanos;
+    private volatile boolean closed;
+
+    AsyncSubscriber(Stream stream, StreamSubscriber subscriber, Config config) {
+        this.stream = stream;
+        this.subscriber = subscriber;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(config.capacity);
+        this.log = new Log(getClass(), stream.ydb.getName());
+        log.setContext(stream.getName());
+
+        thread = new Thread(this::run, "AsyncSubscriber[" + stream.getName() + "]");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void onTuple(Stream s, Tuple tuple) {
+        if (closed) {
+            return;
+        }
+        Entry e = new Entry(tuple, System.nanoTime());
+        try {
+            switch (config.overflowPolicy) {
+            case BLOCK:
+                queue.put(e);
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(e)) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            case SPILL:
+                synchronized (spillLock) {
+                    // once something has been spilled, the following tuples go to the spill file as well, to keep the
+                    // order
+                    if ((spill == null || spill.isEmpty()) && queue.offer(e)) {
+                        break;
+                    }
+                    getSpill().write(e);
+                    spilledCount.incrementAndGet();
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown policy " + config.overflowPolicy);
+            }
+        } catch (InterruptedException e1) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e1) {
+            log.error("Cannot write to the spill file; dropping tuple", e1);
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void streamClosed(Stream s) {
+        if (closed) {
+            return;
+        }
+        try {
+            queue.put(END_SIGNAL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the thread without passing the remaining tuples to the subscriber. Called when the subscriber is removed
+     * from the stream.
+     */
+    void close() {
+        closed = true;
+        thread.interrupt();
+        // release the emitting threads blocked on a full queue
+        queue.clear();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Entry e = next();
+                if (e == END_SIGNAL) {
+                    // the signal may have overtaken the tuples in the spill file
+                    Entry e1;
+                    while ((e1 = readSpill()) != null) {
+                        deliver(e1.tuple);
+                    }
+                    subscriber.streamClosed(stream);
+                    break;
+                }
+                lagNanos = System.nanoTime() - e.time;
+                deliver(e.tuple);
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } finally {
+            synchronized (spillLock) {
+                if (spill != null) {
+                    spill.delete();
+                    spill = null;
+                }
+            }
+        }
+    }
+
+    private Entry next() throws InterruptedException {
+        Entry e = queue.poll();
+        if (e == null) {
+            e = readSpill();
+        }
+        if (e == null) {
+            e = queue.take();
+        }
+        return e;
+    }
+
+    private Entry readSpill() {
+        if (config.overflowPolicy != OverflowPolicy.SPILL) {
+            return null;
+        }
+        synchronized (spillLock) {
+            if (spill == null || spill.isEmpty()) {
+                return null;
+            }
+            try {
+                return spill.read();
+            } catch (IOException e) {
+                log.error("Cannot read from the spill file; dropping {} tuples", spill.count, e);
+                droppedCount.addAndGet(spill.count);
+                spill.delete();
+                spill = null;
+                return null;
+            }
+        }
+    }
+
+    private void deliver(Tuple tuple) {
+        deliveredCount.incrementAndGet();
+        try {
+            subscriber.onTuple(stream, tuple);
+        } catch (Exception e) {
+            Stream.ExceptionHandler handler = stream.getExceptionHandler();
+            if (handler != null) {
+                handler.handle(tuple, subscriber, e);
+            } else {
+                log.warn("Exception received when passing tuple to subscriber " + subscriber, e);
+            }
+        }
+    }
+
+    private SpillFile getSpill() throws IOException {
+        if (spill == null) {
+            spill = new SpillFile(config.spillDir, stream.getName());
+        }
+        return spill;
+    }
+
+    /**
+     *
+     * @return the subscriber to which this object passes the tuples
+     */
+    public StreamSubscriber getSubscriber() {
+        return subscriber;
+    }
+
+    /**
+     *
+     * @return the number of tuples waiting to be passed to the subscriber, including the ones in the spill file
+     */
+    public int getQueueSize() {
+        int n = queue.size();
+        synchronized (spillLock) {
+            if (spill != null) {
+                n += spill.count;
+            }
+        }
+        return n;
+    }
+
+    /**
+     *
+     * @return how long (in milliseconds) the last tuple passed to the subscriber has waited in the queue
+     */
+    public long getLag() {
+        return TimeUnit.NANOSECONDS.toMillis(lagNanos);
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     *
+     * @return the total number of tuples which have been written to the spill file
+     */
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncSubscriber[" + subscriber + "]";
+    }
+
+    static final class Entry {
+        final Tuple tuple;
+        final long time;
+
+        Entry(Tuple tuple, long time) {
+            this.tuple = tuple;
+            this.time = time;
+        }
+    }
+
+    /**
+     * FIFO file holding the tuples which did not fit in the queue.
+     * <p>
+     * Each record contains the record size, the enqueue time, the index of the tuple definition and the values
+     * serialized with the replication serializers preceded by a presence flag. The tuple definitions are kept in
+     * memory. When all the records have been read, the file is truncated.
+     */
+    static final class SpillFile {
+        final File file;
+        final RandomAccessFile raf;
+        final List<TupleDefinition> definitions = new ArrayList<>();
+        final Map<TupleDefinition, Integer> definitionIndex = new IdentityHashMap<>();
+        final ByteArray buf = new ByteArray();
+        long writePos = 0;
+        long readPos = 0;
+        int count = 0;
+
+        SpillFile(File dir, String streamName) throws IOException {
+            file = File.createTempFile("spill-" + streamName.replaceAll("[^\\w]", "_") + "-", ".dat", dir);
+            file.deleteOnExit();
+            raf = new RandomAccessFile(file, "rw");
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        void write(Entry e) throws IOException {
+            Tuple tuple = e.tuple;
+            buf.reset();
+            buf.addInt(0); // size placeholder
+            buf.addLong(e.time);
+            buf.addInt(getDefinitionIndex(tuple.getDefinition()));
+            for (int i = 0; i < tuple.size(); i++) {
+                Object v = tuple.getColumn(i);
+                if (v == null) {
+                    buf.add((byte) 0);
+                } else {
+                    buf.add((byte) 1);
+                    ColumnSerializer cs = ColumnSerializerFactory
+                            .getColumnSerializerForReplication(tuple.getColumnDefinition(i));
+                    cs.serialize(buf, v);
+                }
+            }
+            buf.setInt(0, buf.size() - 4);
+            raf.seek(writePos);
+            raf.write(buf.array(), 0, buf.size());
+            writePos += buf.size();
+            count++;
+        }
+
+        Entry read() throws IOException {
+            raf.seek(readPos);
+            int size = raf.readInt();
+            byte[] b = new byte[size];
+            raf.readFully(b);
+            readPos += 4 + size;
+            count--;
+            if (count == 0) {
+                raf.setLength(0);
+                readPos = writePos = 0;
+            }
+
+            ByteArray ba = ByteArray.wrap(b);
+            long time = ba.getLong();
+            TupleDefinition tdef = definitions.get(ba.getInt());
+            Object[] values = new Object[tdef.size()];
+            for (int i = 0; i < values.length; i++) {
+                if (ba.get() != 0) {
+                    ColumnDefinition cd = tdef.getColumn(i);
+                    values[i] = ColumnSerializerFactory.getColumnSerializerForReplication(cd).deserialize(ba, cd);
+                }
+            }
+            return new Entry(new Tuple(tdef, values), time);
+        }
+
+        // the definitions can grow after the tuple has been spilled so a copy is kept
+        private int getDefinitionIndex(TupleDefinition tdef) {
+            Integer idx = definitionIndex.get(tdef);
+            if (idx == null || definitions.get(idx).size() != tdef.size()) {
+                idx = definitions.size();
+                definitions.add(tdef.copy());
+                definitionIndex.put(tdef, idx);
+            }
+            return idx;
+        }
+
+        void delete() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            file.delete();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.yamcs.yarch;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
@@ -8,6 +10,8 @@ import java.util.function.Predicate;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectProperties;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectPropertiesOrBuilder;
 
+import com.google.common.io.ByteStreams;
+
 public interface Bucket {
 
     /**
@@ -43,7 +47,26 @@ public interface Bucket {
 
     void putObject(String objectName, String contentType, Map<String, String> metadata, byte[] objectData)
             throws IOException;
-    
+
+    /**
+     * Stores an object reading its data from the input stream until the end of the stream.
+     * <p>
+     * The stream is not closed by this method.
+     * <p>
+     * This implementation reads the whole stream in memory; the implementations storing large objects should
+     * override it.
+     * 
+     * @param objectName
+     * @param contentType
+     * @param metadata
+     * @param objectData
+     * @throws IOException
+     */
+    default void putObject(String objectName, String contentType, Map<String, String> metadata,
+            InputStream objectData) throws IOException {
+        putObject(objectName, contentType, metadata, ByteStreams.toByteArray(objectData));
+    }
+
     /**
      * Retrieve object from the bucket. Returns null if object does not exist. 
      * 
@@ -53,6 +76,46 @@ public interface Bucket {
      */
     byte[] getObject(String objectName) throws IOException;
 
+    /**
+     * Opens a stream for reading the data of the object, starting at the given offset and returning at most length
+     * bytes.
+     * <p>
+     * Returns null if the object does not exist. The returned stream has to be closed after use.
+     * <p>
+     * This implementation reads the whole object in memory; the implementations storing large objects should override
+     * it.
+     * 
+     * @param objectName
+     * @param offset
+     *            the position of the first byte to be read; if greater than the object size, the returned stream is
+     *            empty.
+     * @param length
+     *            maximum number of bytes to be read
+     * @return the stream or null if the object does not exist
+     * @throws IOException
+     */
+    default InputStream getObjectStream(String objectName, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("offset and length cannot be negative");
+        }
+        byte[] data = getObject(objectName);
+        if (data == null) {
+            return null;
+        }
+        int start = (int) Math.min(offset, data.length);
+        int n = (int) Math.min(length, data.length - start);
+        return new ByteArrayInputStream(data, start, n);
+    }
+
+    /**
+     * Opens a stream for reading all the data of the object. Returns null if the object does not exist.
+     * 
+     * @see #getObjectStream(String, long, long)
+     */
+    default InputStream getObjectStream(String objectName) throws IOException {
+        return getObjectStream(objectName, 0, Long.MAX_VALUE);
+    }
+
     void deleteObject(String objectName) throws IOException;
 
     /**
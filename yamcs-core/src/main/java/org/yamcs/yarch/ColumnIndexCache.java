@@ -0,0 +1,88 @@
+package org.yamcs.yarch;
+
+/**
+ * Resolves the indexes of a fixed list of columns in the definition of the tuples, remembering the result for the last
+ * definition seen.
+ * <p>
+ * The tuples passing through a stream generally share the same definition, so the column names are looked up once
+ * instead of for each tuple. The definitions are compared by identity and size (the columns can only be appended to a
+ * definition) and, if they are not the same object, by their columns; the tuples read from a table have each their
+ * own definition but made of the same column objects.
+ * <p>
+ * Used by the compiled expressions and can be called concurrently from multiple threads.
+ */
+public final class ColumnIndexCache {
+    private final String[] names;
+    private Resolved last;
+
+    public ColumnIndexCache(String... names) {
+        this.names = names;
+    }
+
+    /**
+     *
+     * @return the index in tdef of each column, -1 for the columns not part of tdef
+     */
+    public int[] getIndexes(TupleDefinition tdef) {
+        Resolved r = last;
+        if (r == null || !r.matches(tdef)) {
+            int[] indexes = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                indexes[i] = tdef.getColumnIndex(names[i]);
+            }
+            r = new Resolved(tdef, indexes);
+            last = r;
+        }
+        return r.indexes;
+    }
+
+    /**
+     *
+     * @return the value of the column at index idx or null if idx is -1
+     */
+    public static Object getColumn(Tuple tuple, int idx) {
+        return idx == -1 ? null : tuple.getColumn(idx);
+    }
+
+    /**
+     * Returns a copy of the columns of the definition, to be compared later with {@link #hasColumns}.
+     */
+    static ColumnDefinition[] getColumns(TupleDefinition tdef) {
+        return tdef.getColumnDefinitions().toArray(new ColumnDefinition[0]);
+    }
+
+    /**
+     * @return true if tdef has exactly the given columns (same names and types) in the same order
+     */
+    static boolean hasColumns(TupleDefinition tdef, ColumnDefinition[] columns) {
+        if (tdef.size() != columns.length) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            ColumnDefinition c1 = tdef.getColumn(i);
+            ColumnDefinition c2 = columns[i];
+            if (c1 != c2 && (c1.getType() != c2.getType() || !c1.getName().equals(c2.getName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static final class Resolved {
+        final TupleDefinition tdef;
+        final int size;
+        final ColumnDefinition[] columns;
+        final int[] indexes;
+
+        Resolved(TupleDefinition tdef, int[] indexes) {
+            this.tdef = tdef;
+            this.size = tdef.size();
+            this.columns = getColumns(tdef);
+            this.indexes = indexes;
+        }
+
+        boolean matches(TupleDefinition td) {
+            return (td == tdef && td.size() == size) || hasColumns(td, columns);
+        }
+    }
+}
@@ -41,6 +41,19 @@ public interface ColumnSerializer<T> {
      */
     T deserialize(ByteBuffer byteBuf, ColumnDefinition cd);
 
+    /**
+     * Advances the array position over one column value without decoding it.
+     * <p>
+     * This implementation deserializes the value; it is overridden by the serializers which can skip the data
+     * cheaper.
+     * 
+     * @param array
+     * @param cd
+     */
+    default void skip(ByteArray array, ColumnDefinition cd) {
+        deserialize(array, cd);
+    }
+
     /**
      * @param array
      * @param v
@@ -219,6 +219,11 @@ public class ColumnSerializerFactory {
             return byteArray.get() != 0;
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(1);
+        }
+
         @Override
         public Boolean deserialize(ByteBuffer buf, ColumnDefinition cd) {
             return buf.get() != 0;
@@ -242,6 +247,11 @@ public class ColumnSerializerFactory {
             return byteArray.get();
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(1);
+        }
+
         @Override
         public Byte deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return byteBuf.get();
@@ -268,6 +278,11 @@ public class ColumnSerializerFactory {
             }
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skipNullTerminated();
+        }
+
         @Override
         public String deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return decodeUTF(byteBuf, true);
@@ -296,6 +311,11 @@ public class ColumnSerializerFactory {
             }
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getShort() & 0xFFFF);
+        }
+
         @Override
         public String deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             int len = byteBuf.getShort();
@@ -394,6 +414,11 @@ public class ColumnSerializerFactory {
             return bp;
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getInt());
+        }
+
         @Override
         public byte[] deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             int length = byteBuf.getInt();
@@ -438,6 +463,11 @@ public class ColumnSerializerFactory {
             }
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skipSizePrefixedProto();
+        }
+
         @Override
         public MessageLite deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             int length = byteBuf.getInt();
@@ -523,6 +553,11 @@ public class ColumnSerializerFactory {
             return getValue(byteArray.getShort());
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(2);
+        }
+
         @Override
         public String deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return getValue(byteBuf.getShort());
@@ -18,6 +18,11 @@ public class ColumnSerializerV2 {
             return byteArray.getShort();
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(2);
+        }
+
         @Override
         public Short deserialize(ByteBuffer buf, ColumnDefinition cd) {
             return buf.getShort();
@@ -45,6 +50,11 @@ public class ColumnSerializerV2 {
             byteArray.addInt(v);
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(4);
+        }
+
         @Override
         public Integer deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return byteBuf.getInt();
@@ -62,6 +72,11 @@ public class ColumnSerializerV2 {
             return byteArray.getLong();
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Long deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return byteBuf.getLong();
@@ -98,6 +113,11 @@ public class ColumnSerializerV2 {
             return Instant.get(millis, picos);
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(12);
+        }
+
         @Override
         public Instant deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             long millis = byteBuf.getLong();
@@ -139,6 +159,11 @@ public class ColumnSerializerV2 {
             return byteArray.getDouble();
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Double deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return byteBuf.getDouble();
@@ -29,6 +29,11 @@ public class ColumnSerializerV3 {
             return invertSign(byteArray.getShort());
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(2);
+        }
+
         @Override
         public Short deserialize(ByteBuffer buf, ColumnDefinition cd) {
             return invertSign(buf.getShort());
@@ -67,6 +72,11 @@ public class ColumnSerializerV3 {
             byteArray.addInt(invertSign(v));
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(4);
+        }
+
         @Override
         public Integer deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return invertSign(byteBuf.getInt());
@@ -85,6 +95,11 @@ public class ColumnSerializerV3 {
             return invertSign(byteArray.getLong());
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Long deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return invertSign(byteBuf.getLong());
@@ -121,6 +136,11 @@ public class ColumnSerializerV3 {
             return longToDouble(byteArray.getLong());
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Double deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             return longToDouble(byteBuf.getLong());
@@ -147,6 +167,11 @@ public class ColumnSerializerV3 {
             return Instant.get(millis, picos);
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(12);
+        }
+
         @Override
         public Instant deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             long millis = invertSign(byteBuf.getLong());
@@ -191,6 +216,11 @@ public class ColumnSerializerV3 {
             return new java.util.UUID(msb, lsb);
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(16);
+        }
+
         @Override
         public java.util.UUID deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             long msb = invertSign(byteBuf.getLong());
@@ -238,6 +268,11 @@ public class ColumnSerializerV3 {
             return list;
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getInt());
+        }
+
         @Override
         public List deserialize(ByteBuffer byteBuf, ColumnDefinition cd) {
             int length = byteBuf.getInt();
@@ -3,13 +3,24 @@ package org.yamcs.yarch;
 public class FieldReturnCompiledExpression implements CompiledExpression {
     final String field;
     final ColumnDefinition cdef;
+    final ColumnIndexCache colIndex;
+
     public FieldReturnCompiledExpression(String field, ColumnDefinition cdef) {
         this.field=field;
         this.cdef=cdef;
+        this.colIndex = new ColumnIndexCache(field);
     }
     @Override
     public Object getValue(Tuple tuple) {
-        return tuple.getColumn(field);
+        return ColumnIndexCache.getColumn(tuple, getIndex(tuple.getDefinition()));
+    }
+
+    /**
+     * 
+     * @return the index of the field in the tuple definition or -1 if the definition does not contain the field
+     */
+    public int getIndex(TupleDefinition tdef) {
+        return colIndex.getIndexes(tdef)[0];
     }
     @Override
     public ColumnDefinition getDefinition() {
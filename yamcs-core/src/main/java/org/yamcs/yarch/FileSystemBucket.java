@@ -1,11 +1,16 @@
 package org.yamcs.yarch;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -21,6 +26,8 @@ import org.yamcs.utils.Mimetypes;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectProperties;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectPropertiesOrBuilder;
 
+import com.google.common.io.ByteStreams;
+
 public class FileSystemBucket implements Bucket {
 
     private String bucketName;
@@ -76,6 +83,16 @@ public class FileSystemBucket implements Bucket {
     @Override
     public void putObject(String objectName, String contentType, Map<String, String> metadata, byte[] objectData)
             throws IOException {
+        putObject(objectName, contentType, metadata, new ByteArrayInputStream(objectData));
+    }
+
+    /**
+     * The data is first copied to a hidden temporary file in the target directory which is then renamed to the object
+     * name.
+     */
+    @Override
+    public void putObject(String objectName, String contentType, Map<String, String> metadata,
+            InputStream objectData) throws IOException {
 
         // Current implementation ignores specified contentType, instead deriving
         // MIME type from the filename extension.
@@ -96,11 +113,6 @@ public class FileSystemBucket implements Bucket {
             }
         });
 
-        long newSize = size.get() + objectData.length;
-        if (newSize > FileSystemBucketDatabase.MAX_BUCKET_SIZE) {
-            throw new IOException("Maximum bucket size " + FileSystemBucketDatabase.MAX_BUCKET_SIZE + " exceeded");
-        }
-
         int newCount = count.get() + 1;
         if (newCount > FileSystemBucketDatabase.MAX_NUM_OBJECTS_PER_BUCKET) {
             throw new IOException(
@@ -110,7 +122,19 @@ public class FileSystemBucket implements Bucket {
         if (!Files.exists(path.getParent())) { // Check to avoid error when the parent is a symlink
             Files.createDirectories(path.getParent());
         }
-        Files.write(path, objectData);
+
+        long maxObjectSize = FileSystemBucketDatabase.MAX_BUCKET_SIZE - size.get();
+        Path tmpPath = Files.createTempFile(path.getParent(), "." + path.getFileName(), ".tmp");
+        try {
+            long n = Files.copy(ByteStreams.limit(objectData, maxObjectSize + 1), tmpPath,
+                    StandardCopyOption.REPLACE_EXISTING);
+            if (n > maxObjectSize) {
+                throw new IOException("Maximum bucket size " + FileSystemBucketDatabase.MAX_BUCKET_SIZE + " exceeded");
+            }
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
     }
 
     @Override
@@ -123,6 +147,25 @@ public class FileSystemBucket implements Bucket {
         }
     }
 
+    @Override
+    public InputStream getObjectStream(String objectName, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("offset and length cannot be negative");
+        }
+        Path path = root.resolve(objectName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        SeekableByteChannel channel = Files.newByteChannel(path);
+        try {
+            channel.position(Math.min(offset, channel.size()));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return ByteStreams.limit(Channels.newInputStream(channel), length);
+    }
+
     @Override
     public void deleteObject(String objectName) throws IOException {
         Path path = root.resolve(objectName);
@@ -3,6 +3,8 @@ package org.yamcs.yarch;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.yamcs.utils.IntArray;
+
 /**
  * @see org.yamcs.yarch.streamsql.SelectExpression
  *
@@ -15,6 +17,11 @@ public class SelectStream extends Stream implements StreamSubscriber {
     final private WindowProcessor windowProc;
     final private boolean hasStars;
 
+    static final int MISSING = -1;
+    static final int COMPUTED = -2;
+    // the projection for the definition of the last input tuple
+    private volatile Projection projection;
+
     // used as a marker for the * in "select a,*,b from..." expressions
     final static public CompiledExpression STAR = new CompiledExpression() {
         @Override
@@ -99,21 +106,85 @@ public class SelectStream extends Stream implements StreamSubscriber {
             emitTuple(tuple);
             return;
         }
-        ArrayList<Object> v = new ArrayList<>();
-        TupleDefinition tdef = new TupleDefinition();
-        for (CompiledExpression ce : selectList) {
-            if (ce == STAR) {
-                for (int i = 0; i < tuple.size(); i++) {
-                    tdef.addColumn(tuple.getColumnDefinition(i));
-                    v.add(tuple.getColumn(i));
+        Projection p = getProjection(tuple.getDefinition());
+        int n = p.sources.length;
+        List<Object> v = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int idx = p.sources[i];
+            if (idx >= 0) {
+                v.add(tuple.getColumn(idx));
+            } else if (idx == COMPUTED) {
+                v.add(p.expressions[i].getValue(tuple));
+            } else { // the column is not part of the input tuple
+                v.add(null);
+            }
+        }
+        // the subscribers may add columns to the tuple (and to its definition) so each tuple gets its own copy
+        emitTuple(new Tuple(p.outputDef.copy(), v));
+    }
+
+    /**
+     * Returns the projection for the input definition, computing it if the definition is not the same as for the
+     * previous tuple.
+     * <p>
+     * The definitions are compared by identity and size because the tuples of one stream generally share the same
+     * definition but they are not required to; the tuples read from a table have each their own definition, those are
+     * compared by columns.
+     */
+    private Projection getProjection(TupleDefinition inputDef) {
+        Projection p = projection;
+        if (p == null || !p.matches(inputDef)) {
+            p = new Projection(inputDef);
+            projection = p;
+        }
+        return p;
+    }
+
+    /**
+     * The output definition and the source of each output column, resolved for one input definition.
+     */
+    final class Projection {
+        final TupleDefinition inputDef;
+        final int inputSize;
+        final ColumnDefinition[] inputColumns;
+        final TupleDefinition outputDef = new TupleDefinition();
+        // for each output column: index in the input tuple, MISSING or COMPUTED
+        final int[] sources;
+        // for each COMPUTED output column, the expression giving its value
+        final CompiledExpression[] expressions;
+
+        Projection(TupleDefinition inputDef) {
+            this.inputDef = inputDef;
+            this.inputSize = inputDef.size();
+            this.inputColumns = ColumnIndexCache.getColumns(inputDef);
+            IntArray srcList = new IntArray();
+            List<CompiledExpression> exprList = new ArrayList<>();
+            for (CompiledExpression ce : selectList) {
+                if (ce == STAR) {
+                    for (int i = 0; i < inputSize; i++) {
+                        outputDef.addColumn(inputDef.getColumn(i));
+                        srcList.add(i);
+                        exprList.add(null);
+                    }
+                } else {
+                    outputDef.addColumn(ce.getDefinition());
+                    if (ce instanceof FieldReturnCompiledExpression) {
+                        int idx = ((FieldReturnCompiledExpression) ce).getIndex(inputDef);
+                        srcList.add(idx == -1 ? MISSING : idx);
+                        exprList.add(null);
+                    } else {
+                        srcList.add(COMPUTED);
+                        exprList.add(ce);
+                    }
                 }
-            } else {
-                tdef.addColumn(ce.getDefinition());
-                v.add(ce.getValue(tuple));
             }
+            sources = srcList.toArray();
+            expressions = exprList.toArray(new CompiledExpression[0]);
+        }
+
+        boolean matches(TupleDefinition td) {
+            return (td == inputDef && td.size() == inputSize) || ColumnIndexCache.hasColumns(td, inputColumns);
         }
-        tuple = new Tuple(tdef, v);
-        emitTuple(tuple);
     }
 
     @Override
@@ -2,9 +2,11 @@ package org.yamcs.yarch;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import org.yamcs.logging.Log;
 
@@ -31,6 +33,7 @@ public abstract class Stream {
     private volatile AtomicLong dataCount = new AtomicLong();
     private volatile AtomicInteger subscriberCount = new AtomicInteger();
     private ExceptionHandler handler;
+    private volatile AsyncSubscriber.Config subscriberQueue;
 
     protected Stream(YarchDatabaseInstance ydb, String name, TupleDefinition definition) {
         this.name = name;
@@ -73,16 +76,61 @@ public abstract class Stream {
         this.name = streamName;
     }
 
+    /**
+     * Adds a subscriber to the stream.
+     * <p>
+     * If the stream has a subscriber queue configured, the subscriber will receive the tuples from a separate thread,
+     * see {@link AsyncSubscriber}.
+     */
     public void addSubscriber(StreamSubscriber s) {
+        AsyncSubscriber.Config c = subscriberQueue;
+        if (c != null) {
+            s = new AsyncSubscriber(this, s, c);
+        }
         subscribers.add(s);
         subscriberCount.incrementAndGet();
     }
 
     public void removeSubscriber(StreamSubscriber s) {
+        for (StreamSubscriber s1 : subscribers) {
+            if (s1 instanceof AsyncSubscriber && ((AsyncSubscriber) s1).getSubscriber() == s) {
+                subscribers.remove(s1);
+                ((AsyncSubscriber) s1).close();
+                subscriberCount.decrementAndGet();
+                return;
+            }
+        }
         subscribers.remove(s);
         subscriberCount.decrementAndGet();
     }
 
+    /**
+     * Configures a queue in front of each subscriber added from now on, such that the thread emitting the tuples is
+     * not blocked by slow subscribers (unless the queue is full and the overflow policy is
+     * {@link AsyncSubscriber.OverflowPolicy#BLOCK}).
+     * <p>
+     * The existing subscribers are not affected so this should be called right after creating the stream.
+     *
+     * @param config
+     *            the queue configuration or null to pass the tuples directly to the subscribers added from now on
+     */
+    public void setSubscriberQueue(AsyncSubscriber.Config config) {
+        this.subscriberQueue = config;
+    }
+
+    public AsyncSubscriber.Config getSubscriberQueue() {
+        return subscriberQueue;
+    }
+
+    /**
+     *
+     * @return the queues in front of the subscribers, giving access to their depth and lag
+     */
+    public List<AsyncSubscriber> getAsyncSubscribers() {
+        return subscribers.stream().filter(s -> s instanceof AsyncSubscriber).map(s -> (AsyncSubscriber) s)
+                .collect(Collectors.toList());
+    }
+
     public ColumnDefinition getColumnDefinition(String colName) {
         return outputDefinition.getColumn(colName);
     }
@@ -144,14 +192,27 @@ public abstract class Stream {
         return subscriberCount.get();
     }
 
+    /**
+     * Returns the subscribers as they have been added with {@link #addSubscriber(StreamSubscriber)}, without the
+     * {@link AsyncSubscriber} wrappers.
+     */
     public Collection<StreamSubscriber> getSubscribers() {
-        return Collections.unmodifiableCollection(subscribers);
+        if (subscriberQueue == null && getAsyncSubscribers().isEmpty()) {
+            return Collections.unmodifiableCollection(subscribers);
+        }
+        return Collections.unmodifiableList(subscribers.stream()
+                .map(s -> s instanceof AsyncSubscriber ? ((AsyncSubscriber) s).getSubscriber() : s)
+                .collect(Collectors.toList()));
     }
 
     public void exceptionHandler(ExceptionHandler h) {
         this.handler = h;
     }
 
+    ExceptionHandler getExceptionHandler() {
+        return handler;
+    }
+
     @Override
     public String toString() {
         return name;
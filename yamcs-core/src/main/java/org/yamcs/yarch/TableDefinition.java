@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -532,6 +533,22 @@ public class TableDefinition {
     }
 
     public Tuple deserialize(byte[] k, byte[] v) {
+        return deserialize(k, v, null);
+    }
+
+    /**
+     * Same as {@link #deserialize(byte[], byte[])} but only the value columns whose names are part of the given set
+     * are decoded; the others are skipped and are not part of the resulting tuple. The key columns are always decoded.
+     * 
+     * @param k
+     *            the serialized key
+     * @param v
+     *            the serialized value
+     * @param columns
+     *            the names of the value columns to be decoded; if null, all the columns are decoded.
+     * @return the deserialized tuple
+     */
+    public Tuple deserialize(byte[] k, byte[] v, Set<String> columns) {
         TupleDefinition tdef = new TupleDefinition();
         ArrayList<Object> cols = new ArrayList<>();
         ByteArray byteArray = ByteArray.wrap(k);
@@ -564,6 +581,10 @@ public class TableDefinition {
                             name, tcd.getName(), cidx, tcd.getType().getTypeId(), dt));
                 }
 
+                if (columns != null && !columns.contains(tcd.getName())) {
+                    tcd.skipValue(byteArray);
+                    continue;
+                }
                 Object o = tcd.deserializeValue(byteArray);
                 tdef.addColumn(tcd);
                 cols.add(o);
@@ -1,5 +1,6 @@
 package org.yamcs.yarch;
 
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -15,12 +16,15 @@ public class TableReaderStream extends Stream implements Runnable, TableVisitor
     
     protected TableDefinition tableDefinition;;
     Thread thread;
+    // if not null, only these value columns are deserialized
+    Set<String> columns;
     
     public TableReaderStream(YarchDatabaseInstance ydb, TableDefinition tblDef, TableWalker iterator) {
        super(ydb, tblDef.getName() + "_" + count.getAndIncrement(),
                tblDef.getTupleDefinition());
        this.tblIterator = iterator;
        this.tableDefinition = tblDef;
+       iterator.setReadOnly(true);
     }
   
     @Override
@@ -50,7 +54,21 @@ public class TableReaderStream extends Stream implements Runnable, TableVisitor
 
 
     protected Tuple dataToTuple(byte[] k, byte[] v) {
-        return tableDefinition.deserialize(k, v);
+        return tableDefinition.deserialize(k, v, columns);
+    }
+
+    /**
+     * Restricts the value columns deserialized from the table to the given set. The columns not part of the set are
+     * skipped and are not part of the emitted tuples; the key columns are always part of the tuples.
+     * <p>
+     * Has to be called before the stream is started.
+     * 
+     * @param columns
+     *            the names of the columns required by the stream consumers; null means all columns.
+     */
+    public void setColumns(Set<String> columns) {
+        this.columns = columns;
+        tblIterator.setColumns(columns);
     }
 
     @Override
@@ -23,6 +23,27 @@ public interface TableWalker {
         throw new UnsupportedOperationException();
     }
     
+    /**
+     * Indicates that the visitor will only read the table (it does not return update or delete actions) such that the
+     * walker may read the upcoming partitions in advance in background.
+     * <p>
+     * Walkers which do not support reading ahead ignore this call.
+     */
+    default void setReadOnly(boolean readOnly) {
+    }
+
+    /**
+     * Indicates that the visitor only needs the given value columns, such that the walker may skip reading the others.
+     * The rows passed to the visitor may or may not contain the other columns.
+     * <p>
+     * Walkers which do not support reading a subset of the columns ignore this call.
+     * 
+     * @param columns
+     *            the names of the required value columns; null means all columns.
+     */
+    default void setColumns(Set<String> columns) {
+    }
+
     void walk(TableVisitor visitor) throws YarchException, StreamSqlException;
 
     void close();
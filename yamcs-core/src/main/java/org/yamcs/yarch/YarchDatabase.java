@@ -18,6 +18,7 @@ import javax.management.ObjectName;
 
 import org.yamcs.ConfigurationException;
 import org.yamcs.YConfiguration;
+import org.yamcs.yarch.rocksdb.ColumnarStorageEngine;
 import org.yamcs.yarch.rocksdb.RdbStorageEngine;
 
 /**
@@ -35,6 +36,7 @@ public class YarchDatabase {
 
     private static Map<String, StorageEngine> storageEngines = new HashMap<>();
     public static final String RDB_ENGINE_NAME = "rocksdb2";
+    public static final String COLUMNAR_ENGINE_NAME = "columnar";
     private static final String DEFAULT_STORAGE_ENGINE = RDB_ENGINE_NAME;
     private static final String defaultStorageEngineName;
 
@@ -63,6 +65,13 @@ public class YarchDatabase {
             for (String s : se) {
                 if (RDB_ENGINE_NAME.equalsIgnoreCase(s)) {
                     storageEngines.put(RDB_ENGINE_NAME, RdbStorageEngine.getInstance());
+                    // the columnar engine stores its tables in the tablespaces of the rocksdb2 engine
+                    storageEngines.put(COLUMNAR_ENGINE_NAME, ColumnarStorageEngine.getInstance());
+                } else if (COLUMNAR_ENGINE_NAME.equalsIgnoreCase(s)) {
+                    if (!se.stream().anyMatch(x -> RDB_ENGINE_NAME.equalsIgnoreCase(x))) {
+                        throw new ConfigurationException("The storage engine '" + COLUMNAR_ENGINE_NAME
+                                + "' requires the storage engine '" + RDB_ENGINE_NAME + "'");
+                    }
                 } else {
                     throw new ConfigurationException("Unknown storage engine '" + se + "'");
                 }
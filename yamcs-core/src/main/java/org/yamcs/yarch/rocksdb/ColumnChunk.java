@@ -0,0 +1,235 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.utils.ByteArrayWrapper;
+import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.VarIntUtil;
+import org.yamcs.yarch.DataType;
+
+/**
+ * Encodes and decodes the values of one column of a block of the {@link ColumnarStorageEngine}.
+ * <p>
+ * The values are handled in their serialized form (as produced by the column serializer), such that the decoded values
+ * can be copied directly into the keys and values of the rows passed to the table visitors.
+ * <p>
+ * Format:
+ *
+ * <pre>
+ * 1 byte        encoding (PLAIN, DICTIONARY or DELTA)
+ * varint        n - number of rows
+ * varint        m - number of non null values
+ * (n+7)/8 bytes bitmap of the non null values, present only if m &lt; n
+ * encoded non null values
+ * </pre>
+ *
+ * The encoded values are:
+ * <ul>
+ * <li>PLAIN: for each value the varint size followed by the value bytes.</li>
+ * <li>DICTIONARY: varint dictionary size, the dictionary entries encoded as for PLAIN, then for each value the varint
+ * index in the dictionary. Used for the string and enum columns and for the other columns having few distinct
+ * values.</li>
+ * <li>DELTA: 1 byte value size w, then for each value the zigzag varint difference from the previous one. Used for the
+ * integer and timestamp columns which are serialized on a fixed number of bytes; the w bytes are interpreted as a big
+ * endian number.</li>
+ * </ul>
+ */
+class ColumnChunk {
+    static final byte PLAIN = 0;
+    static final byte DICTIONARY = 1;
+    static final byte DELTA = 2;
+
+    /**
+     *
+     * @param type
+     *            the data type of the column
+     * @param values
+     *            serialized values, null for the rows which do not have a value for this column
+     * @return the encoded chunk
+     */
+    static byte[] encode(DataType type, List<byte[]> values) {
+        int n = values.size();
+        int m = 0;
+        int w = -1;
+        int totalSize = 0;
+        Map<ByteArrayWrapper, Integer> dict = new HashMap<>();
+        List<byte[]> dictEntries = new ArrayList<>();
+        for (byte[] v : values) {
+            if (v == null) {
+                continue;
+            }
+            m++;
+            totalSize += v.length;
+            if (w == -1) {
+                w = v.length;
+            } else if (w != v.length) {
+                w = Integer.MAX_VALUE;
+            }
+            ByteArrayWrapper bw = new ByteArrayWrapper(v);
+            if (!dict.containsKey(bw)) {
+                dict.put(bw, dict.size());
+                dictEntries.add(v);
+            }
+        }
+
+        byte encoding;
+        if (isInteger(type) && w > 0 && w <= 8) {
+            encoding = DELTA;
+        } else if (type == DataType.STRING || type == DataType.ENUM || 4 * dict.size() <= m) {
+            encoding = DICTIONARY;
+        } else {
+            encoding = PLAIN;
+        }
+
+        ByteBuffer bb = ByteBuffer.allocate(16 + (n + 7) / 8 + totalSize + 10 * (n + dict.size()));
+        bb.put(encoding);
+        VarIntUtil.writeVarInt32(bb, n);
+        VarIntUtil.writeVarInt32(bb, m);
+        if (m < n) {
+            byte[] bitmap = new byte[(n + 7) / 8];
+            for (int i = 0; i < n; i++) {
+                if (values.get(i) != null) {
+                    bitmap[i >> 3] |= 1 << (i & 7);
+                }
+            }
+            bb.put(bitmap);
+        }
+        switch (encoding) {
+        case DELTA:
+            bb.put((byte) w);
+            long prev = 0;
+            for (byte[] v : values) {
+                if (v != null) {
+                    long x = toLong(v);
+                    long d = x - prev;
+                    VarIntUtil.writeVarInt64(bb, (d << 1) ^ (d >> 63));
+                    prev = x;
+                }
+            }
+            break;
+        case DICTIONARY:
+            VarIntUtil.writeVarInt32(bb, dictEntries.size());
+            for (byte[] v : dictEntries) {
+                VarIntUtil.writeVarInt32(bb, v.length);
+                bb.put(v);
+            }
+            for (byte[] v : values) {
+                if (v != null) {
+                    VarIntUtil.writeVarInt32(bb, dict.get(new ByteArrayWrapper(v)));
+                }
+            }
+            break;
+        default:
+            for (byte[] v : values) {
+                if (v != null) {
+                    VarIntUtil.writeVarInt32(bb, v.length);
+                    bb.put(v);
+                }
+            }
+        }
+        return Arrays.copyOf(bb.array(), bb.position());
+    }
+
+    /**
+     * Decodes a chunk
+     *
+     * @return the serialized values, null for the rows which do not have a value for this column
+     */
+    static byte[][] decode(byte[] chunk) {
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(chunk);
+            byte encoding = bb.get();
+            int n = VarIntUtil.readVarInt32(bb);
+            int m = VarIntUtil.readVarInt32(bb);
+            byte[] bitmap = null;
+            if (m < n) {
+                bitmap = new byte[(n + 7) / 8];
+                bb.get(bitmap);
+            }
+            byte[][] values = new byte[n][];
+            switch (encoding) {
+            case DELTA:
+                int w = bb.get();
+                long x = 0;
+                for (int i = 0; i < n; i++) {
+                    if (isPresent(bitmap, i)) {
+                        long z = VarIntUtil.readVarInt64(bb);
+                        x += (z >>> 1) ^ -(z & 1);
+                        values[i] = fromLong(x, w);
+                    }
+                }
+                break;
+            case DICTIONARY:
+                byte[][] dict = new byte[VarIntUtil.readVarInt32(bb)][];
+                for (int i = 0; i < dict.length; i++) {
+                    dict[i] = readBytes(bb);
+                }
+                for (int i = 0; i < n; i++) {
+                    if (isPresent(bitmap, i)) {
+                        values[i] = dict[VarIntUtil.readVarInt32(bb)];
+                    }
+                }
+                break;
+            case PLAIN:
+                for (int i = 0; i < n; i++) {
+                    if (isPresent(bitmap, i)) {
+                        values[i] = readBytes(bb);
+                    }
+                }
+                break;
+            default:
+                throw new DatabaseCorruptionException("Unknown column chunk encoding " + encoding);
+            }
+            return values;
+        } catch (DecodingException | BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new DatabaseCorruptionException("Cannot decode column chunk", e);
+        }
+    }
+
+    private static boolean isInteger(DataType type) {
+        switch (type.val) {
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+        case TIMESTAMP:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isPresent(byte[] bitmap, int i) {
+        return bitmap == null || (bitmap[i >> 3] & (1 << (i & 7))) != 0;
+    }
+
+    private static byte[] readBytes(ByteBuffer bb) throws DecodingException {
+        byte[] v = new byte[VarIntUtil.readVarInt32(bb)];
+        bb.get(v);
+        return v;
+    }
+
+    private static long toLong(byte[] v) {
+        long x = 0;
+        for (byte b : v) {
+            x = (x << 8) | (b & 0xFF);
+        }
+        return x;
+    }
+
+    private static byte[] fromLong(long x, int w) {
+        byte[] v = new byte[w];
+        for (int i = w - 1; i >= 0; i--) {
+            v[i] = (byte) x;
+            x >>>= 8;
+        }
+        return v;
+    }
+}
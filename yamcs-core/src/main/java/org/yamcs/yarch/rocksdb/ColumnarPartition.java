@@ -0,0 +1,709 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.yamcs.logging.Log;
+import org.yamcs.utils.ByteArray;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.VarIntUtil;
+import org.yamcs.yarch.DbRange;
+import org.yamcs.yarch.TableColumnDefinition;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.YarchException;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Data of one table partition stored by the {@link ColumnarStorageEngine}.
+ * <p>
+ * The rows are first written one by one in the row format of the rocksdb2 engine. When enough rows have accumulated,
+ * the oldest ones (in key order) are sealed into a block where each column is stored separately and encoded with
+ * {@link ColumnChunk}. The blocks do not overlap; only the rows with a key greater than the last key of the last block
+ * are sealed. The rows written later with a key inside the blocks range (late rows or updates) remain in row format and
+ * take precedence over the block rows with the same key; the deleted block rows are marked with an empty value.
+ * <p>
+ * The keys of the partition (all starting with the 4 bytes partition tbsIndex) are:
+ * <ul>
+ * <li>0x00, row key: row in the row format (or empty value for a deleted row)</li>
+ * <li>0x01, block first row key: block header</li>
+ * <li>0x02, 1 byte column kind (0=key, 1=value), 4 bytes column index, block first row key: column chunk</li>
+ * </ul>
+ * The chunks are grouped by column, such that reading one column of consecutive blocks reads contiguous data.
+ * <p>
+ * All the modifications of the partition are synchronized on this object.
+ */
+class ColumnarPartition {
+    static final byte ROW = 0;
+    static final byte BLOCK = 1;
+    static final byte CHUNK = 2;
+
+    static final byte KEY_COLUMN = 0;
+    static final byte VALUE_COLUMN = 1;
+
+    static final byte BLOCK_VERSION = 1;
+    static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+    static final byte[] EMPTY = new byte[0];
+
+    static Log log = new Log(ColumnarPartition.class);
+
+    final RdbPartition partition;
+    final TableDefinition tableDefinition;
+    final int blockSize;
+
+    // guarded by this
+    private boolean initialized = false;
+    // last key of the last block or null if there is no block
+    private byte[] lastKey;
+    // approximate number of rows with the key greater than lastKey
+    private int pendingCount;
+    // the block last read by getRow; the blocks are not modified once sealed
+    private BlockHeader cachedHeader;
+    private Block cachedBlock;
+
+    ColumnarPartition(RdbPartition partition, TableDefinition tableDefinition, int blockSize) {
+        this.partition = partition;
+        this.tableDefinition = tableDefinition;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the row value in row format or null if the row does not exist
+     */
+    synchronized byte[] getRow(YRDB rdb, byte[] rowKey) throws RocksDBException {
+        init(rdb);
+        byte[] v = rdb.get(dbKey(ROW, rowKey));
+        if (v != null) {
+            return v.length == 0 ? null : v;
+        }
+        if (lastKey == null || KEY_COMPARATOR.compare(rowKey, lastKey) > 0) {
+            return null;
+        }
+        Block block = null;
+        if (cachedHeader != null && KEY_COMPARATOR.compare(rowKey, cachedHeader.firstKey) >= 0
+                && KEY_COMPARATOR.compare(rowKey, cachedHeader.lastKey) <= 0) {
+            block = cachedBlock;
+        } else {
+            try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+                    RocksIterator it = rdb.getDb().newIterator(readOptions)) {
+                it.seekForPrev(dbKey(BLOCK, rowKey));
+                if (!it.isValid() || !isArea(it.key(), BLOCK)) {
+                    return null;
+                }
+                BlockHeader header = BlockHeader.decode(rowKey(it.key()), it.value());
+                if (KEY_COMPARATOR.compare(rowKey, header.lastKey) > 0) {
+                    return null;
+                }
+                block = readBlock(rdb, readOptions, header, null);
+                cachedHeader = header;
+                cachedBlock = block;
+            }
+        }
+        int idx = Arrays.binarySearch(block.keys, rowKey, KEY_COMPARATOR);
+        return idx < 0 ? null : block.values[idx];
+    }
+
+    /**
+     * Writes a row and seals a block if enough rows have accumulated.
+     *
+     * @param wopt
+     *            the write options; if null, the default options are used
+     * @param newRow
+     *            true if the row did not exist before
+     */
+    synchronized void putRow(YRDB rdb, WriteOptions wopt, byte[] rowKey, byte[] value, boolean newRow)
+            throws RocksDBException {
+        init(rdb);
+        if (wopt == null) {
+            rdb.put(dbKey(ROW, rowKey), value);
+        } else {
+            rdb.put(wopt, dbKey(ROW, rowKey), value);
+        }
+        if (newRow && isAboveBlocks(rowKey)) {
+            pendingCount++;
+            if (pendingCount >= 2 * blockSize) {
+                seal(rdb);
+            }
+        }
+    }
+
+    /**
+     * Removes a row; if the row might be part of a block, an empty value is written to mark it as deleted.
+     */
+    synchronized void deleteRow(YRDB rdb, byte[] rowKey) throws RocksDBException {
+        init(rdb);
+        if (isAboveBlocks(rowKey)) {
+            rdb.delete(dbKey(ROW, rowKey));
+        } else {
+            rdb.put(dbKey(ROW, rowKey), EMPTY);
+        }
+    }
+
+    private boolean isAboveBlocks(byte[] rowKey) {
+        return lastKey == null || KEY_COMPARATOR.compare(rowKey, lastKey) > 0;
+    }
+
+    private void init(YRDB rdb) throws RocksDBException {
+        if (initialized) {
+            return;
+        }
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+                RocksIterator it = rdb.getDb().newIterator(readOptions)) {
+            it.seekForPrev(dbKey(CHUNK, EMPTY));
+            if (it.isValid() && isArea(it.key(), BLOCK)) {
+                lastKey = BlockHeader.decode(rowKey(it.key()), it.value()).lastKey;
+            }
+            pendingCount = 0;
+            for (it.seek(lastKey == null ? dbKey(ROW, EMPTY) : dbKey(ROW, lastKey)); it.isValid()
+                    && isArea(it.key(), ROW); it.next()) {
+                pendingCount++;
+            }
+        }
+        initialized = true;
+    }
+
+    /**
+     * Seals the oldest blockSize rows above the last block, keeping at least blockSize rows in row format (the most
+     * recent rows are more likely to be updated).
+     */
+    private void seal(YRDB rdb) throws RocksDBException {
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        List<byte[]> deleted = new ArrayList<>();
+        int total = 0;
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+                RocksIterator it = rdb.getDb().newIterator(readOptions)) {
+            it.seek(lastKey == null ? dbKey(ROW, EMPTY) : dbKey(ROW, lastKey));
+            for (; it.isValid() && isArea(it.key(), ROW); it.next()) {
+                byte[] rowKey = rowKey(it.key());
+                if (lastKey != null && KEY_COMPARATOR.compare(rowKey, lastKey) <= 0) {
+                    continue;
+                }
+                total++;
+                if (keys.size() < blockSize) {
+                    byte[] v = it.value();
+                    if (v.length == 0) {
+                        deleted.add(rowKey);
+                    } else {
+                        keys.add(rowKey);
+                        values.add(v);
+                    }
+                }
+            }
+        }
+        if (total < 2 * blockSize || keys.isEmpty()) {
+            pendingCount = total;
+            return;
+        }
+
+        BlockHeader header = new BlockHeader(keys.get(0), keys.size(), keys.get(keys.size() - 1));
+        try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions()) {
+            writeChunks(writeBatch, header, keys, values);
+            writeBatch.put(dbKey(BLOCK, header.firstKey), header.encode());
+            for (byte[] k : keys) {
+                writeBatch.delete(dbKey(ROW, k));
+            }
+            for (byte[] k : deleted) {
+                writeBatch.delete(dbKey(ROW, k));
+            }
+            rdb.write(wo, writeBatch);
+        }
+        lastKey = header.lastKey;
+        pendingCount = total - keys.size() - deleted.size();
+        log.trace("Sealed block of {} rows in {}", keys.size(), partition);
+    }
+
+    // splits the rows into columns and adds the encoded chunks to the batch; fills in the value columns of the header
+    private void writeChunks(WriteBatch writeBatch, BlockHeader header, List<byte[]> keys, List<byte[]> values)
+            throws RocksDBException {
+        int n = keys.size();
+        List<TableColumnDefinition> keyDef = tableDefinition.getKeyDefinition();
+        List<TableColumnDefinition> valueDef = tableDefinition.getValueDefinition();
+
+        List<List<byte[]>> keyColumns = new ArrayList<>();
+        for (int j = 0; j < keyDef.size(); j++) {
+            keyColumns.add(new ArrayList<>(n));
+        }
+        // value column index -> values
+        List<List<byte[]>> valueColumns = new ArrayList<>();
+        byte[] valueTypes = new byte[valueDef.size()];
+
+        for (int i = 0; i < n; i++) {
+            ByteArray ba = ByteArray.wrap(keys.get(i));
+            for (int j = 0; j < keyDef.size(); j++) {
+                int start = ba.position();
+                keyDef.get(j).skipValue(ba);
+                keyColumns.get(j).add(Arrays.copyOfRange(keys.get(i), start, ba.position()));
+            }
+
+            byte[] v = values.get(i);
+            ba = ByteArray.wrap(v);
+            while (true) {
+                int cidx = ba.getInt();
+                if (cidx == -1) {
+                    break;
+                }
+                byte dt = (byte) (cidx >>> 24);
+                cidx &= 0xFFFFFF;
+                if (cidx >= valueDef.size()) {
+                    throw new DatabaseCorruptionException("Reference to index " + cidx
+                            + " found but the table definition does not have this column");
+                }
+                int start = ba.position();
+                valueDef.get(cidx).skipValue(ba);
+                while (valueColumns.size() <= cidx) {
+                    valueColumns.add(null);
+                }
+                List<byte[]> l = valueColumns.get(cidx);
+                if (l == null) {
+                    l = new ArrayList<>(n);
+                    valueColumns.set(cidx, l);
+                    valueTypes[cidx] = dt;
+                }
+                while (l.size() < i) {
+                    l.add(null);
+                }
+                l.add(Arrays.copyOfRange(v, start, ba.position()));
+            }
+        }
+
+        for (int j = 0; j < keyDef.size(); j++) {
+            byte[] chunk = ColumnChunk.encode(keyDef.get(j).getType(), keyColumns.get(j));
+            writeBatch.put(chunkKey(KEY_COLUMN, j, header.firstKey), chunk);
+        }
+        List<Integer> cidxList = new ArrayList<>();
+        for (int cidx = 0; cidx < valueColumns.size(); cidx++) {
+            List<byte[]> l = valueColumns.get(cidx);
+            if (l == null) {
+                continue;
+            }
+            while (l.size() < n) {
+                l.add(null);
+            }
+            byte[] chunk = ColumnChunk.encode(valueDef.get(cidx).getType(), l);
+            writeBatch.put(chunkKey(VALUE_COLUMN, cidx, header.firstKey), chunk);
+            cidxList.add(cidx);
+        }
+        header.valueColumns = new int[cidxList.size()];
+        header.valueTypes = new byte[cidxList.size()];
+        for (int k = 0; k < cidxList.size(); k++) {
+            header.valueColumns[k] = cidxList.get(k);
+            header.valueTypes[k] = valueTypes[cidxList.get(k)];
+        }
+    }
+
+    /**
+     * Reads and decodes a block.
+     *
+     * @param columns
+     *            the names of the value columns to read; if null, all the columns are read
+     */
+    Block readBlock(YRDB rdb, ReadOptions readOptions, BlockHeader header, Set<String> columns)
+            throws RocksDBException {
+        List<TableColumnDefinition> keyDef = tableDefinition.getKeyDefinition();
+        List<TableColumnDefinition> valueDef = tableDefinition.getValueDefinition();
+
+        List<byte[]> chunkKeys = new ArrayList<>();
+        for (int j = 0; j < keyDef.size(); j++) {
+            chunkKeys.add(chunkKey(KEY_COLUMN, j, header.firstKey));
+        }
+        List<Integer> selected = new ArrayList<>();
+        for (int k = 0; k < header.valueColumns.length; k++) {
+            int cidx = header.valueColumns[k];
+            if (columns == null || (cidx < valueDef.size() && columns.contains(valueDef.get(cidx).getName()))) {
+                chunkKeys.add(chunkKey(VALUE_COLUMN, cidx, header.firstKey));
+                selected.add(k);
+            }
+        }
+        Map<byte[], byte[]> chunks = rdb.getDb().multiGet(readOptions, chunkKeys);
+        byte[][][] decoded = new byte[chunkKeys.size()][][];
+        for (int c = 0; c < chunkKeys.size(); c++) {
+            byte[] chunk = chunks.get(chunkKeys.get(c));
+            if (chunk == null) {
+                throw new DatabaseCorruptionException("Missing column chunk for block " + header + " in " + partition);
+            }
+            decoded[c] = ColumnChunk.decode(chunk);
+            if (decoded[c].length != header.numRows) {
+                throw new DatabaseCorruptionException("Invalid column chunk length for block " + header);
+            }
+        }
+
+        int nk = keyDef.size();
+        Block block = new Block(header.numRows);
+        ByteArray ba = new ByteArray();
+        for (int i = 0; i < header.numRows; i++) {
+            ba.reset();
+            for (int j = 0; j < nk; j++) {
+                ba.add(decoded[j][i]);
+            }
+            block.keys[i] = ba.toArray();
+
+            ba.reset();
+            for (int s = 0; s < selected.size(); s++) {
+                byte[] v = decoded[nk + s][i];
+                if (v != null) {
+                    int k = selected.get(s);
+                    ba.addInt((header.valueTypes[k] << 24) | header.valueColumns[k]);
+                    ba.add(v);
+                }
+            }
+            ba.addInt(-1);
+            block.values[i] = ba.toArray();
+        }
+        return block;
+    }
+
+    /**
+     * Creates an iterator over the rows of the partition, merging the blocks with the rows stored in row format.
+     * <p>
+     * The keys returned by the iterator are prefixed by the partition tbsIndex, as for the rocksdb2 tables.
+     *
+     * @param range
+     *            range of row keys (without tbsIndex); the end of the range is inclusive for all the keys having it as
+     *            prefix.
+     * @param columns
+     *            names of the value columns to be read from the blocks; null means all
+     */
+    DbIterator newIterator(YRDB rdb, ReadOptions readOptions, DbRange range, boolean ascending,
+            Set<String> columns) {
+        return new PartitionIterator(rdb, readOptions, range, ascending, columns);
+    }
+
+    byte[] dbKey(byte area, byte[] rowKey) {
+        byte[] k = new byte[RdbStorageEngine.TBS_INDEX_SIZE + 1 + rowKey.length];
+        ByteArrayUtils.encodeInt(partition.tbsIndex, k, 0);
+        k[RdbStorageEngine.TBS_INDEX_SIZE] = area;
+        System.arraycopy(rowKey, 0, k, RdbStorageEngine.TBS_INDEX_SIZE + 1, rowKey.length);
+        return k;
+    }
+
+    byte[] chunkKey(byte kind, int idx, byte[] firstKey) {
+        int offset = RdbStorageEngine.TBS_INDEX_SIZE;
+        byte[] k = new byte[offset + 6 + firstKey.length];
+        ByteArrayUtils.encodeInt(partition.tbsIndex, k, 0);
+        k[offset] = CHUNK;
+        k[offset + 1] = kind;
+        ByteArrayUtils.encodeInt(idx, k, offset + 2);
+        System.arraycopy(firstKey, 0, k, offset + 6, firstKey.length);
+        return k;
+    }
+
+    boolean isArea(byte[] dbKey, byte area) {
+        return dbKey.length > RdbStorageEngine.TBS_INDEX_SIZE
+                && RdbStorageEngine.tbsIndex(dbKey) == partition.tbsIndex
+                && dbKey[RdbStorageEngine.TBS_INDEX_SIZE] == area;
+    }
+
+    static byte[] rowKey(byte[] dbKey) {
+        return Arrays.copyOfRange(dbKey, RdbStorageEngine.TBS_INDEX_SIZE + 1, dbKey.length);
+    }
+
+    static class BlockHeader {
+        final byte[] firstKey;
+        final int numRows;
+        final byte[] lastKey;
+        // value column indices and data types
+        int[] valueColumns;
+        byte[] valueTypes;
+
+        BlockHeader(byte[] firstKey, int numRows, byte[] lastKey) {
+            this.firstKey = firstKey;
+            this.numRows = numRows;
+            this.lastKey = lastKey;
+        }
+
+        byte[] encode() {
+            ByteBuffer bb = ByteBuffer.allocate(16 + lastKey.length + 6 * valueColumns.length);
+            bb.put(BLOCK_VERSION);
+            VarIntUtil.writeVarInt32(bb, numRows);
+            VarIntUtil.writeVarInt32(bb, lastKey.length);
+            bb.put(lastKey);
+            VarIntUtil.writeVarInt32(bb, valueColumns.length);
+            for (int k = 0; k < valueColumns.length; k++) {
+                VarIntUtil.writeVarInt32(bb, valueColumns[k]);
+                bb.put(valueTypes[k]);
+            }
+            return Arrays.copyOf(bb.array(), bb.position());
+        }
+
+        static BlockHeader decode(byte[] firstKey, byte[] v) {
+            try {
+                ByteBuffer bb = ByteBuffer.wrap(v);
+                byte version = bb.get();
+                if (version != BLOCK_VERSION) {
+                    throw new DatabaseCorruptionException("Unknown block version " + version);
+                }
+                int numRows = VarIntUtil.readVarInt32(bb);
+                byte[] lastKey = new byte[VarIntUtil.readVarInt32(bb)];
+                bb.get(lastKey);
+                BlockHeader header = new BlockHeader(firstKey, numRows, lastKey);
+                int n = VarIntUtil.readVarInt32(bb);
+                header.valueColumns = new int[n];
+                header.valueTypes = new byte[n];
+                for (int k = 0; k < n; k++) {
+                    header.valueColumns[k] = VarIntUtil.readVarInt32(bb);
+                    header.valueTypes[k] = bb.get();
+                }
+                return header;
+            } catch (DecodingException | BufferUnderflowException e) {
+                throw new DatabaseCorruptionException("Cannot decode block header", e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "BlockHeader [firstKey=" + Arrays.toString(firstKey) + ", numRows=" + numRows + "]";
+        }
+    }
+
+    static class Block {
+        final byte[][] keys;
+        final byte[][] values;
+
+        Block(int n) {
+            keys = new byte[n][];
+            values = new byte[n][];
+        }
+    }
+
+    /**
+     * Iterates the rows of the partition merging the rows stored in row format with the rows of the blocks.
+     */
+    class PartitionIterator implements DbIterator {
+        final YRDB rdb;
+        final ReadOptions readOptions;
+        final byte[] rangeStart;
+        final byte[] rangeEnd;
+        final boolean ascending;
+        final Set<String> columns;
+
+        final DbIterator rowIt;
+        final RocksIterator blockIt;
+        Block block;
+        int blockIdx;
+        boolean blocksFinished;
+
+        byte[] curKey;
+        byte[] curValue;
+
+        PartitionIterator(YRDB rdb, ReadOptions readOptions, DbRange range, boolean ascending,
+                Set<String> columns) {
+            this.rdb = rdb;
+            this.readOptions = readOptions;
+            this.rangeStart = range.rangeStart;
+            this.rangeEnd = range.rangeEnd;
+            this.ascending = ascending;
+            this.columns = columns;
+
+            byte[] rowStart = dbKey(ROW, rangeStart == null ? EMPTY : rangeStart);
+            byte[] rowEnd = dbKey(ROW, rangeEnd == null ? EMPTY : rangeEnd);
+            RocksIterator it = rdb.getDb().newIterator(readOptions);
+            rowIt = ascending ? new AscendingRangeIterator(it, rowStart, rowEnd)
+                    : new DescendingRangeIterator(it, rowStart, rowEnd);
+
+            blockIt = rdb.getDb().newIterator(readOptions);
+            if (ascending) {
+                if (rangeStart != null) {
+                    blockIt.seekForPrev(dbKey(BLOCK, rangeStart));
+                }
+                if (rangeStart == null || !blockIt.isValid() || !isArea(blockIt.key(), BLOCK)) {
+                    blockIt.seek(dbKey(BLOCK, EMPTY));
+                }
+            } else {
+                if (rangeEnd == null) {
+                    blockIt.seekForPrev(dbKey(CHUNK, EMPTY));
+                } else {
+                    byte[] k = dbKey(BLOCK, rangeEnd);
+                    blockIt.seekForPrev(ByteArrayUtils.plusOne(k));
+                    if (blockIt.isValid() && ByteArrayUtils.compare(blockIt.key(), k) > 0) {
+                        blockIt.prev();
+                    }
+                }
+            }
+            try {
+                nextBlock();
+                advance();
+            } catch (RocksDBException e) {
+                close();
+                throw new YarchException(e);
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            return curKey != null;
+        }
+
+        @Override
+        public void next() {
+            if (!ascending) {
+                throw new UnsupportedOperationException("this is a descending iterator");
+            }
+            step();
+        }
+
+        @Override
+        public void prev() {
+            if (ascending) {
+                throw new UnsupportedOperationException("this is an ascending iterator");
+            }
+            step();
+        }
+
+        private void step() {
+            if (curKey == null) {
+                throw new IllegalStateException("iterator is not valid");
+            }
+            try {
+                advance();
+            } catch (RocksDBException e) {
+                throw new YarchException(e);
+            }
+        }
+
+        @Override
+        public byte[] key() {
+            return curKey;
+        }
+
+        @Override
+        public byte[] value() {
+            return curValue;
+        }
+
+        // moves to the next row from the merge of the row iterator and the blocks
+        private void advance() throws RocksDBException {
+            while (true) {
+                byte[] rk = rowIt.isValid() ? rowKey(rowIt.key()) : null;
+                byte[] bk = block == null ? null : block.keys[blockIdx];
+                if (rk == null && bk == null) {
+                    curKey = null;
+                    curValue = null;
+                    return;
+                }
+                int c;
+                if (rk == null) {
+                    c = 1;
+                } else if (bk == null) {
+                    c = -1;
+                } else {
+                    c = KEY_COMPARATOR.compare(rk, bk);
+                    if (!ascending) {
+                        c = -c;
+                    }
+                }
+                byte[] key;
+                byte[] value;
+                if (c <= 0) {
+                    key = rk;
+                    value = rowIt.value();
+                    move(rowIt);
+                    if (c == 0) { // the row overrides the block row
+                        nextBlockRow();
+                    }
+                } else {
+                    key = bk;
+                    value = block.values[blockIdx];
+                    nextBlockRow();
+                }
+                if (value.length > 0) {
+                    curKey = new byte[RdbStorageEngine.TBS_INDEX_SIZE + key.length];
+                    ByteArrayUtils.encodeInt(partition.tbsIndex, curKey, 0);
+                    System.arraycopy(key, 0, curKey, RdbStorageEngine.TBS_INDEX_SIZE, key.length);
+                    curValue = value;
+                    return;
+                }
+            }
+        }
+
+        private void move(DbIterator it) {
+            if (ascending) {
+                it.next();
+            } else {
+                it.prev();
+            }
+        }
+
+        private void nextBlockRow() throws RocksDBException {
+            blockIdx += ascending ? 1 : -1;
+            if (blockIdx < 0 || blockIdx >= block.keys.length || !inRange(block.keys[blockIdx])) {
+                nextBlock();
+            }
+        }
+
+        // loads the next block having rows in range, or sets block to null if there is none
+        private void nextBlock() throws RocksDBException {
+            block = null;
+            while (!blocksFinished && blockIt.isValid() && isArea(blockIt.key(), BLOCK)) {
+                BlockHeader header = BlockHeader.decode(rowKey(blockIt.key()), blockIt.value());
+                if (ascending) {
+                    blockIt.next();
+                } else {
+                    blockIt.prev();
+                }
+                if (ascending && rangeEnd != null && ByteArrayUtils.compare(header.firstKey, rangeEnd) > 0) {
+                    break;
+                }
+                if (!ascending && rangeStart != null && KEY_COMPARATOR.compare(header.lastKey, rangeStart) < 0) {
+                    break;
+                }
+                Block b = readBlock(rdb, readOptions, header, columns);
+                int idx = ascending ? 0 : b.keys.length - 1;
+                while (idx >= 0 && idx < b.keys.length
+                        && (ascending ? isBeforeStart(b.keys[idx]) : isAfterEnd(b.keys[idx]))) {
+                    idx += ascending ? 1 : -1;
+                }
+                if (idx < 0 || idx >= b.keys.length) {
+                    continue;
+                }
+                if (inRange(b.keys[idx])) {
+                    block = b;
+                    blockIdx = idx;
+                    return;
+                }
+                // the first row is beyond the range, all the remaining blocks are as well
+                break;
+            }
+            blocksFinished = true;
+        }
+
+        private boolean inRange(byte[] rowKey) {
+            return !isBeforeStart(rowKey) && !isAfterEnd(rowKey);
+        }
+
+        private boolean isBeforeStart(byte[] rowKey) {
+            return rangeStart != null && KEY_COMPARATOR.compare(rowKey, rangeStart) < 0;
+        }
+
+        private boolean isAfterEnd(byte[] rowKey) {
+            return rangeEnd != null && ByteArrayUtils.compare(rowKey, rangeEnd) > 0;
+        }
+
+        @Override
+        public void close() {
+            rowIt.close();
+            blockIt.close();
+            block = null;
+            curKey = null;
+        }
+    }
+
+    // used by the tests
+    synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+}
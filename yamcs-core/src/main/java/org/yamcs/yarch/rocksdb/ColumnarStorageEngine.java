@@ -0,0 +1,157 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.yamcs.archive.TagDb;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.yarch.BucketDatabase;
+import org.yamcs.yarch.HistogramIterator;
+import org.yamcs.yarch.ProtobufDatabase;
+import org.yamcs.yarch.Sequence;
+import org.yamcs.yarch.SequenceInfo;
+import org.yamcs.yarch.StorageEngine;
+import org.yamcs.yarch.TableColumnDefinition;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableWalker;
+import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
+
+/**
+ * Storage engine storing the table data in column blocks.
+ * <p>
+ * The tables are stored in the same {@link Tablespace} as the tables of the {@link RdbStorageEngine} and share with
+ * them the partitioning, the histograms and the table definition records; only the format of the rows differs. The
+ * rows of each partition are grouped in blocks of {@link RdbConfig#getColumnarBlockSize()} rows in which each column is
+ * stored separately, with the strings dictionary encoded and the integers and timestamps delta encoded (see
+ * {@link ColumnChunk}). The scans requiring only some of the columns read only the chunks of those columns.
+ * <p>
+ * This engine is better suited for append mostly tables with many rows and repetitive values like the events or the
+ * command history. The rows updated after they have been sealed in a block are stored separately in row format (see
+ * {@link ColumnarPartition}) so the updates are more expensive than with the rocksdb2 engine.
+ * <p>
+ * The secondary indices are not supported.
+ */
+public class ColumnarStorageEngine implements StorageEngine {
+    static ColumnarStorageEngine instance = new ColumnarStorageEngine();
+    final RdbStorageEngine rdbEngine;
+
+    ColumnarStorageEngine() {
+        this.rdbEngine = RdbStorageEngine.getInstance();
+    }
+
+    public static synchronized ColumnarStorageEngine getInstance() {
+        return instance;
+    }
+
+    /**
+     * The table definitions are loaded by the {@link RdbStorageEngine} together with the other tables of the same
+     * tablespace.
+     */
+    @Override
+    public List<TableDefinition> loadTables(YarchDatabaseInstance ydb) throws YarchException {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void createTable(YarchDatabaseInstance ydb, TableDefinition tblDef) throws YarchException {
+        if (tblDef.hasSecondaryIndex()) {
+            throw new YarchException("Secondary indices are not supported by the "
+                    + YarchDatabase.COLUMNAR_ENGINE_NAME + " storage engine");
+        }
+        rdbEngine.createTable(ydb, tblDef);
+    }
+
+    @Override
+    public void saveTableDefinition(YarchDatabaseInstance ydb, TableDefinition tblDef,
+            List<TableColumnDefinition> keyColumns, List<TableColumnDefinition> valueColumns)
+            throws YarchException {
+        rdbEngine.saveTableDefinition(ydb, tblDef, keyColumns, valueColumns);
+    }
+
+    @Override
+    public void dropTable(YarchDatabaseInstance ydb, TableDefinition tblDef) throws YarchException {
+        rdbEngine.dropTable(ydb, tblDef);
+    }
+
+    @Override
+    public ColumnarTableWriter newTableWriter(YarchDatabaseInstance ydb, TableDefinition tblDef,
+            InsertMode insertMode) {
+        return rdbEngine.getTablespace(ydb).newColumnarTableWriter(ydb, tblDef, insertMode);
+    }
+
+    @Override
+    public TableWalker newTableWalker(YarchDatabaseInstance ydb, TableDefinition tblDef, boolean ascending,
+            boolean follow) {
+        return rdbEngine.getTablespace(ydb).newColumnarTableWalker(ydb, tblDef, ascending, follow);
+    }
+
+    /**
+     * The secondary indices are rejected when the table is created so this is never called for a valid table.
+     * 
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    public TableWalker newSecondaryIndexTableWalker(YarchDatabaseInstance ydb, TableDefinition tableDefinition,
+            boolean ascending, boolean follow) {
+        throw new UnsupportedOperationException(
+                "Secondary indices are not supported by the " + YarchDatabase.COLUMNAR_ENGINE_NAME
+                        + " storage engine");
+    }
+
+    @Override
+    public TagDb getTagDb(YarchDatabaseInstance ydb) throws YarchException {
+        return rdbEngine.getTagDb(ydb);
+    }
+
+    @Override
+    public HistogramIterator getHistogramIterator(YarchDatabaseInstance ydb, TableDefinition tblDef,
+            String columnName, TimeInterval interval) throws YarchException {
+        return rdbEngine.getHistogramIterator(ydb, tblDef, columnName, interval);
+    }
+
+    @Override
+    public BucketDatabase getBucketDatabase(YarchDatabaseInstance ydb) throws YarchException {
+        return rdbEngine.getBucketDatabase(ydb);
+    }
+
+    @Override
+    public ProtobufDatabase getProtobufDatabase(YarchDatabaseInstance ydb) throws YarchException {
+        return rdbEngine.getProtobufDatabase(ydb);
+    }
+
+    @Override
+    public RdbPartitionManager getPartitionManager(YarchDatabaseInstance ydb, TableDefinition tblDef) {
+        return rdbEngine.getPartitionManager(ydb, tblDef);
+    }
+
+    @Override
+    public Sequence getSequence(YarchDatabaseInstance ydb, String name, boolean create) throws YarchException {
+        return rdbEngine.getSequence(ydb, name, create);
+    }
+
+    @Override
+    public List<SequenceInfo> getSequencesInfo(YarchDatabaseInstance ydb) {
+        return rdbEngine.getSequencesInfo(ydb);
+    }
+
+    static boolean isColumnar(TableDefinition tblDef) {
+        return YarchDatabase.COLUMNAR_ENGINE_NAME.equals(tblDef.getStorageEngineName());
+    }
+
+    static ColumnarPartition getColumnarPartition(RdbTable table, RdbPartition partition) {
+        return table.columnarPartitions.computeIfAbsent(partition.tbsIndex, k -> new ColumnarPartition(partition,
+                table.getDefinition(), RdbConfig.getInstance().getColumnarBlockSize()));
+    }
+
+    static ColumnarPartition getColumnarPartition(RdbTable table, int tbsIndex) {
+        ColumnarPartition cpart = table.columnarPartitions.get(tbsIndex);
+        if (cpart == null) {
+            throw new IllegalStateException("Unknown partition " + tbsIndex + " for table " + table.getName());
+        }
+        return cpart;
+    }
+}
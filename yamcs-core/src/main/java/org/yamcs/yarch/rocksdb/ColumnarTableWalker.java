@@ -0,0 +1,204 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Snapshot;
+import org.yamcs.utils.StringConverter;
+import org.yamcs.yarch.AbstractTableWalker;
+import org.yamcs.yarch.DbRange;
+import org.yamcs.yarch.Partition;
+import org.yamcs.yarch.PartitionManager;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableVisitor;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.rocksdb.RdbTableWalker.SuffixAscendingComparator;
+import org.yamcs.yarch.rocksdb.RdbTableWalker.SuffixDescendingComparator;
+import org.yamcs.yarch.streamsql.StreamSqlException;
+import org.yamcs.yarch.streamsql.StreamSqlException.ErrCode;
+
+/**
+ * Table walker for the tables of the {@link ColumnarStorageEngine}.
+ * <p>
+ * If the columns are restricted with {@link #setColumns(Set)}, only the chunks of the required value columns are read
+ * from the blocks; the rows passed to the visitor do not contain the other columns.
+ */
+public class ColumnarTableWalker extends AbstractTableWalker {
+    private final Tablespace tablespace;
+    private final RdbTable table;
+
+    Snapshot snapshot = null;
+    boolean releaseSnapshot = true;
+    Set<String> columns;
+    protected TableVisitor visitor;
+
+    protected ColumnarTableWalker(Tablespace tablespace, YarchDatabaseInstance ydb, TableDefinition tableDefinition,
+            boolean ascending, boolean follow) {
+        super(ydb, tableDefinition, ascending, follow);
+        this.tablespace = tablespace;
+        this.table = tablespace.getTable(tableDefinition);
+    }
+
+    @Override
+    protected boolean walkInterval(PartitionManager.Interval interval, DbRange tableRange, TableVisitor visitor)
+            throws YarchException, StreamSqlException {
+        this.visitor = visitor;
+        running = true;
+        try {
+            return doWalkInterval(interval, tableRange);
+        } catch (RocksDBException e) {
+            throw new YarchException(e);
+        }
+    }
+
+    private boolean doWalkInterval(PartitionManager.Interval interval, DbRange tableRange)
+            throws RocksDBException, StreamSqlException {
+        DbIterator iterator = null;
+
+        RdbPartition p1 = (RdbPartition) interval.iterator().next();
+        YRDB rdb = p1.dir != null ? tablespace.getRdb(p1.dir, false) : tablespace.getRdb();
+
+        ReadOptions readOptions = new ReadOptions();
+        readOptions.setTotalOrderSeek(true);
+        if (!follow) {
+            if (snapshot == null) {
+                snapshot = rdb.getDb().getSnapshot();
+            }
+            readOptions.setSnapshot(snapshot);
+        }
+        try {
+            List<DbIterator> itList = new ArrayList<>(interval.size());
+            for (Partition p : interval) {
+                ColumnarPartition cpart = ColumnarStorageEngine.getColumnarPartition(table, (RdbPartition) p);
+                DbIterator it = cpart.newIterator(rdb, readOptions, tableRange, ascending, columns);
+                if (it.isValid()) {
+                    itList.add(it);
+                } else {
+                    it.close();
+                }
+            }
+
+            if (itList.isEmpty()) {
+                return false;
+            } else if (itList.size() == 1) {
+                iterator = itList.get(0);
+            } else {
+                iterator = new MergingIterator(itList,
+                        ascending ? new SuffixAscendingComparator(4) : new SuffixDescendingComparator(4));
+            }
+            return run(rdb, iterator, ascending ? tableRange.rangeEnd : tableRange.rangeStart);
+        } finally {
+            if (iterator != null) {
+                iterator.close();
+            }
+            if (snapshot != null && releaseSnapshot) {
+                snapshot.close();
+                snapshot = null;
+            }
+            readOptions.close();
+            tablespace.dispose(rdb);
+        }
+    }
+
+    // return true if the end condition has been reached
+    private boolean run(YRDB rdb, DbIterator iterator, byte[] rangeLimit)
+            throws RocksDBException, StreamSqlException {
+        while (isRunning() && iterator.isValid()) {
+            byte[] dbKey = iterator.key();
+            byte[] key = Arrays.copyOfRange(dbKey, 4, dbKey.length);
+            byte[] value = iterator.value();
+            numRecordsRead++;
+
+            if (ascending ? iAscendingFinished(key, value, rangeLimit)
+                    : isDescendingFinished(key, value, rangeLimit)) {
+                return true;
+            }
+            TableVisitor.Action action = visitor.visit(key, value);
+            executeAction(rdb, action, dbKey);
+            if (action.stop()) {
+                close();
+                return false;
+            }
+            if (ascending) {
+                iterator.next();
+            } else {
+                iterator.prev();
+            }
+        }
+        return false;
+    }
+
+    private void executeAction(YRDB rdb, TableVisitor.Action action, byte[] dbKey)
+            throws RocksDBException, StreamSqlException {
+        TableVisitor.ActionType type = action.action();
+        if (type == TableVisitor.ActionType.NONE) {
+            return;
+        }
+        if (columns != null) {
+            throw new StreamSqlException(ErrCode.NOT_SUPPORTED,
+                    "Cannot modify the table when reading a subset of the columns");
+        }
+        int tbsIndex = RdbStorageEngine.tbsIndex(dbKey);
+        ColumnarPartition cpart = ColumnarStorageEngine.getColumnarPartition(table, tbsIndex);
+        byte[] key = Arrays.copyOfRange(dbKey, 4, dbKey.length);
+        synchronized (cpart) {
+            if (type == TableVisitor.ActionType.DELETE) {
+                cpart.deleteRow(rdb, key);
+            } else if (type == TableVisitor.ActionType.UPDATE_VAL) {
+                cpart.putRow(rdb, null, key, action.getUpdatedValue(), false);
+            } else if (type == TableVisitor.ActionType.UPDATE_ROW) {
+                byte[] updatedKey = action.getUpdatedKey();
+                if (cpart.getRow(rdb, updatedKey) != null) {
+                    throw new StreamSqlException(ErrCode.DUPLICATE_KEY,
+                            "duplicate key in update: " + StringConverter.arrayToHexString(updatedKey));
+                }
+                cpart.deleteRow(rdb, key);
+                cpart.putRow(rdb, null, updatedKey, action.getUpdatedValue(), true);
+            }
+        }
+    }
+
+    /**
+     * Restricts the value columns read from the blocks to the given set.
+     *
+     * @param columns
+     *            the names of the required columns; null means all columns.
+     */
+    @Override
+    public void setColumns(Set<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * If set, the snapshot will be used to iterate the database but only if the follow = false
+     * <p>
+     * The snapshot will be release at the end
+     */
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Same as {@link #setSnapshot(Snapshot)} but the snapshot is not released at the end; it can be shared between
+     * multiple walkers running in parallel.
+     */
+    public void setSharedSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.releaseSnapshot = false;
+    }
+
+    @Override
+    public boolean isBatchUpdates() {
+        return false;
+    }
+
+    @Override
+    public void setBatchUpdates(boolean batchUpdates) {
+        // the updates are always written row by row
+    }
+}
@@ -0,0 +1,194 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamcs.YamcsServer;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.ColumnDefinition;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.PartitioningSpec;
+import org.yamcs.yarch.Row;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableWriter;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
+
+/**
+ * Table writer for the {@link ColumnarStorageEngine}.
+ * <p>
+ * The rows are written in row format by the {@link ColumnarPartition} which seals them later into column blocks. The
+ * writes of one partition are serialized by synchronizing on the {@link ColumnarPartition} object.
+ * <p>
+ * The histograms are written by the {@link HistogramWriter}. When an existing row is updated, the row is added to the
+ * histogram only if the update changes the value of the histogram column.
+ */
+public class ColumnarTableWriter extends TableWriter {
+    private final RdbTable rdbTable;
+    private final RdbPartitionManager partitionManager;
+    private final PartitioningSpec partitioningSpec;
+    Logger log = LoggerFactory.getLogger(this.getClass().getName());
+    Tablespace tablespace;
+    volatile boolean closed = false;
+    WriteOptions wopt;
+    final HistogramWriter histoWriter;
+    TableDefinition tableDefinition;
+
+    public ColumnarTableWriter(YarchDatabaseInstance ydb, RdbTable table, InsertMode mode) {
+        super(ydb, table, mode);
+        this.rdbTable = table;
+        this.tableDefinition = table.getDefinition();
+        this.partitioningSpec = tableDefinition.getPartitioningSpec();
+        this.partitionManager = table.getPartitionManager();
+        this.tablespace = table.getTablespace();
+
+        wopt = new WriteOptions();
+        if (mode == InsertMode.LOAD) {
+            wopt.setSync(false);
+            wopt.setDisableWAL(true);
+        }
+        histoWriter = table.getHistogramWriter();
+    }
+
+    @Override
+    public synchronized void onTuple(Stream stream, Tuple t) {
+        if (closed) {
+            return;
+        }
+        try {
+            RdbPartition partition = getDbPartition(t);
+            ColumnarPartition cpart = ColumnarStorageEngine.getColumnarPartition(rdbTable, partition);
+            YRDB rdb = tablespace.getRdb(partition.dir, false);
+            try {
+                Row row = tableDefinition.generateRow(t);
+                boolean addHistogram;
+                synchronized (cpart) {
+                    addHistogram = write(rdb, cpart, t, row);
+                }
+                if (addHistogram && histoWriter != null && mode != InsertMode.LOAD) {
+                    histoWriter.addHistogram(row);
+                }
+            } finally {
+                tablespace.dispose(rdb);
+            }
+        } catch (IOException | RocksDBException | YarchException e) {
+            log.error("failed to insert a record: ", e);
+            YamcsServer.getServer().getCrashHandler(ydb.getYamcsInstance()).handleCrash("Archive",
+                    "failed to insert a record in " + table.getName() + ": " + e);
+        }
+    }
+
+    // returns true if a new row has been inserted or the histogram column value of an existing row has been changed
+    private boolean write(YRDB rdb, ColumnarPartition cpart, Tuple t, Row row) throws RocksDBException {
+        byte[] k = row.getKey();
+        if (mode == InsertMode.LOAD) {
+            cpart.putRow(rdb, wopt, k, tableDefinition.serializeValue(t, row), true);
+            return true;
+        }
+        byte[] v = cpart.getRow(rdb, k);
+        if (v == null) {
+            cpart.putRow(rdb, wopt, k, tableDefinition.serializeValue(t, row), true);
+            return true;
+        }
+
+        boolean histoChanged = false;
+        switch (mode) {
+        case UPSERT:
+            histoChanged = isHistogramChanged(tableDefinition.deserialize(k, v), t);
+            cpart.putRow(rdb, wopt, k, tableDefinition.serializeValue(t, row), false);
+            break;
+        case INSERT_APPEND:
+        case UPSERT_APPEND:
+            Tuple oldt = tableDefinition.deserialize(k, v);
+            // the value of the new tuple only replaces the old value in the UPSERT_APPEND mode
+            histoChanged = isHistogramChanged(oldt, t)
+                    && (mode == InsertMode.UPSERT_APPEND || !oldt.hasColumn(getHistogramColumn()));
+            TupleDefinition tdef = t.getDefinition();
+            TupleDefinition oldtdef = oldt.getDefinition();
+
+            ArrayList<Object> cols = new ArrayList<>(oldt.getColumns().size() + t.getColumns().size());
+            cols.addAll(oldt.getColumns());
+            boolean updated = false;
+            for (ColumnDefinition cd : tdef.getColumnDefinitions()) {
+                if (oldtdef.hasColumn(cd.getName())) {
+                    if (mode == InsertMode.UPSERT_APPEND) {
+                        cols.set(oldt.getColumnIndex(cd.getName()), t.getColumn(cd.getName()));
+                        updated = true;
+                    }
+                } else {
+                    oldtdef.addColumn(cd);
+                    cols.add(t.getColumn(cd.getName()));
+                    updated = true;
+                }
+            }
+            if (updated) {
+                oldt.setColumns(cols);
+                cpart.putRow(rdb, wopt, k, tableDefinition.serializeValue(oldt, row), false);
+            }
+            break;
+        default: // INSERT on an existing row
+        }
+        return histoChanged;
+    }
+
+    // true if the new tuple has a value for the histogram column different than the one of the old tuple
+    private boolean isHistogramChanged(Tuple oldt, Tuple t) {
+        if (histoWriter == null) {
+            return false;
+        }
+        String column = getHistogramColumn();
+        Object newValue = t.hasColumn(column) ? t.getColumn(column) : null;
+        if (newValue == null) {
+            return false;
+        }
+        return !oldt.hasColumn(column) || !newValue.equals(oldt.getColumn(column));
+    }
+
+    private String getHistogramColumn() {
+        return tableDefinition.getHistogramColumns().get(0);
+    }
+
+    /**
+     * get the partition where the tuple fits
+     *
+     * @throws IOException
+     *             if there was an error while creating the directories where the partition should be located
+     */
+    public RdbPartition getDbPartition(Tuple t) throws IOException {
+        long time = TimeEncoding.INVALID_INSTANT;
+        Object value = null;
+        if (partitioningSpec.timeColumn != null) {
+            time = (Long) t.getColumn(partitioningSpec.timeColumn);
+        }
+        if (partitioningSpec.valueColumn != null) {
+            value = t.getColumn(partitioningSpec.valueColumn);
+            ColumnDefinition cd = tableDefinition.getColumnDefinition(partitioningSpec.valueColumn);
+            if (cd.getType() == DataType.ENUM) {
+                value = tableDefinition.addAndGetEnumValue(partitioningSpec.valueColumn, (String) value);
+            }
+        }
+        return (RdbPartition) partitionManager.createAndGetPartition(time, value);
+    }
+
+    @Override
+    protected synchronized void doClose() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        wopt.close();
+    }
+
+    @Override
+    public void streamClosed(Stream stream) {
+        log.debug("Stream {} closed", stream.getName());
+        close();
+    }
+}
@@ -1,27 +1,42 @@
 package org.yamcs.yarch.rocksdb;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
 import org.rocksdb.Snapshot;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.utils.ByteArrayWrapper;
 import org.yamcs.utils.IntArray;
+import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.TimeInterval;
 import org.yamcs.yarch.ColumnSerializer;
+import org.yamcs.yarch.DataType;
 import org.yamcs.yarch.DbRange;
 import org.yamcs.yarch.HistogramInfo;
 import org.yamcs.yarch.HistogramSegment;
-import org.yamcs.yarch.PartitionManager;
+import org.yamcs.yarch.Partition;
 import org.yamcs.yarch.PartitionManager.Interval;
+import org.yamcs.yarch.PartitioningSpec;
+import org.yamcs.yarch.TableColumnDefinition;
 import org.yamcs.yarch.TableDefinition;
 import org.yamcs.yarch.TableVisitor;
 import org.yamcs.yarch.Tuple;
@@ -30,22 +45,57 @@ import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
 import org.yamcs.yarch.streamsql.StreamSqlException;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import static org.yamcs.yarch.HistogramSegment.segmentStart;
 import static org.yamcs.yarch.rocksdb.RdbHistogramInfo.histoDbKey;
 import static org.yamcs.yarch.rocksdb.RdbStorageEngine.dbKey;
 
 /**
  * rebuilds the histogram for a table
- * 
+ * <p>
+ * The partition intervals are processed one after the other. For each interval, the new histogram data is queued by
+ * the {@link HistogramWriter} and the table is read from a snapshot of the database. If the first primary key column
+ * is a timestamp, the time range of the interval is split into chunks aligned to the histogram segments which are
+ * scanned in parallel (the number of threads is given by {@link RdbConfig#getHistogramRebuildThreads()}) by walkers
+ * sharing the same snapshot. Since the chunks do not share any segment, the segments computed by each chunk are
+ * written directly to the database.
+ * <p>
+ * The new histograms are written under new tbsIndex records; the existing histograms remain in use until all the
+ * chunks have been processed, when the new histograms replace them in the partition manager and the old data is
+ * removed. In case of error, the existing histograms are kept and the new data is removed.
+ * <p>
+ * The progress of the rebuild can be followed with the getters of this object; the last rebuilder started for a
+ * table is available from {@link RdbTable#getHistogramRebuilder()}.
+ *
  * @author nm
  *
  */
 public class HistogramRebuilder {
+    static final int CHUNKS_PER_THREAD = 4;
+    static final int MAX_BATCH_SIZE = 10_000;
+    private static ExecutorService executor;
+
     final YarchDatabaseInstance ydb;
     final TableDefinition tableDefinition;
     static Logger log = LoggerFactory.getLogger(HistogramRebuilder.class);
     Tablespace tablespace;
-    protected TableVisitor visitor;
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    // progress
+    private volatile State state;
+    private volatile TimeInterval timeInterval;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile Throwable error;
+    private volatile int totalIntervals;
+    private final AtomicInteger completedIntervals = new AtomicInteger();
+    private volatile int totalChunks;
+    private final AtomicInteger completedChunks = new AtomicInteger();
+    private final AtomicLong numRecords = new AtomicLong();
 
     public HistogramRebuilder(Tablespace tablespace, YarchDatabaseInstance ydb, String tableName) {
         this.ydb = ydb;
@@ -60,9 +110,18 @@ public class HistogramRebuilder {
         }
     }
 
+    static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(RdbConfig.getInstance().getHistogramRebuildThreads(),
+                    new ThreadFactoryBuilder().setNameFormat("HistogramRebuilder-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+
     public CompletableFuture<Void> rebuild() throws YarchException {
         return rebuild(new TimeInterval());
     }
+
     public CompletableFuture<Void> rebuild(TimeInterval timeIterval) throws YarchException {
         if (timeIterval.hasStart() || timeIterval.hasEnd()) {
             log.info("Rebuilding histogram for table {}/{} time interval: {}", ydb.getName(), tableDefinition.getName(),
@@ -70,62 +129,244 @@ public class HistogramRebuilder {
         } else {
             log.info("Rebuilding histogram for table {}/{}", ydb.getName(), tableDefinition.getName());
         }
-        CompletableFuture<Void> startCf = new CompletableFuture<Void>();
-
-        PartitionManager partitionManager = tablespace.getTable(tableDefinition).getPartitionManager();
+        RdbTable table = tablespace.getTable(tableDefinition);
 
         // an Interval is a collection of value based partitions for the same time interval
         // in the rocksdb2 engine all these partitions share the same rocksdb database
         // we need to iterate over such intervals to snapshot the corresponding database while freezing the normal
         // histogram writers
-        Iterator<Interval> intervalIterator = partitionManager.intervalIterator(timeIterval);
-        CompletableFuture<Void> cf = startCf;
+        List<Interval> intervals = new ArrayList<>();
+        table.getPartitionManager().intervalIterator(timeIterval).forEachRemaining(intervals::add);
 
-        while (intervalIterator.hasNext()) {
-            Interval interval = intervalIterator.next();
-            CompletableFuture<Void> cf1 = cf;
-            cf = cf1.thenAccept(v -> {
-                rebuildHistogramsForInterval(interval, cf1);
-            });
+        this.timeInterval = new TimeInterval(timeIterval);
+        this.startTime = System.currentTimeMillis();
+        this.totalIntervals = intervals.size();
+        this.state = State.RUNNING;
+        table.histogramRebuilder = this;
+
+        CompletableFuture<Void> cf = CompletableFuture.completedFuture(null);
+        for (Interval interval : intervals) {
+            cf = cf.thenCompose(v -> rebuildHistogramsForInterval(interval));
         }
-        startCf.complete(null);
-        return cf;
+        return cf.whenComplete((v, e) -> {
+            endTime = System.currentTimeMillis();
+            if (e == null) {
+                state = State.COMPLETED;
+                log.info("Histogram rebuild for table {}/{} finished in {} ms, {} records processed",
+                        ydb.getName(), tableDefinition.getName(), endTime - startTime, numRecords.get());
+            } else {
+                error = e;
+                state = State.FAILED;
+                log.warn("Histogram rebuild for table {}/{} failed", ydb.getName(), tableDefinition.getName(), e);
+            }
+        });
     }
 
-    private void rebuildHistogramsForInterval(Interval interval, CompletableFuture<Void> cf) {
+    private CompletableFuture<Void> rebuildHistogramsForInterval(Interval interval) {
+        CompletableFuture<Void> cf = new CompletableFuture<>();
         HistogramWriter histoWriter = tablespace.getTable(tableDefinition).getHistogramWriter();
         RdbPartition p0 = (RdbPartition) interval.iterator().next();
-        try (Snapshot snapshot = histoWriter.startQueueing(p0.dir).get()) {
-            if (!deleteHistograms(interval, cf)) {
+        CompletableFuture<Snapshot> snapshotCf;
+        try {
+            snapshotCf = histoWriter.startQueueing(p0.dir);
+        } catch (IOException | RuntimeException e) {
+            cf.completeExceptionally(e);
+            return cf;
+        }
+
+        snapshotCf.whenComplete((snapshot, e) -> {
+            if (e != null) {
+                histoWriter.stopQueueing(p0.dir);
+                cf.completeExceptionally(e);
                 return;
             }
-
-            RdbTableWalker tw = new RdbTableWalker(tablespace, ydb, tableDefinition, true, false);
-            tw.setSnapshot(snapshot);
+            YRDB rdb = tablespace.getRdb(p0.dir, false);
+            Map<String, RdbHistogramInfo> newHistograms = new LinkedHashMap<>();
+            Runnable release = () -> {
+                try {
+                    rdb.getDb().releaseSnapshot(snapshot);
+                    snapshot.close();
+                } finally {
+                    tablespace.dispose(rdb);
+                    histoWriter.stopQueueing(p0.dir);
+                }
+            };
             try {
-                MyTableVisitor visitor = new MyTableVisitor(interval, cf);
-                tw.walkInterval(interval, new DbRange(), visitor);
-                visitor.flush();
-            } catch (YarchException | IOException | RocksDBException | StreamSqlException e1) {
+                List<TimeInterval> chunks = getChunks(rdb, snapshot, interval);
+                for (String columnName : tableDefinition.getHistogramColumns()) {
+                    newHistograms.put(columnName, createHistogram(interval, columnName));
+                }
+                totalChunks = chunks.size();
+                completedChunks.set(0);
+
+                CompletableFuture<?>[] chunkCfs = new CompletableFuture<?>[chunks.size()];
+                for (int i = 0; i < chunks.size(); i++) {
+                    TimeInterval chunk = chunks.get(i);
+                    chunkCfs[i] = CompletableFuture.runAsync(() -> {
+                        rebuildChunk(interval, chunk, snapshot, newHistograms);
+                    }, getExecutor());
+                }
+                CompletableFuture.allOf(chunkCfs).whenComplete((v, e1) -> {
+                    try {
+                        if (e1 == null) {
+                            replaceHistograms(interval, newHistograms);
+                            completedIntervals.incrementAndGet();
+                        } else {
+                            deleteHistogramData(newHistograms.values());
+                        }
+                    } catch (Exception e2) {
+                        e1 = e2;
+                    } finally {
+                        release.run();
+                    }
+                    if (e1 == null) {
+                        cf.complete(null);
+                    } else {
+                        cf.completeExceptionally(e1);
+                    }
+                });
+            } catch (Exception e1) {
+                try {
+                    deleteHistogramData(newHistograms.values());
+                } catch (Exception e2) {
+                    log.warn("Failed to remove the new histograms", e2);
+                }
+                release.run();
                 cf.completeExceptionally(e1);
             }
-        } catch (IOException | InterruptedException | ExecutionException e) {
-            cf.completeExceptionally(e);
+        });
+        return cf;
+    }
+
+    /**
+     * Splits the interval into time chunks which can be processed in parallel. The chunk limits are aligned to the
+     * histogram segments such that the chunks do not share any segment.
+     * <p>
+     * The first chunk has no start and the last chunk has no end. The tables of the {@link ColumnarStorageEngine} are
+     * processed in one chunk.
+     */
+    List<TimeInterval> getChunks(YRDB rdb, Snapshot snapshot, Interval interval) {
+        List<TimeInterval> chunks = new ArrayList<>();
+        TableColumnDefinition tcd = tableDefinition.getKeyDefinition().get(0);
+        if (tcd.getType() != DataType.TIMESTAMP || ColumnarStorageEngine.isColumnar(tableDefinition)) {
+            chunks.add(new TimeInterval());
+            return chunks;
+        }
+
+        // find the time range of the data
+        long tmin = Long.MAX_VALUE;
+        long tmax = Long.MIN_VALUE;
+        try (ReadOptions readOptions = new ReadOptions()) {
+            readOptions.setSnapshot(snapshot);
+            readOptions.setTotalOrderSeek(true);
+            for (Partition p : interval) {
+                int tbsIndex = ((RdbPartition) p).tbsIndex;
+                try (RocksIterator it = rdb.getDb().newIterator(readOptions)) {
+                    it.seek(dbKey(tbsIndex));
+                    if (!it.isValid() || RdbStorageEngine.tbsIndex(it.key()) != tbsIndex) {
+                        continue;
+                    }
+                    tmin = Math.min(tmin, getTime(tcd, it.key()));
+                    it.seekForPrev(dbKey(tbsIndex + 1));
+                    if (it.isValid() && RdbStorageEngine.tbsIndex(it.key()) == tbsIndex) {
+                        tmax = Math.max(tmax, getTime(tcd, it.key()));
+                    }
+                }
+            }
+        }
+        if (tmin > tmax) {
+            return chunks;
+        }
+
+        // the histogram segments are computed by truncation, all the negative times are in the first chunk
+        long hlow = Math.max(0, segmentStart(tmin));
+        long hhigh = segmentStart(tmax);
+        int n = RdbConfig.getInstance().getHistogramRebuildThreads() * CHUNKS_PER_THREAD;
+        long step = Math.max(1, (hhigh - hlow + n) / n);
+
+        long start = TimeEncoding.INVALID_INSTANT;
+        for (long h = hlow + step; h <= hhigh; h += step) {
+            long end = h * HistogramSegment.GROUPING_FACTOR;
+            chunks.add(start == TimeEncoding.INVALID_INSTANT ? TimeInterval.openStart(end)
+                    : new TimeInterval(start, end));
+            start = end;
+        }
+        chunks.add(start == TimeEncoding.INVALID_INSTANT ? new TimeInterval() : TimeInterval.openEnd(start));
+        return chunks;
+    }
+
+    private long getTime(TableColumnDefinition tcd, byte[] dbKey) {
+        ColumnSerializer<Long> cs = tableDefinition.getColumnSerializer(tcd.getName());
+        return cs.deserialize(ByteBuffer.wrap(dbKey, RdbStorageEngine.TBS_INDEX_SIZE,
+                dbKey.length - RdbStorageEngine.TBS_INDEX_SIZE), tcd);
+    }
+
+    private RdbHistogramInfo createHistogram(Interval interval, String columnName) {
+        RdbPartitionManager partitionManager = tablespace.getTable(tableDefinition).getPartitionManager();
+        PartitioningSpec pspec = tableDefinition.getPartitioningSpec();
+        if (pspec.timeColumn != null) {
+            return (RdbHistogramInfo) partitionManager.createHistogramByTime(
+                    pspec.getTimePartitioningSchema().getPartitionInfo(interval.getStart()), columnName);
+        } else {
+            return (RdbHistogramInfo) partitionManager.createHistogram(columnName);
+        }
+    }
+
+    private void rebuildChunk(Interval interval, TimeInterval chunk, Snapshot snapshot,
+            Map<String, RdbHistogramInfo> newHistograms) {
+        DbRange range = new DbRange();
+        TableColumnDefinition tcd = tableDefinition.getKeyDefinition().get(0);
+        ColumnSerializer<Long> cs = tableDefinition.getColumnSerializer(tcd.getName());
+        if (chunk.hasStart()) {
+            range.rangeStart = cs.toByteArray(chunk.getStart());
+        }
+        if (chunk.hasEnd()) {
+            // the range end is inclusive
+            range.rangeEnd = cs.toByteArray(chunk.getEnd() - 1);
+        }
+        ChunkVisitor visitor = new ChunkVisitor(interval, newHistograms);
+        try {
+            if (ColumnarStorageEngine.isColumnar(tableDefinition)) {
+                ColumnarTableWalker tw = new ColumnarTableWalker(tablespace, ydb, tableDefinition, true, false);
+                tw.setSharedSnapshot(snapshot);
+                tw.walkInterval(interval, range, visitor);
+            } else {
+                RdbTableWalker tw = new RdbTableWalker(tablespace, ydb, tableDefinition, true, false);
+                tw.setSharedSnapshot(snapshot);
+                tw.walkInterval(interval, range, visitor);
+            }
+            visitor.flush();
+            numRecords.addAndGet(visitor.count);
+            completedChunks.incrementAndGet();
+        } catch (RocksDBException | StreamSqlException e) {
+            throw new YarchException(e);
         } finally {
-            histoWriter.stopQueueing(p0.dir);
+            visitor.close();
         }
     }
 
+    /**
+     * Replaces the histograms of the interval with the new ones and removes the data of the old ones.
+     */
+    private void replaceHistograms(Interval interval, Map<String, RdbHistogramInfo> newHistograms)
+            throws RocksDBException, IOException {
+        RdbPartitionManager partitionManager = tablespace.getTable(tableDefinition).getPartitionManager();
+        List<HistogramInfo> oldHistograms = new ArrayList<>();
+        synchronized (partitionManager) {
+            for (Map.Entry<String, RdbHistogramInfo> me : newHistograms.entrySet()) {
+                HistogramInfo old = interval.getHistogram(me.getKey());
+                if (old != null) {
+                    oldHistograms.add(old);
+                }
+                interval.addHistogram(me.getKey(), me.getValue());
+            }
+        }
+        deleteHistogramData(oldHistograms);
+    }
+
     boolean deleteHistograms(Interval interval, CompletableFuture<Void> cf) {
-        IntArray a = new IntArray();
         try {
-            for (HistogramInfo hi : interval.removeHistograms()) {
-                RdbHistogramInfo histo = (RdbHistogramInfo) hi;
-                YRDB db = tablespace.getRdb(histo.partitionDir, false);
-                db.getDb().deleteRange(dbKey(histo.tbsIndex), dbKey(histo.tbsIndex + 1));
-                a.add(((RdbHistogramInfo) hi).tbsIndex);
-            }
-            tablespace.removeTbsIndices(Type.HISTOGRAM, a);
+            deleteHistogramData(interval.removeHistograms());
         } catch (Exception e) {
             log.error("Error when removing existing histograms", e);
             cf.completeExceptionally(e);
@@ -134,53 +375,145 @@ public class HistogramRebuilder {
         return true;
     }
 
-    // "visits" data for one interval
-    class MyTableVisitor implements TableVisitor {
+    private void deleteHistogramData(Collection<? extends HistogramInfo> histograms)
+            throws RocksDBException, IOException {
+        IntArray a = new IntArray();
+        for (HistogramInfo hi : histograms) {
+            RdbHistogramInfo histo = (RdbHistogramInfo) hi;
+            YRDB db = tablespace.getRdb(histo.partitionDir, false);
+            try {
+                db.getDb().deleteRange(dbKey(histo.tbsIndex), dbKey(histo.tbsIndex + 1));
+            } finally {
+                tablespace.dispose(db);
+            }
+            a.add(histo.tbsIndex);
+        }
+        if (a.size() > 0) {
+            tablespace.removeTbsIndices(Type.HISTOGRAM, a);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     *
+     * @return the time interval requested for the rebuild
+     */
+    public TimeInterval getTimeInterval() {
+        return timeInterval;
+    }
+
+    /**
+     *
+     * @return the wall clock time (Java time) when the rebuild has been started
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     *
+     * @return the wall clock time (Java time) when the rebuild has finished or 0 if it is still running
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public int getTotalIntervals() {
+        return totalIntervals;
+    }
+
+    public int getCompletedIntervals() {
+        return completedIntervals.get();
+    }
+
+    /**
+     *
+     * @return the number of chunks of the interval currently being processed
+     */
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks.get();
+    }
+
+    public long getNumRecords() {
+        return numRecords.get();
+    }
+
+    // "visits" data for one chunk of one interval
+    class ChunkVisitor implements TableVisitor {
         List<ColumnHistoRebuilder> clist = new ArrayList<>();
-        final CompletableFuture<Void> cf;
-        String partitionDir;
+        final Set<String> columns = new HashSet<>();
+        final String partitionDir;
+        final YRDB rdb;
+        final WriteBatch writeBatch = new WriteBatch();
+        long count;
 
-        MyTableVisitor(Interval interval, CompletableFuture<Void> cf) throws IOException {
-            this.cf = cf;
-            PartitionManager partitionManager = ydb.getPartitionManager(tableDefinition);
+        ChunkVisitor(Interval interval, Map<String, RdbHistogramInfo> histograms) {
             this.partitionDir = ((RdbPartition) interval.iterator().next()).dir;
-            for (String columnName : tableDefinition.getHistogramColumns()) {
-                RdbHistogramInfo histInfo = (RdbHistogramInfo) partitionManager
-                        .createAndGetHistogram(interval.getStart(), columnName);
-                clist.add(new ColumnHistoRebuilder(histInfo, columnName));
+            this.rdb = tablespace.getRdb(partitionDir, false);
+            for (Map.Entry<String, RdbHistogramInfo> me : histograms.entrySet()) {
+                clist.add(new ColumnHistoRebuilder(me.getValue(), me.getKey()));
+                columns.add(me.getKey());
             }
         }
 
         @Override
         public Action visit(byte[] key, byte[] value) {
-            Tuple tuple = tableDefinition.deserialize(key, value);
-
-            for (ColumnHistoRebuilder chr : clist) {
-                try {
+            Tuple tuple = tableDefinition.deserialize(key, value, columns);
+            count++;
+            try {
+                for (ColumnHistoRebuilder chr : clist) {
                     chr.addTuple(tuple);
-                } catch (IOException | RocksDBException e) {
-                    cf.completeExceptionally(e);
-                    return ACTION_STOP;
                 }
+                if (writeBatch.count() >= MAX_BATCH_SIZE) {
+                    writeBatch();
+                }
+            } catch (RocksDBException e) {
+                throw new YarchException(e);
             }
             return ACTION_CONTINUE;
         }
 
-        void flush() throws IOException, RocksDBException {
+        void flush() throws RocksDBException {
             for (ColumnHistoRebuilder chr : clist) {
                 chr.flush();
             }
+            writeBatch();
+        }
+
+        // releases the write batch and the database; called also when the walk fails
+        void close() {
+            writeBatch.close();
+            tablespace.dispose(rdb);
+        }
+
+        private void writeBatch() throws RocksDBException {
+            try (WriteOptions wo = new WriteOptions()) {
+                rdb.getDb().write(wo, writeBatch);
+            }
+            writeBatch.clear();
         }
 
         // builds histograms for one column
         class ColumnHistoRebuilder {
             String columnName;
-            int MAX_ENTRIES = 100;
             RdbHistogramInfo histoInfo;
+            final ColumnSerializer<Object> cs;
 
             ColumnHistoRebuilder(RdbHistogramInfo histoInfo, String columnName) {
                 this.columnName = columnName;
                 this.histoInfo = histoInfo;
+                this.cs = tableDefinition.getColumnSerializer(columnName);
                 if (histoInfo == null) {
                     throw new NullPointerException();
                 }
@@ -191,11 +524,13 @@ public class HistogramRebuilder {
             // start a new one
             Map<ByteArrayWrapper, HistogramSegment> values = new HashMap<>();
 
-            void addTuple(Tuple tuple) throws IOException, RocksDBException {
+            void addTuple(Tuple tuple) throws RocksDBException {
+                Object colValue = tuple.getColumn(columnName);
+                if (colValue == null) {
+                    return;
+                }
                 long time = (Long) tuple.getColumn(0);
-
-                ColumnSerializer cs = tableDefinition.getColumnSerializer(columnName);
-                byte[] columnv = cs.toByteArray(tuple.getColumn(columnName));
+                byte[] columnv = cs.toByteArray(colValue);
 
                 long sstart = segmentStart(time);
                 int dtime = (int) (time % HistogramSegment.GROUPING_FACTOR);
@@ -207,27 +542,23 @@ public class HistogramRebuilder {
                     segment = new HistogramSegment(columnv, sstart);
                     values.put(valuew, segment);
                 } else if (segment.getSegmentStart() != sstart) {
-                    // write to db
-                    YRDB rdb = tablespace.getRdb(partitionDir, false);
-                    byte[] dbKey = histoDbKey(histoInfo.tbsIndex, segment.getSegmentStart(), columnv);
-                    rdb.put(dbKey, segment.val());
-
+                    writeSegment(columnv, segment);
                     segment = new HistogramSegment(columnv, sstart);
                     values.put(valuew, segment);
                 }
                 segment.merge(dtime);
             }
 
-            void flush() throws IOException, RocksDBException {
-                YRDB rdb = tablespace.getRdb(partitionDir, false);
+            void flush() throws RocksDBException {
                 for (Map.Entry<ByteArrayWrapper, HistogramSegment> me : values.entrySet()) {
-                    HistogramSegment segment = me.getValue();
-                    byte[] columnv = me.getKey().getData();
-
-                    byte[] dbKey = histoDbKey(histoInfo.tbsIndex, segment.getSegmentStart(), columnv);
-                    rdb.put(dbKey, segment.val());
+                    writeSegment(me.getKey().getData(), me.getValue());
                 }
             }
+
+            private void writeSegment(byte[] columnv, HistogramSegment segment) throws RocksDBException {
+                byte[] dbKey = histoDbKey(histoInfo.tbsIndex, segment.getSegmentStart(), columnv);
+                writeBatch.put(dbKey, segment.val());
+            }
         }
     }
 }
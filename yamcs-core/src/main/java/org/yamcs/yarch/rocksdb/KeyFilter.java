@@ -0,0 +1,198 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamcs.utils.LongArray;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Approximate membership filter of the keys of one table partition, used by the {@link RdbTableWriter} to avoid
+ * reading from the database the keys of the new records which are (almost always) not present.
+ * <p>
+ * The filter is a Bloom filter of the 64 bit hashes of the keys; it can give false positives (in which case the
+ * writer verifies the key in the database) but never false negatives. All the keys written to the partition have to
+ * be added with {@link #add(byte[])}.
+ * <p>
+ * The filter is built in the background by scanning the keys of the partition when it is first used. While the build
+ * is in progress, the writers are not blocked: {@link #mightContain(byte[])} returns true (such that the writers
+ * verify the keys in the database) and the keys they add are recorded and added to the new filter when the build
+ * finishes. When the number of keys exceeds the capacity of the filter, it is rebuilt with a larger capacity; the old
+ * filter is used in the meanwhile.
+ * <p>
+ * If the partition contains more than the configured maximum number of keys, the filter is disabled.
+ */
+class KeyFilter {
+    static final double FPP = 0.01;
+    static final int MIN_CAPACITY = 10_000;
+    static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    static Logger log = LoggerFactory.getLogger(KeyFilter.class);
+    private static ExecutorService executor;
+
+    final Tablespace tablespace;
+    final RdbPartition partition;
+    final int maxKeys;
+    // local java time of the last use, used by the table to evict the filters of the partitions no longer written
+    volatile long lastUsed;
+
+    private volatile BloomFilter<Long> filter;
+    private volatile boolean disabled;
+    private volatile boolean full;
+
+    // guarded by this
+    private long count;
+    private long capacity;
+    // not null while the filter is being built
+    private LongArray pending;
+
+    KeyFilter(Tablespace tablespace, RdbPartition partition, int maxKeys) {
+        this.tablespace = tablespace;
+        this.partition = partition;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Starts building the filter in the background if it is not built or if it is full.
+     *
+     * @param dbKey
+     *            key including the tbsIndex
+     * @return false if the key is certainly not in the partition, true if it might be
+     */
+    boolean mightContain(byte[] dbKey) {
+        if (disabled) {
+            return true;
+        }
+        BloomFilter<Long> f = filter;
+        if ((f == null || full) && startBuild()) {
+            try {
+                getExecutor().execute(this::build);
+            } catch (RejectedExecutionException e) {
+                abortBuild();
+            }
+        }
+        return f == null || f.mightContain(hash(dbKey));
+    }
+
+    /**
+     * Has to be called after a key has been written to the partition.
+     */
+    void add(byte[] dbKey) {
+        if (disabled) {
+            return;
+        }
+        long h = hash(dbKey);
+        synchronized (this) {
+            if (pending != null) {
+                pending.add(h);
+            }
+            BloomFilter<Long> f = filter;
+            if (f != null) {
+                f.put(h);
+                if (++count > capacity) {
+                    full = true;
+                }
+            }
+        }
+    }
+
+    boolean isBuilt() {
+        return filter != null;
+    }
+
+    boolean isDisabled() {
+        return disabled;
+    }
+
+    // returns true if the caller has to build the filter
+    private synchronized boolean startBuild() {
+        if (pending != null || disabled) {
+            return false;
+        }
+        // the keys added from now on are recorded; the ones added before are seen by the scan
+        pending = new LongArray();
+        return true;
+    }
+
+    private synchronized void abortBuild() {
+        pending = null;
+    }
+
+    private void build() {
+        LongArray hashes = new LongArray();
+        boolean disable = false;
+        YRDB rdb = null;
+        try {
+            rdb = tablespace.getRdb(partition.dir, false);
+            if (!scan(rdb, hashes)) {
+                log.debug("Partition {} has more than {} keys, disabling the key filter", partition, maxKeys);
+                disable = true;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to build the key filter for {}, disabling it", partition, e);
+            disable = true;
+        } finally {
+            if (rdb != null) {
+                tablespace.dispose(rdb);
+            }
+        }
+
+        synchronized (this) {
+            if (disable) {
+                disabled = true;
+                filter = null;
+                pending = null;
+                return;
+            }
+            long n = hashes.size() + pending.size();
+            long cap = Math.max(MIN_CAPACITY, 2 * n);
+            BloomFilter<Long> f = BloomFilter.create(Funnels.longFunnel(), cap, FPP);
+            for (int i = 0; i < hashes.size(); i++) {
+                f.put(hashes.get(i));
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                f.put(pending.get(i));
+            }
+            count = n;
+            capacity = cap;
+            pending = null;
+            full = false;
+            filter = f;
+            log.debug("Built key filter for {} with {} keys", partition, n);
+        }
+    }
+
+    // returns false if the partition has more than maxKeys keys
+    private boolean scan(YRDB rdb, LongArray hashes) {
+        try (DbIterator it = rdb.newPrefixIterator(RdbStorageEngine.dbKey(partition.tbsIndex))) {
+            while (it.isValid()) {
+                if (hashes.size() >= maxKeys) {
+                    return false;
+                }
+                hashes.add(hash(it.key()));
+                it.next();
+            }
+        }
+        return true;
+    }
+
+    static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("KeyFilter-build").setDaemon(true).build());
+        }
+        return executor;
+    }
+
+    static long hash(byte[] dbKey) {
+        return HASH_FUNCTION.hashBytes(dbKey).asLong();
+    }
+}
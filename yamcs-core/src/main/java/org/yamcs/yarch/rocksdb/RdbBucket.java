@@ -1,18 +1,25 @@
 package org.yamcs.yarch.rocksdb;
 
 import static org.yamcs.utils.ByteArrayUtils.encodeInt;
+import static org.yamcs.yarch.rocksdb.RdbBucketDatabase.TYPE_OBJ_CHUNK;
 import static org.yamcs.yarch.rocksdb.RdbBucketDatabase.TYPE_OBJ_DATA;
 import static org.yamcs.yarch.rocksdb.RdbBucketDatabase.TYPE_OBJ_METADATA;
 import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.Snapshot;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
@@ -27,10 +34,22 @@ import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectPropertiesOrBuilder;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
 
+import com.google.common.io.ByteStreams;
 import com.google.protobuf.InvalidProtocolBufferException;
 
+/**
+ * Bucket storing the objects in the RocksDB database of a tablespace.
+ * <p>
+ * The object data is split in chunks of fixed size such that the objects can be written and read as streams without
+ * being entirely loaded in memory. See {@link RdbBucketDatabase} for the format of the keys.
+ */
 public class RdbBucket implements Bucket {
+    static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    // number of chunks written to the database in one batch
+    static final int CHUNKS_PER_BATCH = 4;
+
     final int tbsIndex;
+    int chunkSize = DEFAULT_CHUNK_SIZE;
     BucketProperties bucketProps;
     final Tablespace tablespace;
     final String yamcsInstance;
@@ -75,49 +94,107 @@ public class RdbBucket implements Bucket {
     }
 
     @Override
-    public synchronized void putObject(String objectName, String contentType,
+    public void putObject(String objectName, String contentType,
             Map<String, String> metadata, byte[] objectData) throws IOException {
+        putObject(objectName, contentType, metadata, new ByteArrayInputStream(objectData));
+    }
+
+    /**
+     * Stores the object in chunks. The chunks are written in batches of {@value #CHUNKS_PER_BATCH} while the data is
+     * read from the stream; the object metadata is written together with the last batch, so the object becomes
+     * visible only when all its data has been written.
+     */
+    @Override
+    public synchronized void putObject(String objectName, String contentType,
+            Map<String, String> metadata, InputStream objectData) throws IOException {
         if (objectName.isEmpty()) {
             throw new IllegalArgumentException("object name cannot be empty");
         }
         log.debug("Uploading object {} to bucket {}; contentType: {}", objectName, bucketProps.getName(), contentType);
-        ObjectProperties.Builder props = ObjectProperties.newBuilder();
-        if (metadata != null) {
-            props.putAllMetadata(metadata);
-        }
-        props.setCreated(TimeEncoding.getWallclockTime());
-        props.setSize(objectData.length);
-        if (contentType != null) {
-            props.setContentType(contentType);
-        }
-
-        try (WriteBatch writeBatch = new WriteBatch();
-                WriteOptions writeOpts = new WriteOptions()) {
-            ObjectProperties oldProps = findObject(objectName);
-
-            byte[] mk = getKey(TYPE_OBJ_METADATA, objectName);
-            byte[] dk = getKey(TYPE_OBJ_DATA, objectName);
-            writeBatch.put(mk, props.build().toByteArray());
-            writeBatch.put(dk, objectData);
-            long bsize = bucketProps.getSize() + props.getSize() - ((oldProps == null) ? 0 : oldProps.getSize());
-            if (bsize > bucketProps.getMaxSize()) {
-                throw new IOException("Maximum bucket size " + bucketProps.getMaxSize() + " exceeded");
-            }
-            int numobj = bucketProps.getNumObjects() + ((oldProps == null) ? 1 : 0);
-            if (numobj > bucketProps.getMaxNumObjects()) {
-                throw new IOException(
-                        "Maximum number of objects in the bucket " + bucketProps.getNumObjects() + " exceeded");
-            }
-            BucketProperties bucketProps1 = BucketProperties.newBuilder().mergeFrom(bucketProps)
-                    .setNumObjects(numobj).setSize(bsize).build();
-            TablespaceRecord.Builder trb = TablespaceRecord.newBuilder().setType(Type.BUCKET)
-                    .setBucketProperties(bucketProps1).setTbsIndex(tbsIndex);
-            tablespace.writeToBatch(yamcsInstance, writeBatch, trb);
-
-            tablespace.getRdb().getDb().write(writeOpts, writeBatch);
-            bucketProps = bucketProps1;
-        } catch (RocksDBException e) {
-            throw new IOException("Error writing object data: " + e.toString(), e);
+
+        ObjectProperties oldProps = findObject(objectName);
+        int numobj = bucketProps.getNumObjects() + ((oldProps == null) ? 1 : 0);
+        if (numobj > bucketProps.getMaxNumObjects()) {
+            throw new IOException(
+                    "Maximum number of objects in the bucket " + bucketProps.getNumObjects() + " exceeded");
+        }
+        long maxObjectSize = bucketProps.getMaxSize() - bucketProps.getSize()
+                + ((oldProps == null) ? 0 : oldProps.getSize());
+
+        int objectId = bucketProps.getLastObjectId() + 1;
+        RocksDB db = tablespace.getRdb().getDb();
+        long size = 0;
+        int numChunks = 0;
+        byte[] buf = new byte[chunkSize];
+
+        try (WriteOptions writeOpts = new WriteOptions()) {
+            try {
+                WriteBatch writeBatch = new WriteBatch();
+                try {
+                    while (true) {
+                        int n = ByteStreams.read(objectData, buf, 0, chunkSize);
+                        if (n == 0) {
+                            break;
+                        }
+                        size += n;
+                        if (size > maxObjectSize) {
+                            throw new IOException("Maximum bucket size " + bucketProps.getMaxSize() + " exceeded");
+                        }
+                        writeBatch.put(getChunkKey(objectId, numChunks), n == chunkSize ? buf : Arrays.copyOf(buf, n));
+                        numChunks++;
+                        if (n < chunkSize) {
+                            break;
+                        }
+                        if (numChunks % CHUNKS_PER_BATCH == 0) {
+                            db.write(writeOpts, writeBatch);
+                            writeBatch.close();
+                            writeBatch = new WriteBatch();
+                        }
+                    }
+
+                    ObjectProperties.Builder props = ObjectProperties.newBuilder();
+                    if (metadata != null) {
+                        props.putAllMetadata(metadata);
+                    }
+                    props.setCreated(TimeEncoding.getWallclockTime());
+                    props.setSize(size);
+                    props.setObjectId(objectId);
+                    props.setChunkSize(chunkSize);
+                    if (contentType != null) {
+                        props.setContentType(contentType);
+                    }
+                    writeBatch.put(getKey(TYPE_OBJ_METADATA, objectName), props.build().toByteArray());
+                    if (oldProps != null) {
+                        deleteData(writeBatch, objectName, oldProps);
+                    }
+
+                    long bsize = bucketProps.getSize() + size - ((oldProps == null) ? 0 : oldProps.getSize());
+                    BucketProperties bucketProps1 = BucketProperties.newBuilder().mergeFrom(bucketProps)
+                            .setNumObjects(numobj).setSize(bsize).setLastObjectId(objectId).build();
+                    TablespaceRecord.Builder trb = TablespaceRecord.newBuilder().setType(Type.BUCKET)
+                            .setBucketProperties(bucketProps1).setTbsIndex(tbsIndex);
+                    tablespace.writeToBatch(yamcsInstance, writeBatch, trb);
+
+                    db.write(writeOpts, writeBatch);
+                    bucketProps = bucketProps1;
+                } finally {
+                    writeBatch.close();
+                }
+            } catch (IOException | RocksDBException e) {
+                // remove the chunks already written
+                if (numChunks >= CHUNKS_PER_BATCH) {
+                    try (WriteBatch writeBatch = new WriteBatch()) {
+                        deleteChunks(writeBatch, objectId, numChunks);
+                        db.write(writeOpts, writeBatch);
+                    } catch (RocksDBException e1) {
+                        log.warn("Failed to remove the chunks of object {}", objectName, e1);
+                    }
+                }
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                }
+                throw new IOException("Error writing object data: " + e.toString(), e);
+            }
         }
     }
 
@@ -139,13 +216,55 @@ public class RdbBucket implements Bucket {
 
     @Override
     public byte[] getObject(String objectName) throws IOException {
-        try {
-            byte[] k = getKey(TYPE_OBJ_DATA, objectName);
-            YRDB rdb = tablespace.getRdb();
+        try (InputStream in = getObjectStream(objectName)) {
+            if (in == null) {
+                return null;
+            }
+            return ByteStreams.toByteArray(in);
+        }
+    }
 
-            return rdb.get(k);
+    /**
+     * The returned stream reads the object from a snapshot of the database taken when this method is called, so the
+     * data read is consistent even if the object is replaced or deleted while reading. The chunks are loaded one by
+     * one from the database.
+     */
+    @Override
+    public InputStream getObjectStream(String objectName, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("offset and length cannot be negative");
+        }
+        RocksDB db = tablespace.getRdb().getDb();
+        Snapshot snapshot = db.getSnapshot();
+        ReadOptions readOptions = new ReadOptions().setSnapshot(snapshot);
+        boolean release = true;
+        try {
+            byte[] v = db.get(readOptions, getKey(TYPE_OBJ_METADATA, objectName));
+            if (v == null) {
+                return null;
+            }
+            ObjectProperties props = ObjectProperties.parseFrom(v);
+            if (!props.hasChunkSize()) {
+                byte[] data = db.get(readOptions, getKey(TYPE_OBJ_DATA, objectName));
+                if (data == null) {
+                    throw new IOException("No data found for object " + objectName);
+                }
+                int start = (int) Math.min(offset, data.length);
+                int n = (int) Math.min(length, data.length - start);
+                return new ByteArrayInputStream(data, start, n);
+            }
+            release = false;
+            return new ChunkInputStream(db, snapshot, readOptions, props, offset, length);
+        } catch (InvalidProtocolBufferException e) {
+            throw new DatabaseCorruptionException("Cannot decode data: " + e.toString(), e);
         } catch (RocksDBException e) {
             throw new IOException("Failed to retrieve object: " + e.toString(), e);
+        } finally {
+            if (release) {
+                readOptions.close();
+                db.releaseSnapshot(snapshot);
+                snapshot.close();
+            }
         }
     }
 
@@ -160,9 +279,8 @@ public class RdbBucket implements Bucket {
             try (WriteBatch writeBatch = new WriteBatch();
                     WriteOptions writeOpts = new WriteOptions()) {
                 byte[] mk = getKey(TYPE_OBJ_METADATA, objectName);
-                byte[] dk = getKey(TYPE_OBJ_DATA, objectName);
                 writeBatch.delete(mk);
-                writeBatch.delete(dk);
+                deleteData(writeBatch, objectName, props);
                 BucketProperties bucketProps1 = BucketProperties.newBuilder().mergeFrom(bucketProps)
                         .setNumObjects(bucketProps.getNumObjects() - 1).setSize(bucketProps.getSize() - props.getSize())
                         .build();
@@ -186,6 +304,31 @@ public class RdbBucket implements Bucket {
         return tbsIndex;
     }
 
+    private void deleteData(WriteBatch writeBatch, String objectName, ObjectProperties props)
+            throws RocksDBException {
+        if (props.hasChunkSize()) {
+            int numChunks = (int) ((props.getSize() + props.getChunkSize() - 1) / props.getChunkSize());
+            deleteChunks(writeBatch, props.getObjectId(), numChunks);
+        } else {
+            writeBatch.delete(getKey(TYPE_OBJ_DATA, objectName));
+        }
+    }
+
+    private void deleteChunks(WriteBatch writeBatch, int objectId, int numChunks) throws RocksDBException {
+        for (int i = 0; i < numChunks; i++) {
+            writeBatch.delete(getChunkKey(objectId, i));
+        }
+    }
+
+    private byte[] getChunkKey(int objectId, int chunkIdx) {
+        byte[] k = new byte[TBS_INDEX_SIZE + 9];
+        encodeInt(tbsIndex, k, 0);
+        k[TBS_INDEX_SIZE] = TYPE_OBJ_CHUNK;
+        encodeInt(objectId, k, TBS_INDEX_SIZE + 1);
+        encodeInt(chunkIdx, k, TBS_INDEX_SIZE + 5);
+        return k;
+    }
+
     private byte[] getKey(byte type, String objectName) {
         byte[] a = objectName.getBytes(StandardCharsets.UTF_8);
         byte[] k = new byte[TBS_INDEX_SIZE + 1 + a.length];
@@ -196,4 +339,104 @@ public class RdbBucket implements Bucket {
 
         return k;
     }
+
+    /**
+     * Reads the object chunk by chunk from a database snapshot; the snapshot is released when the stream is closed.
+     */
+    class ChunkInputStream extends InputStream {
+        final RocksDB db;
+        final Snapshot snapshot;
+        final ReadOptions readOptions;
+        final int objectId;
+        final int objChunkSize;
+        final long end;
+        long position;
+
+        byte[] chunk;
+        int chunkIdx = -1;
+        boolean closed = false;
+
+        ChunkInputStream(RocksDB db, Snapshot snapshot, ReadOptions readOptions, ObjectProperties props,
+                long offset, long length) {
+            this.db = db;
+            this.snapshot = snapshot;
+            this.readOptions = readOptions;
+            this.objectId = props.getObjectId();
+            this.objChunkSize = props.getChunkSize();
+            this.position = Math.min(offset, props.getSize());
+            this.end = position + Math.min(length, props.getSize() - position);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            loadChunk();
+            int x = chunk[(int) (position % objChunkSize)] & 0xFF;
+            position++;
+            return x;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            loadChunk();
+            int chunkOffset = (int) (position % objChunkSize);
+            int n = (int) Math.min(Math.min(len, chunk.length - chunkOffset), end - position);
+            System.arraycopy(chunk, chunkOffset, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long k = Math.max(0, Math.min(n, end - position));
+            position += k;
+            return k;
+        }
+
+        @Override
+        public int available() {
+            if (chunk == null || position / objChunkSize != chunkIdx) {
+                return 0;
+            }
+            return (int) Math.min(chunk.length - position % objChunkSize, end - position);
+        }
+
+        private void loadChunk() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            int idx = (int) (position / objChunkSize);
+            if (idx == chunkIdx) {
+                return;
+            }
+            try {
+                chunk = db.get(readOptions, getChunkKey(objectId, idx));
+            } catch (RocksDBException e) {
+                throw new IOException("Failed to retrieve object data: " + e.toString(), e);
+            }
+            if (chunk == null) {
+                throw new IOException("Chunk " + idx + " of object " + objectId + " not found");
+            }
+            chunkIdx = idx;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                chunk = null;
+                readOptions.close();
+                db.releaseSnapshot(snapshot);
+                snapshot.close();
+            }
+        }
+    }
 }
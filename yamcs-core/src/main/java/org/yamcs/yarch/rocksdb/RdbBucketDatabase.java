@@ -28,15 +28,20 @@ import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
  * 4 bytes    1 byte             variable size
  * tbsIndex   0 = bucket info
  * tbsIndex   1 = metadata       objectName (up to 1000 bytes)
- * tbsIndex   2 = data           objectId (4 bytes)
+ * tbsIndex   2 = data           objectName
+ * tbsIndex   3 = data chunk     objectId (4 bytes) chunkIdx (4 bytes)
  * </pre>
  * 
  * The rocksdb value is formed by:
  * <ul>
  * <li>in case of metadata: protobuf representation of ObjectProperties (contains the objectId and key,value metadata)
  * <li>in case of user object: binary user object
+ * <li>in case of data chunk: a part of the binary user object, of size given by the chunkSize in the ObjectProperties
+ * (except the last chunk which may be shorter)
  * </ul>
- * 
+ * The objects written by previous versions are stored as one value with the key of type 2; the new objects are
+ * stored in chunks.
+ * <p>
  * To retrieve an object based on the bucket name and object name,
  * <ol>
  * <li>retrieve the tbsIndex based on the bucket name
@@ -55,6 +60,7 @@ public class RdbBucketDatabase implements BucketDatabase {
     final static byte TYPE_BUCKET_INFO = 0;
     final static byte TYPE_OBJ_METADATA = 1;
     final static byte TYPE_OBJ_DATA = 2;
+    final static byte TYPE_OBJ_CHUNK = 3;
 
     final static long MAX_BUCKET_SIZE = 100l * 1024 * 1024; // 100MB
     final static int MAX_NUM_OBJECTS_PER_BUCKET = 1000; //
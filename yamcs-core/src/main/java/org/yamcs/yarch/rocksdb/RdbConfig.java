@@ -33,6 +33,15 @@ public class RdbConfig {
     public static final String KEY_OPTIONS = "options";
     public static final String KEY_TABLESPACE_NAME_PATTERN = "tablespaceNamePattern";
     public static final String KEY_TF_CONFIG = "tableFormatConfig";
+    public static final String KEY_GROUP_COMMIT = "groupCommit";
+    public static final String KEY_TABLE_NAME_PATTERN = "tableNamePattern";
+    public static final String KEY_READ_AHEAD_DEPTH = "readAheadDepth";
+    public static final String KEY_READ_AHEAD_THREADS = "readAheadThreads";
+    public static final String KEY_HISTOGRAM_REBUILD_THREADS = "histogramRebuildThreads";
+    public static final String KEY_KEY_FILTER_MAX_KEYS = "keyFilterMaxKeys";
+    public static final int DEFAULT_KEY_FILTER_MAX_KEYS = 10_000_000;
+    public static final String KEY_COLUMNAR_BLOCK_SIZE = "columnarBlockSize";
+    public static final int DEFAULT_COLUMNAR_BLOCK_SIZE = 1024;
     public static final int DEFAULT_MAX_OPEN_FILES = 1000;
 
     static final Map<String, CompressionType> COMP_TYPES = new HashMap<>();
@@ -50,6 +59,12 @@ public class RdbConfig {
     static final private RdbConfig INSTANTCE = new RdbConfig();
 
     private List<TablespaceConfig> tblConfigList = new ArrayList<>();
+    private List<GroupCommitConfig> groupCommitConfigList = new ArrayList<>();
+    private int readAheadDepth = 0;
+    private int readAheadThreads = Runtime.getRuntime().availableProcessors();
+    private int keyFilterMaxKeys = DEFAULT_KEY_FILTER_MAX_KEYS;
+    private int histogramRebuildThreads = Runtime.getRuntime().availableProcessors();
+    private int columnarBlockSize = DEFAULT_COLUMNAR_BLOCK_SIZE;
     final Env env;
     final ColumnFamilyOptions defaultColumnFamilyOptions;
     final Options defaultOptions;
@@ -75,6 +90,31 @@ public class RdbConfig {
                     tblConfigList.add(tblConf);
                 }
             }
+            if (rdbOptions.containsKey(KEY_GROUP_COMMIT)) {
+                for (YConfiguration gcConfig : rdbOptions.getConfigList(KEY_GROUP_COMMIT)) {
+                    groupCommitConfigList.add(new GroupCommitConfig(gcConfig));
+                }
+            }
+            readAheadDepth = rdbOptions.getInt(KEY_READ_AHEAD_DEPTH, readAheadDepth);
+            readAheadThreads = rdbOptions.getInt(KEY_READ_AHEAD_THREADS, readAheadThreads);
+            keyFilterMaxKeys = rdbOptions.getInt(KEY_KEY_FILTER_MAX_KEYS, keyFilterMaxKeys);
+            histogramRebuildThreads = rdbOptions.getInt(KEY_HISTOGRAM_REBUILD_THREADS, histogramRebuildThreads);
+            columnarBlockSize = rdbOptions.getInt(KEY_COLUMNAR_BLOCK_SIZE, columnarBlockSize);
+            if (readAheadDepth < 0) {
+                throw new ConfigurationException(KEY_READ_AHEAD_DEPTH + " cannot be negative");
+            }
+            if (readAheadThreads < 1) {
+                throw new ConfigurationException(KEY_READ_AHEAD_THREADS + " has to be at least 1");
+            }
+            if (histogramRebuildThreads < 1) {
+                throw new ConfigurationException(KEY_HISTOGRAM_REBUILD_THREADS + " has to be at least 1");
+            }
+            if (keyFilterMaxKeys < 0) {
+                throw new ConfigurationException(KEY_KEY_FILTER_MAX_KEYS + " cannot be negative");
+            }
+            if (columnarBlockSize < 1) {
+                throw new ConfigurationException(KEY_COLUMNAR_BLOCK_SIZE + " has to be at least 1");
+            }
         }
 
         env = Env.getDefault();
@@ -150,6 +190,113 @@ public class RdbConfig {
         return null;
     }
 
+    /**
+     * 
+     * @param tableName
+     * @return the first group commit config that matches the table name or null if the table writers for that table
+     *         should write each tuple individually
+     */
+    public GroupCommitConfig getGroupCommitConfig(String tableName) {
+        for (GroupCommitConfig gcc : groupCommitConfigList) {
+            if (gcc.tableNamePattern.matcher(tableName).matches()) {
+                return gcc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 
+     * @return the number of partition intervals the table walkers used for retrieving data read in advance of the
+     *         one being delivered; 0 means that the read-ahead is disabled.
+     */
+    public int getReadAheadDepth() {
+        return readAheadDepth;
+    }
+
+    /**
+     * 
+     * @return the number of threads shared by all the table walkers for reading ahead
+     */
+    public int getReadAheadThreads() {
+        return readAheadThreads;
+    }
+
+    /**
+     * 
+     * @return the number of threads used by the {@link HistogramRebuilder} to scan the tables in parallel
+     */
+    public int getHistogramRebuildThreads() {
+        return histogramRebuildThreads;
+    }
+
+    /**
+     * 
+     * @return the maximum number of keys of a partition for which the table writers keep an in-memory key filter to
+     *         avoid reading the database when inserting new records; 0 means that the key filters are disabled.
+     */
+    public int getKeyFilterMaxKeys() {
+        return keyFilterMaxKeys;
+    }
+
+    /**
+     * 
+     * @return the number of rows sealed together in one block by the {@link ColumnarStorageEngine}
+     */
+    public int getColumnarBlockSize() {
+        return columnarBlockSize;
+    }
+
+    /**
+     * Configures the group commit mode of the {@link RdbTableWriter}: the tuples are queued and written in one
+     * {@link org.rocksdb.WriteBatch} per partition when either the maximum batch size or the maximum latency is
+     * reached.
+     */
+    public static class GroupCommitConfig {
+        public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+        public static final int DEFAULT_MAX_LATENCY = 100;
+
+        Pattern tableNamePattern;
+        // maximum number of tuples queued before writing them to the database
+        final int maxBatchSize;
+        // maximum time in milliseconds a tuple can stay in the queue
+        final int maxLatency;
+
+        GroupCommitConfig(YConfiguration gcConfig) throws ConfigurationException {
+            String s = gcConfig.getString(KEY_TABLE_NAME_PATTERN);
+            try {
+                tableNamePattern = Pattern.compile(s);
+            } catch (PatternSyntaxException e) {
+                throw new ConfigurationException("Cannot parse regexp " + e);
+            }
+            maxBatchSize = gcConfig.getInt("maxBatchSize", DEFAULT_MAX_BATCH_SIZE);
+            maxLatency = gcConfig.getInt("maxLatency", DEFAULT_MAX_LATENCY);
+            if (maxBatchSize < 1) {
+                throw new ConfigurationException(
+                        "Exception when reading group commit configuration for '" + tableNamePattern
+                                + "': maxBatchSize has to be at least 1");
+            }
+            if (maxLatency < 1) {
+                throw new ConfigurationException(
+                        "Exception when reading group commit configuration for '" + tableNamePattern
+                                + "': maxLatency has to be at least 1");
+            }
+        }
+
+        public GroupCommitConfig(int maxBatchSize, int maxLatency) {
+            this.maxBatchSize = maxBatchSize;
+            this.maxLatency = maxLatency;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public int getMaxLatency() {
+            return maxLatency;
+        }
+    }
+
     public static class TablespaceConfig {
         Pattern tablespaceNamePattern;
         ColumnFamilyOptions cfOptions = new ColumnFamilyOptions();
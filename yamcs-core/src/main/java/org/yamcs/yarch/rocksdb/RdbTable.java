@@ -1,12 +1,19 @@
 package org.yamcs.yarch.rocksdb;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.rocksdb.RocksDBException;
 import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.yarch.Partition;
+import org.yamcs.yarch.PartitioningSpec._type;
 import org.yamcs.yarch.Table;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
@@ -24,6 +31,16 @@ public class RdbTable extends Table {
     final RdbPartitionManager partitionManager;
     final HistogramWriter histoWriter;
     SecondaryIndexWriter indexWriter;
+    // the key filters not used for this time are removed
+    static final long KEY_FILTER_MAX_IDLE_MILLIS = 3600_000L;
+
+    // partition tbsIndex -> key filter
+    final Map<Integer, KeyFilter> keyFilters = new ConcurrentHashMap<>();
+    private volatile long lastKeyFilterEviction = System.currentTimeMillis();
+    // partition tbsIndex -> columnar partition, used only for the tables of the columnar engine
+    final Map<Integer, ColumnarPartition> columnarPartitions = new ConcurrentHashMap<>();
+    // the last started histogram rebuild
+    volatile HistogramRebuilder histogramRebuilder;
 
     public RdbTable(String yamcsInstance, Tablespace tablespace, TableDefinition tblDef, int tbsIndex) {
         super(tblDef);
@@ -70,6 +87,95 @@ public class RdbTable extends Table {
         return indexWriter;
     }
 
+    /**
+     * Returns the key filter of the partition, creating it if it does not exist.
+     * <p>
+     * The filters of the partitions which have not been written for {@link #KEY_FILTER_MAX_IDLE_MILLIS} are removed.
+     * 
+     * @return the key filter or null if the key filters are disabled
+     */
+    KeyFilter getKeyFilter(RdbPartition partition) {
+        int maxKeys = RdbConfig.getInstance().getKeyFilterMaxKeys();
+        if (maxKeys == 0) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastKeyFilterEviction > KEY_FILTER_MAX_IDLE_MILLIS) {
+            lastKeyFilterEviction = now;
+            evictKeyFilters(now - KEY_FILTER_MAX_IDLE_MILLIS);
+        }
+        KeyFilter kf = keyFilters.computeIfAbsent(partition.tbsIndex,
+                k -> new KeyFilter(tablespace, partition, maxKeys));
+        kf.lastUsed = now;
+        return kf;
+    }
+
+    /**
+     * Removes the key filters not used since the given time.
+     */
+    void evictKeyFilters(long minLastUsed) {
+        keyFilters.values().removeIf(kf -> kf.lastUsed < minLastUsed);
+    }
+
+    /**
+     * Called when a key has been written in a partition other than by the {@link RdbTableWriter}
+     */
+    void keyAdded(byte[] dbKey) {
+        KeyFilter kf = keyFilters.get(RdbStorageEngine.tbsIndex(dbKey));
+        if (kf != null) {
+            kf.add(dbKey);
+        }
+    }
+
+    /**
+     * 
+     * @return the last histogram rebuilder started for this table or null if no rebuild has been started since the
+     *         table has been loaded
+     */
+    public HistogramRebuilder getHistogramRebuilder() {
+        return histogramRebuilder;
+    }
+
+    /**
+     * Reads the rows having the given primary keys with one multi-get instead of running one query for each of them.
+     * <p>
+     * Only the non partitioned tables of the RocksDB engine are supported.
+     * 
+     * @param keys
+     *            tuples containing (at least) the primary key columns
+     * @return the rows in the same order as the keys; the rows not found are null.
+     */
+    public List<Tuple> getRows(List<Tuple> keys) throws RocksDBException {
+        TableDefinition tblDef = getDefinition();
+        if (tblDef.getPartitioningSpec().type != _type.NONE || ColumnarStorageEngine.isColumnar(tblDef)) {
+            throw new UnsupportedOperationException("Cannot read by key from table " + tblDef.getName());
+        }
+        List<Tuple> rows = new ArrayList<>(keys.size());
+        List<Partition> partitions = partitionManager.getPartitions();
+        if (keys.isEmpty() || partitions.isEmpty()) {
+            for (int i = 0; i < keys.size(); i++) {
+                rows.add(null);
+            }
+            return rows;
+        }
+        RdbPartition partition = (RdbPartition) partitions.get(0);
+        List<byte[]> dbKeys = new ArrayList<>(keys.size());
+        for (Tuple key : keys) {
+            dbKeys.add(RdbStorageEngine.dbKey(partition.tbsIndex, tblDef.generateRow(key).getKey()));
+        }
+        YRDB rdb = tablespace.getRdb(partition.dir, false);
+        try {
+            Map<byte[], byte[]> values = rdb.multiGet(dbKeys);
+            for (byte[] dbKey : dbKeys) {
+                byte[] v = values.get(dbKey);
+                rows.add(v == null ? null : tblDef.deserialize(Arrays.copyOfRange(dbKey, 4, dbKey.length), v));
+            }
+        } finally {
+            tablespace.dispose(rdb);
+        }
+        return rows;
+    }
+
     public RdbHistogramInfo createAndGetHistogram(long instant, String columnName) {
         return (RdbHistogramInfo) partitionManager.createAndGetHistogram(instant, columnName);
     }
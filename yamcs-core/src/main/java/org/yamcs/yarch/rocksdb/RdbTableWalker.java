@@ -3,7 +3,11 @@ package org.yamcs.yarch.rocksdb;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.rocksdb.ReadOptions;
@@ -25,20 +29,29 @@ import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.streamsql.StreamSqlException;
 import org.yamcs.yarch.streamsql.StreamSqlException.ErrCode;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class RdbTableWalker extends AbstractTableWalker {
     private final Tablespace tablespace;
+    private final RdbTable table;
 
     static AtomicInteger count = new AtomicInteger(0);
+    private static ExecutorService readAheadExecutor;
 
     boolean batchUpdates = false;
     Snapshot snapshot = null;
+    boolean releaseSnapshot = true;
     protected TableVisitor visitor;
 
+    // iterators of the intervals being read in advance, guarded by itself
+    private final Map<PartitionManager.Interval, List<ReadAheadIterator>> readAheadIterators = new IdentityHashMap<>();
+
     protected RdbTableWalker(Tablespace tablespace, YarchDatabaseInstance ydb, TableDefinition tableDefinition,
             boolean ascending, boolean follow) {
         super(ydb, tableDefinition, ascending, follow);
 
         this.tablespace = tablespace;
+        this.table = tablespace.getTable(tableDefinition);
     }
 
     /**
@@ -56,7 +69,14 @@ public class RdbTableWalker extends AbstractTableWalker {
             throws YarchException, StreamSqlException {
         this.visitor = visitor;
         running = true;
+        List<ReadAheadIterator> raList;
+        synchronized (readAheadIterators) {
+            raList = readAheadIterators.remove(interval);
+        }
         try {
+            if (raList != null) {
+                return walkReadAhead(raList, tableRange);
+            }
             return doWalkInterval(interval, tableRange);
         } catch (RocksDBException e) {
             throw new YarchException(e);
@@ -135,7 +155,7 @@ public class RdbTableWalker extends AbstractTableWalker {
             if (iterator != null) {
                 iterator.close();
             }
-            if (snapshot != null) {
+            if (snapshot != null && releaseSnapshot) {
                 snapshot.close();
                 snapshot = null;
             }
@@ -149,7 +169,103 @@ public class RdbTableWalker extends AbstractTableWalker {
     }
 
     /**
-     * If set, the snapshot will be used to iterate the database but only if the follow = false
+     * If readOnly is true, the upcoming intervals are read in advance according to the
+     * {@link RdbConfig#getReadAheadDepth()}.
+     */
+    @Override
+    public void setReadOnly(boolean readOnly) {
+        setReadAheadDepth(readOnly ? RdbConfig.getInstance().getReadAheadDepth() : 0);
+    }
+
+    /**
+     * Starts reading in background each partition of the interval.
+     */
+    @Override
+    protected void readAhead(PartitionManager.Interval interval, DbRange tableRange) {
+        List<ReadAheadIterator> raList = new ArrayList<>(interval.size());
+        ExecutorService executor = getReadAheadExecutor();
+        for (Partition p : interval) {
+            RdbPartition rp = (RdbPartition) p;
+            raList.add(new ReadAheadIterator(tablespace, rp, getDbRange(rp.tbsIndex, tableRange), ascending,
+                    executor, snapshot));
+        }
+        synchronized (readAheadIterators) {
+            if (!isRunning()) {
+                return;
+            }
+            readAheadIterators.put(interval, raList);
+            for (ReadAheadIterator it : raList) {
+                it.start();
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #doWalkInterval(PartitionManager.Interval, DbRange)} but with the data read in background.
+     * <p>
+     * The visitor is not allowed to modify the table.
+     */
+    private boolean walkReadAhead(List<ReadAheadIterator> raList, DbRange tableRange)
+            throws RocksDBException, StreamSqlException {
+        List<DbIterator> itList = new ArrayList<>(raList.size());
+        DbIterator iterator = null;
+        try {
+            for (ReadAheadIterator it : raList) {
+                if (it.isValid()) {
+                    itList.add(it);
+                } else {
+                    it.close();
+                }
+            }
+            if (itList.size() == 0) {
+                return false;
+            } else if (itList.size() == 1) {
+                iterator = itList.get(0);
+            } else {
+                iterator = new MergingIterator(itList,
+                        ascending ? new SuffixAscendingComparator(4) : new SuffixDescendingComparator(4));
+            }
+            if (ascending) {
+                return runAscending(null, iterator, null, tableRange.rangeEnd);
+            } else {
+                return runDescending(null, iterator, null, tableRange.rangeStart);
+            }
+        } finally {
+            for (ReadAheadIterator it : raList) {
+                it.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        synchronized (readAheadIterators) {
+            for (List<ReadAheadIterator> raList : readAheadIterators.values()) {
+                for (ReadAheadIterator it : raList) {
+                    it.close();
+                }
+            }
+            readAheadIterators.clear();
+            // with read-ahead, the snapshot set by the caller is used for all the intervals
+            if (readAheadDepth > 0 && snapshot != null && releaseSnapshot) {
+                snapshot.close();
+                snapshot = null;
+            }
+        }
+    }
+
+    static synchronized ExecutorService getReadAheadExecutor() {
+        if (readAheadExecutor == null) {
+            readAheadExecutor = Executors.newFixedThreadPool(RdbConfig.getInstance().getReadAheadThreads(),
+                    new ThreadFactoryBuilder().setNameFormat("RdbTableWalker-read-ahead-%d").setDaemon(true).build());
+        }
+        return readAheadExecutor;
+    }
+
+    /**
+     * If set, the snapshot will be used to iterate the database but only if the follow = false. It is also used by
+     * the iterators reading ahead the upcoming intervals.
      * <p>
      * The snapshot will be release at the end
      * 
@@ -159,6 +275,15 @@ public class RdbTableWalker extends AbstractTableWalker {
         this.snapshot = snapshot;
     }
 
+    /**
+     * Same as {@link #setSnapshot(Snapshot)} but the snapshot is not released at the end; it can be shared between
+     * multiple walkers running in parallel.
+     */
+    public void setSharedSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.releaseSnapshot = false;
+    }
+
     // return true if the end condition has been reached
     boolean runAscending(YRDB rdb, DbIterator iterator, WriteBatch writeBatch, byte[] rangeEnd)
             throws RocksDBException, StreamSqlException {
@@ -173,10 +298,12 @@ public class RdbTableWalker extends AbstractTableWalker {
                 return true;
             }
             TableVisitor.Action action = visitor.visit(key, iterator.value());
-            if (writeBatch == null) {
-                executeAction(rdb, action, dbKey);
+            if (rdb == null) {
+                checkReadOnly(action);
+            } else if (writeBatch == null) {
+                executeAction(table, rdb, action, dbKey);
             } else {
-                executeAction(rdb, writeBatch, action, dbKey);
+                executeAction(table, rdb, writeBatch, action, dbKey);
             }
             if (action.stop()) {
                 close();
@@ -200,12 +327,13 @@ public class RdbTableWalker extends AbstractTableWalker {
             }
 
             TableVisitor.Action action = visitor.visit(key, iterator.value());
-            if (writeBatch == null) {
-                executeAction(rdb, action, dbKey);
+            if (rdb == null) {
+                checkReadOnly(action);
+            } else if (writeBatch == null) {
+                executeAction(table, rdb, action, dbKey);
             } else {
-                executeAction(rdb, writeBatch, action, dbKey);
+                executeAction(table, rdb, writeBatch, action, dbKey);
             }
-
             if (action.stop()) {
                 close();
                 return false;
@@ -215,7 +343,14 @@ public class RdbTableWalker extends AbstractTableWalker {
         return false;
     }
 
-    static void executeAction(YRDB rdb, WriteBatch writeBatch, TableVisitor.Action action, byte[] dbKey)
+    static void checkReadOnly(TableVisitor.Action action) throws StreamSqlException {
+        if (action.action() != TableVisitor.ActionType.NONE) {
+            throw new StreamSqlException(ErrCode.NOT_SUPPORTED, "Cannot modify the table when reading ahead");
+        }
+    }
+
+    static void executeAction(RdbTable table, YRDB rdb, WriteBatch writeBatch, TableVisitor.Action action,
+            byte[] dbKey)
             throws RocksDBException, StreamSqlException {
         if (action.action() == TableVisitor.ActionType.DELETE) {
             writeBatch.delete(dbKey);
@@ -232,11 +367,12 @@ public class RdbTableWalker extends AbstractTableWalker {
 
             writeBatch.delete(dbKey);
             writeBatch.put(updatedDbKey, action.getUpdatedValue());
+            table.keyAdded(updatedDbKey);
 
         }
     }
 
-    static void executeAction(YRDB rdb, TableVisitor.Action action, byte[] dbKey)
+    static void executeAction(RdbTable table, YRDB rdb, TableVisitor.Action action, byte[] dbKey)
             throws RocksDBException, StreamSqlException {
         if (action.action() == TableVisitor.ActionType.DELETE) {
             rdb.delete(dbKey);
@@ -252,6 +388,7 @@ public class RdbTableWalker extends AbstractTableWalker {
             }
             rdb.delete(dbKey);
             rdb.put(updatedDbKey, action.getUpdatedValue());
+            table.keyAdded(updatedDbKey);
         }
     }
 
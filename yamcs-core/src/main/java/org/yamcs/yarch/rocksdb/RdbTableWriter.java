@@ -5,6 +5,12 @@ import static org.yamcs.yarch.rocksdb.RdbStorageEngine.dbKey;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.rocksdb.RocksDBException;
 import org.rocksdb.WriteBatch;
@@ -12,7 +18,7 @@ import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.YamcsServer;
-import org.yamcs.utils.StringConverter;
+import org.yamcs.utils.ByteArrayWrapper;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.DataType;
@@ -25,8 +31,9 @@ import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.rocksdb.RdbConfig.GroupCommitConfig;
 
-import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;;
+import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;
 
 /**
  * table writer for the rocksdb2 engine.
@@ -39,12 +46,25 @@ import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;;
  * 
  * <p>
  * The histograms are written by the {@link HistogramWriter}.
+ * 
+ * <p>
+ * If a {@link GroupCommitConfig} is provided, the writer works in group commit mode: the tuples are queued and written
+ * with one {@link WriteBatch} per partition when the queue reaches the maximum batch size or when the oldest tuple has
+ * been in the queue longer than the maximum latency. The existence of the keys is verified in bulk with
+ * {@link YRDB#multiGet(List)}. The group commit is not supported for the INSERT_APPEND and UPSERT_APPEND modes; in these
+ * modes the tuples are always written individually.
+ * 
+ * <p>
+ * Unless disabled in the configuration, a {@link KeyFilter} is kept for each partition written; it is used to skip
+ * reading from the database the keys which are certainly not present. The keys of all the records written are added
+ * to the filter.
  *
  * 
  * @author nm
  *
  */
 public class RdbTableWriter extends TableWriter {
+    private final RdbTable rdbTable;
     private final RdbPartitionManager partitionManager;
     private final PartitioningSpec partitioningSpec;
     Logger log = LoggerFactory.getLogger(this.getClass().getName());
@@ -56,8 +76,20 @@ public class RdbTableWriter extends TableWriter {
     final SecondaryIndexWriter indexWriter;
     TableDefinition tableDefinition;
 
+    // used in group commit mode
+    final GroupCommitConfig groupCommitConfig;
+    List<Tuple> queue;
+    long oldestQueuedTime;
+    ScheduledFuture<?> flushFuture;
+
     public RdbTableWriter(YarchDatabaseInstance ydb, RdbTable table, InsertMode mode) {
+        this(ydb, table, mode, null);
+    }
+
+    public RdbTableWriter(YarchDatabaseInstance ydb, RdbTable table, InsertMode mode,
+            GroupCommitConfig groupCommitConfig) {
         super(ydb, table, mode);
+        this.rdbTable = table;
         this.tableDefinition = table.getDefinition();
         this.partitioningSpec = tableDefinition.getPartitioningSpec();
         this.partitionManager = table.getPartitionManager();
@@ -70,6 +102,20 @@ public class RdbTableWriter extends TableWriter {
         }
         histoWriter = table.getHistogramWriter();
         indexWriter = table.getSecondaryIndexWriter();
+
+        if (groupCommitConfig != null && (mode == InsertMode.INSERT_APPEND || mode == InsertMode.UPSERT_APPEND)) {
+            log.warn("Group commit not supported for {} mode, table {} will be written tuple by tuple", mode,
+                    table.getName());
+            this.groupCommitConfig = null;
+        } else {
+            this.groupCommitConfig = groupCommitConfig;
+        }
+        if (this.groupCommitConfig != null) {
+            queue = new ArrayList<>(this.groupCommitConfig.getMaxBatchSize());
+            long period = Math.max(1, this.groupCommitConfig.getMaxLatency() / 2);
+            flushFuture = tablespace.getExecutor().scheduleWithFixedDelay(this::flushIfExpired, period, period,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -88,6 +134,10 @@ public class RdbTableWriter extends TableWriter {
         if (closed) {
             return;
         }
+        if (groupCommitConfig != null) {
+            enqueue(t);
+            return;
+        }
         try {
             RdbPartition partition = getDbPartition(t);
             YRDB rdb = tablespace.getRdb(partition.dir, false);
@@ -117,11 +167,141 @@ public class RdbTableWriter extends TableWriter {
         }
     }
 
+    private synchronized void enqueue(Tuple t) {
+        // checked again under the lock of doClose, such that no tuple is queued after the last flush
+        if (closed) {
+            return;
+        }
+        if (queue.isEmpty()) {
+            oldestQueuedTime = System.currentTimeMillis();
+        }
+        queue.add(t);
+        if (queue.size() >= groupCommitConfig.getMaxBatchSize()) {
+            flush();
+        }
+    }
+
+    // runs periodically in the tablespace executor; an exception escaping from here would silently cancel the task and
+    // the queued tuples would not be written anymore until the queue reaches the maximum batch size
+    private synchronized void flushIfExpired() {
+        try {
+            if (!queue.isEmpty()
+                    && System.currentTimeMillis() - oldestQueuedTime >= groupCommitConfig.getMaxLatency()) {
+                flush();
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to write the queued tuples in table {}", table.getName(), e);
+        }
+    }
+
+    /**
+     * In group commit mode, writes to the database all the tuples from the queue.
+     * <p>
+     * In normal mode, it does nothing.
+     */
+    public synchronized void flush() {
+        if (groupCommitConfig == null || queue.isEmpty()) {
+            return;
+        }
+        List<Tuple> tlist = queue;
+        queue = new ArrayList<>(groupCommitConfig.getMaxBatchSize());
+        try {
+            Map<RdbPartition, List<Tuple>> byPartition = new LinkedHashMap<>();
+            for (Tuple t : tlist) {
+                byPartition.computeIfAbsent(getDbPartition(t), p -> new ArrayList<>()).add(t);
+            }
+            for (Map.Entry<RdbPartition, List<Tuple>> me : byPartition.entrySet()) {
+                RdbPartition partition = me.getKey();
+                YRDB rdb = tablespace.getRdb(partition.dir, false);
+                try {
+                    writeBatch(rdb, partition, me.getValue());
+                } finally {
+                    tablespace.dispose(rdb);
+                }
+            }
+        } catch (IOException | RocksDBException | YarchException e) {
+            log.error("failed to insert a batch of {} records: ", tlist.size(), e);
+            YamcsServer.getServer().getCrashHandler(ydb.getYamcsInstance()).handleCrash("Archive",
+                    "failed to insert " + tlist.size() + " records in " + table.getName() + ": " + e);
+        }
+    }
+
+    /**
+     * writes the tuples belonging to one partition in one batch.
+     * <p>
+     * If multiple tuples in the list have the same key, for INSERT the first one is retained whereas for UPSERT and
+     * LOAD, the last one is retained; this is the same result as writing them one by one.
+     */
+    private void writeBatch(YRDB rdb, RdbPartition partition, List<Tuple> tlist)
+            throws RocksDBException, IOException {
+        int n = tlist.size();
+        KeyFilter keyFilter = mode == InsertMode.LOAD ? null : rdbTable.getKeyFilter(partition);
+        Row[] rows = new Row[n];
+        List<byte[]> keys = new ArrayList<>(n);
+        List<byte[]> keysToCheck = new ArrayList<>(n);
+        Map<ByteArrayWrapper, Integer> retained = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            rows[i] = tableDefinition.generateRow(tlist.get(i));
+            byte[] k = dbKey(partition.tbsIndex, rows[i].getKey());
+            keys.add(k);
+            if (keyFilter == null || keyFilter.mightContain(k)) {
+                keysToCheck.add(k);
+            }
+            if (mode == InsertMode.INSERT) {
+                retained.putIfAbsent(new ByteArrayWrapper(k), i);
+            } else {
+                retained.put(new ByteArrayWrapper(k), i);
+            }
+        }
+
+        Map<byte[], byte[]> existing = mode == InsertMode.LOAD || keysToCheck.isEmpty() ? Collections.emptyMap()
+                : rdb.multiGet(keysToCheck);
+        boolean separateIndexDb = indexWriter != null && rdb != tablespace.getRdb();
+        List<Row> newRows = new ArrayList<>(retained.size());
+
+        try (WriteBatch writeBatch = new WriteBatch();
+                WriteBatch indexBatch = separateIndexDb ? new WriteBatch() : null) {
+            for (int i : retained.values()) {
+                byte[] k = keys.get(i);
+                boolean exists = existing.containsKey(k);
+                if (exists && mode == InsertMode.INSERT) {
+                    continue;
+                }
+                Row row = rows[i];
+                writeBatch.put(k, tableDefinition.serializeValue(tlist.get(i), row));
+                if (indexWriter != null) {
+                    indexWriter.addTuple(separateIndexDb ? indexBatch : writeBatch, row, partition);
+                }
+                if (!exists) {
+                    newRows.add(row);
+                }
+            }
+            rdb.write(wopt, writeBatch);
+            if (separateIndexDb) {
+                tablespace.getRdb().write(wopt, indexBatch);
+            }
+        }
+        for (int i : retained.values()) {
+            if (keyFilter != null) {
+                keyFilter.add(keys.get(i));
+            } else {
+                rdbTable.keyAdded(keys.get(i));
+            }
+        }
+
+        if (histoWriter != null && mode != InsertMode.LOAD) {
+            for (Row row : newRows) {
+                histoWriter.addHistogram(row);
+            }
+        }
+    }
+
     private boolean load(YRDB db, RdbPartition partition, Tuple t) throws RocksDBException, YarchException {
         Row row = tableDefinition.generateRow(t);
         byte[] k = dbKey(partition.tbsIndex, row.getKey());
         byte[] v = tableDefinition.serializeValue(t, row);
         db.put(wopt, k, v);
+        rdbTable.keyAdded(k);
         return true;
     }
 
@@ -129,12 +309,16 @@ public class RdbTableWriter extends TableWriter {
         Row row = tableDefinition.generateRow(t);
         byte[] k = dbKey(partition.tbsIndex, row.getKey());
 
-        if (rdb.get(k) != null) {
+        KeyFilter keyFilter = rdbTable.getKeyFilter(partition);
+        if ((keyFilter == null || keyFilter.mightContain(k)) && rdb.get(k) != null) {
             return;
         }
         byte[] v = tableDefinition.serializeValue(t, row);
 
         writeToDb(rdb, partition, k, v, row);
+        if (keyFilter != null) {
+            keyFilter.add(k);
+        }
 
         if (histoWriter != null) {
             histoWriter.addHistogram(row);
@@ -149,11 +333,14 @@ public class RdbTableWriter extends TableWriter {
         byte[] v = tableDefinition.serializeValue(t, row);
 
         boolean updated = false;
-
-        if (rdb.get(k) != null) {
+        KeyFilter keyFilter = rdbTable.getKeyFilter(partition);
+        if ((keyFilter == null || keyFilter.mightContain(k)) && rdb.get(k) != null) {
             updated = true;
         }
         writeToDb(rdb, partition, k, v, row);
+        if (keyFilter != null && !updated) {
+            keyFilter.add(k);
+        }
 
         if (histoWriter != null) {
             if (updated) {
@@ -196,6 +383,7 @@ public class RdbTableWriter extends TableWriter {
                 inserted = true;
                 v = tableDefinition.serializeValue(t, row);
                 writeToDb(rdb, partition, dbKey, v, row);
+                rdbTable.keyAdded(dbKey);
             }
         } finally {
             rdb.unlock(dbKey);
@@ -246,6 +434,7 @@ public class RdbTableWriter extends TableWriter {
                 inserted = true;
                 v = tableDefinition.serializeValue(t, row);
                 writeToDb(rdb, partition, dbKey, v, row);
+                rdbTable.keyAdded(dbKey);
             }
         } finally {
             rdb.unlock(dbKey);
@@ -307,11 +496,15 @@ public class RdbTableWriter extends TableWriter {
         return (RdbPartition) partitionManager.createAndGetPartition(time, value);
     }
 
-    protected void doClose() {
+    protected synchronized void doClose() {
         if (closed) {
             return;
         }
         closed = true;
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+            flush();
+        }
     }
 
     @Override
@@ -0,0 +1,243 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
+import org.yamcs.yarch.DbRange;
+import org.yamcs.yarch.YarchException;
+
+/**
+ * Iterator over one partition whose data is read in background, in chunks, by tasks running in an executor.
+ * <p>
+ * At most {@link #MAX_CHUNKS} chunks are kept in memory; the reading task is not rescheduled until the consumer
+ * takes a chunk from the queue. This way the tasks never block the executor threads.
+ * <p>
+ * The iterator moves in the direction given at construction, both {@link #next()} and {@link #prev()} advance to the
+ * next record read.
+ */
+class ReadAheadIterator implements DbIterator, Runnable {
+    static final int CHUNK_SIZE = 256;
+    static final int MAX_CHUNKS = 2;
+
+    final Tablespace tablespace;
+    final RdbPartition partition;
+    final DbRange dbRange;
+    final boolean ascending;
+    final Executor executor;
+    // if not null, the data is read from this snapshot which is owned by the caller; otherwise a snapshot is taken
+    // when the reading starts and released at the end
+    final Snapshot callerSnapshot;
+
+    // used only by the reading task
+    private YRDB rdb;
+    private ReadOptions readOptions;
+    private Snapshot snapshot;
+    private DbIterator iterator;
+
+    // guarded by this
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>(MAX_CHUNKS);
+    private boolean scheduled;
+    private boolean finished;
+    private boolean closed;
+    private RuntimeException error;
+
+    // used only by the consumer
+    private Chunk current;
+    private int idx;
+
+    ReadAheadIterator(Tablespace tablespace, RdbPartition partition, DbRange dbRange, boolean ascending,
+            Executor executor, Snapshot snapshot) {
+        this.tablespace = tablespace;
+        this.partition = partition;
+        this.dbRange = dbRange;
+        this.ascending = ascending;
+        this.executor = executor;
+        this.callerSnapshot = snapshot;
+    }
+
+    /**
+     * schedules the reading of the first chunk
+     */
+    synchronized void start() {
+        scheduled = true;
+        executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        Chunk chunk = null;
+        RuntimeException err = null;
+        boolean end = false;
+        try {
+            if (!isClosed()) {
+                if (iterator == null) {
+                    open();
+                }
+                chunk = new Chunk();
+                while (iterator.isValid() && chunk.size < CHUNK_SIZE) {
+                    chunk.add(iterator.key(), iterator.value());
+                    if (ascending) {
+                        iterator.next();
+                    } else {
+                        iterator.prev();
+                    }
+                }
+                end = !iterator.isValid();
+            }
+        } catch (RuntimeException e) {
+            err = e;
+        }
+
+        boolean reschedule = false;
+        synchronized (this) {
+            if (err != null) {
+                error = err;
+                finished = true;
+            } else {
+                if (chunk != null && chunk.size > 0) {
+                    chunks.add(chunk);
+                }
+                finished |= end;
+            }
+            if (finished || closed) {
+                release();
+                scheduled = false;
+            } else if (chunks.size() < MAX_CHUNKS) {
+                reschedule = true;
+            } else {
+                scheduled = false;
+            }
+            notifyAll();
+        }
+        if (reschedule) {
+            executor.execute(this);
+        }
+    }
+
+    private void open() {
+        if (partition.dir != null) {
+            rdb = tablespace.getRdb(partition.dir, false);
+        } else {
+            rdb = tablespace.getRdb();
+        }
+        readOptions = new ReadOptions();
+        if (callerSnapshot == null) {
+            snapshot = rdb.getDb().getSnapshot();
+            readOptions.setSnapshot(snapshot);
+        } else {
+            readOptions.setSnapshot(callerSnapshot);
+        }
+        if (!ascending) {
+            readOptions.setTotalOrderSeek(true);
+        }
+        RocksIterator rocksIt = rdb.getDb().newIterator(readOptions);
+        if (ascending) {
+            iterator = new AscendingRangeIterator(rocksIt, dbRange);
+        } else {
+            iterator = new DescendingRangeIterator(rocksIt, dbRange);
+        }
+    }
+
+    // called with the lock held, when the reading task does not run
+    private void release() {
+        if (iterator != null) {
+            iterator.close();
+            iterator = null;
+        }
+        if (readOptions != null) {
+            readOptions.close();
+            readOptions = null;
+        }
+        if (snapshot != null) {
+            rdb.getDb().releaseSnapshot(snapshot);
+            snapshot.close();
+            snapshot = null;
+        }
+        if (rdb != null) {
+            tablespace.dispose(rdb);
+            rdb = null;
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Waits until a record is available or the end of the partition has been reached.
+     *
+     * @throws YarchException
+     *             if the reading task has failed or the waiting thread has been interrupted
+     */
+    @Override
+    public boolean isValid() {
+        if (current != null && idx < current.size) {
+            return true;
+        }
+        synchronized (this) {
+            while (chunks.isEmpty() && !finished && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new YarchException("Interrupted while waiting for data", e);
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            current = chunks.poll();
+            idx = 0;
+            if (!scheduled && !finished && !closed) {
+                scheduled = true;
+                executor.execute(this);
+            }
+        }
+        return current != null;
+    }
+
+    @Override
+    public void next() {
+        idx++;
+    }
+
+    @Override
+    public void prev() {
+        idx++;
+    }
+
+    @Override
+    public byte[] key() {
+        return current.keys[idx];
+    }
+
+    @Override
+    public byte[] value() {
+        return current.values[idx];
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        chunks.clear();
+        if (!scheduled) {
+            release();
+        }
+        notifyAll();
+    }
+
+    static class Chunk {
+        final byte[][] keys = new byte[CHUNK_SIZE][];
+        final byte[][] values = new byte[CHUNK_SIZE][];
+        int size = 0;
+
+        void add(byte[] key, byte[] value) {
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+    }
+}
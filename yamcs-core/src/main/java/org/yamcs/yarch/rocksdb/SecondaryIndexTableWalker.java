@@ -150,9 +150,9 @@ public class SecondaryIndexTableWalker implements TableWalker {
             if (rowValue != null) {
                 TableVisitor.Action action = visitor.visit(pk, rowValue);
                 if (writeBatch == null) {
-                    RdbTableWalker.executeAction(rdb, action, dbKey);
+                    RdbTableWalker.executeAction(table, rdb, action, dbKey);
                 } else {
-                    RdbTableWalker.executeAction(rdb, writeBatch, action, dbKey);
+                    RdbTableWalker.executeAction(table, rdb, writeBatch, action, dbKey);
                 }
                 if (action.stop()) {
                     close();
@@ -33,11 +33,13 @@ import org.yamcs.yarch.Sequence;
 import org.yamcs.yarch.SequenceInfo;
 import org.yamcs.yarch.TableDefinition;
 import org.yamcs.yarch.TableWalker;
+import org.yamcs.yarch.TableWriter;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.TableWriter.InsertMode;
 import org.yamcs.yarch.protobuf.Db;
+import org.yamcs.yarch.rocksdb.RdbConfig.GroupCommitConfig;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ProtoTableDefinition;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.SecondaryIndex;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord;
@@ -123,7 +125,7 @@ public class Tablespace {
     Map<TableWalker, Object> walkers = Collections.synchronizedMap(new WeakHashMap<TableWalker, Object>());
     final ScheduledThreadPoolExecutor executor;
 
-    Map<TableDefinition, List<RdbTableWriter>> tableWriters = new HashMap<>();
+    Map<TableDefinition, List<TableWriter>> tableWriters = new HashMap<>();
 
     Map<String, RdbSequence> sequences = new HashMap<>();
 
@@ -567,13 +569,13 @@ public class Tablespace {
 
     void dropTable(TableDefinition tblDef) throws RocksDBException, IOException {
 
-        List<RdbTableWriter> l = null;
+        List<TableWriter> l = null;
         synchronized (tableWriters) {
             l = tableWriters.remove(tblDef);
         }
 
         if (l != null) {
-            for (RdbTableWriter w : l) {
+            for (TableWriter w : l) {
                 w.close();
             }
         }
@@ -649,6 +651,18 @@ public class Tablespace {
     }
 
     public RdbTableWriter newTableWriter(YarchDatabaseInstance ydb, TableDefinition tblDef, InsertMode insertMode) {
+        return newTableWriter(ydb, tblDef, insertMode,
+                RdbConfig.getInstance().getGroupCommitConfig(tblDef.getName()));
+    }
+
+    /**
+     * Creates a new table writer.
+     * 
+     * @param groupCommitConfig
+     *            if not null, the writer will work in group commit mode
+     */
+    public RdbTableWriter newTableWriter(YarchDatabaseInstance ydb, TableDefinition tblDef, InsertMode insertMode,
+            GroupCommitConfig groupCommitConfig) {
         synchronized (tables) {
             RdbTable table = tables.get(tblDef);
 
@@ -656,19 +670,46 @@ public class Tablespace {
                 throw new IllegalArgumentException("Unknown table '" + tblDef.getName() + "'");
             }
 
-            RdbTableWriter writer = new RdbTableWriter(ydb, table, insertMode);
-            synchronized (tableWriters) {
-                List<RdbTableWriter> l = tableWriters.computeIfAbsent(tblDef, t -> new ArrayList<>());
-                l.add(writer);
-            }
-            writer.closeFuture().thenAccept(v -> writerClosed(tblDef, writer));
+            RdbTableWriter writer = new RdbTableWriter(ydb, table, insertMode, groupCommitConfig);
+            registerWriter(tblDef, writer);
+            return writer;
+        }
+    }
+
+    /**
+     * Creates a new writer for a table of the {@link ColumnarStorageEngine}.
+     */
+    ColumnarTableWriter newColumnarTableWriter(YarchDatabaseInstance ydb, TableDefinition tblDef,
+            InsertMode insertMode) {
+        synchronized (tables) {
+            ColumnarTableWriter writer = new ColumnarTableWriter(ydb, verifyTable(tblDef), insertMode);
+            registerWriter(tblDef, writer);
             return writer;
         }
     }
 
-    private void writerClosed(TableDefinition tblDef, RdbTableWriter writer) {
+    /**
+     * Creates a new walker for a table of the {@link ColumnarStorageEngine}.
+     */
+    ColumnarTableWalker newColumnarTableWalker(YarchDatabaseInstance ydb, TableDefinition tblDef,
+            boolean ascending, boolean follow) {
+        verifyTable(tblDef);
+        ColumnarTableWalker tw = new ColumnarTableWalker(this, ydb, tblDef, ascending, follow);
+        walkers.put(tw, DUMMY);
+        return tw;
+    }
+
+    private void registerWriter(TableDefinition tblDef, TableWriter writer) {
+        synchronized (tableWriters) {
+            List<TableWriter> l = tableWriters.computeIfAbsent(tblDef, t -> new ArrayList<>());
+            l.add(writer);
+        }
+        writer.closeFuture().thenAccept(v -> writerClosed(tblDef, writer));
+    }
+
+    private void writerClosed(TableDefinition tblDef, TableWriter writer) {
         synchronized (tableWriters) {
-            List<RdbTableWriter> l = tableWriters.get(tblDef);
+            List<TableWriter> l = tableWriters.get(tblDef);
             if (l != null) {
                 l.remove(writer);
             }
@@ -165,6 +165,16 @@ public class YRDB {
         return db.get(k);
     }
 
+    /**
+     * {@link RocksDB#multiGet(List)}
+     * <p>
+     * The returned map is keyed by the array objects from the list, only the keys that exist in the database are
+     * present.
+     */
+    public Map<byte[], byte[]> multiGet(List<byte[]> keys) throws RocksDBException {
+        return db.multiGet(keys);
+    }
+
     public synchronized ColumnFamilyHandle createColumnFamily(byte[] cfname) throws RocksDBException {
         ColumnFamilyDescriptor cfd = new ColumnFamilyDescriptor(cfname, cfoptions);
         ColumnFamilyHandle cfh = db.createColumnFamily(cfd);
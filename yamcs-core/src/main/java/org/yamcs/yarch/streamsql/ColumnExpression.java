@@ -132,6 +132,11 @@ public class ColumnExpression extends Expression {
         }
     }
     
+    @Override
+    public void collectRequiredColumns(Set<String> columns) {
+        columns.add(className == null ? name : className);
+    }
+
     public void collectRequiredInputs(Set<ColumnDefinition> inputs) {
         if(className ==null) {
             inputs.add(inputDef.getColumn(colName));
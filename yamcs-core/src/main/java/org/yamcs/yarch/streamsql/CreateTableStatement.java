@@ -11,6 +11,7 @@ import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.streamsql.StreamSqlException.ErrCode;
 
 public class CreateTableStatement extends SimpleStreamSqlStatement {
 
@@ -89,6 +90,11 @@ public class CreateTableStatement extends SimpleStreamSqlStatement {
             }
 
             if (index != null) {
+                if (!index.isEmpty()
+                        && YarchDatabase.COLUMNAR_ENGINE_NAME.equals(tableDefinition.getStorageEngineName())) {
+                    throw new StreamSqlException(ErrCode.NOT_SUPPORTED, "Secondary indices are not supported by the "
+                            + YarchDatabase.COLUMNAR_ENGINE_NAME + " storage engine");
+                }
                 tableDefinition.setSecondaryIndex(index);
             }
             try {
@@ -2,6 +2,7 @@ package org.yamcs.yarch.streamsql;
 
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -124,6 +125,19 @@ public abstract class Expression {
         }
     }
 
+    /**
+     * Adds to the set the names of the input columns referenced by this expression or by its children.
+     * 
+     * @param columns
+     */
+    public void collectRequiredColumns(Set<String> columns) {
+        if (children != null) {
+            for (Expression c : children) {
+                c.collectRequiredColumns(columns);
+            }
+        }
+    }
+
     public void collectRequiredInputs(Set<ColumnDefinition> inputs) {
         if (children != null) {
             for (Expression c : children) {
@@ -149,6 +163,34 @@ public abstract class Expression {
         }
     }
 
+    /**
+     * Same as {@link #fillCode_InputDefVars(Collection, StringBuilder)} but the columns are read by index, using the
+     * indexes resolved by the {@code __colIndex} field declared by {@link #fillCode_ColumnIndexDeclaration(List,
+     * StringBuilder)}.
+     */
+    protected void fillCode_IndexedInputDefVars(List<ColumnDefinition> inputs, StringBuilder code) {
+        code.append("\t\tint[] __idx = __colIndex.getIndexes(tuple.getDefinition());\n");
+        for (int i = 0; i < inputs.size(); i++) {
+            ColumnDefinition cd = inputs.get(i);
+            String javaColIdentifier = "col" + sanitizeName(cd.getName());
+            DataType dtype = cd.getType();
+            String javaType = dtype.isPrimitiveJavaType() ? dtype.primitiveJavaType() : dtype.javaType();
+            code.append("\t\t" + javaType + " " + javaColIdentifier + " =  (" + dtype.javaType()
+                    + ")ColumnIndexCache.getColumn(tuple, __idx[" + i + "]);\n");
+        }
+    }
+
+    protected void fillCode_ColumnIndexDeclaration(List<ColumnDefinition> inputs, StringBuilder code) {
+        code.append("\tfinal ColumnIndexCache __colIndex = new ColumnIndexCache(new String[] {");
+        for (int i = 0; i < inputs.size(); i++) {
+            if (i > 0) {
+                code.append(", ");
+            }
+            code.append("\"").append(inputs.get(i).getName()).append("\"");
+        }
+        code.append("});\n");
+    }
+
     protected void fillCode_getValueBody(StringBuilder code) throws StreamSqlException {
     }
 
@@ -171,6 +213,13 @@ public abstract class Expression {
                 .append("\tColumnDefinition cdef;\n")
                 .append("\tObject[] __sql_args;\n")
                 .append("\n");
+        List<ColumnDefinition> inputs = null;
+        if (!isConstant()) {
+            Set<ColumnDefinition> inputSet = new HashSet<ColumnDefinition>();
+            collectRequiredInputs(inputSet);
+            inputs = new ArrayList<>(inputSet);
+            fillCode_ColumnIndexDeclaration(inputs, source);
+        }
         fillCode_Declarations(source);
 
         source.append("\tpublic " + className + "(ColumnDefinition cdef, Object[] args) {\n")
@@ -180,11 +229,8 @@ public abstract class Expression {
         source.append("\t}\n");
 
         source.append("\tpublic Object getValue(Tuple tuple) {\n");
-        if (!isConstant()) {
-            Set<ColumnDefinition> inputs = new HashSet<ColumnDefinition>();
-            collectRequiredInputs(inputs);
-
-            fillCode_InputDefVars(inputs, source);
+        if (inputs != null) {
+            fillCode_IndexedInputDefVars(inputs, source);
         }
         fillCode_getValueBody(source);
 
@@ -2,7 +2,9 @@ package org.yamcs.yarch.streamsql;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.CompiledAggregateExpression;
@@ -222,6 +224,37 @@ public class SelectExpression implements StreamExpression {
 
     }
 
+    /**
+     * Collects the names of the input columns referenced by the where clause, the window specification and the select
+     * list.
+     * 
+     * @return the set of column names or null if all input columns are required
+     */
+    Set<String> getRequiredColumns() {
+        if (selectStar) {
+            return null;
+        }
+        Set<String> columns = new HashSet<>();
+        for (SelectItem item : selectList) {
+            if (item == SelectItem.STAR) {
+                return null;
+            }
+            item.expr.collectRequiredColumns(columns);
+        }
+        if (whereClause != null) {
+            whereClause.collectRequiredColumns(columns);
+        }
+        if (windowSpec != null && windowSpec.type == WindowSpecification.Type.FIELD) {
+            columns.add(windowSpec.field);
+        }
+        if (aggInputList != null) {
+            for (Expression expr : aggInputList) {
+                expr.collectRequiredColumns(columns);
+            }
+        }
+        return columns;
+    }
+
     @Override
     public TupleDefinition getOutputDefinition() {
         return outputDef;
@@ -233,6 +266,7 @@ public class SelectExpression implements StreamExpression {
             whereClause.addFilter(tupleSourceExpression);
         }
 
+        tupleSourceExpression.setRequiredColumns(getRequiredColumns());
         Stream stream = tupleSourceExpression.execute(c);
         CompiledExpression cWhereClause = (whereClause == null) ? null : whereClause.compile();
 
@@ -876,6 +876,7 @@ public class StreamSqlParser implements StreamSqlParserConstants {
     colName = ObjectName();
     jj_consume_token(134);
     colValue = SimpleExpression();
+          colValue.setArgs(args);
           updateList.add(new UpdateTableStatement.UpdateItem(colName, colValue));
     label_9:
     while (true) {
@@ -891,6 +892,7 @@ public class StreamSqlParser implements StreamSqlParserConstants {
       colName = ObjectName();
       jj_consume_token(134);
       colValue = SimpleExpression();
+          colValue.setArgs(args);
           updateList.add(new UpdateTableStatement.UpdateItem(colName, colValue));
     }
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
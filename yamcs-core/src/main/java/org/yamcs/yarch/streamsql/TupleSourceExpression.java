@@ -51,6 +51,9 @@ public class TupleSourceExpression implements FilterableTarget {
 
     Type type;
 
+    // the columns required by the consumer of the stream; null means all
+    Set<String> requiredColumns;
+
     public TupleSourceExpression(String name) {
         this.objectName = name;
     }
@@ -158,7 +161,9 @@ public class TupleSourceExpression implements FilterableTarget {
             break;
         case TABLE:
             TableWalker tblit = tableWalkerBuilder.build();
-            stream = new TableReaderStream(ydb, tableWalkerBuilder.getTableDefinition(), tblit);
+            TableReaderStream trs = new TableReaderStream(ydb, tableWalkerBuilder.getTableDefinition(), tblit);
+            trs.setColumns(requiredColumns);
+            stream = trs;
             break;
         case TABLE_HISTOGRAM:
             HistogramReaderStream histoStream = histogramStreamBuilder.build();
@@ -172,6 +177,17 @@ public class TupleSourceExpression implements FilterableTarget {
         return stream;
     }
 
+    /**
+     * Sets the columns required by the consumer of the stream. When reading from a table, only these columns are
+     * deserialized.
+     * 
+     * @param requiredColumns
+     *            the names of the required columns; null means all columns.
+     */
+    public void setRequiredColumns(Set<String> requiredColumns) {
+        this.requiredColumns = requiredColumns;
+    }
+
     public void setHistogramMergeTime(BigDecimal mergeTime) {
         histogramMergeTime = mergeTime;
     }
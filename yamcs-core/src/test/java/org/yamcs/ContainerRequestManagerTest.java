@@ -3,6 +3,7 @@ package org.yamcs;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -91,6 +92,41 @@ public class ContainerRequestManagerTest {
         assertEquals(6, consumer2.received.size());
     }
 
+    @Test
+    public void testPipelined() throws Exception {
+        RefMdbPacketGenerator packetGenerator = new RefMdbPacketGenerator();
+        ProcessorConfig config = new ProcessorConfig();
+        config.getContainerProcessingOptions().setPipelineWorkers(4);
+        ProcessorServiceWithConfig pswc = new ProcessorServiceWithConfig(packetGenerator,
+                RefMdbPacketGenerator.class.getName(), RefMdbPacketGenerator.class.getName(),
+                YConfiguration.emptyConfig());
+        Processor c = ProcessorFactory.create("refmdb", "ContainerRequestManagerTest-pipelined", "test",
+                Arrays.asList(pswc), "test", config, null);
+        ContainerRequestManager rm = c.getContainerRequestManager();
+        RecordingPacketConsumer consumer = new RecordingPacketConsumer();
+        rm.subscribeAll(consumer);
+        c.start();
+
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            packetGenerator.generate_PKT1_1();
+            packetGenerator.generate_PKT1_3();
+        }
+        // stopping the tm processor waits for all the packets in the pipeline to be delivered
+        c.getTmProcessor().stopAsync().awaitTerminated();
+
+        assertEquals(6 * n, consumer.received.size());
+        Iterator<SequenceContainer> it = consumer.received.iterator();
+        for (int i = 0; i < n; i++) {
+            assertEquals("ccsds-default", it.next().getName());
+            assertEquals("PKT1", it.next().getName());
+            assertEquals("PKT1_1", it.next().getName());
+            assertEquals("ccsds-default", it.next().getName());
+            assertEquals("PKT1", it.next().getName());
+            assertEquals("PKT1_3", it.next().getName());
+        }
+    }
+
     /**
      * PacketConsumer that stores whatever it consumes for later retrieval
      */
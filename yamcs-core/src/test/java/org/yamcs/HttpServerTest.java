@@ -1,14 +1,18 @@
 package org.yamcs;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Random;
 import java.util.concurrent.ExecutionException;
 
@@ -17,6 +21,8 @@ import org.yamcs.client.ClientException;
 import org.yamcs.client.base.HttpClient;
 import org.yamcs.http.HttpServer;
 import org.yamcs.http.StaticFileHandler;
+import org.yamcs.yarch.Bucket;
+import org.yamcs.yarch.YarchDatabase;
 
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpHeaderNames;
@@ -81,4 +87,26 @@ public class HttpServerTest extends AbstractIntegrationTest {
         file1.delete();
         file2.delete();
     }
+
+    @Test
+    public void testGetObject() throws Exception {
+        Bucket bucket = YarchDatabase.getInstance(YamcsServer.GLOBAL_INSTANCE).createBucket("http_test_bucket");
+        byte[] data = new byte[300 * 1024];
+        new Random().nextBytes(data);
+        bucket.putObject("obj1", "application/octet-stream", Collections.emptyMap(), data);
+
+        HttpClient httpClient = new HttpClient();
+        httpClient.login("http://localhost:9190/auth/token", adminUsername, adminPassword);
+        String url = "http://localhost:9190/api/buckets/_global/http_test_bucket/objects/obj1";
+
+        // the object is streamed in multiple chunks
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        httpClient.doBulkReceiveRequest(url, HttpMethod.GET, null, d -> received.write(d, 0, d.length)).get();
+        assertArrayEquals(data, received.toByteArray());
+
+        HttpHeaders httpHeaders = new DefaultHttpHeaders();
+        httpHeaders.add(HttpHeaderNames.RANGE, "bytes=1000-70999");
+        byte[] b = httpClient.doAsyncRequest(url, HttpMethod.GET, null, httpHeaders).get();
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 71000), b);
+    }
 }
@@ -5,22 +5,27 @@ import static org.junit.Assert.assertFalse;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.yamcs.client.Page;
 import org.yamcs.client.archive.ArchiveClient;
+import org.yamcs.client.archive.ArchiveClient.ColumnOptions;
 import org.yamcs.client.archive.ArchiveClient.ListOptions;
 import org.yamcs.client.archive.ArchiveClient.RangeOptions;
+import org.yamcs.client.archive.ParameterColumn;
 import org.yamcs.parameterarchive.ParameterArchive;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
 import org.yamcs.protobuf.Pvalue.ParameterValue;
 import org.yamcs.protobuf.Pvalue.Ranges.Range;
 import org.yamcs.protobuf.Pvalue.TimeSeries.Sample;
 import org.yamcs.protobuf.Yamcs.Value;
+import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.TimeEncoding;
 
 import com.google.protobuf.util.Timestamps;
@@ -368,6 +373,64 @@ public class ParameterArchiveIntegrationTest extends AbstractIntegrationTest {
         assertEquals(0.5, engValue.getFloatValue(), 1e-5);
     }
 
+    @Test
+    public void testColumns() throws Exception {
+        generatePkt13AndPps("2021-03-01T10:00:00", 3600);
+        buildParameterArchive("2021-03-01T10:00:00", "2021-03-01T11:00:00");
+
+        Instant start = Instant.parse("2021-03-01T10:00:00Z");
+        Instant stop = Instant.parse("2021-03-01T10:10:00Z");
+        List<ParameterColumn> columns = new ArrayList<>();
+        archiveClient.streamColumns(Arrays.asList("/REFMDB/SUBSYS1/FloatPara1_1_2",
+                "/REFMDB/SUBSYS1/EnumerationPara1_1_4"), columns::add, start, stop,
+                ColumnOptions.raw(true), ColumnOptions.noRealtime(true)).get();
+
+        List<ParameterColumn> floatColumns = columns.stream()
+                .filter(c -> c.getParameter().equals("/REFMDB/SUBSYS1/FloatPara1_1_2")).collect(Collectors.toList());
+        List<ParameterColumn> enumColumns = columns.stream()
+                .filter(c -> c.getParameter().equals("/REFMDB/SUBSYS1/EnumerationPara1_1_4"))
+                .collect(Collectors.toList());
+        assertEquals(columns.size(), floatColumns.size() + enumColumns.size());
+
+        // the columns contain the same data as the individual values
+        Page<ParameterValue> page = archiveClient.listValues("/REFMDB/SUBSYS1/FloatPara1_1_2", start, stop,
+                ListOptions.ascending(true), ListOptions.noRealtime(true)).get();
+        List<ParameterValue> values = new ArrayList<>();
+        page.iterator().forEachRemaining(values::add);
+        while (page.hasNextPage()) {
+            page = page.getNextPage().get();
+            page.iterator().forEachRemaining(values::add);
+        }
+        assertEquals(600, values.size());
+
+        int k = 0;
+        for (ParameterColumn c : floatColumns) {
+            assertEquals(Type.FLOAT, c.getEngValues().getType());
+            double[] engValues = c.getEngValues().toDoubleArray();
+            long[] rawValues = c.getRawValues().toLongArray();
+            for (int i = 0; i < c.size(); i++) {
+                ParameterValue pv = values.get(k++);
+                assertEquals(Timestamps.toMillis(pv.getGenerationTime()), c.getTimes()[i]);
+                assertEquals(pv.getEngValue().getFloatValue(), engValues[i], 1e-5);
+                assertEquals(pv.getRawValue().getUint32Value(), rawValues[i]);
+                assertEquals(pv.getAcquisitionStatus(), c.getStatus(i).getAcquisitionStatus());
+            }
+        }
+        assertEquals(600, k);
+
+        int n = 0;
+        for (ParameterColumn c : enumColumns) {
+            // the parameter archive stores the enumerated values as strings
+            assertEquals(Type.STRING, c.getEngValues().getType());
+            String[] engValues = c.getEngValues().toStringArray();
+            for (int i = 0; i < c.size(); i++) {
+                assertEquals("zero_yep", engValues[i]);
+            }
+            n += c.size();
+        }
+        assertEquals(600, n);
+    }
+
     private void buildParameterArchive(String start, String stop) throws InterruptedException, ExecutionException {
         ParameterArchive parameterArchive = YamcsServer.getServer().getServices(yamcsInstance, ParameterArchive.class)
                 .get(0);
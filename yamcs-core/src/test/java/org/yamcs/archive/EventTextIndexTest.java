@@ -0,0 +1,148 @@
+package org.yamcs.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.protobuf.Db.Event;
+
+public class EventTextIndexTest extends YarchTestCase {
+    static final long MINUTE = 60_000L;
+
+    @BeforeClass
+    public static void oneTimeSetup() throws Exception {
+        YConfiguration.setupTest(null);
+    }
+
+    @Test
+    public void testPatternTrigrams() {
+        assertNull(EventTextIndex.getPatternTrigrams("%ab%"));
+        assertNull(EventTextIndex.getPatternTrigrams("%ab?cd%"));
+        assertNull(EventTextIndex.getPatternTrigrams("%a(bcd%"));
+        assertEquals(1, EventTextIndex.getPatternTrigrams("%ABC%").size());
+        assertEquals(2, EventTextIndex.getPatternTrigrams("%abc%def%").size());
+        assertEquals(3, EventTextIndex.getPatternTrigrams("%abcd?efg%").size());
+    }
+
+    @Test
+    public void testFindIntervals() throws Exception {
+        long t0 = hourStart(TimeEncoding.parse("2021-03-01T10:00:00"));
+        EventTextIndex index = new EventTextIndex(instance);
+        index.addEvent(event(t0 + 10_000, "Battery Temperature high"));
+        index.addEvent(event(t0 + 1 * MINUTE, "battery voltage low"));
+        index.addEvent(event(t0 + 5 * MINUTE, "Temperature back to normal"));
+        index.addEvent(event(t0 + 59 * MINUTE, "temperature high"));
+        index.addEvent(event(t0 + 60 * MINUTE, "temperature high"));
+
+        // from memory
+        verifyIntervals(index, t0);
+        index.flush();
+        // from the database
+        verifyIntervals(index, t0);
+        verifyIntervals(new EventTextIndex(instance), t0);
+    }
+
+    private void verifyIntervals(EventTextIndex index, long t0) throws Exception {
+        List<TimeInterval> l = index.findIntervals("%temperature%", t0, t0 + 2 * 60 * MINUTE);
+        assertEquals(3, l.size());
+        checkInterval(t0, t0 + MINUTE, l.get(0));
+        checkInterval(t0 + 5 * MINUTE, t0 + 6 * MINUTE, l.get(1));
+        checkInterval(t0 + 59 * MINUTE, t0 + 61 * MINUTE, l.get(2));
+
+        l = index.findIntervals("%battery%", t0 + 30_000, t0 + 60 * MINUTE);
+        assertEquals(1, l.size());
+        checkInterval(t0 + 30_000, t0 + 2 * MINUTE, l.get(0));
+
+        l = index.findIntervals("%temperature high%", t0, t0 + 2 * 60 * MINUTE);
+        assertEquals(2, l.size());
+
+        assertTrue(index.findIntervals("%pressure%", t0, t0 + 2 * 60 * MINUTE).isEmpty());
+        assertNull(index.findIntervals("%hi%", t0, t0 + 2 * 60 * MINUTE));
+    }
+
+    @Test
+    public void testRebuild() throws Exception {
+        execute("create table " + EventRecorder.TABLE_NAME
+                + "(gentime timestamp, source enum, seqNum int, body PROTOBUF('" + Event.class.getName()
+                + "'), primary key(gentime, source, seqNum))");
+        execute("create stream events_in(gentime timestamp, source enum, seqNum int, body PROTOBUF('"
+                + Event.class.getName() + "'))");
+        execute("insert into " + EventRecorder.TABLE_NAME + " select * from events_in");
+        Stream s = ydb.getStream("events_in");
+        long t0 = hourStart(TimeEncoding.parse("2021-03-01T10:00:00"));
+        for (int i = 0; i < 100; i++) {
+            Event ev = event(t0 + i * MINUTE, "event " + (i % 2 == 0 ? "even" : "odd") + " number " + i);
+            s.emitTuple(new Tuple(s.getDefinition(), new Object[] { ev.getGenerationTime(), ev.getSource(),
+                    ev.getSeqNumber(), ev }));
+        }
+        execute("close stream events_in");
+
+        EventTextIndex index = new EventTextIndex(instance);
+        index.rebuild(new TimeInterval()).get();
+        assertEquals(50, index.findIntervals("%odd%", TimeEncoding.MIN_INSTANT, TimeEncoding.MAX_INSTANT).size());
+        List<TimeInterval> l = index.findIntervals("%number 42%", TimeEncoding.MIN_INSTANT,
+                TimeEncoding.MAX_INSTANT);
+        assertEquals(1, l.size());
+        checkInterval(t0 + 42 * MINUTE, t0 + 43 * MINUTE, l.get(0));
+
+        // rebuilding a part should not lose the data outside it
+        index.rebuild(new TimeInterval(t0 + 70 * MINUTE, t0 + 80 * MINUTE)).get();
+        assertEquals(50, index.findIntervals("%odd%", TimeEncoding.MIN_INSTANT, TimeEncoding.MAX_INSTANT).size());
+    }
+
+    @Test
+    public void testRebuildKeepsPending() throws Exception {
+        execute("create table " + EventRecorder.TABLE_NAME
+                + "(gentime timestamp, source enum, seqNum int, body PROTOBUF('" + Event.class.getName()
+                + "'), primary key(gentime, source, seqNum))");
+        long t0 = hourStart(TimeEncoding.parse("2021-03-01T10:00:00"));
+        EventTextIndex index = new EventTextIndex(instance);
+        index.addEvent(event(t0 + 10 * MINUTE, "unflushed message"));
+        index.addEvent(event(t0 + 130 * MINUTE, "unflushed message"));
+
+        // the events are not in the table, the rebuild removes only the hour containing the first one
+        index.rebuild(new TimeInterval(t0, t0 + 60 * MINUTE)).get();
+        List<TimeInterval> l = index.findIntervals("%unflushed%", TimeEncoding.MIN_INSTANT,
+                TimeEncoding.MAX_INSTANT);
+        assertEquals(1, l.size());
+        checkInterval(t0 + 130 * MINUTE, t0 + 131 * MINUTE, l.get(0));
+    }
+
+    @Test
+    public void testMergeIntervals() {
+        List<TimeInterval> l = Arrays.asList(new TimeInterval(0, 10), new TimeInterval(15, 20),
+                new TimeInterval(40, 50));
+        List<TimeInterval> merged = EventTextIndex.mergeIntervals(l, 5);
+        assertEquals(2, merged.size());
+        checkInterval(0, 20, merged.get(0));
+        checkInterval(40, 50, merged.get(1));
+        assertEquals(3, EventTextIndex.mergeIntervals(l, 4).size());
+        assertEquals(1, EventTextIndex.mergeIntervals(l, 20).size());
+    }
+
+    // the Yamcs instants include the leap seconds so the UTC hours are not aligned with the index hours
+    private long hourStart(long t) {
+        return Math.floorDiv(t, EventTextIndex.HOUR) * EventTextIndex.HOUR;
+    }
+
+    private void checkInterval(long start, long end, TimeInterval interval) {
+        assertEquals(start, interval.getStart());
+        assertEquals(end, interval.getEnd());
+    }
+
+    private Event event(long gentime, String message) {
+        return Event.newBuilder().setGenerationTime(gentime).setReceptionTime(gentime).setSource("test")
+                .setSeqNumber((int) (gentime / 1000)).setMessage(message).build();
+    }
+}
@@ -0,0 +1,169 @@
+package org.yamcs.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameterarchive.ParameterArchive;
+import org.yamcs.parameterarchive.ParameterId;
+import org.yamcs.parameterarchive.PGSegment;
+import org.yamcs.protobuf.Yamcs.EndAction;
+import org.yamcs.protobuf.Yamcs.ProtoDataType;
+import org.yamcs.protobuf.Yamcs.ReplaySpeed;
+import org.yamcs.protobuf.Yamcs.ReplaySpeed.ReplaySpeedType;
+import org.yamcs.protobuf.Yamcs.ReplayStatus;
+import org.yamcs.protobuf.Yamcs.ReplayStatus.ReplayState;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.yarch.YarchTestCase;
+
+public class ParameterArchiveReplayTest extends YarchTestCase {
+    static final int N = 100;
+    ParameterArchive parchive;
+    Parameter p1, p2;
+    ParameterId[] pids;
+    Map<String, Parameter> parameters = new HashMap<>();
+
+    @Before
+    public void before() throws Exception {
+        parchive = new ParameterArchive();
+        parchive.init(instance, "test", parchive.getSpec().validate(YConfiguration.emptyConfig()));
+
+        p1 = new Parameter("p1");
+        p1.setQualifiedName("/test/p1");
+        p2 = new Parameter("p2");
+        p2.setQualifiedName("/test/p2");
+        parameters.put(p1.getQualifiedName(), p1);
+        parameters.put(p2.getQualifiedName(), p2);
+
+        int p1id = parchive.getParameterIdDb().createAndGet(p1.getQualifiedName(),
+                org.yamcs.protobuf.Yamcs.Value.Type.SINT32);
+        int p2id = parchive.getParameterIdDb().createAndGet(p2.getQualifiedName(),
+                org.yamcs.protobuf.Yamcs.Value.Type.SINT32);
+        IntArray pgpids = IntArray.wrap(p1id, p2id);
+        int pgid = parchive.getParameterGroupIdDb().createAndGet(pgpids);
+
+        PGSegment pgs = new PGSegment(pgid, ParameterArchive.getIntervalStart(0), pgpids);
+        for (int i = 0; i < N; i++) {
+            pgs.addRecord(i * 1000L, Arrays.asList(getValue(p1, i * 1000L, i), getValue(p2, i * 1000L, -i)));
+        }
+        parchive.writeToArchive(pgs);
+
+        List<ParameterId> l = new ArrayList<>();
+        l.addAll(Arrays.asList(parchive.getParameterIdDb().get(p1.getQualifiedName())));
+        l.addAll(Arrays.asList(parchive.getParameterIdDb().get(p2.getQualifiedName())));
+        pids = l.toArray(new ParameterId[0]);
+    }
+
+    @Test
+    public void testAfap() throws Exception {
+        MyListener listener = new MyListener();
+        ReplayOptions req = ReplayOptions.getAfapReplay(10_000, 20_000);
+        ParameterArchiveReplay replay = new ParameterArchiveReplay(parchive, req, pids, parameters, listener);
+        replay.start();
+        assertEquals(ReplayState.CLOSED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+
+        assertEquals(10, listener.values.size());
+        for (int i = 0; i < 10; i++) {
+            List<ParameterValue> pvlist = listener.values.get(i);
+            assertEquals(2, pvlist.size());
+            assertEquals((10 + i) * 1000L, pvlist.get(0).getGenerationTime());
+            assertSame(p1, pvlist.get(0).getParameter());
+            assertEquals(10 + i, pvlist.get(0).getEngValue().getSint32Value());
+            assertSame(p2, pvlist.get(1).getParameter());
+        }
+    }
+
+    @Test
+    public void testReverse() throws Exception {
+        MyListener listener = new MyListener();
+        ReplayOptions req = ReplayOptions.getAfapReplay(10_000, 20_000);
+        req.setReverse(true);
+        ParameterArchiveReplay replay = new ParameterArchiveReplay(parchive, req, pids, parameters, listener);
+        replay.start();
+        assertEquals(ReplayState.CLOSED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+        assertEquals(10, listener.values.size());
+        assertEquals(20_000, listener.values.get(0).get(0).getGenerationTime());
+    }
+
+    @Test
+    public void testStepByStepAndSeek() throws Exception {
+        MyListener listener = new MyListener();
+        ReplayOptions req = ReplayOptions.getAfapReplay(0, 20_000);
+        req.setSpeed(ReplaySpeed.newBuilder().setType(ReplaySpeedType.STEP_BY_STEP).build());
+        req.setEndAction(EndAction.STOP);
+        ParameterArchiveReplay replay = new ParameterArchiveReplay(parchive, req, pids, parameters, listener);
+        replay.start();
+        assertEquals(ReplayState.PAUSED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+        assertEquals(ReplayState.PAUSED, replay.getState());
+        assertEquals(1, listener.values.size());
+
+        replay.start();
+        assertEquals(ReplayState.PAUSED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+        assertEquals(2, listener.values.size());
+        assertEquals(1000, listener.values.get(1).get(0).getGenerationTime());
+
+        replay.seek(15_000);
+        assertEquals(ReplayState.PAUSED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+        assertEquals(3, listener.values.size());
+        assertEquals(15_000, listener.values.get(2).get(0).getGenerationTime());
+
+        replay.changeSpeed(ReplaySpeed.newBuilder().setType(ReplaySpeedType.AFAP).build());
+        replay.start();
+        assertEquals(ReplayState.STOPPED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+        assertEquals(7, listener.values.size());
+        replay.quit();
+    }
+
+    @Test
+    public void testRealtimeSpeed() throws Exception {
+        MyListener listener = new MyListener();
+        ReplayOptions req = ReplayOptions.getAfapReplay(0, 5_000);
+        req.setSpeed(ReplaySpeed.newBuilder().setType(ReplaySpeedType.REALTIME).setParam(20).build());
+        ParameterArchiveReplay replay = new ParameterArchiveReplay(parchive, req, pids, parameters, listener);
+        long t0 = System.currentTimeMillis();
+        replay.start();
+        assertEquals(ReplayState.CLOSED, listener.states.poll(10, TimeUnit.SECONDS).getState());
+        // 4 seconds of data at speed 20
+        assertTrue(System.currentTimeMillis() - t0 >= 200);
+        assertEquals(5, listener.values.size());
+    }
+
+    private ParameterValue getValue(Parameter p, long t, int v) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(t);
+        pv.setEngValue(ValueUtility.getSint32Value(v));
+        return pv;
+    }
+
+    static class MyListener implements ReplayListener {
+        List<List<ParameterValue>> values = new ArrayList<>();
+        BlockingQueue<ReplayStatus> states = new ArrayBlockingQueue<>(100);
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void newData(ProtoDataType type, Object data) {
+            assertEquals(ProtoDataType.PP, type);
+            values.add((List<ParameterValue>) data);
+        }
+
+        @Override
+        public void stateChanged(ReplayStatus rs) {
+            states.add(rs);
+        }
+    }
+}
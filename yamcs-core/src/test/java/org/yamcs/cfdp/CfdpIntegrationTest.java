@@ -2,6 +2,7 @@ package org.yamcs.cfdp;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -19,7 +20,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.yamcs.YConfiguration;
 import org.yamcs.YamcsServer;
+import org.yamcs.cfdp.OngoingCfdpTransfer.FaultHandlingAction;
 import org.yamcs.cfdp.pdu.CfdpPacket;
+import org.yamcs.cfdp.pdu.ConditionCode;
 import org.yamcs.client.YamcsClient;
 import org.yamcs.client.filetransfer.FileTransferClient;
 import org.yamcs.client.filetransfer.FileTransferClient.UploadOptions;
@@ -166,7 +169,29 @@ public class CfdpIntegrationTest {
         config.getRoot().put("immediateNak", false);
         uploadAndCheck(config, "randomfile72", data, true, Arrays.asList(1), TransferState.COMPLETED, TransferState.COMPLETED);
     }
-    
+
+    @Test
+    public void testOversizedSegmentAbandon() throws Exception {
+        byte[] data = createObject("randomfile8", 1000);
+        YConfiguration config = getConfig();
+        config.getRoot().put("maxFileSize", 500);
+        Map<ConditionCode, FaultHandlingAction> faultHandlers = new HashMap<>();
+        faultHandlers.put(ConditionCode.FILESTORE_REJECTION, FaultHandlingAction.ABANDON);
+
+        // without the metadata the data segments are checked against the maximum file size
+        MyFileReceiver rec = new MyFileReceiver(Arrays.asList(1), config, faultHandlers);
+        ObjectId object = ObjectId.of(outgoingBucket.getName(), "randomfile8");
+        cfdpClient.upload(object, UploadOptions.reliable(false)).get();
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(1000);
+            if (rec.trsf != null && isFinished(rec.trsf.getTransferState())) {
+                break;
+            }
+        }
+        assertEquals(TransferState.FAILED, rec.trsf.getTransferState());
+        // the segment exceeding the limit has not been stored
+        assertTrue(rec.trsf.getTransferredSize() <= 500);
+    }
 
     private void uploadAndCheck(String objName, byte[] data, boolean reliable, List<Integer> dropPackets,
             TransferState expectedSenderState, TransferState expectedReceiverState) throws Exception {
@@ -235,6 +260,11 @@ public class CfdpIntegrationTest {
         final List<Integer> dropPackets;
 
         MyFileReceiver(List<Integer> dropPackets, YConfiguration config) {
+            this(dropPackets, config, Collections.emptyMap());
+        }
+
+        MyFileReceiver(List<Integer> dropPackets, YConfiguration config,
+                Map<ConditionCode, FaultHandlingAction> faultHandlers) {
             YarchDatabaseInstance ydb = YarchDatabase.getInstance(yamcsInstance);
             Stream cfdpIn = ydb.getStream("cfdp_in");
             Stream cfdpOut = ydb.getStream("cfdp_out");
@@ -260,7 +290,7 @@ public class CfdpIntegrationTest {
                     if (trsf == null) {
                         trsf = new CfdpIncomingTransfer("test", 1, TimeEncoding.getWallclockTime(), executor, config,
                                 packet.getHeader(), cfdpIn, incomingBucket, eventProducer, MyFileReceiver.this,
-                                Collections.emptyMap());
+                                faultHandlers);
                     }
                     // System.out.println("processing packet "+packet);
                     trsf.processPacket(packet);
@@ -2,6 +2,9 @@ package org.yamcs.cfdp;
 
 import static org.junit.Assert.*;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import org.junit.BeforeClass;
@@ -9,6 +12,8 @@ import org.junit.Test;
 import org.python.bouncycastle.util.Arrays;
 import org.yamcs.cfdp.pdu.SegmentRequest;
 
+import com.google.common.io.ByteStreams;
+
 public class DataFileTest {
     static int n = 100;
     static byte[] data = new byte[n];
@@ -138,6 +143,52 @@ public class DataFileTest {
         verify(df);
     }
     
+    @Test
+    public void testContained() {
+        DataFile df = new DataFile(n);
+        df.addSegment(getSegment(0, 10));
+        df.addSegment(getSegment(3, 4));
+        df.addSegment(getSegment(20, 10));
+        df.addSegment(getSegment(5, 30));
+        assertEquals(35, df.getReceivedSize());
+        List<SegmentRequest> lmissing = df.getMissingChunks();
+        assertEquals(1, lmissing.size());
+        verifyEquals(35, n, lmissing.get(0));
+        verify(df);
+    }
+
+    @Test
+    public void testFileBacked() throws Exception {
+        Path dir = Files.createTempDirectory("DataFileTest");
+        Path f = dir.resolve("test.part");
+        DataFile df = new DataFile(n, f);
+        df.addSegment(getSegment(50, 10));
+        df.addSegment(getSegment(0, 10));
+        df.addSegment(getSegment(5, 10));
+        df.addSegment(getSegment(70, 30));
+        assertEquals(3, df.getSegments().size());
+        List<SegmentRequest> lmissing = df.getMissingChunks();
+        assertEquals(2, lmissing.size());
+        verifyEquals(15, 50, lmissing.get(0));
+        verifyEquals(60, 70, lmissing.get(1));
+        assertFalse(df.isComplete());
+
+        df.addSegment(getSegment(15, 35));
+        df.addSegment(getSegment(55, 20));
+        assertEquals(1, df.getSegments().size());
+        assertTrue(df.isComplete());
+        assertEquals(n, df.getReceivedSize());
+        assertEquals(ChecksumCalculator.calculateChecksum(data), df.getChecksum());
+        assertArrayEquals(data, df.getData());
+        try (InputStream in = df.getInputStream()) {
+            assertArrayEquals(data, ByteStreams.toByteArray(in));
+        }
+
+        df.close();
+        assertFalse(Files.exists(f));
+        Files.delete(dir);
+    }
+
     private DataFileSegment getSegment(int offset, int length) {
         return new DataFileSegment(offset, Arrays.copyOfRange(data, offset, offset+length));
     }
@@ -0,0 +1,46 @@
+package org.yamcs.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.yamcs.protobuf.Pvalue.ParameterValue;
+import org.yamcs.protobuf.SubscribeParametersData;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+
+public class ParameterDataConflaterTest {
+
+    @Test
+    public void testNewestValueKept() {
+        ParameterDataConflater conflater = new ParameterDataConflater();
+        assertTrue(conflater.isEmpty());
+
+        conflater.add(SubscribeParametersData.newBuilder()
+                .putMapping(1, NamedObjectId.newBuilder().setName("/p1").build())
+                .putMapping(2, NamedObjectId.newBuilder().setName("/p2").build())
+                .addValues(pval(1, 100))
+                .addValues(pval(2, 100))
+                .build());
+        conflater.add(SubscribeParametersData.newBuilder()
+                .addValues(pval(1, 200))
+                .build());
+        assertFalse(conflater.isEmpty());
+        assertEquals(1, conflater.getConflatedCount());
+
+        SubscribeParametersData data = conflater.drain();
+        assertEquals(2, data.getMappingCount());
+        assertEquals(2, data.getValuesCount());
+        // p2 comes first because p1 has been updated last
+        assertEquals(2, data.getValues(0).getNumericId());
+        assertEquals(1, data.getValues(1).getNumericId());
+        assertEquals(200, data.getValues(1).getExpireMillis());
+
+        assertTrue(conflater.isEmpty());
+        assertEquals(0, conflater.getConflatedCount());
+    }
+
+    private static ParameterValue pval(int numericId, long time) {
+        return ParameterValue.newBuilder().setNumericId(numericId).setExpireMillis(time).build();
+    }
+}
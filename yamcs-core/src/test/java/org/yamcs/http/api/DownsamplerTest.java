@@ -2,10 +2,13 @@ package org.yamcs.http.api;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.junit.Test;
 import org.yamcs.http.api.Downsampler.Sample;
+import org.yamcs.parameterarchive.RollupSegment;
+import org.yamcs.utils.VarIntUtil;
 
 public class DownsamplerTest {
 
@@ -62,6 +65,39 @@ public class DownsamplerTest {
         assertEquals(1, samples.size());
     }
 
+    @Test
+    public void testRollupBinBeforeStart() throws Exception {
+        // two bins of one minute: [0, 60000) and [60000, 120000) with 60 values each
+        ByteBuffer bb = ByteBuffer.allocate(256);
+        bb.put((byte) 0);
+        VarIntUtil.writeVarInt64(bb, 60_000);
+        bb.putLong(119_000);
+        VarIntUtil.writeVarInt32(bb, 2);
+        for (int i = 0; i < 2; i++) {
+            VarIntUtil.writeVarInt64(bb, i);
+            bb.putDouble(i);
+            bb.putDouble(i + 1);
+            bb.putDouble(i + 0.5);
+            VarIntUtil.writeVarInt32(bb, 60);
+        }
+        bb.flip();
+        RollupSegment rs = RollupSegment.parseFrom(bb);
+
+        // the first bin starts before the sampler start but contains values within the interval
+        Downsampler sampler = new Downsampler(30_000, 120_000, 1);
+        sampler.process(rs);
+        List<Sample> samples = sampler.collect();
+        assertEquals(1, samples.size());
+        assertEquals(120, samples.get(0).n);
+        assertEquals(0, samples.get(0).min, 1e-10);
+        assertEquals(2, samples.get(0).max, 1e-10);
+
+        // the bins ending before the sampler start are skipped
+        sampler = new Downsampler(60_000, 120_000, 1);
+        sampler.process(rs);
+        assertEquals(60, sampler.collect().get(0).n);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testSamplingInvalid() {
         new Downsampler(2, 1, 3);
@@ -2,9 +2,13 @@ package org.yamcs.parameter;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.xtce.DataSource;
@@ -107,4 +111,97 @@ public class LastValueCacheTest {
         assertEquals(p1v0, lvc.getValue(p1, -3));
 
     }
+
+    @Test
+    public void testResizeWrapped() {
+        LastValueCache lvc = new LastValueCache();
+        lvc.enableBuffering(p1, 2);
+        lvc.add(p1v0);
+        lvc.add(p1v1);
+        lvc.add(p1v2);
+        lvc.enableBuffering(p1, 3);
+        assertEquals(p1v2, lvc.getValue(p1, 0));
+        assertEquals(p1v1, lvc.getValue(p1, -1));
+        assertNull(lvc.getValue(p1, -2));
+    }
+
+    @Test
+    public void testConcurrentBuffered() throws InterruptedException {
+        LastValueCache lvc = new LastValueCache();
+        lvc.enableBuffering(p1, 3);
+        int n = 100000;
+        AtomicInteger errors = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                ParameterValue pv = new ParameterValue(p1);
+                pv.setGenerationTime(i);
+                lvc.add(pv);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int k = 0; k < 4; k++) {
+            readers.add(new Thread(() -> {
+                for (int i = 0; i < n; i++) {
+                    ParameterValue pv0 = lvc.getValue(p1, -2);
+                    ParameterValue pv1 = lvc.getValue(p1, 0);
+                    if (pv0 != null && pv1 != null && pv0.getGenerationTime() >= pv1.getGenerationTime()) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        writer.join();
+        for (Thread t : readers) {
+            t.join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(n - 1, lvc.getValue(p1).getGenerationTime());
+    }
+
+    /**
+     * Measures the contention between one writer and as many readers as available processors.
+     */
+    @Test
+    @Ignore
+    public void testConcurrencyPerf() throws InterruptedException {
+        int numParam = 1000;
+        int numWrites = 10000;
+        int numReads = 10_000_000;
+        List<Parameter> plist = new ArrayList<>();
+        for (int i = 0; i < numParam; i++) {
+            plist.add(new Parameter("p" + i));
+        }
+        LastValueCache lvc = new LastValueCache();
+        Thread writer = new Thread(() -> {
+            long t0 = System.nanoTime();
+            for (int k = 0; k < numWrites; k++) {
+                List<ParameterValue> pvlist = new ArrayList<>(numParam);
+                for (Parameter p : plist) {
+                    pvlist.add(new ParameterValue(p));
+                }
+                lvc.addAll(pvlist);
+            }
+            System.out.println("writer finished in " + (System.nanoTime() - t0) / 1000_000 + " ms");
+        });
+        int numReaders = Runtime.getRuntime().availableProcessors();
+        List<Thread> readers = new ArrayList<>();
+        for (int k = 0; k < numReaders; k++) {
+            int x = k;
+            readers.add(new Thread(() -> {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < numReads; i++) {
+                    lvc.getValue(plist.get(i % numParam));
+                }
+                System.out.println("reader " + x + " finished in " + (System.nanoTime() - t0) / 1000_000 + " ms");
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        writer.join();
+        for (Thread t : readers) {
+            t.join();
+        }
+    }
 }
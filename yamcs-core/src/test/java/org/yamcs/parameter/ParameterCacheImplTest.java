@@ -217,8 +217,10 @@ public class ParameterCacheImplTest {
      *     writer time: 19.329 ms
      *     totalReadTime: 125.052 ms
      * 
-     * Due to these results, and the fact that locking offers the advantage that getAll gives correctly sorted results, 
-     * we have selected the read/write lock implementation
+     * The read/write lock implementation was initially selected because it gives correctly sorted results in getAll.
+     * With many readers (websocket subscribers) the write lock taken at each delivery becomes a contention point, so
+     * the current implementation is option 2; getAll stops at the first element overwritten by the writer which keeps
+     * the results sorted.
      * 
      * 
      */
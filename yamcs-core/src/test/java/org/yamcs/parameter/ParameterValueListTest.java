@@ -92,6 +92,18 @@ public class ParameterValueListTest {
 	
 	
 	
+    }
+
+    @Test
+    public void testExpectedSize() {
+        int n = 1000;
+        ParameterValueList pvlist = new ParameterValueList(n);
+        int capacity = pvlist.table.length;
+        for (int i = 0; i < n; i++) {
+            pvlist.add(new ParameterValue(new Parameter("parameter" + i)));
+        }
+        assertEquals(n, pvlist.getSize());
+        assertEquals(capacity, pvlist.table.length);
     }
 
     @Test
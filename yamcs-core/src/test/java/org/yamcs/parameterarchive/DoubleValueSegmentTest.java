@@ -2,12 +2,17 @@ package org.yamcs.parameterarchive;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
+import org.yamcs.parameter.Value;
 import org.yamcs.utils.DecodingException;
 import org.yamcs.utils.ValueUtility;
 
@@ -30,4 +35,45 @@ public class DoubleValueSegmentTest {
         assertArrayEquals(new double[]{1.2, 2.3,3}, fvs1.getRange(0, 3, true).getDoubleArray(), 1e-10);
         assertArrayEquals(new double[]{3, 2.3}, fvs1.getRange(0, 2, false).getDoubleArray(), 1e-10);
     }
+
+    @Test
+    public void testCompressed() throws IOException, DecodingException {
+        int n = 1000;
+        List<Value> l = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            l.add(ValueUtility.getDoubleValue(20 + Math.round(10 * Math.sin(i / 100.0)) / 10.0));
+        }
+        DoubleValueSegment dvs = DoubleValueSegment.consolidate(l);
+        ByteBuffer bb = ByteBuffer.allocate(dvs.getMaxSerializedSize());
+        dvs.writeTo(bb);
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_COMPRESSED, bb.get(0));
+        assertTrue(bb.position() < 4 * n);
+
+        bb.rewind();
+        DoubleValueSegment dvs1 = DoubleValueSegment.parseFrom(bb);
+        assertEquals(n, dvs1.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(l.get(i), dvs1.getValue(i));
+        }
+    }
+
+    @Test
+    public void testRandomRevertsToRaw() throws IOException, DecodingException {
+        int n = 100;
+        Random r = new Random(0);
+        List<Value> l = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            l.add(ValueUtility.getDoubleValue(Double.longBitsToDouble(r.nextLong() & 0xFFEFFFFFFFFFFFFFL)));
+        }
+        DoubleValueSegment dvs = DoubleValueSegment.consolidate(l);
+        ByteBuffer bb = ByteBuffer.allocate(dvs.getMaxSerializedSize());
+        dvs.writeTo(bb);
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_RAW, bb.get(0));
+
+        bb.rewind();
+        DoubleValueSegment dvs1 = DoubleValueSegment.parseFrom(bb);
+        for (int i = 0; i < n; i++) {
+            assertEquals(l.get(i), dvs1.getValue(i));
+        }
+    }
 }
@@ -353,6 +353,40 @@ public class ObjectSegmentTest {
         
     }
 
+    @Test
+    public void testBuildWithDuplicates() throws DecodingException {
+        StringValueSegment svs1 = new StringValueSegment(true);
+        StringValueSegment svs2 = new StringValueSegment(true);
+        String[] values = new String[] { "a", "b", "a", new String("b"), "c" };
+        for (int i = 0; i < 1000; i++) {
+            svs1.add(values[i % values.length]);
+            svs2.add(new String(values[i % values.length]));
+        }
+        svs1.add(0, "x");
+        svs2.add(0, "x");
+
+        assertEquals(1001, svs1.size());
+        assertEquals(4, svs1.unique.size());
+        assertEquals("x", svs1.get(0));
+        assertEquals("b", svs1.get(4));
+        assertEquals(svs1, svs2);
+
+        svs2.add("d");
+        assertFalse(svs1.equals(svs2));
+
+        svs1.consolidate();
+        ByteBuffer bb = ByteBuffer.allocate(svs1.getMaxSerializedSize());
+        svs1.writeTo(bb);
+        bb.rewind();
+        StringValueSegment svs3 = StringValueSegment.parseFrom(bb);
+        assertEquals(1001, svs3.size());
+        String[] r = svs3.getRangeArray(0, 1001, true);
+        assertEquals("x", r[0]);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(values[i % values.length], r[i + 1]);
+        }
+    }
+
     private void checkEquals(ParameterStatus[] actual, ParameterStatus ... expected) {
         assertEquals(expected.length, actual.length);
         for(int i =0; i<expected.length; i++) {
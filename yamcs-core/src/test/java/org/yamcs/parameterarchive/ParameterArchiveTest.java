@@ -327,6 +327,137 @@ public class ParameterArchiveTest {
         return pv;
     }
 
+    @Test
+    public void testRollups() throws Exception {
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        int pg1id = pgidMap.createAndGet(IntArray.wrap(p1id));
+
+        // aligned to 10 minutes such that it corresponds to the start of the rollup bins
+        long t0 = (ParameterArchive.getIntervalStart(TimeEncoding.parse("2020-01-01T00:00:00")) / 600_000 + 1)
+                * 600_000;
+        PGSegment pgSegment = new PGSegment(pg1id, ParameterArchive.getIntervalStart(t0), IntArray.wrap(p1id));
+        // 3 minutes of data at 1Hz
+        for (int i = 0; i < 180; i++) {
+            ParameterValue pv = new ParameterValue(p1);
+            pv.setGenerationTime(t0 + i * 1000L);
+            pv.setEngValue(ValueUtility.getDoubleValue(i));
+            pgSegment.addRecord(t0 + i * 1000L, Arrays.asList(pv));
+        }
+        parchive.writeToArchive(pgSegment);
+
+        assertEquals(-1, parchive.getRollupLevel(1000));
+        assertEquals(0, parchive.getRollupLevel(60_000));
+        assertEquals(1, parchive.getRollupLevel(3_600_000));
+
+        ParameterRequest req = new ParameterRequest(t0, t0 + 3600_000, true, true, false, false);
+        SingleParameterRetrieval spar = new SingleParameterRetrieval(parchive, p1id, new int[] { pg1id }, req);
+        List<RollupSegment> l = new ArrayList<>();
+        spar.retrieveRollups(0, l::add);
+        assertEquals(1, l.size());
+        RollupSegment rs = l.get(0);
+        assertEquals(t0 + 179_000, rs.getLastTime());
+        assertEquals(3, rs.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(t0 + i * 60_000, rs.getTime(i));
+            assertEquals(60 * i, rs.getMin(i), 1e-10);
+            assertEquals(60 * i + 59, rs.getMax(i), 1e-10);
+            assertEquals(60 * i + 29.5, rs.getAvg(i), 1e-10);
+            assertEquals(60, rs.getCount(i));
+        }
+
+        l.clear();
+        spar.retrieveRollups(1, l::add);
+        assertEquals(1, l.size());
+        assertEquals(1, l.get(0).size());
+        assertEquals(180, l.get(0).getCount(0));
+        assertEquals(89.5, l.get(0).getAvg(0), 1e-10);
+    }
+
+    @Test
+    public void testRollupsWithoutRollupSegments() throws Exception {
+        // write the data with the rollups disabled, as an archive created before the rollups were introduced
+        parchive = new ParameterArchive();
+        Map<String, Object> conf = new HashMap<>();
+        conf.put("rollups", false);
+        parchive.init(instance, "test", parchive.getSpec().validate(YConfiguration.wrap(conf)));
+        int p1id = parchive.getParameterIdDb().createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        int pg1id = parchive.getParameterGroupIdDb().createAndGet(IntArray.wrap(p1id));
+
+        long t0 = (ParameterArchive.getIntervalStart(TimeEncoding.parse("2020-01-01T00:00:00")) / 600_000 + 1)
+                * 600_000;
+        PGSegment pgSegment = new PGSegment(pg1id, ParameterArchive.getIntervalStart(t0), IntArray.wrap(p1id));
+        for (int i = 0; i < 180; i++) {
+            ParameterValue pv = new ParameterValue(p1);
+            pv.setGenerationTime(t0 + i * 1000L);
+            pv.setEngValue(ValueUtility.getDoubleValue(i));
+            pgSegment.addRecord(t0 + i * 1000L, Arrays.asList(pv));
+        }
+        parchive.writeToArchive(pgSegment);
+
+        parchive = new ParameterArchive();
+        parchive.init(instance, "test", parchive.getSpec().validate(YConfiguration.emptyConfig()));
+        assertTrue(parchive.isRollupsEnabled());
+
+        ParameterRequest req = new ParameterRequest(t0, t0 + 3600_000, true, true, false, false);
+        SingleParameterRetrieval spar = new SingleParameterRetrieval(parchive, p1id, new int[] { pg1id }, req);
+        List<RollupSegment> l = new ArrayList<>();
+        spar.retrieveRollups(0, l::add);
+        assertEquals(1, l.size());
+        RollupSegment rs = l.get(0);
+        assertEquals(3, rs.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(t0 + i * 60_000, rs.getTime(i));
+            assertEquals(60 * i, rs.getMin(i), 1e-10);
+            assertEquals(60 * i + 59, rs.getMax(i), 1e-10);
+            assertEquals(60, rs.getCount(i));
+        }
+    }
+
+    @Test
+    public void testRollupsMixedSegments() throws Exception {
+        // first segment written with the rollups disabled, the second one (same partition) after enabling them
+        parchive = new ParameterArchive();
+        Map<String, Object> conf = new HashMap<>();
+        conf.put("rollups", false);
+        parchive.init(instance, "test", parchive.getSpec().validate(YConfiguration.wrap(conf)));
+        int p1id = parchive.getParameterIdDb().createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        int pg1id = parchive.getParameterGroupIdDb().createAndGet(IntArray.wrap(p1id));
+
+        long t0 = (ParameterArchive.getIntervalStart(TimeEncoding.parse("2020-06-15T00:00:00")) / 600_000 + 1)
+                * 600_000;
+        long t1 = ((ParameterArchive.getIntervalStart(t0) + ParameterArchive.getIntervalDuration()) / 600_000 + 1)
+                * 600_000;
+        parchive.writeToArchive(getDoubleSegment(pg1id, p1id, t0, 180));
+
+        parchive = new ParameterArchive();
+        parchive.init(instance, "test", parchive.getSpec().validate(YConfiguration.emptyConfig()));
+        parchive.writeToArchive(getDoubleSegment(pg1id, p1id, t1, 180));
+        assertEquals(parchive.getPartitions(t0), parchive.getPartitions(t1));
+
+        ParameterRequest req = new ParameterRequest(t0, t1 + 3600_000, true, true, false, false);
+        SingleParameterRetrieval spar = new SingleParameterRetrieval(parchive, p1id, new int[] { pg1id }, req);
+        List<RollupSegment> l = new ArrayList<>();
+        spar.retrieveRollups(0, l::add);
+        l.sort((rs1, rs2) -> Long.compare(rs1.getTime(0), rs2.getTime(0)));
+        assertEquals(2, l.size());
+        assertEquals(t0, l.get(0).getTime(0));
+        assertEquals(t0 + 179_000, l.get(0).getLastTime());
+        assertEquals(3, l.get(0).size());
+        assertEquals(t1 + 179_000, l.get(1).getLastTime());
+        assertEquals(3, l.get(1).size());
+    }
+
+    private PGSegment getDoubleSegment(int pgid, int pid, long t0, int n) {
+        PGSegment pgSegment = new PGSegment(pgid, ParameterArchive.getIntervalStart(t0), IntArray.wrap(pid));
+        for (int i = 0; i < n; i++) {
+            ParameterValue pv = new ParameterValue(p1);
+            pv.setGenerationTime(t0 + i * 1000L);
+            pv.setEngValue(ValueUtility.getDoubleValue(i));
+            pgSegment.addRecord(t0 + i * 1000L, Arrays.asList(pv));
+        }
+        return pgSegment;
+    }
+
     @Test
     public void testSingleParameterMultipleGroups() throws Exception {
         ParameterValue pv1_0 = getParameterValue(p1, 100, "pv1_0");
@@ -0,0 +1,104 @@
+package org.yamcs.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.yamcs.logging.Log;
+
+public class ApplyStageTest {
+    static final Log log = new Log(ApplyStageTest.class);
+
+    @Test
+    public void testOrderWithinKey() throws Exception {
+        ApplyStage stage = new ApplyStage(log, "test", 4, 100000, -1);
+        int n = 10000;
+        List<List<Long>> applied = new ArrayList<>();
+        for (int k = 0; k < 3; k++) {
+            applied.add(new ArrayList<>());
+        }
+        for (long txId = 0; txId < n; txId++) {
+            int k = (int) (txId % 3);
+            List<Long> l = applied.get(k);
+            long t = txId;
+            stage.submit(k, txId, 10, () -> l.add(t));
+        }
+        assertTrue(stage.shutdown(10, TimeUnit.SECONDS));
+
+        for (int k = 0; k < 3; k++) {
+            List<Long> l = applied.get(k);
+            for (int i = 0; i < l.size(); i++) {
+                assertEquals(k + 3 * i, l.get(i).longValue());
+            }
+        }
+        assertEquals(n - 1, stage.getAppliedTxId());
+        assertEquals(0, stage.getPendingCount());
+    }
+
+    @Test
+    public void testWatermark() throws Exception {
+        ApplyStage stage = new ApplyStage(log, "test", 2, 100, 10);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch applied = new CountDownLatch(2);
+        stage.submit("a", 11, 10, () -> await(blocked));
+        stage.skip(12);
+        stage.submit("b", 13, 10, () -> applied.countDown());
+        stage.submit("b", 14, 10, () -> applied.countDown());
+        assertTrue(applied.await(10, TimeUnit.SECONDS));
+
+        // 13 and 14 are applied but 11 is not
+        assertEquals(10, stage.getAppliedTxId());
+        assertEquals(1, stage.getPendingCount());
+
+        blocked.countDown();
+        assertTrue(stage.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(14, stage.getAppliedTxId());
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        ApplyStage stage = new ApplyStage(log, "test", 1, 4, -1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        boolean saturated = false;
+        for (long txId = 0; txId < 5; txId++) {
+            saturated = stage.submit("a", txId, 10, () -> await(blocked));
+        }
+        assertTrue(saturated);
+
+        AtomicBoolean drained = new AtomicBoolean();
+        CountDownLatch drainLatch = new CountDownLatch(1);
+        stage.onDrain(() -> {
+            drained.set(true);
+            drainLatch.countDown();
+        });
+        assertFalse(drained.get());
+
+        blocked.countDown();
+        assertTrue(drainLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(stage.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInline() throws Exception {
+        ApplyStage stage = new ApplyStage(log, "test", 0, 10, -1);
+        Thread[] t = new Thread[1];
+        assertFalse(stage.submit("a", 0, 10, () -> t[0] = Thread.currentThread()));
+        assertEquals(Thread.currentThread(), t[0]);
+        assertEquals(0, stage.getAppliedTxId());
+    }
+
+    static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
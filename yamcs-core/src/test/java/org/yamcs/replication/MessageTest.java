@@ -0,0 +1,109 @@
+package org.yamcs.replication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.FileUtils;
+
+public class MessageTest {
+    Path dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = Files.createTempDirectory("repltest");
+    }
+
+    @After
+    public void after() throws IOException {
+        FileUtils.deleteRecursivelyIfExists(dir);
+    }
+
+    @Test
+    public void testCompressedBatch() throws Exception {
+        ReplicationFile rf = ReplicationFile.newFile("test", dir.resolve("t1"), 100, 10, 10, 100000);
+        for (int i = 0; i < 50; i++) {
+            rf.writeData(new TextTransaction("tuple " + i + " from the realtime stream, always the same text"));
+        }
+        ByteBuffer data = rf.tail(100).buf;
+        int size = data.remaining();
+
+        ByteBuffer batch = Message.encodeCompressedBatch(data, 150, new Deflater(), new byte[65536]);
+        assertEquals(size, data.remaining());
+        assertTrue(batch.remaining() < size / 3);
+
+        BatchMessage bmsg = (BatchMessage) Message.decode(batch);
+        assertEquals(150, bmsg.masterTxId);
+        ByteBuffer decompressed = bmsg.decompress(new Inflater());
+        assertEquals(data, decompressed);
+
+        for (int i = 0; i < 50; i++) {
+            int msgSize = (decompressed.getInt(decompressed.position()) & 0xFFFFFF) + 4;
+            ByteBuffer mbuf = decompressed.slice();
+            mbuf.limit(msgSize);
+            decompressed.position(decompressed.position() + msgSize);
+            TransactionMessage tmsg = (TransactionMessage) Message.decode(mbuf);
+            assertEquals(Message.DATA, tmsg.type);
+            assertEquals(100 + i, tmsg.txId);
+            byte[] b = new byte[tmsg.buf.remaining()];
+            tmsg.buf.get(b);
+            assertArrayEquals(("tuple " + i + " from the realtime stream, always the same text").getBytes(), b);
+        }
+        rf.close();
+    }
+
+    @Test
+    public void testBatchTooBig() throws Exception {
+        ReplicationFile rf = ReplicationFile.newFile("test", dir.resolve("t1"), 0, 10, 10, 100000);
+        for (int i = 0; i < 50; i++) {
+            rf.writeData(new TextTransaction("tuple " + i));
+        }
+        assertNull(Message.encodeCompressedBatch(rf.tail(0).buf, 50, new Deflater(), new byte[40]));
+        rf.close();
+    }
+
+    @Test(expected = DecodingException.class)
+    public void testCorruptedBatch() throws Exception {
+        ReplicationFile rf = ReplicationFile.newFile("test", dir.resolve("t1"), 0, 10, 10, 100000);
+        rf.writeData(new TextTransaction("some text some text some text"));
+        ByteBuffer batch = Message.encodeCompressedBatch(rf.tail(0).buf, 1, new Deflater(), new byte[1000]);
+        batch.put(20, (byte) (batch.get(20) + 1));
+        Message.decode(batch);
+        rf.close();
+    }
+
+    static class TextTransaction implements Transaction {
+        final byte[] b;
+
+        TextTransaction(String text) {
+            this.b = text.getBytes();
+        }
+
+        @Override
+        public void marshall(ByteBuffer buf) {
+            buf.put(b);
+        }
+
+        @Override
+        public byte getType() {
+            return Message.DATA;
+        }
+
+        @Override
+        public int getInstanceId() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.yamcs.timeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.rocksdb.YRDB;
+
+public class TimelineItemDbTest extends YarchTestCase {
+    static final long DAY = 24 * 3600_000L;
+    TimelineItemDb db;
+
+    @Before
+    public void before() throws Exception {
+        db = new TimelineItemDb(instance);
+    }
+
+    @Test
+    public void testOverlap() throws Exception {
+        TimelineItem longItem = addEvent(0, 10 * DAY, "phase");
+        TimelineItem e1 = addEvent(2 * DAY, 500, "tag1");
+        TimelineItem e2 = addEvent(2 * DAY + 500, 2 * DAY, "tag2");
+        TimelineItem e3 = addEvent(5 * DAY, 1000, "tag1", "tag2");
+        addEvent(11 * DAY, 1000, "tag1");
+
+        assertIds(getItems(2 * DAY + 700, 3 * DAY, 100), longItem, e2);
+        assertIds(getItems(2 * DAY + 700, 3 * DAY, 100, "tag2"), e2);
+        assertIds(getItems(2 * DAY, 3 * DAY, 100), longItem, e1, e2);
+        assertIds(getItems(2 * DAY, 3 * DAY, 1), longItem);
+        assertIds(getItems(DAY, 6 * DAY, 100, "tag1"), e1, e3);
+        assertIds(getItems(DAY, 6 * DAY, 100, "tag1", "tag2"), e1, e2, e3);
+        assertIds(getItems(4 * DAY, 6 * DAY, 100, "tag1", "tag2"), e2, e3);
+        assertIds(getItems(10 * DAY, 11 * DAY, 100));
+
+        db.deleteItem(UUID.fromString(e2.getId()));
+        assertIds(getItems(4 * DAY, 6 * DAY, 100), longItem, e3);
+
+        e3.setStart(7 * DAY);
+        db.updateItem(e3);
+        assertIds(getItems(4 * DAY, 6 * DAY, 100, "tag2"));
+        assertIds(getItems(4 * DAY, 8 * DAY, 100, "tag2"), e3);
+    }
+
+    @Test
+    public void testUpdateCachedItem() throws Exception {
+        TimelineItem e1 = addEvent(DAY, 3 * DAY, "tag1", "tag2");
+        addEvent(DAY, 1000, "tag1");
+
+        // modify the instance returned by the db, as the API does
+        TimelineItem item = db.getItem(e1.getId());
+        item.setDuration(1000);
+        item.setTags(Arrays.asList("tag2"));
+        db.updateItem(item);
+
+        assertIds(getItems(2 * DAY, 3 * DAY, 100));
+        assertIds(getItems(2 * DAY, 3 * DAY, 100, "tag2"));
+        assertIds(getItems(DAY, 2 * DAY, 100, "tag2"), e1);
+        assertEquals(1, getItems(DAY, 2 * DAY, 1, "tag1").size());
+        assertTrue(getItems(DAY, 2 * DAY, 100, "tag1").stream().noneMatch(i -> i.getId().equals(e1.getId())));
+    }
+
+    @Test
+    public void testRelativeStart() throws Exception {
+        TimelineItem e1 = addEvent(DAY, 1000);
+        TimelineItem e2 = new TimelineEvent(UUID.randomUUID().toString());
+        e2.setRelativeItemUuid(UUID.fromString(e1.getId()));
+        e2.setRelativeStart(DAY);
+        e2.setDuration(1000);
+        db.addItem(e2);
+        assertIds(getItems(2 * DAY, 3 * DAY, 100), e2);
+
+        e1.setStart(3 * DAY);
+        db.updateItem(e1);
+        assertIds(getItems(2 * DAY, 3 * DAY, 100));
+        assertIds(getItems(4 * DAY, 5 * DAY, 100), e2);
+    }
+
+    @Test
+    public void testBuildIndex() throws Exception {
+        TimelineItem longItem = addEvent(0, 10 * DAY, "phase");
+        TimelineItem e1 = addEvent(2 * DAY, 1000, "tag1");
+
+        YRDB rdb = RdbStorageEngine.getInstance().getTablespace(ydb).getRdb();
+        rdb.dropColumnFamily(rdb.getColumnFamilyHandle(TimelineItemIndex.CF_NAME_PREFIX + instance));
+        db = new TimelineItemDb(instance);
+        assertTrue(db.index.isBuilt());
+        assertIds(getItems(2 * DAY, 3 * DAY, 100), longItem, e1);
+        assertIds(getItems(DAY, 3 * DAY, 100, "tag1"), e1);
+    }
+
+    @Test
+    public void testRebuildIndexAfterUncleanClose() throws Exception {
+        TimelineItem e1 = addEvent(2 * DAY, 1000, "tag1");
+        assertFalse(db.index.isBuilt());
+
+        // simulate a crash between writing the row and writing the index
+        TimelineItem e2 = addEvent(2 * DAY + 100, 1000, "tag1");
+        db.index.remove(e2);
+
+        db = new TimelineItemDb(instance);
+        assertTrue(db.index.isBuilt());
+        assertIds(getItems(DAY, 3 * DAY, 100, "tag1"), e1, e2);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        TimelineItem e1 = addEvent(2 * DAY, 1000, "tag1");
+        db.close();
+        assertTrue(db.index.isBuilt());
+
+        db = new TimelineItemDb(instance);
+        assertIds(getItems(DAY, 3 * DAY, 100, "tag1"), e1);
+        addEvent(3 * DAY, 1000);
+        assertFalse(db.index.isBuilt());
+    }
+
+    private TimelineItem addEvent(long start, long duration, String... tags) {
+        TimelineEvent item = new TimelineEvent(UUID.randomUUID().toString());
+        item.setStart(start);
+        item.setDuration(duration);
+        if (tags.length > 0) {
+            item.setTags(Arrays.asList(tags));
+        }
+        return db.addItem(item);
+    }
+
+    private List<TimelineItem> getItems(long start, long stop, int limit, String... tags) {
+        ItemFilter filter = new ItemFilter(new TimeInterval(start, stop));
+        if (tags.length > 0) {
+            filter.setTags(Arrays.asList(tags));
+        }
+        List<TimelineItem> result = new ArrayList<>();
+        db.getItems(limit, null, filter, new ItemListener() {
+            @Override
+            public void next(TimelineItem item) {
+                result.add(item);
+            }
+
+            @Override
+            public void complete(String token) {
+            }
+
+            @Override
+            public void completeExceptionally(Throwable t) {
+                throw new AssertionError(t);
+            }
+        });
+        return result;
+    }
+
+    private void assertIds(List<TimelineItem> items, TimelineItem... expected) {
+        assertEquals(expected.length, items.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getId(), items.get(i).getId());
+        }
+    }
+}
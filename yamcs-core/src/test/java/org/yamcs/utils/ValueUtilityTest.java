@@ -0,0 +1,44 @@
+package org.yamcs.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.yamcs.parameter.Value;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+
+public class ValueUtilityTest {
+
+    @Test
+    public void testCachedIntValues() {
+        assertSame(ValueUtility.getUint32Value(5), ValueUtility.getUint32Value(5));
+        assertSame(ValueUtility.getSint32Value(-128), ValueUtility.getSint32Value(-128));
+        assertSame(ValueUtility.getUint64Value(1023), ValueUtility.getUint64Value(1023));
+        assertSame(ValueUtility.getSint64Value(0), ValueUtility.getSint64Value(0));
+
+        assertNotSame(ValueUtility.getUint32Value(1024), ValueUtility.getUint32Value(1024));
+        assertNotSame(ValueUtility.getSint32Value(-129), ValueUtility.getSint32Value(-129));
+    }
+
+    @Test
+    public void testIntValues() {
+        for (int i = -200; i < 1100; i++) {
+            Value v = ValueUtility.getSint32Value(i);
+            assertEquals(Type.SINT32, v.getType());
+            assertEquals(i, v.getSint32Value());
+
+            v = ValueUtility.getSint64Value(i);
+            assertEquals(Type.SINT64, v.getType());
+            assertEquals(i, v.getSint64Value());
+
+            v = ValueUtility.getUint32Value(i);
+            assertEquals(Type.UINT32, v.getType());
+            assertEquals(i, v.getUint32Value());
+
+            v = ValueUtility.getUint64Value(i);
+            assertEquals(Type.UINT64, v.getType());
+            assertEquals(i, v.getUint64Value());
+        }
+    }
+}
@@ -36,6 +36,17 @@ public class VarIntUtilTest {
         assertEquals(0xFFFFFFFF, VarIntUtil.readVarInt32(bb));
     }
 
+    @Test
+    public void testVarInt64() {
+        ByteBuffer bb = ByteBuffer.allocate(10);
+        for (long x : new long[] { 0, 0x7FFFFFFFL, 0x80000009L, 0xFFFFFFFFFFL, -1L, Long.MIN_VALUE + 9000 }) {
+            bb.rewind();
+            VarIntUtil.writeVarInt64(bb, x);
+            bb.rewind();
+            assertEquals(x, VarIntUtil.readVarInt64(bb));
+        }
+    }
+
     @Test
     public void testInvalid() {
         ByteBuffer bb = ByteBuffer.wrap(StringConverter.hexStringToArray("8182838485"));
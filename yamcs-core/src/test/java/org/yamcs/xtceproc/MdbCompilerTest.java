@@ -0,0 +1,213 @@
+package org.yamcs.xtceproc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.ConfigurationException;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.YConfiguration;
+import org.yamcs.parameter.LastValueCache;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtceproc.MatchCriteriaEvaluator.MatchResult;
+import org.yamcs.xtce.Calibrator;
+import org.yamcs.xtce.Comparison;
+import org.yamcs.xtce.IntegerParameterType;
+import org.yamcs.xtce.MatchCriteria;
+import org.yamcs.xtce.OperatorType;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.PolynomialCalibrator;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.SplineCalibrator;
+import org.yamcs.xtce.SplinePoint;
+import org.yamcs.xtce.XtceDb;
+
+public class MdbCompilerTest {
+    static XtceDb xtcedb;
+
+    @BeforeClass
+    public static void beforeClass() throws ConfigurationException {
+        YConfiguration.setupTest(null);
+        xtcedb = XtceDbFactory.createInstanceByConfig("refmdb");
+    }
+
+    @Test
+    public void testPolynomial() {
+        PolynomialCalibrator pc = new PolynomialCalibrator(new double[] { 0.5, -2.25, 3e-3, 1e-7 });
+        CalibratorProc interpreted = new PolynomialCalibratorProc(pc);
+        CalibratorProc compiled = compile(pc);
+
+        for (double v = -1000; v < 1000; v += 0.37) {
+            assertEquals(interpreted.calibrate(v), compiled.calibrate(v), 0);
+        }
+    }
+
+    @Test
+    public void testSpline() {
+        SplineCalibrator sc = new SplineCalibrator(Arrays.asList(new SplinePoint(-10, 3),
+                new SplinePoint(0, 0.5), new SplinePoint(2.5, 7), new SplinePoint(100, -4)));
+        CalibratorProc interpreted = new SplineCalibratorProc(sc);
+        CalibratorProc compiled = compile(sc);
+
+        for (double v = -50; v < 150; v += 0.13) {
+            assertEquals(interpreted.calibrate(v), compiled.calibrate(v), 0);
+        }
+        assertEquals(interpreted.calibrate(2.5), compiled.calibrate(2.5), 0);
+        assertEquals(interpreted.calibrate(-10), compiled.calibrate(-10), 0);
+    }
+
+    @Test
+    public void testRefMdbCriteria() {
+        List<MatchCriteria> criteria = new ArrayList<>();
+        for (SequenceContainer sc : xtcedb.getSequenceContainers()) {
+            if (sc.getRestrictionCriteria() != null) {
+                criteria.add(sc.getRestrictionCriteria());
+            }
+        }
+        MdbCompiler compiler = MdbCompiler.getInstance(xtcedb);
+
+        List<Value> values = new ArrayList<>();
+        for (int i = -2; i < 300; i++) {
+            values.add(ValueUtility.getUint32Value(i));
+            values.add(ValueUtility.getSint64Value(i));
+        }
+        values.add(ValueUtility.getFloatValue(1.5f));
+        values.add(ValueUtility.getDoubleValue(2.0));
+        values.add(ValueUtility.getStringValue("abc"));
+        values.add(ValueUtility.getBooleanValue(true));
+
+        int n = 0;
+        for (MatchCriteria mc : criteria) {
+            MatchCriteriaEvaluator compiled = compiler.getEvaluator(mc);
+            assertNotNull(compiled);
+            assertTrue(compiled instanceof CompiledMatchCriteriaEvaluator);
+            MatchCriteriaEvaluator interpreted = MatchCriteriaEvaluatorFactory.getEvaluator(mc);
+            assertEquals(interpreted.toExpressionString(), compiled.toExpressionString());
+
+            ProcessingData empty = ProcessingData.createForTestTm();
+            assertEquals(interpreted.evaluate(empty), compiled.evaluate(empty));
+
+            for (Parameter p : mc.getDependentParameters()) {
+                for (Value v : values) {
+                    ParameterValue pv = new ParameterValue(p);
+                    pv.setRawValue(v);
+                    pv.setEngValue(v);
+                    ProcessingData data = ProcessingData.createForTestTm(pv);
+                    assertEquals(mc.toString() + " with " + v, interpreted.evaluate(data), compiled.evaluate(data));
+                    n++;
+                }
+            }
+        }
+        assertTrue(n > 0);
+    }
+
+    @Test
+    public void testUnsigned() {
+        List<Value> values = new ArrayList<>();
+        for (long l : new long[] { 0, 1, 0x7FFF_FFFFL, 0x8000_0000L, 0x8000_0001L, 0xFFFF_FFFFL }) {
+            values.add(ValueUtility.getUint32Value((int) l));
+        }
+        for (long l : new long[] { 0, 1, 0x8000_0000L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1, -1 }) {
+            values.add(ValueUtility.getUint64Value(l));
+        }
+
+        checkUnsigned(32, "2147483648", values);
+        checkUnsigned(32, "100", values);
+        checkUnsigned(64, "9223372036854775808", values);
+        checkUnsigned(64, "2147483648", values);
+
+        // 0xFFFF_FFFF > 0x8000_0000 and 2^63 + 1 > 2^63
+        Parameter p32 = unsignedParameter(32);
+        MatchCriteria mc = new Comparison(new ParameterInstanceRef(p32), "2147483648", OperatorType.LARGERTHAN);
+        MatchCriteriaEvaluator compiled = new MdbCompiler(Collections.singletonList(mc), Collections.emptyList())
+                .getEvaluator(mc);
+        assertEquals(MatchResult.OK, compiled.evaluate(data(p32, ValueUtility.getUint32Value(0xFFFF_FFFF))));
+        assertEquals(MatchResult.NOK, compiled.evaluate(data(p32, ValueUtility.getUint32Value(5))));
+
+        Parameter p64 = unsignedParameter(64);
+        mc = new Comparison(new ParameterInstanceRef(p64), "9223372036854775808", OperatorType.LARGERTHAN);
+        compiled = new MdbCompiler(Collections.singletonList(mc), Collections.emptyList()).getEvaluator(mc);
+        assertEquals(MatchResult.OK, compiled.evaluate(data(p64, ValueUtility.getUint64Value(Long.MIN_VALUE + 1))));
+        assertEquals(MatchResult.NOK, compiled.evaluate(data(p64, ValueUtility.getUint64Value(5))));
+    }
+
+    private void checkUnsigned(int sizeInBits, String constant, List<Value> values) {
+        Parameter p = unsignedParameter(sizeInBits);
+        for (OperatorType op : OperatorType.values()) {
+            Comparison mc = new Comparison(new ParameterInstanceRef(p), constant, op);
+            MatchCriteriaEvaluator compiled = new MdbCompiler(Collections.singletonList(mc),
+                    Collections.emptyList()).getEvaluator(mc);
+            assertTrue(compiled instanceof CompiledMatchCriteriaEvaluator);
+            MatchCriteriaEvaluator interpreted = MatchCriteriaEvaluatorFactory.getEvaluator(mc);
+            for (Value v : values) {
+                ProcessingData data = data(p, v);
+                assertEquals(mc + " with " + v, interpreted.evaluate(data), compiled.evaluate(data));
+            }
+        }
+    }
+
+    private static Parameter unsignedParameter(int sizeInBits) {
+        Parameter p = new Parameter("u" + sizeInBits);
+        p.setQualifiedName("/test/u" + sizeInBits);
+        p.setParameterType(new IntegerParameterType.Builder().setName("u" + sizeInBits).setSigned(false)
+                .setSizeInBits(sizeInBits).build());
+        return p;
+    }
+
+    private static ProcessingData data(Parameter p, Value v) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setRawValue(v);
+        pv.setEngValue(v);
+        return ProcessingData.createForTestTm(pv);
+    }
+
+    @Test
+    public void testTmCacheUsed() {
+        Parameter p = unsignedParameter(32);
+        MatchCriteria mc = new Comparison(new ParameterInstanceRef(p), "100", OperatorType.LARGERTHAN);
+        MatchCriteriaEvaluator compiled = new MdbCompiler(Collections.singletonList(mc), Collections.emptyList())
+                .getEvaluator(mc);
+        ParameterValue pv = new ParameterValue(p);
+        pv.setEngValue(ValueUtility.getUint32Value(200));
+
+        ProcessingData data = ProcessingData.createForTestTm(pv);
+        assertEquals(MatchResult.OK, compiled.evaluate(data));
+        assertFalse(data.isTmCacheUsed());
+
+        LastValueCache lvc = new LastValueCache();
+        lvc.add(pv);
+        data = ProcessingData.createForTmProcessing(lvc);
+        assertEquals(MatchResult.OK, compiled.evaluate(data));
+        assertTrue(data.isTmCacheUsed());
+    }
+
+    @Test
+    public void testProcessorData() {
+        ProcessorData pdata = new ProcessorData("test", "test", xtcedb, new ProcessorConfig());
+        SequenceContainer sc = xtcedb.getSequenceContainer("/REFMDB/SUBSYS1/PKT1_1");
+        assertTrue(pdata.getEvaluator(sc.getRestrictionCriteria()) instanceof CompiledMatchCriteriaEvaluator);
+
+        ProcessorConfig config = new ProcessorConfig();
+        config.getContainerProcessingOptions().setCompileMdb(false);
+        pdata = new ProcessorData("test", "test", xtcedb, config);
+        assertTrue(!(pdata.getEvaluator(sc.getRestrictionCriteria()) instanceof CompiledMatchCriteriaEvaluator));
+    }
+
+    private CalibratorProc compile(Calibrator c) {
+        MdbCompiler compiler = new MdbCompiler(Collections.emptyList(), Collections.singletonList(c));
+        CalibratorProc cp = compiler.getCalibrator(c);
+        assertNotNull(cp);
+        return cp;
+    }
+}
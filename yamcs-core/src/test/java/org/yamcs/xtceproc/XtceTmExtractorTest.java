@@ -33,6 +33,7 @@ import org.yamcs.ContainerExtractionResult;
 import org.yamcs.ProcessorConfig;
 import org.yamcs.parameter.AggregateValue;
 import org.yamcs.parameter.ArrayValue;
+import org.yamcs.parameter.ContainerParameterValue;
 import org.yamcs.parameter.FloatValue;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.RefMdbPacketGenerator;
@@ -41,6 +42,7 @@ import org.yamcs.algorithms.AlgorithmExecutionContext;
 import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.BitBuffer;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.ValueUtility;
@@ -771,6 +773,100 @@ public class XtceTmExtractorTest {
         assertEquals(99, pv.getEngValue().getUint32Value());
     }
 
+    @Test
+    public void testDecodePacket() {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+        List<byte[]> packets = Arrays.asList(tmGenerator.generate_PKT1_1(), tmGenerator.generate_PKT1_2(),
+                tmGenerator.generate_PKT1_3(), tmGenerator.generate_PKT14(), tmGenerator.generate_PKT1_5(),
+                tmGenerator.generate_PKT1_7(), tmGenerator.generate_PKT1_9(),
+                tmGenerator.generate_PKT1_10(0, 0, 30), tmGenerator.generate_PKT1_10(0, 1, 30),
+                tmGenerator.generate_PKT1_11(), tmGenerator.generate_PKT1_12(),
+                tmGenerator.generate_PKT3(), tmGenerator.generate_PKT4(), tmGenerator.generate_PKT5(),
+                tmGenerator.generate_PKT6(), tmGenerator.generate_PKT7(), tmGenerator.generate_PKT8(),
+                tmGenerator.generate_PKT9((short) 1, 0x01020304), tmGenerator.generate_PKT9((short) 2, 0x02030405),
+                tmGenerator.generate_PKT10());
+
+        XtceTmExtractor tmExtractor = new XtceTmExtractor(xtcedb);
+        tmExtractor.provideAll();
+        SequenceContainer root = xtcedb.getRootSequenceContainer();
+        long t = TimeEncoding.getWallclockTime();
+
+        // twice such that the second round uses the context (and the referenced parameters) of the first one
+        for (int k = 0; k < 2; k++) {
+            for (byte[] pkt : packets) {
+                ContainerProcessingResult cpr = tmExtractor.processPacket(pkt, t, t + 1, root);
+                assertNull(cpr.exception);
+                ParameterValueList expected = cpr.getParameterResult();
+                DecodedPacket dp = tmExtractor.decodePacket(pkt, t, t + 1, root);
+                assertNull(dp.getException());
+                assertEquals(expected.size(), dp.size());
+
+                int i = 0;
+                for (ParameterValue pv : expected) {
+                    assertEquals(pv.getParameter(), dp.getParameter(i));
+                    if (pv.getEngValue() != null) {
+                        assertEquals(pv.getEngValue().getType(), dp.getEngType(i));
+                    }
+                    assertSameValue((ContainerParameterValue) pv, (ContainerParameterValue) dp.getParameterValue(i));
+                    i++;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDecodePacketPrimitives() {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+        XtceTmExtractor tmExtractor = new XtceTmExtractor(xtcedb);
+        tmExtractor.provideAll();
+
+        DecodedPacket dp = tmExtractor.decodePacket(tmGenerator.generate_PKT1_1(), 0, 0,
+                xtcedb.getRootSequenceContainer());
+        Parameter p = xtcedb.getParameter("/REFMDB/SUBSYS1/IntegerPara1_1_6");
+        int i = indexOf(dp, p);
+        assertEquals(Type.UINT32, dp.getEngType(i));
+        assertEquals(tmGenerator.pIntegerPara1_1_6, dp.getEngLong(i));
+        assertEquals(tmGenerator.pIntegerPara1_1_6, dp.getRawDouble(i), 1e-10);
+
+        dp = tmExtractor.decodePacket(tmGenerator.generate_PKT1_10(0, 0, 30), 0, 0,
+                xtcedb.getRootSequenceContainer());
+        i = indexOf(dp, xtcedb.getParameter("/REFMDB/SUBSYS1/FloatPara1_10_3"));
+        assertEquals(Type.FLOAT, dp.getRawType(i));
+        assertEquals(30, dp.getRawDouble(i), 1e-10);
+        assertEquals(3, dp.getEngDouble(i), 1e-10);
+    }
+
+    private static int indexOf(DecodedPacket dp, Parameter p) {
+        for (int i = 0; i < dp.size(); i++) {
+            if (dp.getParameter(i) == p) {
+                return i;
+            }
+        }
+        throw new AssertionError("parameter " + p.getQualifiedName() + " not found");
+    }
+
+    private static void assertSameValue(ContainerParameterValue expected, ContainerParameterValue pv) {
+        String name = expected.getParameter().getQualifiedName();
+        assertSameValue(name, expected.getRawValue(), pv.getRawValue());
+        assertSameValue(name, expected.getEngValue(), pv.getEngValue());
+        assertEquals(name, expected.getAcquisitionStatus(), pv.getAcquisitionStatus());
+        assertEquals(name, expected.getAcquisitionTime(), pv.getAcquisitionTime());
+        assertEquals(name, expected.getGenerationTime(), pv.getGenerationTime());
+        assertEquals(name, expected.getExpireMills(), pv.getExpireMills());
+        assertEquals(name, expected.getAbsoluteBitOffset(), pv.getAbsoluteBitOffset());
+        assertEquals(name, expected.getBitSize(), pv.getBitSize());
+        assertEquals(name, expected.getSequenceEntry(), pv.getSequenceEntry());
+    }
+
+    private static void assertSameValue(String name, Value expected, Value v) {
+        if (expected instanceof AggregateValue || expected instanceof ArrayValue) {
+            // no equals for aggregates
+            assertEquals(name, expected.toString(), v.toString());
+        } else {
+            assertEquals(name, expected, v);
+        }
+    }
+
     private ParameterValueList extractParameters(byte[] pkt) {
         XtceTmExtractor tmExtractor = new XtceTmExtractor(xtcedb);
         tmExtractor.provideAll();
@@ -0,0 +1,145 @@
+package org.yamcs.yarch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.yamcs.yarch.AsyncSubscriber.OverflowPolicy;
+
+public class AsyncSubscriberTest extends YarchTestCase {
+    static final int N = 1000;
+
+    /**
+     * Subscriber which waits for permits before processing each tuple
+     */
+    static class SlowSubscriber implements StreamSubscriber {
+        final Semaphore permits = new Semaphore(0);
+        final List<Tuple> tuples = new ArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile Thread thread;
+
+        @Override
+        public void onTuple(Stream s, Tuple tuple) {
+            thread = Thread.currentThread();
+            permits.acquireUninterruptibly();
+            synchronized (tuples) {
+                tuples.add(tuple);
+            }
+        }
+
+        @Override
+        public void streamClosed(Stream s) {
+            closed.countDown();
+        }
+    }
+
+    private Stream createStream(OverflowPolicy policy, int capacity) throws Exception {
+        execute("create stream async_in (id int, name string, x double)");
+        Stream s = ydb.getStream("async_in");
+        s.setSubscriberQueue(new AsyncSubscriber.Config(capacity, policy, null));
+        return s;
+    }
+
+    private void emit(Stream s, int n) {
+        for (int i = 0; i < n; i++) {
+            s.emitTuple(new Tuple(s.getDefinition(), new Object[] { i, "name" + (i % 3), i % 2 == 0 ? null : 0.5 * i }));
+        }
+    }
+
+    private void verify(Tuple t, int i) {
+        assertEquals(i, t.getIntColumn("id"));
+        assertEquals("name" + (i % 3), t.getColumn("name"));
+        if (i % 2 == 0) {
+            assertNull(t.getColumn("x"));
+        } else {
+            assertEquals(0.5 * i, (Double) t.getColumn("x"), 1e-10);
+        }
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        Stream s = createStream(OverflowPolicy.BLOCK, 10);
+        SlowSubscriber sub = new SlowSubscriber();
+        s.addSubscriber(sub);
+        assertSame(sub, s.getSubscribers().iterator().next());
+
+        sub.permits.release(N);
+        emit(s, N);
+        s.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+
+        assertEquals(N, sub.tuples.size());
+        for (int i = 0; i < N; i++) {
+            verify(sub.tuples.get(i), i);
+        }
+        assertTrue(sub.thread != Thread.currentThread());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        Stream s = createStream(OverflowPolicy.DROP_OLDEST, 10);
+        SlowSubscriber sub = new SlowSubscriber();
+        s.addSubscriber(sub);
+        AsyncSubscriber as = s.getAsyncSubscribers().get(0);
+
+        // the emitting thread is not blocked by the subscriber
+        emit(s, N);
+        assertTrue(as.getDroppedCount() >= N - 11);
+        assertTrue(as.getQueueSize() <= 10);
+
+        sub.permits.release(N);
+        s.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(N, sub.tuples.size() + as.getDroppedCount());
+        // the last tuples have been kept
+        verify(sub.tuples.get(sub.tuples.size() - 1), N - 1);
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        Stream s = createStream(OverflowPolicy.SPILL, 10);
+        SlowSubscriber sub = new SlowSubscriber();
+        s.addSubscriber(sub);
+        AsyncSubscriber as = s.getAsyncSubscribers().get(0);
+
+        emit(s, N);
+        assertTrue(as.getSpilledCount() >= N - 11);
+        // one tuple may have been taken by the subscriber thread
+        assertEquals(N - 1, as.getQueueSize(), 1);
+
+        sub.permits.release(N);
+        s.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+
+        assertEquals(N, sub.tuples.size());
+        assertEquals(0, as.getDroppedCount());
+        assertEquals(N, as.getDeliveredCount());
+        for (int i = 0; i < N; i++) {
+            verify(sub.tuples.get(i), i);
+        }
+    }
+
+    @Test
+    public void testRemoveSubscriber() throws Exception {
+        Stream s = createStream(OverflowPolicy.BLOCK, 2);
+        SlowSubscriber sub = new SlowSubscriber();
+        s.addSubscriber(sub);
+        emit(s, 3);
+        s.removeSubscriber(sub);
+        assertEquals(0, s.getSubscriberCount());
+        assertTrue(s.getSubscribers().isEmpty());
+        assertTrue(s.getAsyncSubscribers().isEmpty());
+
+        // not blocked although the subscriber does not consume anything
+        emit(s, 10);
+        sub.permits.release(N);
+    }
+}
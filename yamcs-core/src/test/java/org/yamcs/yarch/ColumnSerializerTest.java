@@ -3,8 +3,10 @@ package org.yamcs.yarch;
 import static org.junit.Assert.*;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -94,4 +96,51 @@ public class ColumnSerializerTest {
 
 
     }
+
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testSkip() {
+        ColumnDefinition cd = new ColumnDefinition("test", DataType.protobuf(Event.class.getName()));
+        Event ev = Event.newBuilder().setSource("test1").setGenerationTime(1000).setType("evtype").setMessage("msg")
+                .build();
+        ParameterValue pv = new ParameterValue("/test/abc");
+        pv.setEngineeringValue(ValueUtility.getDoubleValue(3.14));
+
+        List<ColumnSerializer> serializers = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (DataType dt : Arrays.asList(DataType.BOOLEAN, DataType.BYTE, DataType.SHORT, DataType.INT,
+                DataType.LONG, DataType.DOUBLE)) {
+            serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV2(dt));
+            serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV3(dt));
+        }
+        values.addAll(Arrays.asList(true, true, (byte) 3, (byte) 3, (short) -5, (short) -5, 7, 7, 1L << 40, 1L << 40,
+                3.14, 3.14));
+
+        serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV2(DataType.STRING));
+        values.add("\u00e9t\u00e9");
+        serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV3(DataType.STRING));
+        values.add("\u00e9t\u00e9");
+        serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV3(DataType.BINARY));
+        values.add(new byte[] { 1, 0, 3 });
+        serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV3(DataType.UUID));
+        values.add(UUID.randomUUID());
+        serializers.add(ColumnSerializerFactory.getBasicColumnSerializerV3(DataType.PARAMETER_VALUE));
+        values.add(pv);
+        serializers.add(new ColumnSerializerV3.ArrayColumnSerializer(
+                ColumnSerializerFactory.getBasicColumnSerializerV3(DataType.STRING)));
+        values.add(Arrays.asList("a", "ab", "abcd"));
+        serializers.add(ColumnSerializerFactory.getProtobufSerializer(cd));
+        values.add(ev);
+
+        ByteArray array = new ByteArray();
+        for (int i = 0; i < serializers.size(); i++) {
+            serializers.get(i).serialize(array, values.get(i));
+            array.addInt(-1);
+        }
+        for (int i = 0; i < serializers.size(); i++) {
+            serializers.get(i).skip(array, cd);
+            assertEquals(-1, array.getInt());
+        }
+        assertEquals(array.size(), array.position());
+    }
 }
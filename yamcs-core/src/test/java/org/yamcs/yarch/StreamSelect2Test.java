@@ -52,6 +52,21 @@ public class StreamSelect2Test extends YarchTestCase {
         }
     }
 
+    @Test
+    public void testAddColumn() throws Exception {
+        createFeeder1();
+
+        execute("create stream stream_out1 as select x, y from stream_in");
+        List<Tuple> tlist = fetchAll("stream_out1");
+        assertEquals(n, tlist.size());
+
+        // adding a column to one tuple does not change the other ones
+        tlist.get(0).addColumn("z", 3);
+        assertEquals(3, tlist.get(0).getIntColumn("z"));
+        assertEquals(2, tlist.get(1).size());
+        assertEquals(2, tlist.get(1).getDefinition().size());
+    }
+
     @Test
     public void testParanthesis() throws Exception {
         createFeeder1();
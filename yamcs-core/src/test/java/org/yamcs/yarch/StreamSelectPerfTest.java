@@ -5,10 +5,18 @@ import static org.junit.Assert.assertEquals;
 import java.util.concurrent.Semaphore;
 
 import org.junit.Test;
+import org.yamcs.yarch.TableWriter.InsertMode;
 
 /* Results with compiled expression:
  *    Read 100000000 tuples in 27733 ms
  *
+ * testProjection, 10000000 input tuples:
+ *    output schema built for each tuple: ~2200 ms
+ *    output schema resolved once per input definition, indexed column access: ~1100 ms
+ *
+ * testSelectFromTable, 1000000 rows (each row read with its own definition):
+ *    projection and column indexes resolved again for each row: ~2750-4200 ms
+ *    definitions recognized by their columns: ~2650 ms
  */
 public class StreamSelectPerfTest extends YarchTestCase {
 
@@ -94,4 +102,84 @@ public class StreamSelectPerfTest extends YarchTestCase {
         finished.acquire();
         execute("close stream tm_in");
     }
+
+    @Test
+    public void testProjection() throws Exception {
+        new InputStreamFeeder();
+        execute("create stream tm_out2 as select id, id+2 as id2 from tm_in where id>4");
+        Stream s = ydb.getStream("tm_out2");
+        final Semaphore finished = new Semaphore(0);
+        s.addSubscriber(new StreamSubscriber() {
+            long t0;
+            int k = 5;
+
+            @Override
+            public void streamClosed(Stream stream) {
+            }
+
+            @Override
+            public void onTuple(Stream stream, Tuple tuple) {
+                if (k == 5) {
+                    t0 = System.currentTimeMillis();
+                }
+                assertEquals(2, tuple.size());
+                assertEquals(k % 10, tuple.getIntColumn("id"));
+                assertEquals(k % 10 + 2, tuple.getIntColumn("id2"));
+                do {
+                    k++;
+                } while (k % 10 <= 4);
+                if (k >= n) {
+                    // System.out.println("Projected " + n + " tuples in " + (System.currentTimeMillis() - t0) + " ms");
+                    finished.release();
+                }
+            }
+        });
+        s.start();
+
+        finished.acquire();
+        execute("close stream tm_in");
+    }
+
+    @Test
+    public void testSelectFromTable() throws Exception {
+        int m = 1000000;
+        execute("create table tbl_perf (gentime timestamp, id int, primary key(gentime))");
+        TableDefinition tblDef = ydb.getTable("tbl_perf");
+        TableWriter tw = ydb.getStorageEngine(tblDef).newTableWriter(ydb, tblDef, InsertMode.INSERT);
+        TupleDefinition tpdef = new TupleDefinition();
+        tpdef.addColumn("gentime", DataType.TIMESTAMP);
+        tpdef.addColumn("id", DataType.INT);
+        for (int i = 0; i < m; i++) {
+            tw.onTuple(null, new Tuple(tpdef, new Object[] { (long) (i * 1000), i % 10 }));
+        }
+        tw.close();
+
+        // each tuple read from the table has its own definition
+        execute("create stream tbl_out as select id, id+2 as id2 from tbl_perf where id>4");
+        Stream s = ydb.getStream("tbl_out");
+        final Semaphore finished = new Semaphore(0);
+        s.addSubscriber(new StreamSubscriber() {
+            long t0 = System.currentTimeMillis();
+            int k = 5;
+
+            @Override
+            public void streamClosed(Stream stream) {
+                // System.out.println("Selected " + m + " rows in " + (System.currentTimeMillis() - t0) + " ms");
+                finished.release();
+            }
+
+            @Override
+            public void onTuple(Stream stream, Tuple tuple) {
+                assertEquals(2, tuple.size());
+                assertEquals(k % 10, tuple.getIntColumn("id"));
+                assertEquals(k % 10 + 2, tuple.getIntColumn("id2"));
+                do {
+                    k++;
+                } while (k % 10 <= 4);
+            }
+        });
+        s.start();
+
+        finished.acquire();
+    }
 }
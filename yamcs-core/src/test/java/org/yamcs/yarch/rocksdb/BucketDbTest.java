@@ -6,25 +6,35 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.yamcs.utils.FileUtils;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.yarch.Bucket;
+import org.yamcs.yarch.FileSystemBucket;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.BucketProperties;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.ObjectProperties;
 
+import com.google.common.io.ByteStreams;
+
 public class BucketDbTest {
 
     static String testDir = "/tmp/BucketDbTest";
     Random random = new Random();
+    Tablespace tablespace;
 
     @BeforeClass
     static public void beforeClass() {
@@ -36,6 +46,14 @@ public class BucketDbTest {
         FileUtils.deleteRecursivelyIfExists(Paths.get(testDir));
     }
 
+    @After
+    public void closeTablespace() {
+        if (tablespace != null) {
+            tablespace.close();
+            tablespace = null;
+        }
+    }
+
     @Test
     public void test1() throws Exception {
         String dir = testDir + "/tablespace1";
@@ -176,9 +194,61 @@ public class BucketDbTest {
         b.putObject("newobj", null, null, new byte[1024 * 1024]);
     }
 
+    @Test
+    public void testChunks() throws Exception {
+        RdbBucketDatabase bucketDb = createDb(5);
+        RdbBucket b = bucketDb.createBucket("bucket1");
+        b.chunkSize = 100;
+
+        byte[] objectData = new byte[1050];
+        random.nextBytes(objectData);
+        b.putObject("obj1", null, null, new ByteArrayInputStream(objectData));
+        assertEquals(100, b.findObject("obj1").getChunkSize());
+        assertEquals(1050, b.findObject("obj1").getSize());
+        assertArrayEquals(objectData, b.getObject("obj1"));
+
+        checkRange(b, "obj1", objectData, 0, 1050);
+        checkRange(b, "obj1", objectData, 150, 300);
+        checkRange(b, "obj1", objectData, 1000, 50);
+        checkRange(b, "obj1", objectData, 1000, 1000);
+        checkRange(b, "obj1", objectData, 1050, 10);
+
+        byte[] objectData2 = new byte[250];
+        random.nextBytes(objectData2);
+        b.putObject("obj1", null, null, new ByteArrayInputStream(objectData2));
+        assertArrayEquals(objectData2, b.getObject("obj1"));
+        assertEquals(250, bucketDb.listBuckets().get(0).getSize());
+
+        b.deleteObject("obj1");
+        assertNull(b.findObject("obj1"));
+        assertNull(b.getObject("obj1"));
+        assertEquals(0, bucketDb.listBuckets().get(0).getSize());
+    }
+
+    @Test
+    public void testFileSystemBucketRange() throws Exception {
+        Path root = Paths.get(testDir, "fsbucket");
+        Files.createDirectories(root);
+        FileSystemBucket b = new FileSystemBucket("fsbucket", root);
+        byte[] objectData = new byte[1000];
+        random.nextBytes(objectData);
+        b.putObject("dir/obj1", null, null, new ByteArrayInputStream(objectData));
+        assertArrayEquals(objectData, b.getObject("dir/obj1"));
+        checkRange(b, "dir/obj1", objectData, 100, 200);
+        checkRange(b, "dir/obj1", objectData, 900, 1000);
+    }
+
+    private void checkRange(Bucket b, String objectName, byte[] objectData, int offset, int length)
+            throws Exception {
+        int end = Math.min(objectData.length, offset + length);
+        try (InputStream in = b.getObjectStream(objectName, offset, length)) {
+            assertArrayEquals(Arrays.copyOfRange(objectData, offset, end), ByteStreams.toByteArray(in));
+        }
+    }
+
     private RdbBucketDatabase createDb(int n) throws Exception {
         String dir = testDir + "/tablespace" + n;
-        Tablespace tablespace = new Tablespace("tablespace" + n);
+        tablespace = new Tablespace("tablespace" + n);
         tablespace.setCustomDataDir(dir);
         tablespace.loadDb(false);
         return new RdbBucketDatabase("test", tablespace);
@@ -0,0 +1,84 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.yarch.DataType;
+
+public class ColumnChunkTest {
+
+    @Test
+    public void testDelta() {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(i % 10 == 3 ? null : ByteArrayUtils.encodeLong(1_000_000L * i - 5000 * (i % 7), new byte[8], 0));
+        }
+        byte[] chunk = ColumnChunk.encode(DataType.TIMESTAMP, values);
+        assertEquals(ColumnChunk.DELTA, chunk[0]);
+        // less than 4 bytes per value
+        assertTrue(chunk.length < 400);
+        verify(values, ColumnChunk.decode(chunk));
+    }
+
+    @Test
+    public void testNegativeInt() {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = -50; i < 50; i++) {
+            values.add(ByteArrayUtils.encodeInt(i * 1000, new byte[4], 0));
+        }
+        byte[] chunk = ColumnChunk.encode(DataType.INT, values);
+        assertEquals(ColumnChunk.DELTA, chunk[0]);
+        verify(values, ColumnChunk.decode(chunk));
+    }
+
+    @Test
+    public void testDictionary() {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(("source" + (i % 5)).getBytes());
+        }
+        values.set(7, null);
+        byte[] chunk = ColumnChunk.encode(DataType.STRING, values);
+        assertEquals(ColumnChunk.DICTIONARY, chunk[0]);
+        assertTrue(chunk.length < 1200);
+        verify(values, ColumnChunk.decode(chunk));
+    }
+
+    @Test
+    public void testPlain() {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(("value" + i).getBytes());
+        }
+        byte[] chunk = ColumnChunk.encode(DataType.BINARY, values);
+        assertEquals(ColumnChunk.PLAIN, chunk[0]);
+        verify(values, ColumnChunk.decode(chunk));
+    }
+
+    @Test(expected = DatabaseCorruptionException.class)
+    public void testCorrupted() {
+        List<byte[]> values = Arrays.asList("a".getBytes(), "b".getBytes());
+        byte[] chunk = ColumnChunk.encode(DataType.BINARY, values);
+        ColumnChunk.decode(Arrays.copyOf(chunk, chunk.length - 1));
+    }
+
+    private void verify(List<byte[]> expected, byte[][] decoded) {
+        assertEquals(expected.size(), decoded.length);
+        for (int i = 0; i < decoded.length; i++) {
+            if (expected.get(i) == null) {
+                assertNull(decoded[i]);
+            } else {
+                assertArrayEquals(expected.get(i), decoded[i]);
+            }
+        }
+    }
+}
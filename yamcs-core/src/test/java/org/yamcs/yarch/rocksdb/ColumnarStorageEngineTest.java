@@ -0,0 +1,197 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.yarch.ColumnSerializer;
+import org.yamcs.yarch.HistogramIterator;
+import org.yamcs.yarch.HistogramRecord;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.streamsql.StreamSqlException;
+import org.yamcs.yarch.streamsql.StreamSqlException.ErrCode;
+
+public class ColumnarStorageEngineTest extends YarchTestCase {
+    static final int N = 5000;
+    TableDefinition tblDef;
+
+    @Before
+    public void before() throws Exception {
+        execute("create table ctest (gentime timestamp, source string, seqNum int, msg string, x int,"
+                + " primary key(gentime, source, seqNum)) histogram(source) partition by time(gentime)"
+                + " engine " + YarchDatabase.COLUMNAR_ENGINE_NAME);
+        tblDef = ydb.getTable("ctest");
+        execute("create stream ctest_in (gentime timestamp, source string, seqNum int, msg string, x int)");
+        execute("create stream ctest_in2 (gentime timestamp, source string, seqNum int, msg string, x int)");
+        execute("insert into ctest select * from ctest_in");
+        execute("upsert into ctest select * from ctest_in2");
+
+        Stream s = ydb.getStream("ctest_in");
+        for (int i = 0; i < N; i++) {
+            s.emitTuple(tuple(s, i, "msg" + i));
+        }
+    }
+
+    private Tuple tuple(Stream s, int i, String msg) {
+        return new Tuple(s.getDefinition(), new Object[] { 1000L * i, "source" + (i % 3), i, msg,
+                i % 2 == 0 ? i : null });
+    }
+
+    private void verify(Tuple t, int i, String msg) {
+        assertEquals(1000L * i, t.getLongColumn("gentime"));
+        assertEquals("source" + (i % 3), t.getColumn("source"));
+        assertEquals(i, t.getIntColumn("seqNum"));
+        assertEquals(msg, t.getColumn("msg"));
+        if (i % 2 == 0) {
+            assertEquals(i, t.getIntColumn("x"));
+        } else {
+            assertNull(t.getColumn("x"));
+        }
+    }
+
+    @Test
+    public void testSealed() throws Exception {
+        assertEquals(YarchDatabase.COLUMNAR_ENGINE_NAME, tblDef.getStorageEngineName());
+        RdbTable table = RdbStorageEngine.getInstance().getTablespace(ydb).getTable(tblDef);
+        int pending = 0;
+        for (ColumnarPartition cpart : table.columnarPartitions.values()) {
+            pending += cpart.getPendingCount();
+        }
+        // most of the rows have been sealed into blocks
+        assertTrue(pending < N / 2);
+
+        List<Tuple> tlist = fetchAllFromTable("ctest");
+        assertEquals(N, tlist.size());
+        for (int i = 0; i < N; i++) {
+            verify(tlist.get(i), i, "msg" + i);
+        }
+    }
+
+    @Test
+    public void testDescending() throws Exception {
+        execute("create stream s1 as select * from ctest order desc");
+        List<Tuple> tlist = fetchAll("s1");
+        assertEquals(N, tlist.size());
+        for (int i = 0; i < N; i++) {
+            verify(tlist.get(i), N - 1 - i, "msg" + (N - 1 - i));
+        }
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        execute("create stream s1 as select * from ctest where gentime >= 1000000 and gentime < 2500000");
+        List<Tuple> tlist = fetchAll("s1");
+        assertEquals(1500, tlist.size());
+        for (int i = 0; i < 1500; i++) {
+            verify(tlist.get(i), 1000 + i, "msg" + (1000 + i));
+        }
+
+        execute("create stream s2 as select * from ctest where gentime > 1000000 and gentime <= 2500000 order desc");
+        tlist = fetchAll("s2");
+        assertEquals(1500, tlist.size());
+        verify(tlist.get(0), 2500, "msg2500");
+        verify(tlist.get(1499), 1001, "msg1001");
+    }
+
+    @Test
+    public void testColumnSubset() throws Exception {
+        execute("create stream s1 as select seqNum, x from ctest where gentime < 3000000");
+        List<Tuple> tlist = fetchAll("s1");
+        assertEquals(3000, tlist.size());
+        for (int i = 0; i < 3000; i++) {
+            Tuple t = tlist.get(i);
+            assertEquals(i, t.getIntColumn("seqNum"));
+            assertEquals(i % 2 == 0 ? i : null, t.getColumn("x"));
+        }
+    }
+
+    @Test
+    public void testUpdateSealed() throws Exception {
+        Stream s = ydb.getStream("ctest_in2");
+        s.emitTuple(tuple(s, 10, "updated10"));
+        s.emitTuple(tuple(s, 4999, "updated4999"));
+
+        // duplicate key, not inserted
+        Stream s1 = ydb.getStream("ctest_in");
+        s1.emitTuple(tuple(s1, 20, "updated20"));
+
+        List<Tuple> tlist = fetchAllFromTable("ctest");
+        assertEquals(N, tlist.size());
+        verify(tlist.get(10), 10, "updated10");
+        verify(tlist.get(20), 20, "msg20");
+        verify(tlist.get(4999), 4999, "updated4999");
+    }
+
+    @Test
+    public void testUpdateHistogram() throws Exception {
+        Stream s = ydb.getStream("ctest_in2");
+        // source changed from source1 to source0, added to the histogram
+        s.emitTuple(new Tuple(s.getDefinition(), new Object[] { 10_000L, "source0", 10, "updated10", null }));
+        // same source, not added to the histogram
+        s.emitTuple(new Tuple(s.getDefinition(), new Object[] { 20_000L, "source2", 20, "updated20", null }));
+
+        ColumnSerializer<String> cs = tblDef.getColumnSerializer("source");
+        Map<String, Integer> counts = new HashMap<>();
+        try (HistogramIterator it = ydb.getStorageEngine(tblDef).getHistogramIterator(ydb, tblDef, "source",
+                new TimeInterval())) {
+            while (it.hasNext()) {
+                HistogramRecord r = it.next();
+                counts.merge(cs.deserialize(ByteBuffer.wrap(r.getColumnv()), null), r.getNumTuples(), Integer::sum);
+            }
+        }
+        assertEquals(N / 3 + 2, counts.get("source0").intValue());
+        assertEquals(N / 3 + 1, counts.get("source1").intValue());
+        assertEquals(N / 3, counts.get("source2").intValue());
+    }
+
+    @Test
+    public void testSecondaryIndexRejected() throws Exception {
+        try {
+            execute("create table ctest2 (gentime timestamp, source string, primary key(gentime), index(source))"
+                    + " engine " + YarchDatabase.COLUMNAR_ENGINE_NAME);
+            fail("should have thrown an exception");
+        } catch (StreamSqlException e) {
+            assertTrue(e.getMessage().startsWith(ErrCode.NOT_SUPPORTED.name()));
+        }
+        assertNull(ydb.getTable("ctest2"));
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        execute("delete from ctest where gentime >= 100000 and gentime < 200000");
+        List<Tuple> tlist = fetchAllFromTable("ctest");
+        assertEquals(N - 100, tlist.size());
+        verify(tlist.get(99), 99, "msg99");
+        verify(tlist.get(100), 200, "msg200");
+
+        // insert again one of the deleted rows
+        Stream s = ydb.getStream("ctest_in");
+        s.emitTuple(tuple(s, 150, "msg150"));
+        tlist = fetchAllFromTable("ctest");
+        assertEquals(N - 99, tlist.size());
+        verify(tlist.get(100), 150, "msg150");
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        reloadDb();
+        TableDefinition td = ydb.getTable("ctest");
+        assertEquals(YarchDatabase.COLUMNAR_ENGINE_NAME, td.getStorageEngineName());
+        List<Tuple> tlist = fetchAllFromTable("ctest");
+        assertEquals(N, tlist.size());
+        verify(tlist.get(1234), 1234, "msg1234");
+    }
+}
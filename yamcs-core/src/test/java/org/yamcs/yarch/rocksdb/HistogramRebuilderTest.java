@@ -107,6 +107,52 @@ public class HistogramRebuilderTest extends YarchTestCase {
         iter.close();
     }
 
+    @Test
+    public void testParallelRebuild() throws Exception {
+        createTable(true);
+        tblDef = ydb.getTable(tblName);
+        rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
+        TableWriter tw = rse.newTableWriter(ydb, tblDef, InsertMode.INSERT);
+        // 100 hours of data, which results in many chunks
+        int n = 0;
+        for (long t = t1; t < t1 + 100 * 3600_000L; t += 600_000L) {
+            tw.onTuple(null, new Tuple(tblDef.getTupleDefinition(), new Object[] { t, n, "p" + (n % 3) }));
+            n++;
+        }
+        tw.close();
+        List<HistogramRecord> before = getHistogramRecords();
+
+        Tablespace tablespace = rse.getTablespace(ydb.getName());
+        HistogramRebuilder rebuilder = new HistogramRebuilder(tablespace, ydb, tblName);
+        rebuilder.rebuild().get();
+
+        assertSame(rebuilder, tablespace.getTable(tblDef).getHistogramRebuilder());
+        assertEquals(HistogramRebuilder.State.COMPLETED, rebuilder.getState());
+        assertEquals(n, rebuilder.getNumRecords());
+        assertEquals(rebuilder.getTotalIntervals(), rebuilder.getCompletedIntervals());
+        assertEquals(rebuilder.getTotalChunks(), rebuilder.getCompletedChunks());
+        assertTrue(rebuilder.getTotalChunks() > 1);
+
+        List<HistogramRecord> after = getHistogramRecords();
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            HistogramRecord hr1 = before.get(i);
+            HistogramRecord hr2 = after.get(i);
+            assertArrayEquals(hr1.getColumnv(), hr2.getColumnv());
+            assertEquals(hr1.getStart(), hr2.getStart());
+            assertEquals(hr1.getStop(), hr2.getStop());
+            assertEquals(hr1.getNumTuples(), hr2.getNumTuples());
+        }
+    }
+
+    private List<HistogramRecord> getHistogramRecords() throws Exception {
+        List<HistogramRecord> l = new ArrayList<>();
+        HistogramIterator iter = rse.getHistogramIterator(ydb, tblDef, "name", new TimeInterval());
+        iter.forEachRemaining(l::add);
+        iter.close();
+        return l;
+    }
+
     Thread startWriter(int n, int m, int seqStart, String p, Semaphore semaphore) {
         Thread thread = new Thread(() -> {
             int seq = seqStart;
@@ -23,6 +23,7 @@ import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchTestCase;
 import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.rocksdb.RdbConfig.GroupCommitConfig;
 import org.yamcs.yarch.rocksdb.RdbStorageEngine;
 
 @Ignore //note that this one does not cleanup the test directory resulting in error if run multiple times
@@ -39,9 +40,13 @@ public class RdbPerformanceTest extends YarchTestCase {
     };
     String dir = "/storage/ptest";
 
-    void populate(TableDefinition tblDef, int n, boolean timeFirst) throws Exception {        
+    void populate(TableDefinition tblDef, int n, boolean timeFirst) throws Exception {
+        populate(tblDef, n, timeFirst, null);
+    }
+
+    void populate(TableDefinition tblDef, int n, boolean timeFirst, GroupCommitConfig gcc) throws Exception {
         RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
-        tw = rse.newTableWriter(ydb, tblDef, InsertMode.INSERT);
+        tw = rse.getTablespace(ydb).newTableWriter(ydb, tblDef, InsertMode.INSERT, gcc);
 
         long baseTime = TimeEncoding.parse("2015-01-01T00:00:00");
 
@@ -65,6 +70,7 @@ public class RdbPerformanceTest extends YarchTestCase {
                 }
             }
         }
+        tw.close();
         System.out.println("total numPackets: "+numPackets);
         long t1 = System.currentTimeMillis();
         System.out.println("time to populate "+((t1-t0)/1000)+" seconds");
@@ -127,6 +133,38 @@ public class RdbPerformanceTest extends YarchTestCase {
         
     }
 
+    TableDefinition createPnameYYYYTable(String tblname) throws Exception {
+        tdef = new TupleDefinition();
+        tdef.addColumn(new ColumnDefinition("gentime", DataType.TIMESTAMP));
+        tdef.addColumn(new ColumnDefinition("pname", DataType.ENUM));
+        tdef.addColumn(new ColumnDefinition("packet", DataType.BINARY));
+        TableDefinition tblDef = new TableDefinition(tblname, tdef, Arrays.asList("gentime", "pname"));
+
+        PartitioningSpec pspec = PartitioningSpec.timeAndValueSpec("gentime", "pname");
+        pspec.setTimePartitioningSchema("YYYY");
+        tblDef.setPartitioningSpec(pspec);
+        tblDef.setStorageEngineName(YarchDatabase.RDB_ENGINE_NAME);
+
+        ydb.createTable(tblDef);
+        return tblDef;
+    }
+
+    /**
+     * compares the tuple by tuple writing with the group commit mode
+     */
+    @Test
+    public void testGroupCommit() throws Exception {
+        int n = 7 * 24 * 60 * 60;
+        System.out.println("********************** tuple by tuple **********************");
+        populate(createPnameYYYYTable("tbt"), n, true, null);
+
+        for (int batchSize : new int[] { 100, 1000, 10000 }) {
+            System.out.println("********************** group commit batchSize: " + batchSize
+                    + " **********************");
+            populate(createPnameYYYYTable("gc" + batchSize), n, true, new GroupCommitConfig(batchSize, 1000));
+        }
+    }
+
     @Test
     public void testPname() throws Exception {
         String tblname = "Pname";
@@ -0,0 +1,177 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocksdb.Snapshot;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.ColumnDefinition;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.DbRange;
+import org.yamcs.yarch.PartitioningSpec;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableVisitor;
+import org.yamcs.yarch.TableWriter;
+import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.streamsql.StreamSqlException;
+
+public class RdbReadAheadTest extends YarchTestCase {
+    static final int NUM_DAYS = 5;
+    static final int NUM_PER_DAY = 700;
+    static final long DAY = 24 * 3600 * 1000L;
+
+    TableDefinition tblDef;
+    RdbStorageEngine rse;
+
+    @Before
+    public void before() throws Exception {
+        TupleDefinition tdef = new TupleDefinition();
+        tdef.addColumn(new ColumnDefinition("gentime", DataType.TIMESTAMP));
+        tdef.addColumn(new ColumnDefinition("packetid", DataType.INT));
+        tdef.addColumn(new ColumnDefinition("col3", DataType.INT));
+        tblDef = new TableDefinition("RdbReadAheadTest", tdef, Arrays.asList("gentime", "packetid"));
+
+        PartitioningSpec pspec = PartitioningSpec.timeAndValueSpec("gentime", "packetid");
+        pspec.setValueColumnType(DataType.INT);
+        pspec.setTimePartitioningSchema("YYYY/DOY");
+        tblDef.setPartitioningSpec(pspec);
+        tblDef.setStorageEngineName(YarchDatabase.RDB_ENGINE_NAME);
+        ydb.createTable(tblDef);
+
+        rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
+        TableWriter tw = rse.newTableWriter(ydb, tblDef, InsertMode.INSERT);
+        long t0 = TimeEncoding.parse("2021-03-01T00:00:00");
+        for (int d = 0; d < NUM_DAYS; d++) {
+            for (int i = 0; i < NUM_PER_DAY; i++) {
+                long t = t0 + d * DAY + i * 1000L;
+                tw.onTuple(null, new Tuple(tdef, new Object[] { t, i % 3, i }));
+            }
+        }
+        tw.close();
+    }
+
+    @Test
+    public void testFullWalk() throws Exception {
+        for (boolean ascending : new boolean[] { true, false }) {
+            List<byte[]> expected = walk(ascending, 0, null, -1);
+            assertEquals(NUM_DAYS * NUM_PER_DAY, expected.size());
+            for (int depth : new int[] { 1, 3, 10 }) {
+                assertKeys(expected, walk(ascending, depth, null, -1));
+            }
+        }
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        List<byte[]> all = walk(true, 0, null, -1);
+        DbRange range = new DbRange();
+        range.rangeStart = all.get(500);
+        range.rangeEnd = all.get(2500);
+        for (boolean ascending : new boolean[] { true, false }) {
+            List<byte[]> expected = walk(ascending, 0, range, -1);
+            assertEquals(2001, expected.size());
+            for (int depth : new int[] { 1, 3 }) {
+                assertKeys(expected, walk(ascending, depth, range, -1));
+            }
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        for (boolean ascending : new boolean[] { true, false }) {
+            List<byte[]> expected = walk(ascending, 0, null, 1000);
+            assertEquals(1000, expected.size());
+            assertKeys(expected, walk(ascending, 2, null, 1000));
+        }
+    }
+
+    @Test(expected = StreamSqlException.class)
+    public void testUpdateNotAllowed() throws Exception {
+        RdbTableWalker walker = (RdbTableWalker) rse.newTableWalker(ydb, tblDef, true, false);
+        walker.setReadAheadDepth(1);
+        walker.walk((key, value) -> TableVisitor.ACTION_DELETE);
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        TupleDefinition tdef = tblDef.getTupleDefinition();
+        TableDefinition tblDef2 = new TableDefinition("RdbReadAheadTest2", tdef, Arrays.asList("gentime", "packetid"));
+        PartitioningSpec pspec = PartitioningSpec.timeAndValueSpec("gentime", "packetid");
+        pspec.setValueColumnType(DataType.INT);
+        pspec.setTimePartitioningSchema("YYYY");
+        tblDef2.setPartitioningSpec(pspec);
+        tblDef2.setStorageEngineName(YarchDatabase.RDB_ENGINE_NAME);
+        ydb.createTable(tblDef2);
+
+        long t0 = TimeEncoding.parse("2021-03-01T00:00:00");
+        TableWriter tw = rse.newTableWriter(ydb, tblDef2, InsertMode.INSERT);
+        for (int i = 0; i < 100; i++) {
+            tw.onTuple(null, new Tuple(tdef, new Object[] { t0 + i * 1000L, i % 3, i }));
+        }
+
+        // all the partitions are in the same database so one snapshot covers them all
+        Tablespace tablespace = rse.getTablespace(ydb);
+        YRDB rdb = tablespace.getRdb("2021", false);
+        Snapshot snapshot = rdb.getDb().getSnapshot();
+        for (int i = 100; i < 200; i++) {
+            tw.onTuple(null, new Tuple(tdef, new Object[] { t0 + i * 1000L, i % 3, i }));
+        }
+        tw.close();
+
+        try {
+            RdbTableWalker walker = (RdbTableWalker) rse.newTableWalker(ydb, tblDef2, true, false);
+            walker.setReadAheadDepth(1);
+            walker.setSharedSnapshot(snapshot);
+            List<byte[]> keys = new ArrayList<>();
+            walker.walk((key, value) -> {
+                keys.add(key);
+                return TableVisitor.ACTION_CONTINUE;
+            });
+            assertEquals(100, keys.size());
+        } finally {
+            rdb.getDb().releaseSnapshot(snapshot);
+            snapshot.close();
+            tablespace.dispose(rdb);
+        }
+
+        RdbTableWalker walker = (RdbTableWalker) rse.newTableWalker(ydb, tblDef2, true, false);
+        walker.setReadAheadDepth(1);
+        List<byte[]> keys = new ArrayList<>();
+        walker.walk((key, value) -> {
+            keys.add(key);
+            return TableVisitor.ACTION_CONTINUE;
+        });
+        assertEquals(200, keys.size());
+    }
+
+    private List<byte[]> walk(boolean ascending, int depth, DbRange range, int limit) throws Exception {
+        RdbTableWalker walker = (RdbTableWalker) rse.newTableWalker(ydb, tblDef, ascending, false);
+        walker.setReadAheadDepth(depth);
+        if (range != null) {
+            walker.setPrimaryIndexRange(range);
+        }
+        List<byte[]> keys = new ArrayList<>();
+        walker.walk((key, value) -> {
+            keys.add(key);
+            return keys.size() == limit ? TableVisitor.ACTION_STOP : TableVisitor.ACTION_CONTINUE;
+        });
+        return keys;
+    }
+
+    private void assertKeys(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
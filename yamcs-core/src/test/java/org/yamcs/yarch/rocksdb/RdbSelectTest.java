@@ -1,9 +1,11 @@
 package org.yamcs.yarch.rocksdb;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -15,6 +17,7 @@ import org.yamcs.utils.TimeEncoding;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.DataType;
 import org.yamcs.yarch.PartitioningSpec;
+import org.yamcs.yarch.Row;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.TableDefinition;
@@ -75,6 +78,27 @@ public class RdbSelectTest extends YarchTestCase {
         assertEquals(3000L, tuples.get(2).getLongColumn("gentime"));
     }
     
+    @Test
+    public void testProjection() throws Exception {
+        execute("create stream s1 as select col3 from RdbSelectTest where packetid > 10");
+        Stream s1 = ydb.getStream("s1");
+        List<Tuple> tuples = fetchTuples(s1);
+        assertEquals(2, tuples.size());
+        assertEquals(1, tuples.get(0).size());
+        assertEquals(2, tuples.get(0).getIntColumn("col3"));
+        assertEquals(3, tuples.get(1).getIntColumn("col3"));
+
+        TableDefinition tblDef = ydb.getTable("RdbSelectTest");
+        Tuple t = new Tuple(tdef, new Object[] { 4000L, 40, 4 });
+        Row row = tblDef.generateRow(t);
+        byte[] v = tblDef.serializeValue(t, row);
+        Tuple t1 = tblDef.deserialize(row.getKey(), v, Collections.singleton("col3"));
+        assertEquals(2, t1.size());
+        assertEquals(4000L, t1.getLongColumn("gentime"));
+        assertFalse(t1.hasColumn("packetid"));
+        assertEquals(4, t1.getIntColumn("col3"));
+    }
+
     @Test
     public void testOrderAscending() throws Exception {
         // keyword ORDER is allowed but unneeded (defaults to ascending)
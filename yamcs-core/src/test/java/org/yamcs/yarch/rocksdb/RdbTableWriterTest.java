@@ -0,0 +1,152 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.yamcs.yarch.ColumnDefinition;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.PartitioningSpec;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.rocksdb.RdbConfig.GroupCommitConfig;
+
+public class RdbTableWriterTest extends YarchTestCase {
+    TupleDefinition tdef;
+
+    TableDefinition createTable(String tblName) throws Exception {
+        tdef = new TupleDefinition();
+        tdef.addColumn(new ColumnDefinition("gentime", DataType.TIMESTAMP));
+        tdef.addColumn(new ColumnDefinition("packetid", DataType.INT));
+        tdef.addColumn(new ColumnDefinition("col3", DataType.INT));
+        TableDefinition tblDef = new TableDefinition(tblName, tdef, Arrays.asList("gentime", "packetid"));
+
+        PartitioningSpec pspec = PartitioningSpec.timeAndValueSpec("gentime", "packetid");
+        pspec.setValueColumnType(DataType.INT);
+        tblDef.setPartitioningSpec(pspec);
+        tblDef.setStorageEngineName(YarchDatabase.RDB_ENGINE_NAME);
+
+        ydb.createTable(tblDef);
+        return tblDef;
+    }
+
+    RdbTableWriter newWriter(TableDefinition tblDef, InsertMode mode, GroupCommitConfig gcc) {
+        RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
+        return rse.getTablespace(ydb).newTableWriter(ydb, tblDef, mode, gcc);
+    }
+
+    @Test
+    public void testGroupCommitInsert() throws Exception {
+        TableDefinition tblDef = createTable("gc_insert");
+        RdbTableWriter tw = newWriter(tblDef, InsertMode.INSERT, new GroupCommitConfig(3, 100000));
+
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L, 1, 1 }));
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L, 1, 2 }));
+        assertEquals(0, fetchAllFromTable("gc_insert").size());
+
+        // the batch is full, it is written
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 2000L, 2, 3 }));
+        List<Tuple> tlist = fetchAllFromTable("gc_insert");
+        assertEquals(2, tlist.size());
+        assertEquals(1, tlist.get(0).getIntColumn("col3"));
+
+        // existing key is ignored
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 2000L, 2, 4 }));
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 3000L, 2, 5 }));
+        tw.close();
+
+        tlist = fetchAllFromTable("gc_insert");
+        assertEquals(3, tlist.size());
+        assertEquals(3, tlist.get(1).getIntColumn("col3"));
+        assertEquals(5, tlist.get(2).getIntColumn("col3"));
+    }
+
+    @Test
+    public void testGroupCommitUpsert() throws Exception {
+        TableDefinition tblDef = createTable("gc_upsert");
+        RdbTableWriter tw = newWriter(tblDef, InsertMode.UPSERT, new GroupCommitConfig(100, 100000));
+
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L, 1, 1 }));
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L, 1, 2 }));
+        tw.flush();
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 2000L, 1, 3 }));
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L, 1, 4 }));
+        tw.flush();
+
+        List<Tuple> tlist = fetchAllFromTable("gc_upsert");
+        assertEquals(2, tlist.size());
+        assertEquals(4, tlist.get(0).getIntColumn("col3"));
+        assertEquals(3, tlist.get(1).getIntColumn("col3"));
+        tw.close();
+    }
+
+    @Test
+    public void testGroupCommitLatency() throws Exception {
+        TableDefinition tblDef = createTable("gc_latency");
+        RdbTableWriter tw = newWriter(tblDef, InsertMode.INSERT, new GroupCommitConfig(1000, 10));
+
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L, 1, 1 }));
+        for (int i = 0; i < 100; i++) {
+            Thread.sleep(10);
+            if (fetchAllFromTable("gc_latency").size() == 1) {
+                break;
+            }
+        }
+        assertEquals(1, fetchAllFromTable("gc_latency").size());
+        tw.close();
+    }
+
+    @Test
+    public void testKeyFilter() throws Exception {
+        TableDefinition tblDef = createTable("key_filter");
+        RdbTableWriter tw = newWriter(tblDef, InsertMode.LOAD, null);
+        for (int i = 0; i < 100; i++) {
+            tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L * i, 1, i }));
+        }
+        tw.close();
+
+        tw = newWriter(tblDef, InsertMode.INSERT, null);
+        // the first insert starts building the filter in the background
+        tw.onTuple(null, new Tuple(tdef, new Object[] { 0L, 1, -1 }));
+        RdbTable table = ((RdbStorageEngine) ydb.getStorageEngine(tblDef)).getTablespace(ydb).getTable(tblDef);
+        assertEquals(1, table.keyFilters.size());
+        KeyFilter keyFilter = table.keyFilters.values().iterator().next();
+        for (int i = 0; i < 100 && !keyFilter.isBuilt(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(keyFilter.isBuilt());
+
+        // duplicates are still rejected
+        for (int i = 0; i < 100; i++) {
+            tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L * i, 1, -1 }));
+        }
+        // new keys are inserted and added to the filter
+        for (int i = 100; i < 200; i++) {
+            tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L * i, 1, i }));
+            tw.onTuple(null, new Tuple(tdef, new Object[] { 1000L * i, 1, -1 }));
+        }
+        tw.close();
+
+        List<Tuple> tlist = fetchAllFromTable("key_filter");
+        assertEquals(200, tlist.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, tlist.get(i).getIntColumn("col3"));
+        }
+        assertFalse(keyFilter.isDisabled());
+
+        // the filters not used are evicted
+        long lastUsed = table.keyFilters.values().stream().mapToLong(kf -> kf.lastUsed).max().getAsLong();
+        table.evictKeyFilters(lastUsed);
+        assertFalse(table.keyFilters.isEmpty());
+        table.evictKeyFilters(lastUsed + 1);
+        assertTrue(table.keyFilters.isEmpty());
+    }
+}